@@ -0,0 +1,72 @@
+package xw.szbz.cn.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xw.szbz.cn.enums.Gender;
+import xw.szbz.cn.model.BaZiRequest;
+import xw.szbz.cn.model.BaZiResult;
+import xw.szbz.cn.model.DaYun;
+import xw.szbz.cn.model.LiuNian;
+import xw.szbz.cn.model.Pillar;
+import xw.szbz.cn.service.BaZiService;
+
+/**
+ * 八字排盘基准测试：四柱、大运、流年
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaZiBenchmark {
+
+    @Param({"1990-05-15-10", "1984-02-04-23"})
+    private String birth;
+
+    private BaZiService baZiService;
+    private BaZiRequest request;
+    private Pillar yearPillar;
+    private Pillar monthPillar;
+
+    @Setup
+    public void setUp() {
+        baZiService = new BaZiService();
+
+        String[] parts = birth.split("-");
+        request = new BaZiRequest("男", Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), null);
+
+        BaZiResult result = baZiService.calculate(request);
+        yearPillar = result.getYearPillar();
+        monthPillar = result.getMonthPillar();
+    }
+
+    @Benchmark
+    public BaZiResult calculate() {
+        return baZiService.calculate(request);
+    }
+
+    @Benchmark
+    public List<DaYun> calculateDaYun() {
+        return baZiService.calculateDaYun(Gender.MALE, yearPillar, monthPillar, request.getYear() + 3, 3, 10);
+    }
+
+    @Benchmark
+    public List<LiuNian> calculateLiuNian() {
+        return baZiService.calculateLiuNian(request.getYear(), 0, 100);
+    }
+}
@@ -0,0 +1,94 @@
+package xw.szbz.cn.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import xw.szbz.cn.model.BusinessLog;
+import xw.szbz.cn.service.BusinessLogService;
+
+/**
+ * 业务日志写入基准测试：原每条日志 Files.write(CREATE, APPEND)（sync）与环形队列 + 组提交（async）对比
+ * 日志内容按 /analyze 的典型大小构造（八字结果 + AI 分析约 6 KB）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusinessLogBenchmark {
+
+    private static final Path DIR = Paths.get("target/jmh-business-log");
+
+    private ObjectMapper objectMapper;
+    private BusinessLogService service;
+    private BusinessLog businessLog;
+    private Path syncFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Files.createDirectories(DIR.resolve("sync"));
+        syncFile = DIR.resolve("sync/business_sync.log");
+        Files.deleteIfExists(syncFile);
+
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        service = new BusinessLogService(DIR.resolve("async").toString(), true, 8192, "block", 1000,
+                65536, 200, 0);
+        service.start();
+
+        businessLog = new BusinessLog();
+        businessLog.setOpenId("oUpF8uMuAJO_M2pxb1Q9zNjWeS6o");
+        businessLog.setRequestIp("203.0.113.10");
+        businessLog.setGender("男");
+        businessLog.setYear(1990);
+        businessLog.setMonth(5);
+        businessLog.setDay(15);
+        businessLog.setHour(10);
+        businessLog.setBaziResult("{\"pillars\":\"" + "庚午 辛巳 庚辰 辛巳 ".repeat(60) + "\"}");
+        businessLog.setAiAnalysis("{\"summary\":\"" + "命局日主庚金生于巳月，".repeat(120) + "\"}");
+        businessLog.setResponseCode(200);
+        businessLog.setResponseMessage("success");
+        businessLog.setProcessingTime(1234L);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        service.destroy();
+    }
+
+    @Benchmark
+    public void sync() throws IOException {
+        String line = objectMapper.writeValueAsString(businessLog) + System.lineSeparator();
+        Files.write(syncFile, line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Benchmark
+    public void async() {
+        service.log(businessLog);
+    }
+}
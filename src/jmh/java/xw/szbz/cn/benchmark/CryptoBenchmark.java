@@ -0,0 +1,145 @@
+package xw.szbz.cn.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import xw.szbz.cn.util.Base58;
+import xw.szbz.cn.util.FieldEncryptionUtil;
+
+/**
+ * 字段加密基准测试：原每次调用 Cipher.getInstance / new SecureRandom / MessageDigest.getInstance 的实现（legacy）
+ * 与 AesGcmEngine（engine）对比；Base58 对比原逐字节除 58 的循环与按 32 位字的长除法
+ * 吞吐量模式，单线程，即单核每秒操作数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private static final String KEY = "benchmark-field-encryption-key-32";
+    private static final String IV_SALT = "benchmark-iv-salt";
+    private static final String EMAIL = "someone@example.com";
+    private static final String LEGACY_ALPHABET = Base58.ALPHABET;
+
+    private FieldEncryptionUtil fieldEncryptionUtil;
+    private String encryptedEmail;
+    private byte[] userIdCiphertext;
+
+    @Setup
+    public void setUp() throws Exception {
+        fieldEncryptionUtil = new FieldEncryptionUtil();
+        ReflectionTestUtils.setField(fieldEncryptionUtil, "encryptionKey", KEY);
+        ReflectionTestUtils.setField(fieldEncryptionUtil, "ivSalt", IV_SALT);
+        encryptedEmail = fieldEncryptionUtil.encryptDeterministic(EMAIL);
+        // 用户ID明文 "123456:1700000000" 加密后 IV + 密文 + 标签共 45 字节
+        userIdCiphertext = new byte[45];
+        new SecureRandom().nextBytes(userIdCiphertext);
+    }
+
+    @Benchmark
+    public String encryptDeterministicLegacy() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] iv = Arrays.copyOf(digest.digest((EMAIL + IV_SALT).getBytes(StandardCharsets.UTF_8)), 12);
+        SecretKeySpec keySpec = new SecretKeySpec(Arrays.copyOf(KEY.getBytes(StandardCharsets.UTF_8), 32), "AES");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(128, iv));
+        byte[] ciphertext = cipher.doFinal(EMAIL.getBytes(StandardCharsets.UTF_8));
+        byte[] result = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, result, 0, iv.length);
+        System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
+        return Base64.getEncoder().encodeToString(result);
+    }
+
+    @Benchmark
+    public String encryptDeterministicEngine() {
+        return fieldEncryptionUtil.encryptDeterministic(EMAIL);
+    }
+
+    @Benchmark
+    public String encryptRandomLegacy() throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        SecretKeySpec keySpec = new SecretKeySpec(Arrays.copyOf(KEY.getBytes(StandardCharsets.UTF_8), 32), "AES");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(128, iv));
+        byte[] ciphertext = cipher.doFinal(EMAIL.getBytes(StandardCharsets.UTF_8));
+        byte[] result = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, result, 0, iv.length);
+        System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
+        return Base64.getEncoder().encodeToString(result);
+    }
+
+    @Benchmark
+    public String encryptRandomEngine() {
+        return fieldEncryptionUtil.encryptRandom(EMAIL);
+    }
+
+    @Benchmark
+    public String decryptLegacy() throws Exception {
+        byte[] data = Base64.getDecoder().decode(encryptedEmail);
+        byte[] iv = new byte[12];
+        byte[] ciphertext = new byte[data.length - 12];
+        System.arraycopy(data, 0, iv, 0, 12);
+        System.arraycopy(data, 12, ciphertext, 0, ciphertext.length);
+        SecretKeySpec keySpec = new SecretKeySpec(Arrays.copyOf(KEY.getBytes(StandardCharsets.UTF_8), 32), "AES");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(128, iv));
+        return new String(cipher.doFinal(ciphertext), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String decryptEngine() {
+        return fieldEncryptionUtil.decrypt(encryptedEmail);
+    }
+
+    @Benchmark
+    public String base58EncodeLegacy() {
+        byte[] temp = Arrays.copyOf(userIdCiphertext, userIdCiphertext.length);
+        char[] encoded = new char[temp.length * 2];
+        int outputStart = encoded.length;
+        for (int inputStart = 0; inputStart < temp.length; ) {
+            int remainder = 0;
+            for (int i = inputStart; i < temp.length; i++) {
+                int value = remainder * 256 + (temp[i] & 0xFF);
+                temp[i] = (byte) (value / 58);
+                remainder = value % 58;
+            }
+            if (temp[inputStart] == 0) {
+                inputStart++;
+            }
+            encoded[--outputStart] = LEGACY_ALPHABET.charAt(remainder);
+        }
+        while (outputStart < encoded.length && encoded[outputStart] == '1') {
+            outputStart++;
+        }
+        return new String(encoded, outputStart, encoded.length - outputStart);
+    }
+
+    @Benchmark
+    public String base58EncodeEngine() {
+        return Base58.encode(userIdCiphertext);
+    }
+}
@@ -0,0 +1,59 @@
+package xw.szbz.cn.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import xw.szbz.cn.service.BaZiService;
+import xw.szbz.cn.service.LiuRenService;
+
+/**
+ * 大六壬起课基准测试
+ *
+ * 依次遍历一年内每个时辰的起课时间，避免只测到单一课体
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiuRenBenchmark {
+
+    private static final int TIME_COUNT = 365 * 12;
+
+    private LiuRenService liuRenService;
+    private LocalDateTime[] times;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        liuRenService = new LiuRenService();
+        ReflectionTestUtils.setField(liuRenService, "baZiService", new BaZiService());
+        liuRenService.initCourseTable();
+
+        times = new LocalDateTime[TIME_COUNT];
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 1, 30);
+        for (int i = 0; i < TIME_COUNT; i++) {
+            times[i] = start.plusHours(2L * i);
+        }
+    }
+
+    @Benchmark
+    public String generateCourseInfo() {
+        LocalDateTime time = times[cursor];
+        cursor = (cursor + 1) % TIME_COUNT;
+        return liuRenService.generateCourseInfo(time);
+    }
+}
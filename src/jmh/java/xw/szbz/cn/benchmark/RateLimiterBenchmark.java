@@ -0,0 +1,74 @@
+package xw.szbz.cn.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xw.szbz.cn.util.SlidingWindowRateLimiter;
+
+/**
+ * IP 限流器基准测试：不同活跃 IP 数量下每次请求的开销
+ * 容量与 cache.rate-limit.max-size 默认值一致（50000），100000 个 IP 时持续触发淘汰
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int MAX_ENTRIES = 50_000;
+
+    @Param({"1000", "10000", "100000"})
+    public int distinctIps;
+
+    private SlidingWindowRateLimiter limiter;
+    private String[] ips;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = new SlidingWindowRateLimiter(MAX_ENTRIES, 60_000L);
+        ips = new String[distinctIps];
+        for (int i = 0; i < distinctIps; i++) {
+            ips[i] = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    /**
+     * 单线程按顺序轮换 IP
+     */
+    @Benchmark
+    public boolean tryAcquire(Cursor cursor) {
+        String ip = ips[cursor.next];
+        cursor.next = cursor.next + 1 == ips.length ? 0 : cursor.next + 1;
+        return limiter.tryAcquire(ip, 60);
+    }
+
+    /**
+     * 4 个线程并发（与 Tomcat 工作线程并发调用过滤器的场景一致）
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean tryAcquireContended(Cursor cursor) {
+        String ip = ips[cursor.next];
+        cursor.next = cursor.next + 7 >= ips.length ? (cursor.next + 7) % ips.length : cursor.next + 7;
+        return limiter.tryAcquire(ip, 60);
+    }
+}
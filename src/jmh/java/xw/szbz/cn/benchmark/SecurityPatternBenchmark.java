@@ -0,0 +1,70 @@
+package xw.szbz.cn.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xw.szbz.cn.config.SecurityFilter;
+import xw.szbz.cn.util.AhoCorasickMatcher;
+
+/**
+ * SecurityFilter 恶意参数扫描基准测试：原逐个 toLowerCase + contains 循环与 Aho-Corasick 自动机对比
+ * 输入为不含恶意关键词的正常查询串（需要完整扫描，最坏情况）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityPatternBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int length;
+
+    private List<String> patterns;
+    private AhoCorasickMatcher matcher;
+    private String queryString;
+
+    @Setup
+    public void setUp() {
+        patterns = SecurityFilter.MALICIOUS_PARAM_PATTERNS;
+        matcher = new AhoCorasickMatcher(patterns);
+
+        StringBuilder builder = new StringBuilder();
+        int i = 0;
+        while (builder.length() < length) {
+            builder.append(i == 0 ? "" : "&").append("Question").append(i)
+                    .append("=%E9%97%AE%E4%BA%8B%E4%B8%9A+Year-1990+Gender-Male");
+            i++;
+        }
+        queryString = builder.substring(0, length);
+    }
+
+    @Benchmark
+    public boolean loop() {
+        String lowerText = queryString.toLowerCase();
+        for (String pattern : patterns) {
+            if (lowerText.contains(pattern.toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean automaton() {
+        return matcher.containsAny(queryString);
+    }
+}
@@ -0,0 +1,244 @@
+package xw.szbz.cn.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SQLite 持久化配置基准测试：每个请求都会执行的查询和单条插入，在百万行数据下对比
+ * - baseline：默认 DELETE 日志模式、synchronous=FULL、无索引（原 application.yml）
+ * - tuned：WAL、synchronous=NORMAL、实体上声明的组合索引（application-prod.yml）
+ *
+ * 数据库文件生成在 target/jmh-sqlite/ 下并复用，首次运行需要数十秒灌数据
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqliteQueryBenchmark {
+
+    private static final int USER_COUNT = 100_000;
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final long BASE_TIME = 1_735_660_800_000L; // 2025-01-01 00:00 北京时间
+
+    @Param({"baseline", "tuned"})
+    public String mode;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement countWenJi;
+    private PreparedStatement findJiTu;
+    private PreparedStatement findLifeAI;
+    private PreparedStatement insertWenJi;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        Path dir = Paths.get("target", "jmh-sqlite");
+        Files.createDirectories(dir);
+        Path db = dir.resolve(mode + "-" + rows + ".db");
+        String url = "jdbc:sqlite:" + db.toAbsolutePath();
+        if ("tuned".equals(mode)) {
+            url += "?journal_mode=WAL&synchronous=NORMAL&busy_timeout=5000&cache_size=-16000&temp_store=MEMORY";
+        }
+        connection = DriverManager.getConnection(url);
+
+        if (!isPopulated()) {
+            createSchema();
+            populate();
+        }
+
+        countWenJi = connection.prepareStatement(
+                "SELECT COUNT(*) FROM wen_ji WHERE open_id = ? AND create_time >= ? AND create_time <= ?");
+        findJiTu = connection.prepareStatement(
+                "SELECT id, default_result FROM ji_tu WHERE gender = ? AND year = ? AND month = ? AND day = ? AND hour = ?"
+                        + " ORDER BY create_time DESC LIMIT 1");
+        findLifeAI = connection.prepareStatement(
+                "SELECT id, question, result FROM lifeai_result WHERE user_id = ? AND category = ?"
+                        + " ORDER BY create_time DESC LIMIT 10");
+        insertWenJi = connection.prepareStatement(
+                "INSERT INTO wen_ji (open_id, question, background, birth_year, gender, result, create_time)"
+                        + " VALUES (?, '问事业', NULL, 1990, 'male', '吉', ?)");
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * 每日提交次数统计（/wenji 限流）
+     */
+    @Benchmark
+    public long countTodaySubmits() throws SQLException {
+        long day = BASE_TIME + random.nextInt(30) * DAY_MILLIS;
+        countWenJi.setString(1, "openid-" + random.nextInt(USER_COUNT));
+        countWenJi.setLong(2, day);
+        countWenJi.setLong(3, day + DAY_MILLIS);
+        try (ResultSet rs = countWenJi.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 按生辰查吉途缓存（/analyze）
+     */
+    @Benchmark
+    public long findJiTuByBirth() throws SQLException {
+        findJiTu.setString(1, random.nextBoolean() ? "male" : "female");
+        findJiTu.setInt(2, 1950 + random.nextInt(60));
+        findJiTu.setInt(3, 1 + random.nextInt(12));
+        findJiTu.setInt(4, 1 + random.nextInt(28));
+        findJiTu.setInt(5, random.nextInt(24));
+        try (ResultSet rs = findJiTu.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 按分类分页查 LifeAI 历史
+     */
+    @Benchmark
+    public int findLifeAIHistory() throws SQLException {
+        findLifeAI.setLong(1, random.nextInt(USER_COUNT));
+        findLifeAI.setString(2, category(random.nextInt(4)));
+        int count = 0;
+        try (ResultSet rs = findLifeAI.executeQuery()) {
+            while (rs.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单条插入并提交（自动提交，包含日志 fsync）
+     */
+    @Benchmark
+    public int insertWenJi() throws SQLException {
+        insertWenJi.setString(1, "openid-" + random.nextInt(USER_COUNT));
+        insertWenJi.setLong(2, System.currentTimeMillis());
+        return insertWenJi.executeUpdate();
+    }
+
+    private boolean isPopulated() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'lifeai_result'")) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE wen_ji (id INTEGER PRIMARY KEY, open_id VARCHAR(100) NOT NULL,"
+                    + " question VARCHAR(500) NOT NULL, background VARCHAR(2000), birth_year INTEGER NOT NULL,"
+                    + " gender VARCHAR(10) NOT NULL, result TEXT, create_time BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE ji_tu (id INTEGER PRIMARY KEY, open_id VARCHAR(100) NOT NULL,"
+                    + " gender VARCHAR(10) NOT NULL, year INTEGER NOT NULL, month INTEGER NOT NULL,"
+                    + " day INTEGER NOT NULL, hour INTEGER NOT NULL, default_result TEXT, create_time BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE lifeai_result (id INTEGER PRIMARY KEY, user_id BIGINT NOT NULL,"
+                    + " question TEXT NOT NULL, background TEXT, result TEXT, birthday_year INTEGER NOT NULL,"
+                    + " gender VARCHAR(10), category VARCHAR(50), create_time BIGINT NOT NULL)");
+            if ("tuned".equals(mode)) {
+                // 与实体 @Table(indexes) 声明一致
+                statement.execute("CREATE INDEX idx_wen_ji_open_id_create_time ON wen_ji (open_id, create_time)");
+                statement.execute("CREATE INDEX idx_ji_tu_open_id_create_time ON ji_tu (open_id, create_time)");
+                statement.execute("CREATE INDEX idx_ji_tu_birth_create_time"
+                        + " ON ji_tu (gender, year, month, day, hour, create_time)");
+                statement.execute("CREATE INDEX idx_lifeai_result_user_category_time"
+                        + " ON lifeai_result (user_id, category, create_time)");
+                statement.execute("CREATE INDEX idx_lifeai_result_user_time ON lifeai_result (user_id, create_time)");
+            }
+        }
+    }
+
+    private void populate() throws SQLException {
+        SplittableRandom data = new SplittableRandom(7);
+        connection.setAutoCommit(false);
+        try (PreparedStatement wenJi = connection.prepareStatement(
+                     "INSERT INTO wen_ji (open_id, question, background, birth_year, gender, result, create_time)"
+                             + " VALUES (?, '问事业', NULL, ?, ?, '吉', ?)");
+             PreparedStatement jiTu = connection.prepareStatement(
+                     "INSERT INTO ji_tu (open_id, gender, year, month, day, hour, default_result, create_time)"
+                             + " VALUES (?, ?, ?, ?, ?, ?, '{}', ?)");
+             PreparedStatement lifeAI = connection.prepareStatement(
+                     "INSERT INTO lifeai_result (user_id, question, background, result, birthday_year, gender,"
+                             + " category, create_time) VALUES (?, '问事业', NULL, '{}', 1990, 'male', ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                long createTime = BASE_TIME + data.nextLong(30 * DAY_MILLIS);
+                String openId = "openid-" + data.nextInt(USER_COUNT);
+                String gender = data.nextBoolean() ? "male" : "female";
+
+                wenJi.setString(1, openId);
+                wenJi.setInt(2, 1950 + data.nextInt(60));
+                wenJi.setString(3, gender);
+                wenJi.setLong(4, createTime);
+                wenJi.addBatch();
+
+                jiTu.setString(1, openId);
+                jiTu.setString(2, gender);
+                jiTu.setInt(3, 1950 + data.nextInt(60));
+                jiTu.setInt(4, 1 + data.nextInt(12));
+                jiTu.setInt(5, 1 + data.nextInt(28));
+                jiTu.setInt(6, data.nextInt(24));
+                jiTu.setLong(7, createTime);
+                jiTu.addBatch();
+
+                lifeAI.setLong(1, data.nextInt(USER_COUNT));
+                lifeAI.setString(2, category(data.nextInt(4)));
+                lifeAI.setLong(3, createTime);
+                lifeAI.addBatch();
+
+                if (i % 10_000 == 9_999) {
+                    wenJi.executeBatch();
+                    jiTu.executeBatch();
+                    lifeAI.executeBatch();
+                }
+            }
+            wenJi.executeBatch();
+            jiTu.executeBatch();
+            lifeAI.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static String category(int index) {
+        return switch (index) {
+            case 0 -> "career";
+            case 1 -> "love";
+            case 2 -> "health";
+            default -> "wealth";
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package xw.szbz.cn.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.util.FieldEncryptionUtil;
+import xw.szbz.cn.util.PasswordHashUtil;
+import xw.szbz.cn.util.PromptTemplateUtil;
+import xw.szbz.cn.util.SignatureUtil;
+
+/**
+ * 请求链路工具类基准测试：提示词渲染、接口签名、字段加密
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private PromptTemplateUtil promptTemplateUtil;
+    private SignatureUtil signatureUtil;
+    private FieldEncryptionUtil fieldEncryptionUtil;
+
+    private Map<String, String> templateVariables;
+    private Map<String, String> signParams;
+
+    @Setup
+    public void setUp() {
+        promptTemplateUtil = new PromptTemplateUtil();
+        // 指向不存在的目录，走类路径模板
+        ReflectionTestUtils.setField(promptTemplateUtil, "promptBasePath", "target/jmh-no-templates");
+
+        signatureUtil = new SignatureUtil(new PasswordHashUtil(), new ObjectMapper());
+
+        fieldEncryptionUtil = new FieldEncryptionUtil();
+        ReflectionTestUtils.setField(fieldEncryptionUtil, "encryptionKey", "benchmark-field-encryption-key-32");
+        ReflectionTestUtils.setField(fieldEncryptionUtil, "ivSalt", "benchmark-iv-salt");
+
+        templateVariables = new HashMap<>();
+        templateVariables.put("basicInfo", "男 1990年5月15日10时 庚午年 辛巳月 庚辰日 辛巳时");
+        templateVariables.put("daYunStringList", "壬午(3-12) 癸未(13-22) 甲申(23-32) 乙酉(33-42)");
+        templateVariables.put("background", "近期考虑换工作");
+        templateVariables.put("daYunALLStringList", "壬午 癸未 甲申 乙酉 丙戌 丁亥 戊子 己丑 庚寅 辛卯");
+
+        signParams = new HashMap<>();
+        signParams.put("question", "近期事业发展如何");
+        signParams.put("background", "在职三年，考虑跳槽");
+        signParams.put("birthYear", "1990");
+        signParams.put("gender", "男");
+        signParams.put("language", "cn");
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return promptTemplateUtil.renderTemplate("prompts/bazi_prediction_template.txt", templateVariables);
+    }
+
+    @Benchmark
+    public String generateSignature() {
+        return signatureUtil.generateSignature(signParams, "1735689600000",
+                "0123456789abcdef0123456789abcdef", "benchmark-sign-secret");
+    }
+
+    @Benchmark
+    public String encryptDeterministic() {
+        return fieldEncryptionUtil.encryptDeterministic("someone@example.com");
+    }
+}
@@ -0,0 +1,55 @@
+package xw.szbz.cn.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 外部 HTTP 调用配置
+ * Gemini 使用一个共享的 HttpClient：HTTP/2 多路复用、连接保活，避免每次请求重新握手
+ */
+@Configuration
+public class HttpClientConfig implements DisposableBean {
+
+    @Value("${gemini.http.connect-timeout-ms:10000}")
+    private long connectTimeoutMs;
+
+    @Value("${gemini.http.executor-threads:8}")
+    private int executorThreads;
+
+    /**
+     * HttpClient 回调线程池（固定大小），不注册为 Bean，以免顶替 Spring 默认的任务线程池
+     */
+    private ExecutorService geminiHttpExecutor;
+
+    @Bean(name = "geminiHttpClient")
+    public HttpClient geminiHttpClient() {
+        AtomicInteger counter = new AtomicInteger();
+        geminiHttpExecutor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+            Thread thread = new Thread(runnable, "gemini-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(geminiHttpExecutor)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        if (geminiHttpExecutor != null) {
+            geminiHttpExecutor.shutdown();
+        }
+    }
+}
@@ -1,128 +1,225 @@
 package xw.szbz.cn.config;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import xw.szbz.cn.filter.TeeResponseWrapper;
+import xw.szbz.cn.service.AccessLogService;
+import xw.szbz.cn.service.AccessLogService.AccessLogRecord;
 
 /**
  * 接口请求响应日志过滤器
- * 记录所有接口的请求参数、响应结果和耗时
+ * 记录接口的请求参数、响应结果和耗时：
+ * - 响应直接透传给客户端，只旁路复制前 max-body-bytes 个字节；SSE 响应只统计字节数，不缓冲内容
+ * - 请求线程只提取记录，序列化和写日志由 {@link AccessLogService} 的写线程完成
+ * - 按路由前缀配置详细程度（none / basic / body），按比例采样；错误和慢请求不受采样影响
+ * 异步接口（返回 CompletableFuture / SseEmitter）在异步分派结束后才记录
  */
 @Component
 @Order(1)
-public class LoggingFilter implements Filter {
+public class LoggingFilter extends OncePerRequestFilter {
 
-    private static final Logger ACCESS_LOGGER = LoggerFactory.getLogger("ACCESS_LOGGER");
     private static final Logger logger = LoggerFactory.getLogger(LoggingFilter.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String START_TIME_ATTRIBUTE = LoggingFilter.class.getName() + ".START_TIME";
+    private static final String SAMPLED_ATTRIBUTE = LoggingFilter.class.getName() + ".SAMPLED";
+
+    /**
+     * 日志详细程度
+     */
+    enum Verbosity {
+        /** 不记录 */
+        NONE,
+        /** 只记录方法、路径、状态码和耗时 */
+        BASIC,
+        /** 另外记录请求参数和请求体、响应体前缀 */
+        BODY
+    }
 
+    private record RouteVerbosity(String prefix, Verbosity verbosity) {
+    }
+
+    private final AccessLogService accessLogService;
+    private final Verbosity defaultVerbosity;
+    private final List<RouteVerbosity> routes;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+    private final long slowMillis;
+
+    public LoggingFilter(AccessLogService accessLogService,
+                         @Value("${access-log.level:body}") String level,
+                         @Value("${access-log.routes:}") String routeConfig,
+                         @Value("${access-log.sample-rate:1.0}") double sampleRate,
+                         @Value("${access-log.max-body-bytes:4096}") int maxBodyBytes,
+                         @Value("${access-log.slow-ms:3000}") long slowMillis) {
+        this.accessLogService = accessLogService;
+        this.defaultVerbosity = parseVerbosity(level, Verbosity.BODY);
+        this.routes = parseRoutes(routeConfig);
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+        this.slowMillis = slowMillis;
+        logger.info("访问日志: 默认 {}，路由 {}，采样率 {}，响应体最多记录 {} 字节",
+                defaultVerbosity, routes, sampleRate, maxBodyBytes);
+    }
+
+    /**
+     * 异步分派时也经过本过滤器，才能在异步结果写完后记录日志
+     */
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
-            throws IOException, ServletException {
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 
-        // 类型转换
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
-        HttpServletResponse httpResponse = (HttpServletResponse) response;
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
 
-        // 包装请求和响应以便读取内容
-        ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(httpRequest);
-        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(httpResponse);
+        Verbosity verbosity = verbosityFor(request.getRequestURI());
+        if (verbosity == Verbosity.NONE) {
+            chain.doFilter(request, response);
+            return;
+        }
 
-        long startTime = System.currentTimeMillis();
+        // 首次分派时决定是否采样，异步分派沿用同一结果
+        Object startAttribute = request.getAttribute(START_TIME_ATTRIBUTE);
+        long startTime = startAttribute instanceof Long start ? start : System.currentTimeMillis();
+        request.setAttribute(START_TIME_ATTRIBUTE, startTime);
+        Object sampledAttribute = request.getAttribute(SAMPLED_ATTRIBUTE);
+        boolean sampled = sampledAttribute instanceof Boolean value ? value
+                : sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        request.setAttribute(SAMPLED_ATTRIBUTE, sampled);
+
+        // 只有采样且需要记录内容时才包装（异步分派时复用首次分派的包装对象）
+        HttpServletRequest requestToUse = request;
+        HttpServletResponse responseToUse = response;
+        if (sampled && verbosity == Verbosity.BODY) {
+            ContentCachingRequestWrapper requestWrapper =
+                    WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
+            requestToUse = requestWrapper != null ? requestWrapper
+                    : new ContentCachingRequestWrapper(request, maxBodyBytes);
+            TeeResponseWrapper responseWrapper = WebUtils.getNativeResponse(response, TeeResponseWrapper.class);
+            responseToUse = responseWrapper != null ? responseWrapper
+                    : new TeeResponseWrapper(response, maxBodyBytes);
+        }
 
         try {
             // 执行请求
-            chain.doFilter(requestWrapper, responseWrapper);
+            chain.doFilter(requestToUse, responseToUse);
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
-
-            // 记录请求响应日志
-            logRequestResponse(requestWrapper, responseWrapper, duration);
-
-            // 将响应内容复制回原始响应
-            responseWrapper.copyBodyToResponse();
+            TeeResponseWrapper responseWrapper = WebUtils.getNativeResponse(responseToUse, TeeResponseWrapper.class);
+            if (responseWrapper != null) {
+                responseWrapper.flushWriter();
+            }
+            if (!isAsyncStarted(requestToUse)) {
+                completeLogging(requestToUse, responseToUse, responseWrapper, verbosity, sampled, startTime);
+            }
         }
     }
 
     /**
-     * 记录请求响应日志
+     * 请求处理结束：提取访问记录并交给写线程
      */
-    private void logRequestResponse(ContentCachingRequestWrapper request,
-                                     ContentCachingResponseWrapper response,
-                                     long duration) {
+    private void completeLogging(HttpServletRequest request, HttpServletResponse response,
+                                 TeeResponseWrapper responseWrapper, Verbosity verbosity,
+                                 boolean sampled, long startTime) {
+        long duration = System.currentTimeMillis() - startTime;
+        int status = response.getStatus();
+        if (!sampled && status < 400 && duration < slowMillis) {
+            accessLogService.recordSampledOut();
+            return;
+        }
+
         try {
-            Map<String, Object> logData = new HashMap<>();
-
-            // 基本信息
-            logData.put("timestamp", System.currentTimeMillis());
-            logData.put("method", request.getMethod());
-            logData.put("uri", request.getRequestURI());
-            logData.put("queryString", request.getQueryString());
-
-            // 请求信息
-            Map<String, Object> requestInfo = new HashMap<>();
-
-            // 获取请求参数（避免读取大文件）
-            String contentType = request.getContentType();
-            if (contentType != null && contentType.contains("application/json")) {
-                byte[] content = request.getContentAsByteArray();
-                if (content.length > 0 && content.length < 10240) { // 小于10KB
-                    String body = new String(content, StandardCharsets.UTF_8);
-                    requestInfo.put("body", body);
+            byte[] requestBody = null;
+            boolean requestTruncated = false;
+            Map<String, String[]> parameters = null;
+            byte[] responseBody = null;
+            boolean truncated = false;
+            boolean streaming = false;
+            long bodySize = -1;
+
+            ContentCachingRequestWrapper requestWrapper =
+                    WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
+            if (verbosity == Verbosity.BODY && requestWrapper != null) {
+                // 获取请求参数（JSON 请求只记录已读取的请求体前缀）
+                String contentType = request.getContentType();
+                if (contentType != null && contentType.contains("application/json")) {
+                    requestBody = requestWrapper.getContentAsByteArray();
+                    requestTruncated = request.getContentLengthLong() > requestBody.length;
+                } else {
+                    parameters = new LinkedHashMap<>(request.getParameterMap());
                 }
-            } else {
-                requestInfo.put("parameters", request.getParameterMap());
             }
-
-            logData.put("request", requestInfo);
-
-            // 响应信息
-            Map<String, Object> responseInfo = new HashMap<>();
-            responseInfo.put("status", response.getStatus());
-            responseInfo.put("duration", duration + "ms");
-
-            // 获取响应内容（避免读取大文件）
-            byte[] responseContent = response.getContentAsByteArray();
-            if (responseContent.length > 0 && responseContent.length < 10240) { // 小于10KB
-                String responseBody = new String(responseContent, StandardCharsets.UTF_8);
-                // 尝试格式化 JSON
-                try {
-                    Object json = objectMapper.readValue(responseBody, Object.class);
-                    responseInfo.put("body", json);
-                } catch (Exception e) {
-                    responseInfo.put("body", responseBody);
-                }
-            } else {
-                responseInfo.put("bodySize", responseContent.length + " bytes");
+            if (responseWrapper != null) {
+                streaming = responseWrapper.isStreaming();
+                bodySize = responseWrapper.getBodySize();
+                truncated = responseWrapper.isTruncated();
+                responseBody = streaming ? null : responseWrapper.getCapturedBody();
             }
 
-            logData.put("response", responseInfo);
-
-            // 记录日志（JSON格式）
-            String logJson = objectMapper.writeValueAsString(logData);
-            ACCESS_LOGGER.info(logJson);
-
+            accessLogService.submit(new AccessLogRecord(System.currentTimeMillis(),
+                    request.getMethod(), request.getRequestURI(), request.getQueryString(),
+                    requestBody, requestTruncated, parameters,
+                    status, duration, response.getContentType(), bodySize,
+                    responseBody, truncated, streaming));
         } catch (Exception e) {
             logger.error("记录访问日志失败", e);
         }
     }
 
+    Verbosity verbosityFor(String uri) {
+        for (RouteVerbosity route : routes) {
+            if (uri.startsWith(route.prefix())) {
+                return route.verbosity();
+            }
+        }
+        return defaultVerbosity;
+    }
+
+    /**
+     * 解析路由配置（/api/security=basic,/actuator=none），按前缀长度倒序排列以便最长前缀优先匹配
+     */
+    private static List<RouteVerbosity> parseRoutes(String config) {
+        List<RouteVerbosity> routes = new ArrayList<>();
+        if (config == null || config.isBlank()) {
+            return routes;
+        }
+        for (String item : config.split(",")) {
+            String[] parts = item.trim().split("=");
+            Verbosity verbosity = parts.length == 2 ? parseVerbosity(parts[1], null) : null;
+            if (verbosity == null || parts[0].isBlank()) {
+                logger.warn("忽略无效的访问日志路由配置: {}", item);
+                continue;
+            }
+            routes.add(new RouteVerbosity(parts[0].trim(), verbosity));
+        }
+        routes.sort(Comparator.comparingInt((RouteVerbosity route) -> route.prefix().length()).reversed());
+        return routes;
+    }
+
+    private static Verbosity parseVerbosity(String value, Verbosity fallback) {
+        try {
+            return Verbosity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return fallback;
+        }
+    }
 }
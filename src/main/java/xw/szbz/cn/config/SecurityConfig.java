@@ -9,6 +9,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import jakarta.servlet.DispatcherType;
 import xw.szbz.cn.filter.JwtAuthenticationFilter;
 
 /**
@@ -35,6 +36,9 @@ public class SecurityConfig {
 
             // 配置授权规则
             .authorizeHttpRequests(auth -> auth
+                // 异步接口结果回写时的二次分派（首次分派已完成认证）
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // 公开的接口（不需要认证）
                 .requestMatchers(
                     // 注册和登录相关接口
@@ -52,6 +56,9 @@ public class SecurityConfig {
                     "/error"
                 ).permitAll()
 
+                // 管理接口（业务日志查询、缓存清空）仅管理员可访问
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
+
                 // 其他所有接口都需要认证
                 .anyRequest().authenticated()
             )
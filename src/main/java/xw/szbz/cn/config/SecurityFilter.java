@@ -1,7 +1,13 @@
 package xw.szbz.cn.config;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -17,6 +23,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -24,6 +31,8 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import xw.szbz.cn.util.AhoCorasickMatcher;
+import xw.szbz.cn.util.SlidingWindowRateLimiter;
 
 /**
  * 安全过滤器 - 拦截常见的恶意扫描请求
@@ -32,8 +41,10 @@ import jakarta.servlet.http.HttpServletResponse;
  * 新增功能：
  * 1. RCE 攻击检测（Node.js、Python、Shell 命令注入）
  * 2. HTTP Method 白名单（禁止 PROPFIND、PROPPATCH 等 WebDAV 方法）
- * 3. IP 限流（每分钟最多 60 次请求）
- * 4. 恶意 IP 自动封禁（累计拦截 5 次）
+ * 3. IP 限流（滑动窗口，每分钟最多 60 次请求，可按路由单独配置更低的限制）
+ * 4. 恶意 IP 自动封禁（累计拦截 500 次）
+ *
+ * 限流计数和拦截计数的条目数受 cache.rate-limit.max-size 限制，轮换源 IP 的扫描不会无限占用内存
  */
 @Component
 @Order(0)
@@ -46,22 +57,36 @@ public class SecurityFilter implements Filter {
         "GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD"
     ));
 
-    // IP 限流：每个 IP 的请求计数（每分钟重置）
-    private final ConcurrentHashMap<String, AtomicInteger> ipRequestCounts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> ipRequestResetTime = new ConcurrentHashMap<>();
-    
-    // IP 黑名单：累计拦截 5 次的 IP 自动封禁
+    private static final long RATE_LIMIT_WINDOW_MILLIS = 60_000L;
+
+    /**
+     * 路由限流规则（按路径前缀匹配，最长前缀优先）
+     */
+    private record RouteLimit(String prefix, int limit) {
+    }
+
+    // IP 限流：key 为 IP（全局限制）或 "路由前缀 IP"（路由限制）
+    private SlidingWindowRateLimiter rateLimiter;
+    private List<RouteLimit> routeLimits = List.of();
+
+    // IP 黑名单：累计拦截 blockThreshold 次的 IP 自动封禁
     private final ConcurrentHashMap<String, AtomicInteger> ipBlockCounts = new ConcurrentHashMap<>();
     private final Set<String> blockedIps = ConcurrentHashMap.newKeySet();
 
     @Value("${security.ip.rate.limit:60}")
     private int ipRateLimit; // 每分钟最多请求次数
 
+    @Value("${security.ip.rate.routes:}")
+    private String routeLimitConfig; // 路由限流，格式：/api/bazi/wenji=10,/api/bazi/analyze=10
+
     @Value("${security.ip.block.threshold:500}")
     private int blockThreshold; // 累计拦截多少次后封禁
 
+    @Value("${cache.rate-limit.max-size:50000}")
+    private int rateLimitMaxSize; // 限流计数、拦截计数最多保留的条目数
+
     // 恶意路径关键词黑名单（常见的漏洞扫描路径）
-    private static final List<String> MALICIOUS_PATH_PATTERNS = Arrays.asList(
+    public static final List<String> MALICIOUS_PATH_PATTERNS = List.copyOf(Arrays.asList(
         // PHP 相关漏洞扫描
         "phpunit",
         "eval-stdin.php",
@@ -93,10 +118,10 @@ public class SecurityFilter implements Filter {
         ".sh",
         ".cgi",
         ".pl"
-    );
+    ));
 
     // 恶意参数关键词黑名单
-    private static final List<String> MALICIOUS_PARAM_PATTERNS = Arrays.asList(
+    public static final List<String> MALICIOUS_PARAM_PATTERNS = List.copyOf(Arrays.asList(
         "<?",           // PHP 标签
         "?>",
         "eval(",        // 代码执行
@@ -135,7 +160,61 @@ public class SecurityFilter implements Filter {
         "mkfifo",
         "|nc",
         ";nc"
-    );
+    ));
+
+    // 由上面两组关键词和外部规则文件编译出的匹配器，启动时构建一次
+    private AhoCorasickMatcher pathMatcher;
+    private AhoCorasickMatcher paramMatcher;
+
+    @Value("${security.filter.rule-file:}")
+    private String ruleFile; // 外部规则文件，每行 "path:关键词" 或 "param:关键词"，无前缀则两者都加
+
+    @PostConstruct
+    public void init() {
+        rateLimiter = new SlidingWindowRateLimiter(rateLimitMaxSize, RATE_LIMIT_WINDOW_MILLIS);
+        routeLimits = parseRouteLimits(routeLimitConfig);
+        logger.info("IP 限流: 每分钟 {} 次，路由限制 {}，最多 {} 个条目", ipRateLimit, routeLimits, rateLimitMaxSize);
+
+        List<String> pathPatterns = new ArrayList<>(MALICIOUS_PATH_PATTERNS);
+        List<String> paramPatterns = new ArrayList<>(MALICIOUS_PARAM_PATTERNS);
+        loadRuleFile(pathPatterns, paramPatterns);
+        pathMatcher = new AhoCorasickMatcher(pathPatterns);
+        paramMatcher = new AhoCorasickMatcher(paramPatterns);
+        logger.info("恶意请求匹配规则: 路径 {} 条，参数 {} 条", pathMatcher.getPatternCount(), paramMatcher.getPatternCount());
+    }
+
+    /**
+     * 加载外部规则文件（可选），文件不存在或读取失败时只使用内置规则
+     */
+    private void loadRuleFile(List<String> pathPatterns, List<String> paramPatterns) {
+        if (ruleFile == null || ruleFile.isBlank()) {
+            return;
+        }
+        Path path = Paths.get(ruleFile);
+        if (!Files.isRegularFile(path)) {
+            logger.warn("安全规则文件不存在: {}", ruleFile);
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String rule = line.trim();
+                if (rule.isEmpty() || rule.startsWith("#")) {
+                    continue;
+                }
+                if (rule.startsWith("path:")) {
+                    pathPatterns.add(rule.substring(5));
+                } else if (rule.startsWith("param:")) {
+                    paramPatterns.add(rule.substring(6));
+                } else {
+                    pathPatterns.add(rule);
+                    paramPatterns.add(rule);
+                }
+            }
+            logger.info("已加载安全规则文件: {}", ruleFile);
+        } catch (IOException e) {
+            logger.error("读取安全规则文件失败: {}", ruleFile, e);
+        }
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -156,9 +235,10 @@ public class SecurityFilter implements Filter {
             return;
         }
 
-        // ===== 防护 2: IP 限流（每分钟最多 60 次请求） =====
-        if (!checkIpRateLimit(clientIp)) {
-            logger.info("IP 限流拦截: {} - 超过每分钟 {} 次请求限制", clientIp, ipRateLimit);
+        // ===== 防护 2: IP 限流（每分钟最多 60 次请求，路由可单独限制） =====
+        int exceededLimit = checkIpRateLimit(clientIp, uri);
+        if (exceededLimit > 0) {
+            logger.info("IP 限流拦截: {} {} - 超过每分钟 {} 次请求限制", clientIp, uri, exceededLimit);
             incrementBlockCount(clientIp, "频繁请求");
             sendRateLimitResponse(httpResponse);
             return;
@@ -173,7 +253,7 @@ public class SecurityFilter implements Filter {
         }
 
         // ===== 防护 4: 检查 URI 是否包含恶意路径模式 =====
-        if (containsMaliciousPattern(uri, MALICIOUS_PATH_PATTERNS)) {
+        if (pathMatcher.containsAny(uri)) {
             logger.info("阻止恶意路径访问: {} from IP: {}", uri, clientIp);
             incrementBlockCount(clientIp, "恶意路径: " + uri);
             sendSecurityResponse(httpResponse);
@@ -181,7 +261,7 @@ public class SecurityFilter implements Filter {
         }
 
         // ===== 防护 5: 检查查询参数是否包含恶意模式（包括 RCE 攻击特征） =====
-        if (queryString != null && containsMaliciousPattern(queryString, MALICIOUS_PARAM_PATTERNS)) {
+        if (queryString != null && paramMatcher.containsAny(queryString)) {
             logger.info("阻止恶意参数请求: {} from IP: {}", queryString, clientIp);
             incrementBlockCount(clientIp, "恶意查询参数");
             sendSecurityResponse(httpResponse);
@@ -190,13 +270,14 @@ public class SecurityFilter implements Filter {
 
         // ===== 防护 6: 检查所有请求参数值（包括 POST Body 中的 JSON 参数） =====
         for (String[] paramValues : httpRequest.getParameterMap().values()) {
-            String value = String.join(",", paramValues);
-            if (containsMaliciousPattern(value, MALICIOUS_PARAM_PATTERNS)) {
-                logger.info("⚠️ 检测到 RCE 攻击尝试！参数值: {} from IP: {}", 
-                    value.length() > 200 ? value.substring(0, 200) + "..." : value, clientIp);
-                incrementBlockCount(clientIp, "RCE 攻击尝试");
-                sendSecurityResponse(httpResponse);
-                return;
+            for (String value : paramValues) {
+                if (paramMatcher.containsAny(value)) {
+                    logger.info("⚠️ 检测到 RCE 攻击尝试！参数值: {} from IP: {}", 
+                        value.length() > 200 ? value.substring(0, 200) + "..." : value, clientIp);
+                    incrementBlockCount(clientIp, "RCE 攻击尝试");
+                    sendSecurityResponse(httpResponse);
+                    return;
+                }
             }
         }
 
@@ -205,30 +286,62 @@ public class SecurityFilter implements Filter {
     }
 
     /**
-     * IP 限流检查（每分钟最多 ipRateLimit 次请求）
+     * IP 限流检查（每分钟最多 ipRateLimit 次请求，匹配的路由再单独计数）
+     * @return 未超限返回 0，超限返回被超过的限制值
      */
-    private boolean checkIpRateLimit(String ip) {
-        long now = System.currentTimeMillis();
-        
-        // 获取或初始化该 IP 的重置时间
-        Long resetTime = ipRequestResetTime.computeIfAbsent(ip, k -> now + 60000);
-        
-        // 如果已过期，重置计数器
-        if (now > resetTime) {
-            ipRequestCounts.put(ip, new AtomicInteger(1));
-            ipRequestResetTime.put(ip, now + 60000);
-            return true;
+    private int checkIpRateLimit(String ip, String uri) {
+        if (!rateLimiter.tryAcquire(ip, ipRateLimit)) {
+            return ipRateLimit;
         }
-        
-        // 增加计数并检查是否超限
-        AtomicInteger count = ipRequestCounts.computeIfAbsent(ip, k -> new AtomicInteger(0));
-        return count.incrementAndGet() <= ipRateLimit;
+        RouteLimit route = matchRoute(uri);
+        if (route != null && !rateLimiter.tryAcquire(route.prefix() + " " + ip, route.limit())) {
+            return route.limit();
+        }
+        return 0;
+    }
+
+    private RouteLimit matchRoute(String uri) {
+        for (RouteLimit route : routeLimits) {
+            if (uri.startsWith(route.prefix())) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析路由限流配置，按前缀长度倒序排列以便最长前缀优先匹配
+     */
+    private static List<RouteLimit> parseRouteLimits(String config) {
+        List<RouteLimit> routes = new ArrayList<>();
+        if (config == null || config.isBlank()) {
+            return routes;
+        }
+        for (String item : config.split(",")) {
+            String[] parts = item.trim().split("=");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                logger.warn("忽略无效的路由限流配置: {}", item);
+                continue;
+            }
+            try {
+                routes.add(new RouteLimit(parts[0].trim(), Integer.parseInt(parts[1].trim())));
+            } catch (NumberFormatException e) {
+                logger.warn("忽略无效的路由限流配置: {}", item);
+            }
+        }
+        routes.sort(Comparator.comparingInt((RouteLimit route) -> route.prefix().length()).reversed());
+        return routes;
     }
 
     /**
      * 增加 IP 的拦截计数，累计达到阈值则封禁
+     * 条目数达到上限时清除未封禁 IP 的计数（已封禁 IP 记录在 blockedIps 中）
      */
     private void incrementBlockCount(String ip, String reason) {
+        if (ipBlockCounts.size() >= rateLimitMaxSize && !ipBlockCounts.containsKey(ip)) {
+            ipBlockCounts.keySet().removeIf(key -> !blockedIps.contains(key));
+            logger.warn("IP 拦截计数条目达到上限 {}，已清除未封禁 IP 的计数", rateLimitMaxSize);
+        }
         AtomicInteger count = ipBlockCounts.computeIfAbsent(ip, k -> new AtomicInteger(0));
         int currentCount = count.incrementAndGet();
         
@@ -240,23 +353,6 @@ public class SecurityFilter implements Filter {
         }
     }
 
-    /**
-     * 检查文本是否包含恶意模式
-     */
-    private boolean containsMaliciousPattern(String text, List<String> patterns) {
-        if (text == null) {
-            return false;
-        }
-
-        String lowerText = text.toLowerCase();
-        for (String pattern : patterns) {
-            if (lowerText.contains(pattern.toLowerCase())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * 发送安全拦截响应（403 Forbidden）
      */
@@ -334,6 +430,7 @@ public class SecurityFilter implements Filter {
     public void unblockIp(String ip) {
         blockedIps.remove(ip);
         ipBlockCounts.remove(ip);
+        rateLimiter.reset(ip);
         logger.info("解封 IP: {}", ip);
     }
 
@@ -360,21 +457,20 @@ public class SecurityFilter implements Filter {
      * 获取IP请求计数缓存条目（用于缓存管理）
      */
     public Map<String, Object> getIpRequestCountEntries() {
-        Map<String, Object> entries = new HashMap<>();
-        long currentTime = System.currentTimeMillis();
-
-        ipRequestCounts.forEach((ip, count) -> {
-            Map<String, Object> ipData = new HashMap<>();
-            ipData.put("requestCount", count.get());
-            Long resetTime = ipRequestResetTime.get(ip);
-            if (resetTime != null) {
-                ipData.put("resetTime", resetTime);
-                ipData.put("remainingTime", Math.max(0, resetTime - currentTime) + "ms");
-            }
-            entries.put(ip, ipData);
-        });
+        return new HashMap<>(rateLimiter.snapshot());
+    }
 
-        return entries;
+    /**
+     * 获取限流器统计信息（条目数、淘汰数、拒绝数）
+     */
+    public Map<String, Object> getRateLimitStats() {
+        Map<String, Object> stats = rateLimiter.getStats();
+        stats.put("ipLimit", ipRateLimit);
+        stats.put("routeLimits", routeLimits.stream()
+                .map(route -> route.prefix() + "=" + route.limit())
+                .toList());
+        stats.put("blockCountEntries", ipBlockCounts.size());
+        return stats;
     }
 
     /**
@@ -0,0 +1,119 @@
+package xw.szbz.cn.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.model.ApiResponse;
+import xw.szbz.cn.service.BusinessLogIndexService;
+import xw.szbz.cn.service.LlmResponseCacheService;
+import xw.szbz.cn.service.WebUserCacheService;
+import xw.szbz.cn.service.JiTuCacheService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理员控制器
+ * 业务日志查询、缓存清空等运维操作，/api/admin/** 仅 ROLE_ADMIN 可访问（security.admin.usernames 中的用户）
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private BusinessLogIndexService businessLogIndexService;
+
+    @Autowired
+    private JiTuCacheService jiTuCacheService;
+
+    @Autowired
+    private WebUserCacheService webUserCacheService;
+
+    @Autowired
+    private LlmResponseCacheService llmResponseCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 按索引查询业务日志，例如某个 openId 在一段时间内的全部请求，或最近一小时的全部 5xx
+     * @param openId  用户 openId（可选）
+     * @param from    开始时间 yyyy-MM-dd HH:mm:ss（默认结束时间前一小时）
+     * @param to      结束时间 yyyy-MM-dd HH:mm:ss（默认当前时间）
+     * @param minCode 响应码下限（可选）
+     * @param maxCode 响应码上限（可选）
+     * @param limit   最多返回条数（1-1000）
+     */
+    @GetMapping("/business-logs")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> searchBusinessLogs(
+            @RequestParam(required = false) String openId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Integer minCode,
+            @RequestParam(required = false) Integer maxCode,
+            @RequestParam(defaultValue = "100") int limit) throws IOException {
+        LocalDateTime end = to == null ? LocalDateTime.now() : parseTime(to);
+        LocalDateTime start = from == null ? end.minusHours(1) : parseTime(from);
+        BusinessLogIndexService.SearchResult result = businessLogIndexService.search(
+                openId, start, end, minCode, maxCode, Math.max(1, Math.min(limit, 1000)));
+
+        List<JsonNode> records = new ArrayList<>(result.lines().size());
+        for (String line : result.lines()) {
+            records.add(objectMapper.readTree(line));
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("matched", result.matched());
+        data.put("returned", records.size());
+        data.put("files", result.files());
+        data.put("skippedFiles", result.skippedFiles());
+        data.put("records", records);
+        return ResponseEntity.ok(ApiResponse.success(data));
+    }
+
+    /**
+     * 清空吉途 L1 缓存（吉途表中的记录不受影响）
+     */
+    @PostMapping("/jitu-cache/clear")
+    public ResponseEntity<ApiResponse<String>> clearJiTuCache() {
+        jiTuCacheService.clear();
+        return ResponseEntity.ok(ApiResponse.success("吉途缓存已清空"));
+    }
+
+    /**
+     * 清空用户缓存（直接修改数据库中的用户后使用）
+     */
+    @PostMapping("/web-user-cache/clear")
+    public ResponseEntity<ApiResponse<String>> clearWebUserCache() {
+        webUserCacheService.clear();
+        return ResponseEntity.ok(ApiResponse.success("用户缓存已清空"));
+    }
+
+    /**
+     * 清空 LLM 响应缓存（调整提示词模板或模型后使用）
+     */
+    @PostMapping("/llm-cache/clear")
+    public ResponseEntity<ApiResponse<String>> clearLlmCache() {
+        llmResponseCacheService.clear();
+        return ResponseEntity.ok(ApiResponse.success("LLM 响应缓存已清空"));
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value.trim(), TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式应为 yyyy-MM-dd HH:mm:ss: " + value);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package xw.szbz.cn.controller;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,14 +31,17 @@ import xw.szbz.cn.model.BusinessLog;
 import xw.szbz.cn.model.LiuRenRequest;
 import xw.szbz.cn.model.LoginRequest;
 import xw.szbz.cn.model.LoginResponse;
-import xw.szbz.cn.repository.JiTuRepository;
 import xw.szbz.cn.repository.UserRepository;
-import xw.szbz.cn.repository.WenJiRepository;
 import xw.szbz.cn.service.BaZiService;
 import xw.szbz.cn.service.BusinessLogService;
+import xw.szbz.cn.service.DailyQuotaService;
 import xw.szbz.cn.service.GeminiService;
+import xw.szbz.cn.service.JiTuCacheService;
+import xw.szbz.cn.service.LlmPipelineExecutor;
 import xw.szbz.cn.service.LiuRenService;
+import xw.szbz.cn.service.LlmResponseCacheService;
 import xw.szbz.cn.service.WeChatService;
+import xw.szbz.cn.service.WriteBehindService;
 import xw.szbz.cn.util.JwtUtil;
 import xw.szbz.cn.util.PromptTemplateUtil;
 import xw.szbz.cn.util.SignatureUtil;
@@ -63,8 +65,10 @@ public class BaZiController {
     private final PromptTemplateUtil promptTemplateUtil;
     private final LiuRenService liuRenService;
     private final UserRepository userRepository;
-    private final WenJiRepository wenJiRepository;
-    private final JiTuRepository jiTuRepository;
+    private final JiTuCacheService jiTuCacheService;
+    private final LlmPipelineExecutor llmPipelineExecutor;
+    private final WriteBehindService writeBehindService;
+    private final DailyQuotaService dailyQuotaService;
     
     // 限流配置
     @Value("${rate.limit.enabled:true}")
@@ -87,8 +91,10 @@ public class BaZiController {
                           PromptTemplateUtil promptTemplateUtil,
                           LiuRenService liuRenService,
                           UserRepository userRepository,
-                          WenJiRepository wenJiRepository,
-                          JiTuRepository jiTuRepository) {
+                          JiTuCacheService jiTuCacheService,
+                          LlmPipelineExecutor llmPipelineExecutor,
+                          WriteBehindService writeBehindService,
+                          DailyQuotaService dailyQuotaService) {
         this.baZiService = baZiService;
         this.geminiService = geminiService;
         this.weChatService = weChatService;
@@ -99,8 +105,10 @@ public class BaZiController {
         this.promptTemplateUtil = promptTemplateUtil;
         this.liuRenService = liuRenService;
         this.userRepository = userRepository;
-        this.wenJiRepository = wenJiRepository;
-        this.jiTuRepository = jiTuRepository;
+        this.jiTuCacheService = jiTuCacheService;
+        this.llmPipelineExecutor = llmPipelineExecutor;
+        this.writeBehindService = writeBehindService;
+        this.dailyQuotaService = dailyQuotaService;
     }
 
     /**
@@ -161,19 +169,27 @@ public class BaZiController {
      * @param timestamp 时间戳（Header）
      * @param sign 签名（Header）
      * @param httpRequest HTTP请求对象
-     * @return 包含AI预测结果的响应
+     * @return 包含AI预测结果的响应（在 LLM 流水线执行器中异步完成，饱和时返回 429）
      */
     @PostMapping("/wenji")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> predictLiuRen(
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> predictLiuRen(
             @RequestBody LiuRenRequest request,
             @RequestHeader(value = "Authorization", required = false) String token,
             @RequestHeader(value = "X-Timestamp", required = false) Long timestamp,
             @RequestHeader(value = "X-Sign", required = false) String sign,
             HttpServletRequest httpRequest) {
 
+        return llmPipelineExecutor.submit(() -> doPredictLiuRen(request, token, timestamp, sign, httpRequest));
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> doPredictLiuRen(
+            LiuRenRequest request, String token, Long timestamp, String sign, HttpServletRequest httpRequest) {
+
         long startTime = System.currentTimeMillis();
         BusinessLog businessLog = new BusinessLog();
         String openId = "";
+        boolean quotaReserved = false;
+        boolean succeeded = false;
         
         try {
             // 记录请求信息
@@ -218,14 +234,16 @@ public class BaZiController {
                 return buildLiuRenErrorResponse(businessLog, startTime, 400, "签名验证失败，参数可能被篡改");
             }
 
-            // ===== Step 4: 限流检查（问吉接口） =====
+            // ===== Step 4: 限流检查（问吉接口，预占一次配额，失败时归还） =====
             if (rateLimitEnabled) {
-                long todayCount = getTodaySubmitCount(openId, wenJiRepository);
-                if (todayCount >= wenjiDailyLimit) {
+                if (!dailyQuotaService.tryReserve(DailyQuotaService.Endpoint.WENJI, openId, wenjiDailyLimit)) {
+                    int todayCount = dailyQuotaService.getUsed(DailyQuotaService.Endpoint.WENJI, openId);
                     String errorMsg = String.format("今日提交次数已达上限（%d/%d），请明天再试", todayCount, wenjiDailyLimit);
                     return buildLiuRenErrorResponse(businessLog, startTime, 429, errorMsg);
                 }
-                System.out.println(String.format("问吉限流检查通过，今日已提交: %d/%d", todayCount, wenjiDailyLimit));
+                quotaReserved = true;
+                System.out.println(String.format("问吉限流检查通过，今日已提交: %d/%d",
+                    dailyQuotaService.getUsed(DailyQuotaService.Endpoint.WENJI, openId), wenjiDailyLimit));
             }
 
             // ===== Step 4: 验证参数 =====
@@ -265,7 +283,7 @@ public class BaZiController {
             logger.info("六壬预测提示词: " + prompt);
 
             // ===== Step 10: 调用Gemini AI进行预测 =====
-            String aiPrediction = geminiService.generateContent(prompt);
+            String aiPrediction = geminiService.generateContent(prompt, LlmResponseCacheService.CallType.LIUREN);
             logger.info("六壬预测结果: " + aiPrediction);
 
             // ===== Step 11: 保存到问吉表 =====
@@ -278,8 +296,8 @@ public class BaZiController {
                 aiPrediction,
                 System.currentTimeMillis()
             );
-            wenJiRepository.save(wenJi);
-            System.out.println("问吉记录已保存到数据库");
+            writeBehindService.saveWenJi(wenJi);
+            System.out.println("问吉记录已提交异步写库");
 
             // ===== Step 12: 构建响应 =====
             Map<String, Object> responseData = new HashMap<>();
@@ -296,6 +314,7 @@ public class BaZiController {
 
             logger.info("六壬预测响应: " + responseData);
 
+            succeeded = true;
             return ResponseEntity.ok(ApiResponse.success(responseData));
 
         } catch (ServiceException e) {
@@ -305,31 +324,44 @@ public class BaZiController {
         } catch (Exception e) {
             logger.error("六壬预测服务器错误", e);
             return buildLiuRenErrorResponse(businessLog, startTime, 500, "服务暂时不可用，请稍后重试");
+        } finally {
+            // 未成功完成时归还预占的配额
+            if (quotaReserved && !succeeded) {
+                dailyQuotaService.release(DailyQuotaService.Endpoint.WENJI, openId);
+            }
         }
     }
 
     /**
      * 生成八字并使用 Gemini AI 进行分析
-     * 增强功能：JWT验证 + Caffeine缓存 + 签名验证 + 业务日志
+     * 增强功能：JWT验证 + 两级缓存（进程内 L1 + 吉途表 L2） + 签名验证 + 业务日志
      *
      * @param request   请求参数（性别、出生年月日时）
      * @param token     JWT Token（Header）
      * @param timestamp 时间戳（Header）
      * @param sign      签名（Header）
      * @param httpRequest HTTP请求对象
-     * @return 包含AI分析结果的响应
+     * @return 包含AI分析结果的响应（在 LLM 流水线执行器中异步完成，饱和时返回 429）
      */
     @PostMapping("/analyze")
-    public ResponseEntity<ApiResponse<BaZiAnalysisResponse>> analyzeBaZiWithAI(
+    public CompletableFuture<ResponseEntity<ApiResponse<BaZiAnalysisResponse>>> analyzeBaZiWithAI(
             @RequestBody BaZiRequest request,
             @RequestHeader(value = "Authorization", required = false) String token,
             @RequestHeader(value = "X-Timestamp", required = false) Long timestamp,
             @RequestHeader(value = "X-Sign", required = false) String sign,
             HttpServletRequest httpRequest) {
 
+        return llmPipelineExecutor.submit(() -> doAnalyzeBaZiWithAI(request, token, timestamp, sign, httpRequest));
+    }
+
+    private ResponseEntity<ApiResponse<BaZiAnalysisResponse>> doAnalyzeBaZiWithAI(
+            BaZiRequest request, String token, Long timestamp, String sign, HttpServletRequest httpRequest) {
+
         long startTime = System.currentTimeMillis();
         BusinessLog businessLog = new BusinessLog();
         String openId = "";
+        boolean quotaReserved = false;
+        boolean succeeded = false;
         
         try {
             // 记录请求信息
@@ -384,18 +416,20 @@ public class BaZiController {
             // 验证基本参数
             validateRequest(request);
 
-            // ===== Step 4: 限流检查（吉途接口） =====
+            // ===== Step 4: 限流检查（吉途接口，预占一次配额，失败或命中缓存时归还） =====
             if (rateLimitEnabled) {
-                long todayCount = getTodaySubmitCount(openId, jiTuRepository);
-                if (todayCount >= jituDailyLimit) {
+                if (!dailyQuotaService.tryReserve(DailyQuotaService.Endpoint.JITU, openId, jituDailyLimit)) {
+                    int todayCount = dailyQuotaService.getUsed(DailyQuotaService.Endpoint.JITU, openId);
                     String errorMsg = String.format("今日提交次数已达上限（%d/%d），请明天再来", todayCount, jituDailyLimit);
                     return buildErrorResponse(businessLog, startTime, 429, errorMsg);
                 }
-                System.out.println(String.format("吉途限流检查通过，今日已提交: %d/%d", todayCount, jituDailyLimit));
+                quotaReserved = true;
+                System.out.println(String.format("吉途限流检查通过，今日已提交: %d/%d",
+                    dailyQuotaService.getUsed(DailyQuotaService.Endpoint.JITU, openId), jituDailyLimit));
             }
 
-            // ===== Step 5: 查询吉途表缓存（根据gender、year、month、day、hour） =====
-            Optional<JiTu> cachedJiTu = jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+            // ===== Step 5: 查询吉途缓存（L1 进程内缓存 -> L2 吉途表，根据gender、year、month、day、hour） =====
+            Optional<JiTuCacheService.CachedAnalysis> cached = jiTuCacheService.get(
                 request.getGender(),
                 request.getYear(),
                 request.getMonth(),
@@ -404,17 +438,21 @@ public class BaZiController {
             );
 
             Object aiAnalysis;
-            Thread.sleep(9000);
             
-            if (cachedJiTu.isPresent()) {
+            if (cached.isPresent()) {
                 // 找到缓存数据，直接返回
-                System.out.println("从数据库缓存中获取吉途数据，性别: " + request.getGender() + 
+                System.out.println("从缓存中获取吉途数据，性别: " + request.getGender() + 
                     ", 出生日期: " + request.getYear() + "-" + request.getMonth() + "-" + 
                     request.getDay() + " " + request.getHour() + "时");
                 
-                String cachedResult = cachedJiTu.get().getDefaultResult();
-                aiAnalysis = objectMapper.readValue(cachedResult, Object.class);
-                businessLog.setAiAnalysis(cachedResult);
+                aiAnalysis = cached.get().analysis();
+                businessLog.setAiAnalysis(cached.get().json());
+
+                // 命中缓存不生成吉途记录，不占用当日配额
+                if (quotaReserved) {
+                    dailyQuotaService.release(DailyQuotaService.Endpoint.JITU, openId);
+                    quotaReserved = false;
+                }
                 
             } else {
                 // ===== Step 6: 计算八字（包含大运、流年） =====
@@ -438,14 +476,17 @@ public class BaZiController {
                     aiAnalysisJson,
                     System.currentTimeMillis()
                 );
-                jiTuRepository.save(jiTu);
-                System.out.println("吉途记录已保存到数据库");
+                writeBehindService.saveJiTu(jiTu);
+                jiTuCacheService.put(request.getGender(), request.getYear(), request.getMonth(),
+                    request.getDay(), request.getHour(), aiAnalysis, aiAnalysisJson);
+                System.out.println("吉途记录已提交异步写库");
             }
 
             // ===== Step 9: 构建响应数据（仅包含AI分析结果） =====
             BaZiAnalysisResponse responseData = new BaZiAnalysisResponse(aiAnalysis);
 
             // ===== Step 10: 返回JSON格式（不再返回Token） =====
+            succeeded = true;
             return buildSuccessResponseWithoutToken(businessLog, startTime, responseData);
 
         } catch (IllegalArgumentException e) {
@@ -457,6 +498,11 @@ public class BaZiController {
         } catch (Exception e) {
             logger.error("服务器错误", e);
             return buildErrorResponse(businessLog, startTime, 500, "服务暂时不可用，请稍后重试");
+        } finally {
+            // 未成功完成时归还预占的配额
+            if (quotaReserved && !succeeded) {
+                dailyQuotaService.release(DailyQuotaService.Endpoint.JITU, openId);
+            }
         }
     }
 
@@ -546,25 +592,4 @@ public class BaZiController {
         }
         return ip;
     }
-
-    /**
-     * 获取今日提交次数（通用方法）
-     * @param openId 用户openId
-     * @param repository Repository接口（WenJiRepository或JiTuRepository）
-     * @return 今日提交次数
-     */
-    private long getTodaySubmitCount(String openId, Object repository) {
-        // 获取今日起始和结束时间戳
-        LocalDate today = LocalDate.now(ZoneId.systemDefault());
-        long startOfDay = today.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        long endOfDay = today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
-        
-        // 根据repository类型调用对应的查询方法
-        if (repository instanceof WenJiRepository) {
-            return ((WenJiRepository) repository).countByOpenIdAndCreateTimeBetween(openId, startOfDay, endOfDay);
-        } else if (repository instanceof JiTuRepository) {
-            return ((JiTuRepository) repository).countByOpenIdAndCreateTimeBetween(openId, startOfDay, endOfDay);
-        }
-        return 0;
-    }
 }
@@ -4,17 +4,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import xw.szbz.cn.entity.WenJi;
+import xw.szbz.cn.exception.ServiceException;
 import xw.szbz.cn.model.BusinessLog;
 import xw.szbz.cn.model.LiuRenRequest;
-import xw.szbz.cn.repository.WenJiRepository;
 import xw.szbz.cn.service.BusinessLogService;
+import xw.szbz.cn.service.DailyQuotaService;
 import xw.szbz.cn.service.GeminiService;
 import xw.szbz.cn.service.LiuRenService;
+import xw.szbz.cn.service.LlmResponseCacheService;
+import xw.szbz.cn.service.LlmPipelineExecutor;
+import xw.szbz.cn.service.StreamSessionService;
+import xw.szbz.cn.service.WriteBehindService;
+import xw.szbz.cn.util.ChunkCoalescer;
 import xw.szbz.cn.util.JwtUtil;
 import xw.szbz.cn.util.PromptTemplateUtil;
 import xw.szbz.cn.util.SignatureUtil;
@@ -22,8 +30,6 @@ import xw.szbz.cn.util.SignatureUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 流式SSE控制器
@@ -41,11 +47,19 @@ public class BaZiStreamController {
     private final LiuRenService liuRenService;
     private final GeminiService geminiService;
     private final PromptTemplateUtil promptTemplateUtil;
-    private final WenJiRepository wenJiRepository;
     private final BusinessLogService businessLogService;
 
-    // 异步执行器，避免阻塞主线程
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    // LLM 流水线执行器（虚拟线程或有界线程池），避免阻塞主线程
+    private final LlmPipelineExecutor llmPipelineExecutor;
+
+    // 异步写库
+    private final WriteBehindService writeBehindService;
+
+    // 每日提交次数配额
+    private final DailyQuotaService dailyQuotaService;
+
+    // 可续传的流式会话（断线后按 Last-Event-ID 重放）
+    private final StreamSessionService streamSessionService;
 
     @Value("${rate.limit.enabled:true}")
     private boolean rateLimitEnabled;
@@ -53,6 +67,19 @@ public class BaZiStreamController {
     @Value("${rate.limit.wenji.daily:5}")
     private int wenjiDailyLimit;
 
+    // 流式片段合并：累计字节数或等待时间任一达到即推送
+    @Value("${sse.coalesce.max-bytes:1024}")
+    private int coalesceMaxBytes;
+
+    @Value("${sse.coalesce.max-delay-ms:200}")
+    private long coalesceMaxDelayMs;
+
+    // Gemini 流式请求截止时间，SSE 连接超时在此基础上留出余量，避免先于上游断开
+    @Value("${gemini.http.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    private static final long EMITTER_TIMEOUT_MARGIN_MS = 30_000L;
+
     @Autowired
     public BaZiStreamController(
             JwtUtil jwtUtil,
@@ -60,46 +87,63 @@ public class BaZiStreamController {
             LiuRenService liuRenService,
             GeminiService geminiService,
             PromptTemplateUtil promptTemplateUtil,
-            WenJiRepository wenJiRepository,
-            BusinessLogService businessLogService) {
+            BusinessLogService businessLogService,
+            LlmPipelineExecutor llmPipelineExecutor,
+            WriteBehindService writeBehindService,
+            DailyQuotaService dailyQuotaService,
+            StreamSessionService streamSessionService) {
         this.jwtUtil = jwtUtil;
         this.signatureUtil = signatureUtil;
         this.liuRenService = liuRenService;
         this.geminiService = geminiService;
         this.promptTemplateUtil = promptTemplateUtil;
-        this.wenJiRepository = wenJiRepository;
         this.businessLogService = businessLogService;
+        this.llmPipelineExecutor = llmPipelineExecutor;
+        this.writeBehindService = writeBehindService;
+        this.dailyQuotaService = dailyQuotaService;
+        this.streamSessionService = streamSessionService;
     }
 
     /**
      * 问吉流式接口 - 使用 SSE 推送
-     * 
+     * 每个事件带 ID（会话ID:序号）；断线后带 Last-Event-ID 重新请求时从下一个事件续传，
+     * 不再调用 AI、不占用配额，生成仍在进行时继续接收后续事件
+     *
      * @param request 问吉请求参数
      * @param token JWT Token
      * @param timestamp 时间戳
      * @param sign 签名
+     * @param lastEventId 断线重连时最后收到的事件ID
      * @param httpRequest HTTP请求对象
-     * @return SSE 流
+     * @return SSE 流（执行器饱和时状态码为 429，并推送 error 事件）
      */
     @PostMapping(value = "/wenji-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter wenjiStream(
+    public ResponseEntity<SseEmitter> wenjiStream(
             @RequestBody LiuRenRequest request,
             @RequestHeader(value = "Authorization", required = false) String token,
             @RequestHeader(value = "X-Timestamp", required = false) Long timestamp,
             @RequestHeader(value = "X-Sign", required = false) String sign,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
             HttpServletRequest httpRequest) {
 
         logger.info("[SSE] 收到问吉流式请求");
         
-        // SSE 超时设置（3分钟，考虑 Gemini API 可能需要较长时间）
-        SseEmitter emitter = new SseEmitter(180_000L);
+        // SSE 超时设置（Gemini 流式截止时间 + 余量）
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs + EMITTER_TIMEOUT_MARGIN_MS);
+
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            return resumeStream(emitter, lastEventId, token);
+        }
         
         long startTime = System.currentTimeMillis();
         BusinessLog businessLog = new BusinessLog();
         
         // 异步处理，避免阻塞
-        executorService.execute(() -> {
+        Runnable pipeline = () -> {
             String openId = "";
+            boolean quotaReserved = false;
+            boolean succeeded = false;
+            StreamSessionService.Session session = null;
             
             try {
                 // 记录请求信息
@@ -150,15 +194,17 @@ public class BaZiStreamController {
                     return;
                 }
 
-                // ===== Step 4: 限流检查 =====
+                // ===== Step 4: 限流检查（与 /wenji 共用配额，预占一次，失败时归还） =====
                 if (rateLimitEnabled) {
-                    long todayCount = getTodaySubmitCount(openId);
-                    if (todayCount >= wenjiDailyLimit) {
+                    if (!dailyQuotaService.tryReserve(DailyQuotaService.Endpoint.WENJI, openId, wenjiDailyLimit)) {
+                        int todayCount = dailyQuotaService.getUsed(DailyQuotaService.Endpoint.WENJI, openId);
                         String errorMsg = String.format("今日提交次数已达上限（%d/%d），请明天再试", todayCount, wenjiDailyLimit);
                         sendError(emitter, errorMsg);
                         return;
                     }
-                    logger.info("[SSE] 限流检查通过，今日已提交: {}/{}", todayCount, wenjiDailyLimit);
+                    quotaReserved = true;
+                    logger.info("[SSE] 限流检查通过，今日已提交: {}/{}",
+                            dailyQuotaService.getUsed(DailyQuotaService.Endpoint.WENJI, openId), wenjiDailyLimit);
                 }
 
                 // ===== Step 5: 参数验证 =====
@@ -179,12 +225,17 @@ public class BaZiStreamController {
                     return;
                 }
 
+                // 创建流式会话，之后的事件都经会话推送并留存，供断线重连重放
+                session = streamSessionService.create(openId);
+                session.attach(emitterSink(emitter));
+                session.append("session", session.getId());
+
                 // ===== Step 6: 生成课传信息 =====
                 String courseInfo = liuRenService.generateCourseInfo();
                 logger.info("[SSE] 生成课传信息: {}", courseInfo);
 
                 // 推送课传信息
-                sendEvent(emitter, "courseInfo", courseInfo);
+                session.append("courseInfo", courseInfo);
 
                 // ===== Step 7: 转换干支年份 =====
                 String ganZhiYear = liuRenService.convertBirthYearToGanZhi(request.getBirthYear());
@@ -195,7 +246,7 @@ public class BaZiStreamController {
                 logger.info("[SSE] 出生信息: {}", birthInfo);
 
                 // 推送出生信息
-                sendEvent(emitter, "birthInfo", birthInfo);
+                session.append("birthInfo", birthInfo);
 
                 // ===== Step 9: 渲染提示词模板 =====
                 String prompt = promptTemplateUtil.renderLiuRenTemplate(
@@ -209,18 +260,29 @@ public class BaZiStreamController {
                 logger.info("[SSE] 开始调用 Gemini 流式 API");
                 
                 StringBuilder fullPrediction = new StringBuilder();
-                
-                // 调用流式生成方法
-                geminiService.generateContentStream(prompt, (chunk) -> {
+
+                // 上游片段很碎，合并后再推送，减少 SSE 事件数和 flush 次数
+                StreamSessionService.Session streamSession = session;
+                ChunkCoalescer coalescer = new ChunkCoalescer(merged -> {
                     try {
-                        // 推送每个文本片段
-                        sendEvent(emitter, "chunk", chunk);
-                        fullPrediction.append(chunk);
-                        logger.debug("[SSE] 推送文本片段: {} 字符", chunk.length());
+                        streamSession.append("chunk", merged);
+                        logger.debug("[SSE] 推送文本片段: {} 字符", merged.length());
                     } catch (Exception e) {
                         logger.error("[SSE] 推送文本片段失败", e);
                     }
-                });
+                }, coalesceMaxBytes, coalesceMaxDelayMs);
+
+                // 调用流式生成方法
+                try {
+                    geminiService.generateContentStream(prompt, LlmResponseCacheService.CallType.LIUREN, (chunk) -> {
+                        fullPrediction.append(chunk);
+                        coalescer.accept(chunk);
+                    });
+                } finally {
+                    coalescer.close();
+                }
+                logger.info("[SSE] 收到 {} 个文本片段，合并为 {} 次推送",
+                    coalescer.getChunkCount(), coalescer.getFlushCount());
 
                 // ===== Step 11: 保存到问吉表 =====
                 WenJi wenJi = new WenJi(
@@ -232,11 +294,12 @@ public class BaZiStreamController {
                     fullPrediction.toString(),
                     System.currentTimeMillis()
                 );
-                wenJiRepository.save(wenJi);
-                logger.info("[SSE] 问吉记录已保存到数据库");
+                writeBehindService.saveWenJi(wenJi);
+                succeeded = true;
+                logger.info("[SSE] 问吉记录已提交异步写库");
 
                 // ===== Step 12: 发送完成事件 =====
-                sendEvent(emitter, "done", "完成");
+                session.append("done", "完成");
                 
                 // 记录业务日志
                 businessLog.setResponseCode(200);
@@ -244,23 +307,33 @@ public class BaZiStreamController {
                 businessLog.setProcessingTime(System.currentTimeMillis() - startTime);
                 businessLogService.log(businessLog);
 
-                // 完成并关闭连接
-                emitter.complete();
+                // 完成并关闭连接（包括重连接入的连接）
+                session.complete();
                 logger.info("[SSE] 流式响应完成，总耗时: {} ms", System.currentTimeMillis() - startTime);
 
             } catch (Exception e) {
                 logger.error("[SSE] 处理流式请求异常", e);
-                sendError(emitter, "服务器内部错误: " + e.getMessage());
+                if (session != null) {
+                    session.append("error", "服务器内部错误: " + e.getMessage());
+                    session.complete();
+                } else {
+                    sendError(emitter, "服务器内部错误: " + e.getMessage());
+                }
                 
                 // 记录错误日志
                 businessLog.setResponseCode(500);
                 businessLog.setResponseMessage("error: " + e.getMessage());
                 businessLog.setProcessingTime(System.currentTimeMillis() - startTime);
                 businessLogService.log(businessLog);
+            } finally {
+                // 未成功完成时归还预占的配额
+                if (quotaReserved && !succeeded) {
+                    dailyQuotaService.release(DailyQuotaService.Endpoint.WENJI, openId);
+                }
             }
-        });
+        };
 
-        // 设置超时和错误回调
+        // 设置超时和错误回调（在提交流水线之前，避免错过早到的超时）
         emitter.onTimeout(() -> {
             logger.warn("[SSE] 连接超时");
             emitter.completeWithError(new RuntimeException("SSE连接超时"));
@@ -270,21 +343,72 @@ public class BaZiStreamController {
             logger.error("[SSE] 连接错误", e);
         });
 
-        return emitter;
+        try {
+            llmPipelineExecutor.execute(pipeline);
+        } catch (ServiceException e) {
+            sendError(emitter, e.getUserMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(emitter);
+        }
+
+        return ResponseEntity.ok(emitter);
     }
 
     /**
-     * 发送 SSE 事件
+     * 断线重连：校验 Token 后接入原会话，重放 Last-Event-ID 之后的事件
      */
-    private void sendEvent(SseEmitter emitter, String event, String data) {
+    private ResponseEntity<SseEmitter> resumeStream(SseEmitter emitter, String lastEventId, String token) {
+        String actualToken = token != null && token.startsWith("Bearer ") ? token.substring(7) : token;
+        if (actualToken == null || actualToken.isEmpty() || !jwtUtil.validateToken(actualToken)) {
+            sendError(emitter, "Token无效或已过期");
+            return ResponseEntity.ok(emitter);
+        }
+        String openId;
         try {
-            emitter.send(SseEmitter.event()
-                    .name(event)
-                    .data(data));
-        } catch (IOException e) {
-            logger.error("[SSE] 发送事件失败: {}", event, e);
-            emitter.completeWithError(e);
+            openId = jwtUtil.getOpenIdFromToken(actualToken);
+        } catch (Exception e) {
+            sendError(emitter, "Token解析失败");
+            return ResponseEntity.ok(emitter);
         }
+
+        emitter.onTimeout(() -> emitter.completeWithError(new RuntimeException("SSE连接超时")));
+        if (!streamSessionService.resume(lastEventId, openId, emitterSink(emitter))) {
+            logger.info("[SSE] 续传会话不存在或已过期: {}", lastEventId);
+            sendError(emitter, "会话已过期，请重新提交");
+            return ResponseEntity.ok(emitter);
+        }
+        logger.info("[SSE] 断线重连，从事件 {} 之后续传，OpenId: {}", lastEventId, openId);
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 把 SSE 连接包装为会话事件接收方（带事件ID推送，断开后由会话移除）
+     */
+    private StreamSessionService.EventSink emitterSink(SseEmitter emitter) {
+        return new StreamSessionService.EventSink() {
+            @Override
+            public boolean send(String id, String name, String data) {
+                try {
+                    emitter.send(SseEmitter.event()
+                            .id(id)
+                            .name(name)
+                            .data(data));
+                    return true;
+                } catch (IOException | IllegalStateException e) {
+                    logger.info("[SSE] 连接已断开，事件留存待重连: {}", id);
+                    emitter.completeWithError(e);
+                    return false;
+                }
+            }
+
+            @Override
+            public void complete() {
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException e) {
+                    // 连接已结束
+                }
+            }
+        };
     }
 
     /**
@@ -302,16 +426,6 @@ public class BaZiStreamController {
         }
     }
 
-    /**
-     * 获取今日提交次数
-     */
-    private long getTodaySubmitCount(String openId) {
-        long now = System.currentTimeMillis();
-        long startOfDay = now - (now % 86400000) - 28800000;
-        long endOfDay = startOfDay + 86400000;
-        return wenJiRepository.countByOpenIdAndCreateTimeBetween(openId, startOfDay, endOfDay);
-    }
-
     /**
      * 获取客户端 IP
      */
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import jakarta.servlet.http.HttpServletRequest;
+import xw.szbz.cn.exception.ServiceException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -58,6 +59,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * 处理业务异常（如 LLM 流水线饱和时的 429），返回用户友好消息和对应状态码
+     */
+    @ExceptionHandler(ServiceException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceException(
+            ServiceException ex, HttpServletRequest request) {
+
+        logger.warn("业务异常 - URI: {}, 状态码: {}, 错误: {}",
+            request.getRequestURI(), ex.getStatusCode(), ex.getUserMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", ex.getStatusCode());
+        response.put("message", ex.getUserMessage());
+        response.put("timestamp", System.currentTimeMillis());
+
+        return ResponseEntity.status(ex.getStatusCode()).body(response);
+    }
+
     /**
      * 处理所有其他异常（不泄露堆栈信息）
      */
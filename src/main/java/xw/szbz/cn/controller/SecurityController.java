@@ -5,14 +5,26 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import xw.szbz.cn.model.ApiResponse;
+import xw.szbz.cn.service.AccessLogService;
+import xw.szbz.cn.service.BusinessLogIndexService;
+import xw.szbz.cn.service.BusinessLogService;
+import xw.szbz.cn.service.GeminiService;
+import xw.szbz.cn.service.JiTuCacheService;
+import xw.szbz.cn.service.LlmPipelineExecutor;
+import xw.szbz.cn.service.LlmResponseCacheService;
 import xw.szbz.cn.service.SecurityManagementService;
+import xw.szbz.cn.service.StreamSessionService;
+import xw.szbz.cn.service.TokenRevocationService;
+import xw.szbz.cn.service.WebUserCacheService;
+import xw.szbz.cn.service.WriteBehindService;
+import xw.szbz.cn.util.EnhancedJwtUtil;
 
 import java.util.Map;
 import java.util.Set;
 
 /**
  * 安全管理控制器
- * 提供 IP 黑名单管理、安全统计查询等功能
+ * 提供 IP 黑名单管理、安全统计查询、LLM 流水线负载、异步写库状态、吉途缓存、访问日志和业务日志状态查询等功能
  * 
  * 注意：生产环境请添加管理员权限验证！
  */
@@ -23,6 +35,42 @@ public class SecurityController {
     @Autowired
     private SecurityManagementService securityService;
 
+    @Autowired
+    private LlmPipelineExecutor llmPipelineExecutor;
+
+    @Autowired
+    private WriteBehindService writeBehindService;
+
+    @Autowired
+    private JiTuCacheService jiTuCacheService;
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    private AccessLogService accessLogService;
+
+    @Autowired
+    private BusinessLogService businessLogService;
+
+    @Autowired
+    private BusinessLogIndexService businessLogIndexService;
+
+    @Autowired
+    private EnhancedJwtUtil enhancedJwtUtil;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private WebUserCacheService webUserCacheService;
+
+    @Autowired
+    private StreamSessionService streamSessionService;
+
+    @Autowired
+    private LlmResponseCacheService llmResponseCacheService;
+
     /**
      * 查询当前 IP 黑名单
      */
@@ -61,6 +109,102 @@ public class SecurityController {
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
 
+    /**
+     * 查询 LLM 流水线执行器负载（活跃、排队、拒绝数）
+     */
+    @GetMapping("/pipeline-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getPipelineStats() {
+        return ResponseEntity.ok(ApiResponse.success(llmPipelineExecutor.getStats()));
+    }
+
+    /**
+     * 查询问吉流式会话统计（会话数、续传次数、重放和溢出到磁盘的事件数）
+     */
+    @GetMapping("/stream-session-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStreamSessionStats() {
+        return ResponseEntity.ok(ApiResponse.success(streamSessionService.getStats()));
+    }
+
+    /**
+     * 查询 LLM 响应缓存统计（条目数、字节数、命中率、淘汰数）
+     */
+    @GetMapping("/llm-cache-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLlmCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(llmResponseCacheService.getStats()));
+    }
+
+    /**
+     * 查询 Gemini 相同请求合并统计（实际发起次数、合并次数、进行中数量）
+     */
+    @GetMapping("/gemini-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getGeminiStats() {
+        return ResponseEntity.ok(ApiResponse.success(geminiService.getSingleFlightStats()));
+    }
+
+    /**
+     * 查询异步写库队列状态（排队、已写入、溢出、失败数）
+     */
+    @GetMapping("/persistence-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getPersistenceStats() {
+        return ResponseEntity.ok(ApiResponse.success(writeBehindService.getStats()));
+    }
+
+    /**
+     * 查询吉途两级缓存统计（L1 命中、L2 命中、未命中、淘汰、过期）
+     */
+    @GetMapping("/jitu-cache-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJiTuCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(jiTuCacheService.getStats()));
+    }
+
+    /**
+     * 查询用户缓存统计（命中率、淘汰、过期、失效、快照存活时间）
+     */
+    @GetMapping("/web-user-cache-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getWebUserCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(webUserCacheService.getStats()));
+    }
+
+    /**
+     * 查询已验证 JWT 缓存统计（条目数、上限、命中、未命中）
+     */
+    @GetMapping("/jwt-cache-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJwtCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(enhancedJwtUtil.getVerifiedCacheStats()));
+    }
+
+    /**
+     * 查询 Token 吊销表统计（条目数、布隆过滤器拦截数、误判数、过期和淘汰数）
+     */
+    @GetMapping("/token-blacklist-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getTokenBlacklistStats() {
+        return ResponseEntity.ok(ApiResponse.success(tokenRevocationService.getStats()));
+    }
+
+    /**
+     * 查询访问日志队列状态（排队、已写出、丢弃、采样跳过数）
+     */
+    @GetMapping("/access-log-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAccessLogStats() {
+        return ResponseEntity.ok(ApiResponse.success(accessLogService.getStats()));
+    }
+
+    /**
+     * 查询业务日志写出状态（队列深度、已写出、丢弃数）
+     */
+    @GetMapping("/business-log-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getBusinessLogStats() {
+        return ResponseEntity.ok(ApiResponse.success(businessLogService.getStats()));
+    }
+
+    /**
+     * 查询业务日志索引状态（已索引条数、字节数）
+     */
+    @GetMapping("/business-log-index-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getBusinessLogIndexStats() {
+        return ResponseEntity.ok(ApiResponse.success(businessLogIndexService.getStats()));
+    }
+
     /**
      * 清空 IP 黑名单（慎用）
      */
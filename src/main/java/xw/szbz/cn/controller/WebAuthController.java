@@ -1,10 +1,19 @@
 package xw.szbz.cn.controller;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,13 +21,18 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.servlet.http.HttpServletRequest;
 import xw.szbz.cn.entity.LifeAIResult;
 import xw.szbz.cn.entity.UserSaltInfo;
 import xw.szbz.cn.entity.WebUser;
+import xw.szbz.cn.exception.ServiceException;
 import xw.szbz.cn.model.ApiResponse;
 import xw.szbz.cn.model.AuthResponse;
+import xw.szbz.cn.model.JwtPrincipal;
 import xw.szbz.cn.model.LifeAIHistoryResponse;
 import xw.szbz.cn.model.LifeAIRequest;
 import xw.szbz.cn.model.LifeAIResponse;
@@ -36,9 +50,14 @@ import xw.szbz.cn.service.AuthService;
 import xw.szbz.cn.service.DataMaskingService;
 import xw.szbz.cn.service.GeminiService;
 import xw.szbz.cn.service.LiuRenService;
+import xw.szbz.cn.service.LlmPipelineExecutor;
+import xw.szbz.cn.service.LlmResponseCacheService;
 import xw.szbz.cn.service.RandomSaltService;
+import xw.szbz.cn.service.WriteBehindService;
+import xw.szbz.cn.util.ChunkCoalescer;
 import xw.szbz.cn.util.EnhancedJwtUtil;
 import xw.szbz.cn.util.FieldEncryptionUtil;
+import xw.szbz.cn.util.JsonFieldStreamParser;
 import xw.szbz.cn.util.PromptTemplateUtil;
 /**
  * Web应用认证Controller
@@ -78,24 +97,55 @@ public class WebAuthController {
     @Autowired
     private GeminiService geminiService;
 
+    @Autowired
+    private LlmPipelineExecutor llmPipelineExecutor;
+
+    @Autowired
+    private WriteBehindService writeBehindService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 流式片段合并（与问吉流式接口共用配置）
+    @Value("${sse.coalesce.max-bytes:1024}")
+    private int coalesceMaxBytes;
+
+    @Value("${sse.coalesce.max-delay-ms:200}")
+    private long coalesceMaxDelayMs;
+
+    // 两阶段流水线的截止时间（大于两次 Gemini 调用截止时间之和），SSE 连接超时在此基础上留出余量
+    @Value("${llm.executor.pipeline-timeout-ms:330000}")
+    private long pipelineTimeoutMs;
+
+    private static final long EMITTER_TIMEOUT_MARGIN_MS = 30_000L;
+
     private static final Logger logger = LoggerFactory.getLogger(WebAuthController.class);
     
     /**
      * LifeAI 接口
      * POST /api/web-auth/lifeai
      * 需要登录，提供人生建议和咨询服务
+     * 两次 Gemini 调用在 LLM 流水线执行器中完成，不占用 Tomcat 工作线程，饱和时返回 429
      */
       @PostMapping("/lifeai")
-      public ResponseEntity<ApiResponse<LifeAIResponse>> lifeAI(
+      public CompletableFuture<ResponseEntity<ApiResponse<LifeAIResponse>>> lifeAI(
               @RequestHeader("Authorization") String authHeader,
               @RequestBody LifeAIRequest request) {
 
+          // SecurityContext 只在请求线程可见，提交前取出 JWT Filter 放入的主体
+          JwtPrincipal principal = authenticatedPrincipal();
+          return llmPipelineExecutor.submit(() -> doLifeAI(authHeader, principal, request));
+      }
+
+      private ResponseEntity<ApiResponse<LifeAIResponse>> doLifeAI(String authHeader, JwtPrincipal principal,
+                                                                   LifeAIRequest request) {
+
           try {
 
                 // 1. 从 JWT Token 中获取用户信息
                 // JWT Filter 已经验证过 Token 有效性
-                String token = extractToken(authHeader);
-                String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
+                String encryptedUserId = (principal != null ? principal : currentPrincipal(authHeader))
+                        .encryptedUserId();
 
                 logger.info("LifeAI 请求，encryptedUserId: {}", encryptedUserId);
                 // 2. 获取用户详细信息并检查状态
@@ -158,7 +208,7 @@ public class WebAuthController {
                 logger.info("六壬预测提示词: " + prompt);
 
                 // ===== Step 8: 调用Gemini AI进行预测 =====
-                String aiPrediction = geminiService.generateContent(prompt);
+                String aiPrediction = geminiService.generateContent(prompt, LlmResponseCacheService.CallType.LIUREN);
                 logger.info("六壬预测结果: " + aiPrediction);
 
                 // ===== Step 9: 生成量化数据（支持多语言）=====
@@ -177,7 +227,7 @@ public class WebAuthController {
                     language);
                 logger.info("六壬量化prompt: " + prompt2);
                  // When
-                answer = geminiService.generateStructuredJson(prompt2);
+                answer = geminiService.generateStructuredJson(prompt2, LlmResponseCacheService.CallType.LIUREN_RESULT_JSON);
                 logger.info("六壬量化结果: " + answer);
 
 
@@ -193,37 +243,11 @@ public class WebAuthController {
                     System.currentTimeMillis()
                 );
 
-                // 10. 保存结果到数据库
-                try {
-                    LifeAIResult lifeAIResult = new LifeAIResult();
-                    lifeAIResult.setUserId(user.getId());  // 使用真实的数据库 ID
-                    lifeAIResult.setQuestion(request.getQuestion());
-                    lifeAIResult.setBackground(request.getBackground());
-                    lifeAIResult.setResult(answer);
-                    lifeAIResult.setBirthdayYear(request.getBirthYear());
-                    lifeAIResult.setGender(request.getGender());
-                    lifeAIResult.setCategory(request.getCategory());
-                    lifeAIResult.setCreateTime(System.currentTimeMillis());
-
-                    lifeAIResultRepository.save(lifeAIResult);
-                    logger.info("LifeAI 结果已保存到数据库，用户ID: {}, 记录ID: {}", user.getId(), lifeAIResult.getId());
-                } catch (Exception e) {
-                    // 保存失败不影响响应，只记录日志
-                    logger.error("保存 LifeAI 结果到数据库失败", e);
-                }
+                // 10. 保存结果到数据库（异步写库，不阻塞响应）
+                saveLifeAIResult(user, request, answer);
 
                 // 11. 扣减免费次数
-                try {
-                    Integer currentFreeCount = user.getFreeCount();
-                    if (currentFreeCount != null && currentFreeCount > 0) {
-                        user.setFreeCount(currentFreeCount - 1);
-                        authService.updateUser(user);
-                        logger.info("免费次数已扣减，用户ID: {}, 剩余次数: {}", user.getId(), user.getFreeCount());
-                    }
-                } catch (Exception e) {
-                    // 扣减失败只记录日志，不影响响应
-                    logger.error("扣减免费次数失败", e);
-                }
+                consumeFreeCount(user);
 
                 return ResponseEntity.ok(ApiResponse.success(response, "请求成功"));
 
@@ -237,6 +261,223 @@ public class WebAuthController {
       }
 
       
+    /**
+     * LifeAI 流式接口
+     * POST /api/web-auth/lifeai-stream
+     * 与 /lifeai 相同的两阶段调用，通过 SSE 边生成边推送：
+     * - analysis：第一阶段解读文本片段；第一阶段结束后立即开始第二阶段
+     * - field：第二阶段结构化 JSON 的顶层字段（{"name": 字段名, "value": 字段值}），每解析完整一个推送一个
+     * - result：完整结果（与 /lifeai 返回的 data 相同），随后推送 done
+     * 出错时推送 error 事件；执行器饱和时状态码为 429
+     * 连接关闭（超时、客户端断开、推送失败）后不再进入下一阶段，也不保存结果、不扣减次数
+     */
+    @PostMapping(value = "/lifeai-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> lifeAIStream(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody LifeAIRequest request) {
+
+        JwtPrincipal principal = authenticatedPrincipal();
+        SseEmitter emitter = new SseEmitter(pipelineTimeoutMs + EMITTER_TIMEOUT_MARGIN_MS);
+        AtomicBoolean closed = new AtomicBoolean();
+        // 回调在提交任务前注册，避免任务启动后连接结束时漏掉通知
+        emitter.onTimeout(() -> {
+            closed.set(true);
+            emitter.completeWithError(new RuntimeException("SSE连接超时"));
+        });
+        emitter.onError(e -> closed.set(true));
+        emitter.onCompletion(() -> closed.set(true));
+        try {
+            llmPipelineExecutor.execute(() -> doLifeAIStream(emitter, closed, authHeader, principal, request));
+        } catch (ServiceException e) {
+            sendStreamError(emitter, closed, e.getUserMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(emitter);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void doLifeAIStream(SseEmitter emitter, AtomicBoolean closed, String authHeader,
+                                JwtPrincipal principal, LifeAIRequest request) {
+        try {
+            String encryptedUserId = (principal != null ? principal : currentPrincipal(authHeader))
+                    .encryptedUserId();
+            logger.info("LifeAI 流式请求，encryptedUserId: {}", encryptedUserId);
+
+            WebUser user;
+            try {
+                user = authService.getUserByEncryptedId(encryptedUserId);
+            } catch (Exception e) {
+                logger.error("获取用户信息失败, encryptedUserId: {}", encryptedUserId, e);
+                sendStreamError(emitter, closed, "用户信息获取失败");
+                return;
+            }
+            if (!user.getActive()) {
+                sendStreamError(emitter, closed, "账户已被禁用");
+                return;
+            }
+            Integer freeCount = user.getFreeCount();
+            if (freeCount == null || freeCount <= 0) {
+                sendStreamError(emitter, closed, "您的免费体验次数已用完");
+                return;
+            }
+            validateLifeAIRequest(request);
+
+            String requestId = java.util.UUID.randomUUID().toString();
+            sendStreamEvent(emitter, closed, "requestId", requestId);
+
+            String courseInfo = liuRenService.generateCourseInfo();
+            String birthInfo = liuRenService.generateBirthInfo(request.getBirthYear(), request.getGender());
+            String prompt = promptTemplateUtil.renderLiuRenTemplate(
+                courseInfo,
+                request.getQuestion(),
+                request.getBackground(),
+                birthInfo
+            );
+
+            // 第一阶段：解读文本，合并碎片后推送
+            StringBuilder aiPrediction = new StringBuilder();
+            ChunkCoalescer coalescer = new ChunkCoalescer(
+                merged -> sendStreamEvent(emitter, closed, "analysis", merged), coalesceMaxBytes, coalesceMaxDelayMs);
+            try {
+                geminiService.generateContentStream(prompt, LlmResponseCacheService.CallType.LIUREN, chunk -> {
+                    aiPrediction.append(chunk);
+                    coalescer.accept(chunk);
+                });
+            } finally {
+                coalescer.close();
+            }
+            if (closed.get()) {
+                logger.info("LifeAI 流式连接已关闭，跳过第二阶段, requestId: {}", requestId);
+                return;
+            }
+
+            // 第二阶段：结构化 JSON，顶层字段解析完整后立即推送
+            String language = request.getLanguage();
+            if (language == null || language.isEmpty()) {
+                language = "cn";
+            }
+            String prompt2 = promptTemplateUtil.renderLiuRenResultJsonTemplate(
+                aiPrediction.toString(),
+                courseInfo,
+                request.getQuestion(),
+                request.getBackground(),
+                language);
+            StringBuilder answer = new StringBuilder();
+            JsonFieldStreamParser fieldParser = new JsonFieldStreamParser(objectMapper,
+                (name, value) -> sendStreamEvent(emitter, closed, "field", Map.of("name", name, "value", value)));
+            geminiService.generateStructuredJsonStream(prompt2, LlmResponseCacheService.CallType.LIUREN_RESULT_JSON,
+                chunk -> {
+                    answer.append(chunk);
+                    fieldParser.feed(chunk);
+                });
+            fieldParser.finish();
+            if (fieldParser.isFailed()) {
+                logger.warn("LifeAI 量化结果无法增量解析，只推送完整结果, requestId: {}", requestId);
+            }
+
+            LifeAIResponse response = new LifeAIResponse(
+                requestId,
+                request.getBackground(),
+                request.getQuestion(),
+                request.getBirthYear(),
+                request.getGender(),
+                request.getCategory(),
+                answer.toString(),
+                System.currentTimeMillis()
+            );
+            if (closed.get()) {
+                logger.info("LifeAI 流式连接已关闭，不保存结果、不扣减次数, requestId: {}", requestId);
+                return;
+            }
+            saveLifeAIResult(user, request, answer.toString());
+            consumeFreeCount(user);
+
+            sendStreamEvent(emitter, closed, "result", response);
+            sendStreamEvent(emitter, closed, "done", "完成");
+            emitter.complete();
+            logger.info("LifeAI 流式响应完成, requestId: {}, 推送字段数: {}", requestId, fieldParser.getFieldCount());
+
+        } catch (IllegalArgumentException e) {
+            sendStreamError(emitter, closed, e.getMessage());
+        } catch (Exception e) {
+            logger.error("LifeAI 流式请求处理异常", e);
+            sendStreamError(emitter, closed, "服务器内部错误：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 保存 LifeAI 结果（异步写库，失败只记录日志）
+     */
+    private void saveLifeAIResult(WebUser user, LifeAIRequest request, String answer) {
+        try {
+            LifeAIResult lifeAIResult = new LifeAIResult();
+            lifeAIResult.setUserId(user.getId());  // 使用真实的数据库 ID
+            lifeAIResult.setQuestion(request.getQuestion());
+            lifeAIResult.setBackground(request.getBackground());
+            lifeAIResult.setResult(answer);
+            lifeAIResult.setBirthdayYear(request.getBirthYear());
+            lifeAIResult.setGender(request.getGender());
+            lifeAIResult.setCategory(request.getCategory());
+            lifeAIResult.setCreateTime(System.currentTimeMillis());
+
+            writeBehindService.saveLifeAIResult(lifeAIResult);
+            logger.info("LifeAI 结果已提交异步写库，用户ID: {}", user.getId());
+        } catch (Exception e) {
+            // 保存失败不影响响应，只记录日志
+            logger.error("保存 LifeAI 结果到数据库失败", e);
+        }
+    }
+
+    /**
+     * 扣减一次免费次数（失败只记录日志）
+     */
+    private void consumeFreeCount(WebUser user) {
+        try {
+            Integer currentFreeCount = user.getFreeCount();
+            if (currentFreeCount != null && currentFreeCount > 0) {
+                user.setFreeCount(currentFreeCount - 1);
+                authService.decrementFreeCount(user);
+                logger.info("免费次数已提交扣减，用户ID: {}, 剩余次数: {}", user.getId(), user.getFreeCount());
+            }
+        } catch (Exception e) {
+            // 扣减失败只记录日志，不影响响应
+            logger.error("扣减免费次数失败", e);
+        }
+    }
+
+    /**
+     * 推送 SSE 事件（字符串原样推送，其他对象序列化为 JSON）；连接已关闭时跳过，推送失败时标记关闭并结束 emitter
+     */
+    private void sendStreamEvent(SseEmitter emitter, AtomicBoolean closed, String event, Object data) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event);
+            if (data instanceof String text) {
+                builder.data(text);
+            } else {
+                builder.data(data, MediaType.APPLICATION_JSON);
+            }
+            emitter.send(builder);
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("[SSE] 推送事件失败: {}", event);
+            closed.set(true);
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 推送 error 事件并关闭连接
+     */
+    private void sendStreamError(SseEmitter emitter, AtomicBoolean closed, String message) {
+        sendStreamEvent(emitter, closed, "error", message);
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // 连接已结束
+        }
+    }
+
     /**
      * 用户注册
      * POST /api/web-auth/register
@@ -427,8 +668,7 @@ public class WebAuthController {
 
         try {
             // JWT Filter 已经验证过 Token，直接获取用户信息
-            String token = extractToken(authHeader);
-            String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
+            String encryptedUserId = currentPrincipal(authHeader).encryptedUserId();
 
             // 获取用户详细信息
             WebUser user;
@@ -488,8 +728,7 @@ public class WebAuthController {
             }
 
             // 2. 从 JWT Token 中获取用户信息
-            String token = extractToken(authHeader);
-            String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
+            String encryptedUserId = currentPrincipal(authHeader).encryptedUserId();
 
             logger.info("查询历史记录，encryptedUserId: {}, pageNo: {}, pageSize: {}, type: {}",
                 encryptedUserId, pageNo, pageSize, type);
@@ -579,8 +818,7 @@ public class WebAuthController {
 
         try {
             // 1. 从 JWT Token 中获取用户信息
-            String token = extractToken(authHeader);
-            String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
+            String encryptedUserId = currentPrincipal(authHeader).encryptedUserId();
 
             logger.info("查询免费次数，encryptedUserId: {}", encryptedUserId);
 
@@ -631,8 +869,7 @@ public class WebAuthController {
             }
 
             // 2. 从 JWT Token 中获取用户信息
-            String token = extractToken(authHeader);
-            String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
+            String encryptedUserId = currentPrincipal(authHeader).encryptedUserId();
 
             logger.info("查询历史详情，encryptedUserId: {}, recordId: {}", encryptedUserId, id);
 
@@ -817,6 +1054,21 @@ public class WebAuthController {
         return ip;
     }
     
+    /**
+     * 当前请求的 JWT 主体：优先取 JWT Filter 已验证并放入 SecurityContext 的主体，
+     * 不经过过滤器链时再验证请求头中的 Token（命中已验证缓存时不重新验签）
+     */
+    private JwtPrincipal currentPrincipal(String authHeader) {
+        JwtPrincipal principal = authenticatedPrincipal();
+        return principal != null ? principal : jwtUtil.verify(extractToken(authHeader));
+    }
+
+    private static JwtPrincipal authenticatedPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal
+                ? principal : null;
+    }
+
     /**
      * 从Authorization header中提取Token
      */
@@ -5,13 +5,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 /**
  * 吉途表实体类（八字分析）
+ * 索引：(openId, createTime) 用于每日提交次数统计；(gender, year, month, day, hour, createTime) 用于按生辰查缓存
  */
 @Entity
-@Table(name = "ji_tu")
+@Table(name = "ji_tu", indexes = {
+    @Index(name = "idx_ji_tu_open_id_create_time", columnList = "openId, createTime"),
+    @Index(name = "idx_ji_tu_birth_create_time", columnList = "gender, year, month, day, hour, createTime")
+})
 public class JiTu {
     
     @Id
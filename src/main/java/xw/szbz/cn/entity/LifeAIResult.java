@@ -5,9 +5,13 @@ import jakarta.persistence.*;
 /**
  * LifeAI 分析结果实体
  * 保存用户的问题、背景和AI分析结果
+ * 索引：(userId, category, createTime) 用于按分类查历史；(userId, createTime) 用于查全部历史
  */
 @Entity
-@Table(name = "lifeai_result")
+@Table(name = "lifeai_result", indexes = {
+    @Index(name = "idx_lifeai_result_user_category_time", columnList = "user_id, category, create_time"),
+    @Index(name = "idx_lifeai_result_user_time", columnList = "user_id, create_time")
+})
 public class LifeAIResult {
 
     @Id
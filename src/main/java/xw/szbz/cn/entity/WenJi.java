@@ -5,13 +5,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 /**
  * 问吉表实体类（六壬预测）
+ * 索引：(openId, createTime) 用于每日提交次数统计和历史查询
  */
 @Entity
-@Table(name = "wen_ji")
+@Table(name = "wen_ji", indexes = {
+    @Index(name = "idx_wen_ji_open_id_create_time", columnList = "openId, createTime")
+})
 public class WenJi {
     
     @Id
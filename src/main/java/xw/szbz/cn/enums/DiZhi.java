@@ -1,5 +1,8 @@
 package xw.szbz.cn.enums;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 地支枚举
  */
@@ -20,6 +23,16 @@ public enum DiZhi {
     private final String name;
     private final int index;
 
+    // 声明顺序即索引顺序，按索引和名称直接查表
+    private static final DiZhi[] BY_INDEX = values();
+    private static final Map<String, DiZhi> BY_NAME = new HashMap<>();
+
+    static {
+        for (DiZhi dz : BY_INDEX) {
+            BY_NAME.put(dz.name, dz);
+        }
+    }
+
     DiZhi(String name, int index) {
         this.name = name;
         this.index = index;
@@ -34,22 +47,15 @@ public enum DiZhi {
     }
 
     public static DiZhi fromIndex(int index) {
-        int normalizedIndex = ((index % 12) + 12) % 12;
-        for (DiZhi dz : values()) {
-            if (dz.index == normalizedIndex) {
-                return dz;
-            }
-        }
-        throw new IllegalArgumentException("Invalid DiZhi index: " + index);
+        return BY_INDEX[((index % 12) + 12) % 12];
     }
 
     public static DiZhi fromName(String name) {
-        for (DiZhi dz : values()) {
-            if (dz.name.equals(name)) {
-                return dz;
-            }
+        DiZhi dz = name == null ? null : BY_NAME.get(name);
+        if (dz == null) {
+            throw new IllegalArgumentException("Invalid DiZhi name: " + name);
         }
-        throw new IllegalArgumentException("Invalid DiZhi name: " + name);
+        return dz;
     }
 
     /**
@@ -0,0 +1,191 @@
+package xw.szbz.cn.enums;
+
+/**
+ * 干支整数编码与关系表
+ *
+ * 编码约定：
+ * - 天干 0-9：甲乙丙丁戊己庚辛壬癸（同 TianGan.getIndex）
+ * - 地支 0-11：子丑寅卯辰巳午未申酉戌亥（同 DiZhi.getIndex）
+ * - 六十甲子 0-59：甲子、乙丑 ... 癸亥，满足 序号%10=干、序号%12=支
+ * - 五行 0-4：木火土金水（同 WuXing 的序号），相邻相生、隔一相克
+ *
+ * 排盘计算全部基于整数查表，只在输出结果时才转换为汉字
+ */
+public final class GanZhi {
+
+    private static final String[] GAN_NAMES = {"甲", "乙", "丙", "丁", "戊", "己", "庚", "辛", "壬", "癸"};
+
+    private static final String[] ZHI_NAMES = {"子", "丑", "寅", "卯", "辰", "巳", "午", "未", "申", "酉", "戌", "亥"};
+
+    /**
+     * 地支五行（取本气）：子水 丑土 寅木 卯木 辰土 巳火 午火 未土 申金 酉金 戌土 亥水
+     */
+    private static final int[] ZHI_WU_XING = {4, 2, 0, 0, 2, 1, 1, 2, 3, 3, 2, 4};
+
+    /**
+     * 地支相刑：寅刑巳、巳刑申、申刑寅，丑刑戌、戌刑未、未刑丑，子卯相刑，辰午酉亥自刑
+     */
+    private static final int[] ZHI_XING = {3, 10, 5, 0, 4, 8, 6, 1, 2, 9, 7, 11};
+
+    /**
+     * 天干寄宫：甲寄寅、乙寄辰、丙戊寄巳、丁己寄未、庚寄申、辛寄戌、壬寄亥、癸寄丑
+     */
+    private static final int[] GAN_JI_GONG = {2, 4, 5, 7, 5, 7, 8, 10, 11, 1};
+
+    /**
+     * 六十甲子名称（甲子..癸亥）
+     */
+    private static final String[] GAN_ZHI_NAMES = new String[60];
+
+    static {
+        for (int i = 0; i < 60; i++) {
+            GAN_ZHI_NAMES[i] = GAN_NAMES[i % 10] + ZHI_NAMES[i % 12];
+        }
+    }
+
+    private GanZhi() {
+    }
+
+    // ========== 编码转换 ==========
+
+    /**
+     * 干支组合为六十甲子序号（干支阴阳必须一致）
+     */
+    public static int of(int ganIndex, int zhiIndex) {
+        return (6 * ganIndex - 5 * zhiIndex + 60) % 60;
+    }
+
+    /**
+     * 六十甲子序号取天干
+     */
+    public static int gan(int ganZhiIndex) {
+        return ganZhiIndex % 10;
+    }
+
+    /**
+     * 六十甲子序号取地支
+     */
+    public static int zhi(int ganZhiIndex) {
+        return ganZhiIndex % 12;
+    }
+
+    public static String ganName(int ganIndex) {
+        return GAN_NAMES[ganIndex];
+    }
+
+    public static String zhiName(int zhiIndex) {
+        return ZHI_NAMES[zhiIndex];
+    }
+
+    public static String ganZhiName(int ganZhiIndex) {
+        return GAN_ZHI_NAMES[ganZhiIndex];
+    }
+
+    /**
+     * 公历年（立春所定的干支年）的年干支序号：公元 4 年为甲子年
+     */
+    public static int ofYear(int year) {
+        return Math.floorMod(year - 4, 60);
+    }
+
+    // ========== 阴阳五行 ==========
+
+    /**
+     * 干支阴阳：偶数为阳（甲丙戊庚壬、子寅辰午申戌），奇数为阴
+     */
+    public static boolean isYang(int index) {
+        return (index & 1) == 0;
+    }
+
+    /**
+     * 天干五行：甲乙木、丙丁火、戊己土、庚辛金、壬癸水
+     */
+    public static int ganWuXing(int ganIndex) {
+        return ganIndex >> 1;
+    }
+
+    public static int zhiWuXing(int zhiIndex) {
+        return ZHI_WU_XING[zhiIndex];
+    }
+
+    /**
+     * source 是否克 target（木克土、土克水、水克火、火克金、金克木）
+     */
+    public static boolean isKe(int sourceWuXing, int targetWuXing) {
+        return (sourceWuXing + 2) % 5 == targetWuXing;
+    }
+
+    /**
+     * source 是否生 target（木生火、火生土、土生金、金生水、水生木）
+     */
+    public static boolean isSheng(int sourceWuXing, int targetWuXing) {
+        return (sourceWuXing + 1) % 5 == targetWuXing;
+    }
+
+    // ========== 干支关系 ==========
+
+    /**
+     * 天干五合：甲己、乙庚、丙辛、丁壬、戊癸
+     */
+    public static int heGan(int ganIndex) {
+        return (ganIndex + 5) % 10;
+    }
+
+    /**
+     * 天干寄宫地支
+     */
+    public static int jiGong(int ganIndex) {
+        return GAN_JI_GONG[ganIndex];
+    }
+
+    /**
+     * 地支六冲：子午、丑未、寅申、卯酉、辰戌、巳亥
+     */
+    public static int chong(int zhiIndex) {
+        return (zhiIndex + 6) % 12;
+    }
+
+    /**
+     * 地支所刑
+     */
+    public static int xing(int zhiIndex) {
+        return ZHI_XING[zhiIndex];
+    }
+
+    /**
+     * 地支六合：子丑、寅亥、卯戌、辰酉、巳申、午未
+     */
+    public static int liuHe(int zhiIndex) {
+        return (13 - zhiIndex) % 12;
+    }
+
+    /**
+     * 地支六害：子未、丑午、寅巳、卯辰、申亥、酉戌
+     */
+    public static int hai(int zhiIndex) {
+        return (19 - zhiIndex) % 12;
+    }
+
+    /**
+     * 五虎遁月：由年干推月干
+     * 甲己之年丙作首、乙庚之年戊为头、丙辛之年寻庚上、丁壬壬位顺行流、戊癸之年甲寅始
+     */
+    public static int monthGan(int yearGanIndex, int monthZhiIndex) {
+        return (yearGanIndex % 5 * 2 + 2 + (monthZhiIndex + 10) % 12) % 10;
+    }
+
+    /**
+     * 五鼠遁时：由日干推时干
+     * 甲己还加甲、乙庚丙作初、丙辛从戊起、丁壬庚子居、戊癸何方发，壬子是真途
+     */
+    public static int hourGan(int dayGanIndex, int hourZhiIndex) {
+        return (dayGanIndex % 5 * 2 + hourZhiIndex) % 10;
+    }
+
+    /**
+     * 日干支所在旬的旬首地支（甲X）
+     */
+    public static int xunShouZhi(int ganIndex, int zhiIndex) {
+        return (zhiIndex - ganIndex + 12) % 12;
+    }
+}
@@ -1,5 +1,8 @@
 package xw.szbz.cn.enums;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 六亲枚举
  */
@@ -12,6 +15,14 @@ public enum LiuQin {
 
     private final String name;
 
+    private static final Map<String, LiuQin> BY_NAME = new HashMap<>();
+
+    static {
+        for (LiuQin lq : values()) {
+            BY_NAME.put(lq.name, lq);
+        }
+    }
+
     LiuQin(String name) {
         this.name = name;
     }
@@ -21,11 +32,10 @@ public enum LiuQin {
     }
 
     public static LiuQin fromName(String name) {
-        for (LiuQin lq : values()) {
-            if (lq.name.equals(name)) {
-                return lq;
-            }
+        LiuQin lq = name == null ? null : BY_NAME.get(name);
+        if (lq == null) {
+            throw new IllegalArgumentException("Invalid LiuQin name: " + name);
         }
-        throw new IllegalArgumentException("Invalid LiuQin name: " + name);
+        return lq;
     }
 }
@@ -1,5 +1,8 @@
 package xw.szbz.cn.enums;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 天干枚举
  */
@@ -18,6 +21,16 @@ public enum TianGan {
     private final String name;
     private final int index;
 
+    // 声明顺序即索引顺序，按索引和名称直接查表
+    private static final TianGan[] BY_INDEX = values();
+    private static final Map<String, TianGan> BY_NAME = new HashMap<>();
+
+    static {
+        for (TianGan tg : BY_INDEX) {
+            BY_NAME.put(tg.name, tg);
+        }
+    }
+
     TianGan(String name, int index) {
         this.name = name;
         this.index = index;
@@ -32,21 +45,14 @@ public enum TianGan {
     }
 
     public static TianGan fromIndex(int index) {
-        int normalizedIndex = ((index % 10) + 10) % 10;
-        for (TianGan tg : values()) {
-            if (tg.index == normalizedIndex) {
-                return tg;
-            }
-        }
-        throw new IllegalArgumentException("Invalid TianGan index: " + index);
+        return BY_INDEX[((index % 10) + 10) % 10];
     }
 
     public static TianGan fromName(String name) {
-        for (TianGan tg : values()) {
-            if (tg.name.equals(name)) {
-                return tg;
-            }
+        TianGan tg = name == null ? null : BY_NAME.get(name);
+        if (tg == null) {
+            throw new IllegalArgumentException("Invalid TianGan name: " + name);
         }
-        throw new IllegalArgumentException("Invalid TianGan name: " + name);
+        return tg;
     }
 }
@@ -12,6 +12,18 @@ public enum WuXing {
 
     private final String name;
 
+    // 声明顺序为相生顺序（木火土金水），序号即 GanZhi 中的五行编码
+    private static final WuXing[] BY_INDEX = values();
+
+    // 按 (目标 - 自身 + 5) % 5 的相生距离取六亲
+    private static final LiuQin[] LIU_QIN_BY_DISTANCE = {
+        LiuQin.XIONG_DI,  // 同我
+        LiuQin.ZI_SUN,    // 我生
+        LiuQin.QI_CAI,    // 我克
+        LiuQin.GUAN_GUI,  // 克我
+        LiuQin.FU_MU      // 生我
+    };
+
     WuXing(String name) {
         this.name = name;
     }
@@ -20,6 +32,10 @@ public enum WuXing {
         return name;
     }
 
+    public static WuXing fromIndex(int index) {
+        return BY_INDEX[index];
+    }
+
     /**
      * 根据天干获取五行
      * 甲乙-木，丙丁-火，戊己-土，庚辛-金，壬癸-水
@@ -83,38 +99,6 @@ public enum WuXing {
      * 同五行为兄弟
      */
     public LiuQin getLiuQin(WuXing target) {
-        if (this == target) {
-            return LiuQin.XIONG_DI;
-        }
-
-        // 我生者为子孙
-        if ((this == MU && target == HUO) ||
-            (this == HUO && target == TU) ||
-            (this == TU && target == JIN) ||
-            (this == JIN && target == SHUI) ||
-            (this == SHUI && target == MU)) {
-            return LiuQin.ZI_SUN;
-        }
-
-        // 我克者为妻财
-        if ((this == MU && target == TU) ||
-            (this == TU && target == SHUI) ||
-            (this == SHUI && target == HUO) ||
-            (this == HUO && target == JIN) ||
-            (this == JIN && target == MU)) {
-            return LiuQin.QI_CAI;
-        }
-
-        // 克我者为官鬼
-        if ((this == MU && target == JIN) ||
-            (this == JIN && target == HUO) ||
-            (this == HUO && target == SHUI) ||
-            (this == SHUI && target == TU) ||
-            (this == TU && target == MU)) {
-            return LiuQin.GUAN_GUI;
-        }
-
-        // 生我者为父母
-        return LiuQin.FU_MU;
+        return LIU_QIN_BY_DISTANCE[(target.ordinal() - ordinal() + 5) % 5];
     }
 }
@@ -3,10 +3,12 @@ package xw.szbz.cn.filter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,10 +16,14 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.jsonwebtoken.JwtException;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import xw.szbz.cn.model.JwtPrincipal;
+import xw.szbz.cn.service.TokenRevocationService;
 import xw.szbz.cn.util.EnhancedJwtUtil;
 
 /**
@@ -30,9 +36,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    private static final List<SimpleGrantedAuthority> ROLE_USER = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private static final List<SimpleGrantedAuthority> ROLE_ADMIN = List.of(
+        new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    // 管理员用户名（逗号分隔），可访问 /api/admin/**
+    @Value("${security.admin.usernames:}")
+    private Set<String> adminUsernames;
+
     @Autowired
     private EnhancedJwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     // 不需要 JWT 验证的路径（公开路径）
     private static final List<String> EXCLUDED_PATHS = Arrays.asList(
         "/api/web-auth/register",
@@ -63,42 +81,49 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             // 2. 如果 Token 存在，进行验证
             if (token != null) {
-                // 3. 验证 Token 有效性
-                if (!jwtUtil.validateToken(token)) {
+                // 3. 验证 Token 有效性（只解析、验签一次，最近验证过的 Token 直接命中缓存）
+                JwtPrincipal principal;
+                try {
+                    principal = jwtUtil.verify(token);
+                } catch (JwtException | IllegalArgumentException e) {
                     logger.warn("JWT Token 无效, URI: {}", requestUri);
                     sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "无效的访问令牌");
                     return;
                 }
 
                 // 4. 验证是否为 Access Token
-                if (!jwtUtil.isAccessToken(token)) {
+                if (!principal.isAccessToken()) {
                     logger.warn("Token 类型错误（不是 Access Token）, URI: {}", requestUri);
                     sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "Token 类型错误");
                     return;
                 }
 
-                // 5. 从 Token 中提取用户信息
-                String encryptedUserId = jwtUtil.getEncryptedUserIdFromToken(token);
-                String username = jwtUtil.getUsernameFromToken(token);
+                // 已登出的 Token（未吊销时布隆过滤器直接放行，不查表）
+                if (tokenRevocationService.isRevoked(principal.jti())) {
+                    logger.warn("Token 已吊销, URI: {}", requestUri);
+                    sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "访问令牌已失效");
+                    return;
+                }
 
                 // 注意：不在这里获取用户详细信息和检查状态
                 // 原因：encryptedUserId 是加密的13位字符串，解密需要用户创建时间
                 // 用户状态检查由 Controller 层负责
 
-                // 6. 创建 Spring Security 认证对象
+                // 5. 创建 Spring Security 认证对象
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    encryptedUserId,  // principal: 加密用户ID（Controller 可以用它来查询用户）
-                    null,             // credentials: 不需要密码
-                    Arrays.asList(new SimpleGrantedAuthority("ROLE_USER")) // authorities: 用户角色
+                    principal,  // principal: 已验证的 JWT 主体（Controller 从中取加密用户ID，不再解析 Token）
+                    null,       // credentials: 不需要密码
+                    isAdmin(principal) ? ROLE_ADMIN : ROLE_USER   // authorities: 用户角色
                 );
 
-                // 7. 设置请求详情
+                // 6. 设置请求详情
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                // 8. 将认证信息设置到 Spring Security 上下文
+                // 7. 将认证信息设置到 Spring Security 上下文
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                logger.debug("JWT 认证成功, userId: {}, username: {}, URI: {}", encryptedUserId, username, requestUri);
+                logger.debug("JWT 认证成功, userId: {}, username: {}, URI: {}",
+                        principal.encryptedUserId(), principal.username(), requestUri);
             }
 
         } catch (Exception e) {
@@ -111,6 +136,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 是否为管理员（用户名在 security.admin.usernames 中）
+     */
+    private boolean isAdmin(JwtPrincipal principal) {
+        return principal.username() != null && adminUsernames != null && adminUsernames.contains(principal.username());
+    }
+
     /**
      * 从请求中提取 JWT Token
      */
@@ -0,0 +1,164 @@
+package xw.szbz.cn.filter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * 旁路记录响应体的包装类
+ * 写入的内容直接透传给原始响应（不缓冲，SSE 可以逐块推送），同时最多复制前 limit 个字节用于日志。
+ * 首次写入时如果响应类型是 text/event-stream，则只统计字节数，不复制内容。
+ */
+public class TeeResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    private final int limit;
+    private byte[] captured;
+    private int capturedLength;
+    private long bodySize;
+    private Boolean streaming;
+
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public TeeResponseWrapper(HttpServletResponse response, int limit) {
+        super(response);
+        this.limit = Math.max(limit, 0);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        flushWriter();
+        super.flushBuffer();
+    }
+
+    /**
+     * 把 getWriter() 中尚未写出的字符刷到原始响应
+     */
+    public void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 是否为 SSE 流式响应
+     */
+    public boolean isStreaming() {
+        return streaming != null ? streaming : isEventStream(getContentType());
+    }
+
+    /**
+     * 已写出的响应字节数
+     */
+    public long getBodySize() {
+        return bodySize;
+    }
+
+    /**
+     * 复制下来的响应体前缀
+     */
+    public byte[] getCapturedBody() {
+        return captured == null ? new byte[0] : Arrays.copyOf(captured, capturedLength);
+    }
+
+    /**
+     * 响应体是否超出记录上限（流式响应不记录内容，也视为截断）
+     */
+    public boolean isTruncated() {
+        return bodySize > capturedLength;
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        if (streaming == null) {
+            streaming = isEventStream(getContentType());
+        }
+        bodySize += length;
+        int room = limit - capturedLength;
+        if (streaming || room <= 0) {
+            return;
+        }
+        int copy = Math.min(room, length);
+        if (captured == null) {
+            captured = new byte[Math.min(limit, Math.max(copy, 256))];
+        } else if (capturedLength + copy > captured.length) {
+            captured = Arrays.copyOf(captured, Math.min(limit, Math.max(capturedLength + copy, captured.length * 2)));
+        }
+        System.arraycopy(bytes, offset, captured, capturedLength, copy);
+        capturedLength += copy;
+    }
+
+    private static boolean isEventStream(String contentType) {
+        return contentType != null && contentType.regionMatches(true, 0, EVENT_STREAM, 0, EVENT_STREAM.length());
+    }
+
+    private final class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final byte[] single = new byte[1];
+
+        private TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            single[0] = (byte) b;
+            capture(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package xw.szbz.cn.model;
+
+/**
+ * 已验证的 JWT 主体
+ * 由 EnhancedJwtUtil 解析、验签一次后生成，JWT 过滤器把它作为 SecurityContext 中的 principal
+ *
+ * @param encryptedUserId 加密用户ID（Token subject）
+ * @param username        用户名（Refresh Token 中为 null）
+ * @param emailVerified   邮箱验证状态（Refresh Token 中为 null）
+ * @param tokenType       Token 类型：access / refresh
+ * @param sessionId       会话ID
+ * @param deviceId        设备指纹
+ * @param ipHash          登录 IP 哈希（Refresh Token 中为 null）
+ * @param jti             Token 唯一ID
+ * @param issuedAt        签发时间（毫秒）
+ * @param expiration      过期时间（毫秒）
+ */
+public record JwtPrincipal(String encryptedUserId, String username, Boolean emailVerified, String tokenType,
+                           String sessionId, String deviceId, String ipHash, String jti,
+                           long issuedAt, long expiration) {
+
+    public static final String TOKEN_TYPE_ACCESS = "access";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
+    public boolean isAccessToken() {
+        return TOKEN_TYPE_ACCESS.equals(tokenType);
+    }
+
+    public boolean isRefreshToken() {
+        return TOKEN_TYPE_REFRESH.equals(tokenType);
+    }
+
+    /**
+     * 在指定时间是否已过期
+     */
+    public boolean isExpired(long now) {
+        return expiration <= now;
+    }
+}
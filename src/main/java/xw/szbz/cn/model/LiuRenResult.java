@@ -147,6 +147,18 @@ public class LiuRenResult {
         public void setPosition(int index, PanPosition position) {
             this.positions[index] = position;
         }
+
+        /**
+         * 深拷贝
+         */
+        public TianDiPan copy() {
+            TianDiPan copy = new TianDiPan();
+            copy.positions = new PanPosition[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                copy.positions[i] = positions[i] == null ? null : positions[i].copy();
+            }
+            return copy;
+        }
     }
 
     /**
@@ -188,6 +200,10 @@ public class LiuRenResult {
         public void setTianJiang(String tianJiang) {
             this.tianJiang = tianJiang;
         }
+
+        public PanPosition copy() {
+            return new PanPosition(diPan, tianPan, tianJiang);
+        }
     }
 
     /**
@@ -230,6 +246,18 @@ public class LiuRenResult {
         public void setDiSiKe(Ke diSiKe) {
             this.diSiKe = diSiKe;
         }
+
+        /**
+         * 深拷贝
+         */
+        public SiKe copy() {
+            SiKe copy = new SiKe();
+            copy.diYiKe = diYiKe == null ? null : diYiKe.copy();
+            copy.diErKe = diErKe == null ? null : diErKe.copy();
+            copy.diSanKe = diSanKe == null ? null : diSanKe.copy();
+            copy.diSiKe = diSiKe == null ? null : diSiKe.copy();
+            return copy;
+        }
     }
 
     /**
@@ -271,6 +299,10 @@ public class LiuRenResult {
         public void setDescription(String description) {
             this.description = description;
         }
+
+        public Ke copy() {
+            return new Ke(ganZhi, tianJiang, description);
+        }
     }
 
     /**
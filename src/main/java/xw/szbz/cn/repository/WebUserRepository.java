@@ -1,7 +1,9 @@
 package xw.szbz.cn.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import xw.szbz.cn.entity.WebUser;
 
@@ -53,4 +55,12 @@ public interface WebUserRepository extends JpaRepository<WebUser, Long> {
      */
     @Query("SELECT new xw.szbz.cn.model.UserFreeCountDto(u.id, u.freeCount) FROM WebUser u WHERE u.active = true ORDER BY u.id")
     List<xw.szbz.cn.model.UserFreeCountDto> findActiveUsersFreeCount();
+
+    /**
+     * 原子扣减一次免费次数（不会扣成负数）
+     * @return 受影响行数
+     */
+    @Modifying
+    @Query("UPDATE WebUser u SET u.freeCount = u.freeCount - 1 WHERE u.id = :id AND u.freeCount > 0")
+    int decrementFreeCount(@Param("id") Long id);
 }
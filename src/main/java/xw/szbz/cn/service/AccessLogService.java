@@ -0,0 +1,224 @@
+package xw.szbz.cn.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 访问日志异步写出服务
+ * 请求线程只把已提取好的访问记录放入有界队列，由单个写线程序列化为一行 JSON 写入 ACCESS_LOGGER。
+ * 队列满时直接丢弃并计数，不阻塞请求线程。
+ */
+@Service
+public class AccessLogService implements DisposableBean {
+
+    private static final Logger ACCESS_LOGGER = LoggerFactory.getLogger("ACCESS_LOGGER");
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogService.class);
+
+    /**
+     * 一条访问记录（请求线程上提取完成，不再引用 request / response 对象）
+     * @param requestBody  请求体前缀（未记录时为 null）
+     * @param parameters   请求参数（未记录时为 null）
+     * @param bodySize     响应字节数（未统计时为 -1）
+     * @param responseBody 响应体前缀（未记录时为 null）
+     * @param truncated    响应体是否只记录了前缀
+     * @param streaming    是否为 SSE 流式响应
+     */
+    public record AccessLogRecord(long timestamp, String method, String uri, String queryString,
+                                  byte[] requestBody, boolean requestTruncated, Map<String, String[]> parameters,
+                                  int status, long duration, String contentType, long bodySize,
+                                  byte[] responseBody, boolean truncated, boolean streaming) {
+    }
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final BlockingQueue<AccessLogRecord> queue;
+    private final int queueCapacity;
+    private final Consumer<String> sink;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Autowired
+    public AccessLogService(@Value("${access-log.queue-capacity:10000}") int queueCapacity) {
+        this(queueCapacity, ACCESS_LOGGER::info);
+    }
+
+    AccessLogService(int queueCapacity, Consumer<String> sink) {
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sink = sink;
+    }
+
+    /**
+     * 启动写线程
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 提交访问记录；队列已满时丢弃
+     * @return 是否已入队
+     */
+    public boolean submit(AccessLogRecord record) {
+        if (queue.offer(record)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * 记录一次因采样未输出的请求
+     */
+    public void recordSampledOut() {
+        sampledOut.increment();
+    }
+
+    /**
+     * 访问日志统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("sampledOut", sampledOut.sum());
+        return stats;
+    }
+
+    private void runWriter() {
+        List<AccessLogRecord> batch = new ArrayList<>(64);
+        StringWriter buffer = new StringWriter(1024);
+        while (running || !queue.isEmpty()) {
+            try {
+                AccessLogRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 63);
+                for (AccessLogRecord record : batch) {
+                    try {
+                        buffer.getBuffer().setLength(0);
+                        write(record, buffer);
+                        sink.accept(buffer.toString());
+                        written.increment();
+                    } catch (Exception e) {
+                        logger.error("写访问日志失败: {}", record.uri(), e);
+                    }
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                // 关闭时被中断：继续写完队列
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * 序列化为一行 JSON；完整的 JSON 响应体原样嵌入，不再解析
+     */
+    void write(AccessLogRecord record, StringWriter out) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeNumberField("timestamp", record.timestamp());
+            json.writeStringField("method", record.method());
+            json.writeStringField("uri", record.uri());
+            json.writeStringField("queryString", record.queryString());
+
+            json.writeObjectFieldStart("request");
+            if (record.requestBody() != null) {
+                json.writeStringField("body", new String(record.requestBody(), StandardCharsets.UTF_8));
+                if (record.requestTruncated()) {
+                    json.writeBooleanField("truncated", true);
+                }
+            }
+            if (record.parameters() != null) {
+                json.writeObjectFieldStart("parameters");
+                for (Map.Entry<String, String[]> entry : record.parameters().entrySet()) {
+                    json.writeArrayFieldStart(entry.getKey());
+                    for (String value : entry.getValue()) {
+                        json.writeString(value);
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("response");
+            json.writeNumberField("status", record.status());
+            json.writeStringField("duration", record.duration() + "ms");
+            if (record.streaming()) {
+                json.writeBooleanField("streaming", true);
+            }
+            byte[] body = record.responseBody();
+            if (body != null && body.length > 0) {
+                String text = new String(body, StandardCharsets.UTF_8);
+                if (!record.truncated() && isJson(record.contentType(), text)) {
+                    json.writeFieldName("body");
+                    json.writeRawValue(text);
+                } else {
+                    json.writeStringField("body", text);
+                }
+            }
+            if (record.bodySize() >= 0 && (body == null || record.truncated())) {
+                json.writeStringField("bodySize", record.bodySize() + " bytes");
+            }
+            json.writeEndObject();
+
+            json.writeEndObject();
+        }
+    }
+
+    private static boolean isJson(String contentType, String text) {
+        if (contentType == null || !contentType.contains("json")) {
+            return false;
+        }
+        char first = text.isEmpty() ? ' ' : text.charAt(0);
+        return first == '{' || first == '[';
+    }
+
+    /**
+     * 关闭时写完队列中的记录
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -2,7 +2,6 @@ package xw.szbz.cn.service;
 
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -63,6 +62,15 @@ public class AuthService {
     @Autowired
     private PasswordResetRateLimitRepository resetRateLimitRepository;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private WebUserCacheService webUserCacheService;
+
+    @Autowired
+    private WriteBehindService writeBehindService;
+
     @Value("${app.base-url:https://lifeai.wang}")
     private String appBaseUrl;
 
@@ -72,9 +80,6 @@ public class AuthService {
     @Value("${rate.limit.password-reset.daily:3}")
     private int passwordResetDailyLimit;
 
-    // Token黑名单（用于登出），生产环境应使用Redis
-    private final ConcurrentHashMap<String, Long> tokenBlacklist = new ConcurrentHashMap<>();
-    
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
     
     /**
@@ -195,6 +200,7 @@ public class AuthService {
         user.setLastLoginTime(System.currentTimeMillis());
         user.setLastLoginIp(ipAddress);
         webUserRepository.save(user);
+        webUserCacheService.invalidate(user.getBizId());
 
         // 9. 脱敏邮箱
         String plainEmail = fieldEncryptionUtil.decryptEmail(user.getEmail());
@@ -238,7 +244,7 @@ public class AuthService {
 
         // 4. 获取用户信息（通过 bizId）
         String bizId = enhancedJwtUtil.getEncryptedUserIdFromToken(refreshToken);
-        WebUser user = webUserRepository.findByBizId(bizId);
+        WebUser user = webUserCacheService.get(bizId);
         if (user == null) {
             throw new ServiceException("User not found");
         }
@@ -298,14 +304,19 @@ public class AuthService {
             String refreshJti = enhancedJwtUtil.getJtiFromToken(refreshToken);
             addTokenToBlacklist(refreshJti, refreshTokenExpiration);
         }
+
+        // 移出已验证 Token 缓存
+        enhancedJwtUtil.evict(accessToken);
+        enhancedJwtUtil.evict(refreshToken);
     }
     
     /**
      * 根据加密用户ID获取用户（现在 encryptedUserId 实际是 bizId）
+     * 读取用户缓存，返回的是快照副本，修改后需调用 updateUser 保存
      */
     public WebUser getUserByEncryptedId(String encryptedUserId) {
         // 直接通过 bizId 查询，无需解密
-        WebUser user = webUserRepository.findByBizId(encryptedUserId);
+        WebUser user = webUserCacheService.get(encryptedUserId);
         if (user == null) {
             throw new ServiceException("User not found");
         }
@@ -325,6 +336,21 @@ public class AuthService {
     @Transactional
     public void updateUser(WebUser user) {
         webUserRepository.save(user);
+        webUserCacheService.invalidate(user.getBizId());
+    }
+
+    /**
+     * 扣减一次免费次数：数据库由异步写库原子扣减，缓存中的快照立即扣减
+     * 先提交扣减（计入未落库数）再更新快照，快照未缓存时查库结果会减去未落库的扣减
+     */
+    public void decrementFreeCount(WebUser user) {
+        writeBehindService.decrementFreeCount(user.getId(), user.getBizId());
+        webUserCacheService.update(user.getBizId(), snapshot -> {
+            Integer freeCount = snapshot.getFreeCount();
+            if (freeCount != null && freeCount > 0) {
+                snapshot.setFreeCount(freeCount - 1);
+            }
+        });
     }
 
     // ========== 私有方法 ==========
@@ -354,46 +380,19 @@ public class AuthService {
     }
     
     private void addTokenToBlacklist(String jti, Long expiration) {
-        long expiryTime = System.currentTimeMillis() + expiration;
-        tokenBlacklist.put(jti, expiryTime);
-        
-        // 清理过期的黑名单条目
-        tokenBlacklist.entrySet().removeIf(entry -> 
-            entry.getValue() < System.currentTimeMillis()
-        );
+        // 过期清理和容量上限由吊销表负责
+        tokenRevocationService.revoke(jti, System.currentTimeMillis() + expiration);
     }
     
     private boolean isTokenBlacklisted(String jti) {
-        Long expiryTime = tokenBlacklist.get(jti);
-        if (expiryTime == null) {
-            return false;
-        }
-
-        // 检查是否过期
-        if (expiryTime < System.currentTimeMillis()) {
-            tokenBlacklist.remove(jti);
-            return false;
-        }
-
-        return true;
+        return tokenRevocationService.isRevoked(jti);
     }
 
     /**
      * 获取Token黑名单所有条目（用于缓存管理）
      */
     public Map<String, Object> getTokenBlacklistEntries() {
-        Map<String, Object> entries = new java.util.HashMap<>();
-        long currentTime = System.currentTimeMillis();
-
-        tokenBlacklist.forEach((jti, expiryTime) -> {
-            Map<String, Object> tokenData = new java.util.HashMap<>();
-            tokenData.put("expiryTime", expiryTime);
-            tokenData.put("remainingTime", Math.max(0, expiryTime - currentTime) + "ms");
-            tokenData.put("isExpired", expiryTime < currentTime);
-            entries.put(jti, tokenData);
-        });
-
-        return entries;
+        return tokenRevocationService.getEntries();
     }
 
     // ========== 密码重置 ==========
@@ -446,6 +445,7 @@ public class AuthService {
         user.setPasswordResetToken(tokenId);
         user.setPasswordResetExpiry(expiry);
         webUserRepository.save(user);
+        webUserCacheService.invalidate(user.getBizId());
 
         // 构建重置链接
         String resetLink = appBaseUrl + "/auth/reset-password?token=" + signedToken;
@@ -529,6 +529,7 @@ public class AuthService {
         user.setPasswordResetToken(null);
         user.setPasswordResetExpiry(null);
         webUserRepository.save(user);
+        webUserCacheService.invalidate(user.getBizId());
 
         logger.info("密码重置成功, userId: {}", user.getId());
     }
@@ -0,0 +1,524 @@
+package xw.szbz.cn.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 业务日志索引查询服务
+ * 每个 business_YYYYMMDD.log 旁边维护一个只追加的索引文件（.log.idx），每行记录偏移、长度、请求时间、响应码和 openId：
+ * - 增量建立：只扫描上次索引位置之后新追加的完整行，定时执行，查询前也会补齐
+ * - 内存中按 openId、分钟时间桶、响应码建立倒排表，查询只读取命中的行，不做全量扫描
+ * - 日志文件通过内存映射扫描和读取
+ * 已压缩为 .log.gz 的日志不建索引，查询时跳过
+ */
+@Service
+public class BusinessLogIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusinessLogIndexService.class);
+
+    private static final int MAGIC = 0x424C4958; // "BLIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    private static final int MAX_QUERY_DAYS = 31;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 查询结果
+     * @param lines        命中的日志行（按文件、偏移排序，最多 limit 条）
+     * @param matched      命中总数
+     * @param files        参与查询的日志文件
+     * @param skippedFiles 已压缩、未建索引的日志文件
+     */
+    public record SearchResult(List<String> lines, int matched, List<String> files, List<String> skippedFiles) {
+    }
+
+    private final Path logDir;
+    private final ZoneId zone;
+    private final int maxOpenFiles;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // 按访问顺序淘汰的文件索引
+    private final Map<LocalDate, FileIndex> indexes;
+
+    @Autowired
+    public BusinessLogIndexService(@Value("${business.log.directory:syslog}") String directory,
+                                   @Value("${business.log.index.max-open-files:7}") int maxOpenFiles) {
+        this(Paths.get(directory), ZoneId.systemDefault(), maxOpenFiles);
+    }
+
+    BusinessLogIndexService(Path logDir, ZoneId zone, int maxOpenFiles) {
+        this.logDir = logDir;
+        this.zone = zone;
+        this.maxOpenFiles = maxOpenFiles;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, FileIndex> eldest) {
+                return size() > BusinessLogIndexService.this.maxOpenFiles;
+            }
+        };
+    }
+
+    /**
+     * 定时补齐当天日志的索引（跨天后前一天的文件在首次查询时补齐）
+     */
+    @Scheduled(fixedDelayString = "${business.log.index.interval-ms:10000}")
+    public void indexToday() {
+        try {
+            FileIndex index = indexFor(LocalDate.now(zone));
+            if (index != null) {
+                index.catchUp();
+            }
+        } catch (IOException e) {
+            logger.error("业务日志增量索引失败", e);
+        }
+    }
+
+    /**
+     * 按条件查询业务日志
+     * @param openId  用户 openId，为空时不限
+     * @param from    请求时间下限（含）
+     * @param to      请求时间上限（含）
+     * @param minCode 响应码下限（含），为空时不限
+     * @param maxCode 响应码上限（含），为空时不限
+     * @param limit   最多返回的行数
+     */
+    public SearchResult search(String openId, LocalDateTime from, LocalDateTime to,
+                               Integer minCode, Integer maxCode, int limit) throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        if (from.toLocalDate().plusDays(MAX_QUERY_DAYS).isBefore(to.toLocalDate())) {
+            throw new IllegalArgumentException("查询时间跨度不能超过 " + MAX_QUERY_DAYS + " 天");
+        }
+        Criteria criteria = new Criteria(openId == null || openId.isBlank() ? null : openId,
+                from.atZone(zone).toEpochSecond(), to.atZone(zone).toEpochSecond(),
+                minCode == null ? Integer.MIN_VALUE : minCode, maxCode == null ? Integer.MAX_VALUE : maxCode);
+
+        List<String> lines = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        int matched = 0;
+        // 日志按写入日期分文件，跨零点的请求可能写在次日文件中
+        for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate().plusDays(1)); date = date.plusDays(1)) {
+            String fileName = BusinessLogService.getLogFileName(date);
+            FileIndex index = indexFor(date);
+            if (index == null) {
+                if (Files.exists(logDir.resolve(fileName + ".gz"))) {
+                    skipped.add(fileName + ".gz");
+                }
+                continue;
+            }
+            files.add(fileName);
+            matched += index.search(criteria, lines, limit);
+        }
+        return new SearchResult(lines, matched, files, skipped);
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> files = new LinkedHashMap<>();
+        synchronized (indexes) {
+            for (FileIndex index : indexes.values()) {
+                files.put(index.logFile.getFileName().toString(), index.stats());
+            }
+        }
+        stats.put("maxOpenFiles", maxOpenFiles);
+        stats.put("files", files);
+        return stats;
+    }
+
+    /**
+     * 取日期对应的文件索引；日志文件不存在时返回 null（并清理遗留的索引文件）
+     */
+    private FileIndex indexFor(LocalDate date) throws IOException {
+        Path logFile = logDir.resolve(BusinessLogService.getLogFileName(date));
+        Path indexFile = logDir.resolve(logFile.getFileName() + INDEX_SUFFIX);
+        if (!Files.exists(logFile)) {
+            synchronized (indexes) {
+                indexes.remove(date);
+            }
+            Files.deleteIfExists(indexFile);
+            return null;
+        }
+        synchronized (indexes) {
+            FileIndex index = indexes.get(date);
+            if (index == null) {
+                index = new FileIndex(logFile, indexFile);
+                indexes.put(date, index);
+            }
+            return index;
+        }
+    }
+
+    private record Criteria(String openId, long from, long to, int minCode, int maxCode) {
+
+        boolean hasCodeRange() {
+            return minCode != Integer.MIN_VALUE || maxCode != Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 单个日志文件的索引
+     */
+    private final class FileIndex {
+
+        private final Path logFile;
+        private final Path indexFile;
+
+        private long indexedLength;
+        private boolean loaded;
+        private long scannedBytes;
+
+        private int count;
+        private long[] offsets = new long[1024];
+        private int[] lengths = new int[1024];
+        private long[] times = new long[1024];
+        private int[] codes = new int[1024];
+        private final Map<String, IntList> byOpenId = new HashMap<>();
+        private final TreeMap<Long, IntList> byMinute = new TreeMap<>();
+        private final TreeMap<Integer, IntList> byCode = new TreeMap<>();
+
+        private byte[] lineBuffer = new byte[8192];
+
+        private FileIndex(Path logFile, Path indexFile) {
+            this.logFile = logFile;
+            this.indexFile = indexFile;
+        }
+
+        /**
+         * 查询前补齐索引，然后在倒排表中挑选最小的候选集过滤，只读取命中的行
+         * @return 命中总数
+         */
+        synchronized int search(Criteria criteria, List<String> lines, int limit) throws IOException {
+            catchUp();
+            int[] candidates = candidates(criteria);
+            List<Integer> hits = new ArrayList<>();
+            int matched = 0;
+            for (int id : candidates) {
+                // 指定 openId 时候选集就是该用户的倒排表，只需再过滤时间和响应码
+                if (times[id] < criteria.from() || times[id] > criteria.to()
+                        || codes[id] < criteria.minCode() || codes[id] > criteria.maxCode()) {
+                    continue;
+                }
+                matched++;
+                if (lines.size() + hits.size() < limit) {
+                    hits.add(id);
+                }
+            }
+            readLines(hits, lines);
+            return matched;
+        }
+
+        private int[] candidates(Criteria criteria) {
+            if (criteria.openId() != null) {
+                IntList list = byOpenId.get(criteria.openId());
+                return list == null ? new int[0] : list.toArray();
+            }
+            NavigableMap<Long, IntList> buckets = byMinute.subMap(
+                    Math.floorDiv(criteria.from(), 60), true, Math.floorDiv(criteria.to(), 60), true);
+            List<IntList> selected = new ArrayList<>(buckets.values());
+            if (criteria.hasCodeRange()) {
+                List<IntList> codeLists = new ArrayList<>(
+                        byCode.subMap(criteria.minCode(), true, criteria.maxCode(), true).values());
+                if (total(codeLists) < total(selected)) {
+                    selected = codeLists;
+                }
+            }
+            int[] ids = new int[total(selected)];
+            int size = 0;
+            for (IntList list : selected) {
+                System.arraycopy(list.values, 0, ids, size, list.size);
+                size += list.size;
+            }
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        private int total(List<IntList> lists) {
+            int total = 0;
+            for (IntList list : lists) {
+                total += list.size;
+            }
+            return total;
+        }
+
+        /**
+         * 按偏移顺序读取命中的行：映射一个窗口，后续落在窗口内的行直接复用
+         */
+        private void readLines(List<Integer> hits, List<String> lines) throws IOException {
+            if (hits.isEmpty()) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                long size = channel.size();
+                MappedByteBuffer window = null;
+                long windowStart = 0;
+                for (int id : hits) {
+                    long offset = offsets[id];
+                    int length = lengths[id];
+                    if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+                        windowStart = offset;
+                        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                                Math.max(length, Math.min(MAP_WINDOW, size - windowStart)));
+                    }
+                    byte[] bytes = new byte[length];
+                    window.get((int) (offset - windowStart), bytes);
+                    int textLength = length > 0 && bytes[length - 1] == '\r' ? length - 1 : length;
+                    lines.add(new String(bytes, 0, textLength, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        /**
+         * 补齐索引：首次使用时加载索引文件，然后扫描日志文件中新增的完整行并追加到索引文件
+         */
+        synchronized void catchUp() throws IOException {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+            long size = Files.size(logFile);
+            if (size < indexedLength) {
+                logger.warn("业务日志文件变短，重建索引: {}", logFile);
+                reset();
+            }
+            if (size == indexedLength) {
+                return;
+            }
+
+            boolean newIndexFile = !Files.exists(indexFile) || Files.size(indexFile) == 0;
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile,
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024))) {
+                if (newIndexFile) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                long position = indexedLength;
+                while (position < size) {
+                    long windowSize = Math.min(MAP_WINDOW, size - position);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                    int lineStart = 0;
+                    for (int i = 0; i < windowSize; i++) {
+                        if (window.get(i) == '\n') {
+                            indexLine(window, position, lineStart, i, out);
+                            lineStart = i + 1;
+                        }
+                    }
+                    if (lineStart == 0) {
+                        // 窗口内没有换行：末尾是正在写入的半行，等下次补齐
+                        if (windowSize == size - position) {
+                            break;
+                        }
+                        logger.warn("业务日志单行超过 {} 字节，停止索引: {}", MAP_WINDOW, logFile);
+                        break;
+                    }
+                    scannedBytes += lineStart;
+                    position += lineStart;
+                }
+                indexedLength = position;
+            }
+        }
+
+        private void indexLine(MappedByteBuffer window, long windowStart, int start, int end,
+                               DataOutputStream out) throws IOException {
+            // 记录的长度包含行尾的 \r（不含 \n），offset + length + 1 即下一行的起点
+            int length = end - start;
+            int textLength = length > 0 && window.get(end - 1) == '\r' ? length - 1 : length;
+            if (textLength == 0) {
+                return;
+            }
+            if (lineBuffer.length < textLength) {
+                lineBuffer = new byte[Math.max(textLength, lineBuffer.length * 2)];
+            }
+            window.get(start, lineBuffer, 0, textLength);
+
+            String openId = null;
+            long time = -1;
+            int code = -1;
+            try (JsonParser parser = jsonFactory.createParser(lineBuffer, 0, textLength)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken token = parser.nextToken();
+                    switch (name) {
+                        case "openId" -> openId = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        case "requestTime" -> time = token == JsonToken.VALUE_STRING ? parseTime(parser.getText()) : -1;
+                        case "responseCode" -> code = token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : -1;
+                        default -> parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("跳过无法解析的业务日志行: {} @ {}", logFile, windowStart + start);
+                return;
+            }
+
+            long offset = windowStart + start;
+            add(offset, length, time, code, openId);
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeLong(time);
+            out.writeInt(code);
+            out.writeUTF(openId == null ? "" : openId);
+        }
+
+        private long parseTime(String text) {
+            try {
+                return LocalDateTime.parse(text, TIME_FORMAT).atZone(zone).toEpochSecond();
+            } catch (DateTimeParseException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * 加载索引文件；末尾不完整的条目截掉，格式不符时重建
+         */
+        private void load() throws IOException {
+            if (!Files.exists(indexFile)) {
+                return;
+            }
+            long valid = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 64 * 1024))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("索引文件格式不符");
+                }
+                valid = HEADER_BYTES;
+                while (true) {
+                    long offset = in.readLong();
+                    int length = in.readInt();
+                    long time = in.readLong();
+                    int code = in.readInt();
+                    String openId = in.readUTF();
+                    add(offset, length, time, code, openId.isEmpty() ? null : openId);
+                    indexedLength = offset + length + 1;
+                    valid += 8 + 4 + 8 + 4 + 2 + modifiedUtf8Length(openId);
+                }
+            } catch (EOFException e) {
+                // 读到末尾
+            } catch (IOException e) {
+                logger.warn("索引文件无法读取，重建: {}", indexFile, e);
+                reset();
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                if (channel.size() > valid) {
+                    channel.truncate(valid);
+                }
+            }
+            // 最后一条之后的空行、无法解析的行没有条目，会从最后一条的下一行重新扫描一次
+            if (indexedLength > Files.size(logFile)) {
+                reset();
+            } else if (count > 0) {
+                logger.info("已加载业务日志索引: {}，{} 条", indexFile.getFileName(), count);
+            }
+        }
+
+        private static int modifiedUtf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+            }
+            return length;
+        }
+
+        private void reset() throws IOException {
+            count = 0;
+            indexedLength = 0;
+            byOpenId.clear();
+            byMinute.clear();
+            byCode.clear();
+            Files.deleteIfExists(indexFile);
+        }
+
+        private void add(long offset, int length, long time, int code, String openId) {
+            if (count == offsets.length) {
+                int capacity = count * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                times = Arrays.copyOf(times, capacity);
+                codes = Arrays.copyOf(codes, capacity);
+            }
+            int id = count++;
+            offsets[id] = offset;
+            lengths[id] = length;
+            times[id] = time;
+            codes[id] = code;
+            if (openId != null) {
+                byOpenId.computeIfAbsent(openId, k -> new IntList()).add(id);
+            }
+            byMinute.computeIfAbsent(Math.floorDiv(time, 60), k -> new IntList()).add(id);
+            byCode.computeIfAbsent(code, k -> new IntList()).add(id);
+        }
+
+        synchronized Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", count);
+            stats.put("indexedBytes", indexedLength);
+            stats.put("scannedBytes", scannedBytes);
+            stats.put("openIds", byOpenId.size());
+            return stats;
+        }
+    }
+
+    /**
+     * 递增的 int 列表（倒排表）
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
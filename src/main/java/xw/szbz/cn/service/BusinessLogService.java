@@ -3,42 +3,144 @@ package xw.szbz.cn.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import xw.szbz.cn.model.BusinessLog;
+import xw.szbz.cn.util.MpscRingBuffer;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.annotation.PostConstruct;
 
 /**
  * 业务日志服务
  * 负责将业务数据以标准化 JSON 格式追加到日志文件
  * 日志目录：sybz/syslog/
  * 日志文件命名：business_YYYYMMDD.log
+ *
+ * 请求线程只把日志序列化为一行 JSON 放入无锁环形队列，由单个写线程写出：
+ * - 每天一个长期打开的 FileChannel，跨天时关闭旧文件、打开新文件
+ * - 组提交：缓冲区攒满 batch-bytes 或距首条未写记录超过 flush-ms 时一次写出
+ * - 队列满时按 overflow-policy 丢弃（drop）或等待（block，最多 block-timeout-ms）
+ * - 超过 compress-after-days 天的日志文件由后台线程压缩为 .log.gz
  */
 @Service
-public class BusinessLogService {
+public class BusinessLogService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusinessLogService.class);
 
-    private static final String LOG_DIR = "syslog";
     private static final String LOG_PREFIX = "business_";
     private static final String LOG_SUFFIX = ".log";
-    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /** 直接丢弃 */
+        DROP,
+        /** 等待队列腾出空间，超时后丢弃 */
+        BLOCK
+    }
+
     private final ObjectMapper objectMapper;
+    private final Path logDir;
+    private final boolean enabled;
+    private final MpscRingBuffer<byte[]> ring;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final int batchBytes;
+    private final long flushNanos;
+    private final int compressAfterDays;
+    private final Clock clock;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "business-log-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // 以下字段只由写线程访问
+    private final ByteBuffer buffer;
+    private int bufferedRecords;
+    private LocalDate bufferDate;
+    private long firstBufferedAt;
+    private FileChannel channel;
+    private LocalDate channelDate;
+
+    @Autowired
+    public BusinessLogService(@Value("${business.log.directory:syslog}") String directory,
+                              @Value("${business.log.enabled:true}") boolean enabled,
+                              @Value("${business.log.ring-capacity:8192}") int ringCapacity,
+                              @Value("${business.log.overflow-policy:drop}") String overflowPolicy,
+                              @Value("${business.log.block-timeout-ms:100}") long blockTimeoutMs,
+                              @Value("${business.log.batch-bytes:65536}") int batchBytes,
+                              @Value("${business.log.flush-ms:200}") long flushMs,
+                              @Value("${business.log.compress-after-days:7}") int compressAfterDays) {
+        this(Paths.get(directory), enabled, ringCapacity, OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT)),
+                blockTimeoutMs, batchBytes, flushMs, compressAfterDays, Clock.systemDefaultZone());
+    }
 
-    public BusinessLogService() {
+    BusinessLogService(Path logDir, boolean enabled, int ringCapacity, OverflowPolicy overflowPolicy,
+                       long blockTimeoutMs, int batchBytes, long flushMs, int compressAfterDays, Clock clock) {
         this.objectMapper = new ObjectMapper();
         // 注册 JavaTimeModule 支持 Java 8 时间类型
         this.objectMapper.registerModule(new JavaTimeModule());
         // 禁用将日期序列化为时间戳
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        // 启用缩进输出（每条日志一行，但格式化）
+        // 每条日志一行
         this.objectMapper.disable(SerializationFeature.INDENT_OUTPUT);
-        
+
+        this.logDir = logDir;
+        this.enabled = enabled;
+        this.ring = new MpscRingBuffer<>(ringCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.batchBytes = batchBytes;
+        this.buffer = ByteBuffer.allocateDirect(batchBytes);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        this.compressAfterDays = compressAfterDays;
+        this.clock = clock;
+
         // 初始化日志目录
         initLogDirectory();
     }
@@ -48,21 +150,42 @@ public class BusinessLogService {
      */
     private void initLogDirectory() {
         try {
-            Path logPath = Paths.get(LOG_DIR);
-            if (!Files.exists(logPath)) {
-                Files.createDirectories(logPath);
-                System.out.println("业务日志目录已创建: " + logPath.toAbsolutePath());
+            if (!Files.exists(logDir)) {
+                Files.createDirectories(logDir);
+                logger.info("业务日志目录已创建: {}", logDir.toAbsolutePath());
             }
         } catch (IOException e) {
-            System.err.println("创建日志目录失败: " + e.getMessage());
+            logger.error("创建日志目录失败: {}", logDir.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 启动写线程，并压缩启动前遗留的旧日志
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("业务日志未启用");
+            return;
         }
+        running = true;
+        writerThread = new Thread(this::runWriter, "business-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        scheduleCompression(LocalDate.now(clock));
+        logger.info("业务日志写线程已启动，目录: {}, 队列容量: {}, 队列满时: {}",
+                logDir.toAbsolutePath(), ring.capacity(), overflowPolicy);
     }
 
     /**
      * 记录业务日志
+     * 在调用线程上完成序列化，调用方之后修改 log 不影响已提交的内容
      * @param log 业务日志对象
      */
     public void log(BusinessLog log) {
+        if (!enabled) {
+            return;
+        }
         try {
             // 生成日志ID（时间戳 + 3位随机数）
             if (log.getId() == null) {
@@ -70,40 +193,242 @@ public class BusinessLogService {
                 int random = (int) (Math.random() * 1000);
                 log.setId(timestamp * 1000 + random);
             }
-            
-            // 获取当天日志文件路径
-            String logFileName = getLogFileName();
-            Path logFilePath = Paths.get(LOG_DIR, logFileName);
-            
-            // 将日志对象转换为 JSON 字符串（单行）
-            String jsonLog = objectMapper.writeValueAsString(log);
-            
-            // 追加写入日志文件（使用UTF-8编码）
-            String logLine = jsonLog + System.lineSeparator();
-            Files.write(logFilePath, 
-                       logLine.getBytes(StandardCharsets.UTF_8),
-                       StandardOpenOption.CREATE,
-                       StandardOpenOption.APPEND);
-            
+
+            // 将日志对象转换为 JSON（单行）
+            byte[] line = objectMapper.writeValueAsBytes(log);
+            submitted.increment();
+            if (!enqueue(line)) {
+                dropped.increment();
+            }
+        } catch (IOException e) {
+            logger.error("序列化业务日志失败", e);
+        }
+    }
+
+    private boolean enqueue(byte[] line) {
+        if (ring.offer(line)) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+            return false;
+        }
+        blocked.increment();
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (ring.offer(line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWriter() {
+        while (running || !ring.isEmpty()) {
+            try {
+                byte[] line = ring.poll();
+                if (line != null) {
+                    append(line);
+                    continue;
+                }
+                if (bufferedRecords > 0) {
+                    long remaining = firstBufferedAt + flushNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        flush();
+                    } else {
+                        LockSupport.parkNanos(remaining);
+                    }
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (Exception e) {
+                logger.error("业务日志写线程异常", e);
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.error("关闭时写出业务日志失败，丢失 {} 条", bufferedRecords, e);
+        }
+        closeChannel();
+    }
+
+    /**
+     * 追加到缓冲区；跨天或缓冲区放不下时先写出
+     */
+    private void append(byte[] line) throws IOException {
+        LocalDate today = LocalDate.now(clock);
+        int length = line.length + LINE_SEPARATOR.length;
+        if (bufferedRecords > 0 && (!today.equals(bufferDate) || buffer.remaining() < length)) {
+            flush();
+        }
+        if (bufferedRecords == 0) {
+            bufferDate = today;
+            firstBufferedAt = System.nanoTime();
+        }
+        if (length > buffer.capacity()) {
+            // 超过缓冲区的单条记录直接写出
+            writeFully(channelFor(today), ByteBuffer.wrap(line));
+            writeFully(channelFor(today), ByteBuffer.wrap(LINE_SEPARATOR));
+            written.increment();
+            return;
+        }
+        buffer.put(line).put(LINE_SEPARATOR);
+        bufferedRecords++;
+        if (buffer.position() >= batchBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * 把缓冲区一次写入当天的文件（组提交）
+     */
+    private void flush() throws IOException {
+        if (bufferedRecords == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            writeFully(channelFor(bufferDate), buffer);
+            written.add(bufferedRecords);
+            flushes.increment();
+        } finally {
+            buffer.clear();
+            bufferedRecords = 0;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * 当天文件的 FileChannel；日期变化时关闭旧文件并触发压缩
+     */
+    private FileChannel channelFor(LocalDate date) throws IOException {
+        if (channel != null && date.equals(channelDate)) {
+            return channel;
+        }
+        boolean rolled = channel != null;
+        closeChannel();
+        channel = FileChannel.open(logDir.resolve(getLogFileName(date)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        channelDate = date;
+        if (rolled) {
+            scheduleCompression(date);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            logger.error("关闭业务日志文件失败: {}", channelDate, e);
+        }
+        channel = null;
+        channelDate = null;
+    }
+
+    /**
+     * 后台压缩日期不晚于 today - compressAfterDays 的日志文件（compressAfterDays <= 0 时不压缩）
+     */
+    private void scheduleCompression(LocalDate today) {
+        if (compressAfterDays <= 0) {
+            return;
+        }
+        LocalDate cutoff = today.minusDays(compressAfterDays);
+        compressor.execute(() -> compressOlderThan(cutoff));
+    }
+
+    void compressOlderThan(LocalDate cutoff) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logDir, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                LocalDate date = parseDate(file.getFileName().toString());
+                if (date != null && !date.isAfter(cutoff)) {
+                    gzip(file);
+                }
+            }
         } catch (IOException e) {
-            System.err.println("写入业务日志失败: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("压缩业务日志失败", e);
         }
     }
 
     /**
-     * 获取当天日志文件名
+     * 压缩为 .log.gz：先写临时文件再改名，完成后删除原文件
+     */
+    private void gzip(Path file) throws IOException {
+        Path target = file.resolveSibling(file.getFileName() + ".gz");
+        Path temp = file.resolveSibling(file.getFileName() + ".gz.tmp");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            in.transferTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file);
+        compressed.increment();
+        logger.info("业务日志已压缩: {}", target.getFileName());
+    }
+
+    private static LocalDate parseDate(String fileName) {
+        String date = fileName.substring(LOG_PREFIX.length(), fileName.length() - LOG_SUFFIX.length());
+        try {
+            return LocalDate.parse(date, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取指定日期的日志文件名
      * 格式: business_YYYYMMDD.log
      */
-    private String getLogFileName() {
-        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        return LOG_PREFIX + date + LOG_SUFFIX;
+    static String getLogFileName(LocalDate date) {
+        return LOG_PREFIX + date.format(DATE_FORMAT) + LOG_SUFFIX;
     }
 
     /**
      * 获取日志目录的绝对路径
      */
     public String getLogDirectoryPath() {
-        return Paths.get(LOG_DIR).toAbsolutePath().toString();
+        return logDir.toAbsolutePath().toString();
+    }
+
+    /**
+     * 写出统计（队列深度、丢弃数等）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", ring.size());
+        stats.put("queueCapacity", ring.capacity());
+        stats.put("overflowPolicy", overflowPolicy.name().toLowerCase(Locale.ROOT));
+        stats.put("submitted", submitted.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("blocked", blocked.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("compressedFiles", compressed.sum());
+        return stats;
+    }
+
+    /**
+     * 关闭时写完队列并关闭文件
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        compressor.shutdown();
     }
 }
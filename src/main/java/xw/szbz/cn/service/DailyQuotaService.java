@@ -0,0 +1,157 @@
+package xw.szbz.cn.service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import xw.szbz.cn.repository.JiTuRepository;
+import xw.szbz.cn.repository.WenJiRepository;
+
+/**
+ * 每日提交次数配额服务
+ * 按 (openId, 接口, 日期) 在内存中计数，替代每次请求的 COUNT 查询：
+ * - 每个用户每天首次访问时从数据库加载当日已提交次数，加上异步写库队列中尚未写入的记录数
+ * - 调用 Gemini 之前原子预占一次配额，失败时归还，避免并发请求同时通过检查
+ * - 日期按服务器本地时区计算，零点后自动换新计数，过期计数由定时任务清理
+ */
+@Service
+public class DailyQuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyQuotaService.class);
+
+    /**
+     * 计配额的接口
+     */
+    public enum Endpoint {
+        /** 问吉（/wenji、/wenji-stream，共用配额） */
+        WENJI,
+        /** 吉途（/analyze） */
+        JITU
+    }
+
+    /**
+     * 某用户某接口当天的计数
+     */
+    private static final class DayCounter {
+        private final LocalDate day;
+        private final AtomicInteger used;
+
+        private DayCounter(LocalDate day, int used) {
+            this.day = day;
+            this.used = new AtomicInteger(used);
+        }
+    }
+
+    private final WenJiRepository wenJiRepository;
+    private final JiTuRepository jiTuRepository;
+    private final WriteBehindService writeBehindService;
+    private final Clock clock;
+
+    private final Map<String, DayCounter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DailyQuotaService(WenJiRepository wenJiRepository, JiTuRepository jiTuRepository,
+                             WriteBehindService writeBehindService) {
+        this(wenJiRepository, jiTuRepository, writeBehindService, Clock.systemDefaultZone());
+    }
+
+    DailyQuotaService(WenJiRepository wenJiRepository, JiTuRepository jiTuRepository,
+                      WriteBehindService writeBehindService, Clock clock) {
+        this.wenJiRepository = wenJiRepository;
+        this.jiTuRepository = jiTuRepository;
+        this.writeBehindService = writeBehindService;
+        this.clock = clock;
+    }
+
+    /**
+     * 预占一次配额
+     * @return 未超限并已预占返回 true；已达上限返回 false
+     */
+    public boolean tryReserve(Endpoint endpoint, String openId, int limit) {
+        AtomicInteger used = counter(endpoint, openId).used;
+        while (true) {
+            int current = used.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还预占的配额（请求失败或未实际调用 AI 时）
+     * 跨零点后归还的是前一天的配额，直接忽略
+     */
+    public void release(Endpoint endpoint, String openId) {
+        DayCounter counter = counters.get(key(endpoint, openId));
+        if (counter != null && counter.day.equals(today())) {
+            counter.used.updateAndGet(v -> v > 0 ? v - 1 : 0);
+        }
+    }
+
+    /**
+     * 获取今日已用次数
+     */
+    public int getUsed(Endpoint endpoint, String openId) {
+        return counter(endpoint, openId).used.get();
+    }
+
+    /**
+     * 每天零点清理前一天的计数
+     */
+    @Scheduled(cron = "0 0 0 * * ?")
+    public void evictExpired() {
+        LocalDate today = today();
+        int before = counters.size();
+        counters.values().removeIf(counter -> counter.day.isBefore(today));
+        logger.info("清理过期配额计数: {} -> {}", before, counters.size());
+    }
+
+    private DayCounter counter(Endpoint endpoint, String openId) {
+        LocalDate today = today();
+        String key = key(endpoint, openId);
+        DayCounter counter = counters.get(key);
+        if (counter != null && counter.day.equals(today)) {
+            return counter;
+        }
+        // 在 Map 锁外查库；并发预热时先放入的计数生效，其余线程使用它
+        DayCounter loaded = new DayCounter(today, loadCount(endpoint, openId, today));
+        return counters.merge(key, loaded, (existing, fresh) -> existing.day.equals(today) ? existing : fresh);
+    }
+
+    /**
+     * 加载当日已提交次数（每个用户每天一次）：数据库中的记录 + 异步写库队列中尚未写入的记录
+     * 先取队列计数再查库，记录在两次读取之间写入时可能多算一次，不会漏算
+     */
+    private int loadCount(Endpoint endpoint, String openId, LocalDate day) {
+        int pending = endpoint == Endpoint.WENJI
+                ? writeBehindService.countPendingWenJi(openId)
+                : writeBehindService.countPendingJiTu(openId);
+        ZoneId zone = clock.getZone();
+        long startOfDay = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        long endOfDay = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+        long count = endpoint == Endpoint.WENJI
+                ? wenJiRepository.countByOpenIdAndCreateTimeBetween(openId, startOfDay, endOfDay)
+                : jiTuRepository.countByOpenIdAndCreateTimeBetween(openId, startOfDay, endOfDay);
+        return (int) count + pending;
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    private static String key(Endpoint endpoint, String openId) {
+        return endpoint.name() + ':' + openId;
+    }
+}
@@ -1,16 +1,40 @@
 package xw.szbz.cn.service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -19,27 +43,121 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import xw.szbz.cn.exception.ServiceException;
 import xw.szbz.cn.model.BaZiResult;
+import xw.szbz.cn.util.GeminiStreamParser;
 import xw.szbz.cn.util.PromptTemplateUtil;
+import xw.szbz.cn.util.SingleFlight;
 
 /**
  * Gemini AI 分析服务
  * 使用 Google Gemini API 对八字结果进行智能分析
+ *
+ * 所有请求共用一个 HttpClient（HTTP/2、连接保活），每个方法都有对应的异步版本；
+ * 同步方法只是等待异步结果。每类操作有各自的截止时间，超时后取消上游请求
+ *
+ * 相同请求合并：模型、API 方法和完整请求体（包含渲染后的提示词）都相同的请求在进行中时，
+ * 后到的调用挂到同一个上游请求上；流式请求从同一个上游流分发片段，后加入的调用先补发已收到的片段
  */
 @Service
-public class GeminiService {
+public class GeminiService implements DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(GeminiService.class);
 
+    private static final String DEFAULT_ERROR_MESSAGE = "解读服务暂时不可用，请稍后重试";
+    private static final String JSON_ERROR_MESSAGE = "JSON生成服务暂时不可用，请稍后重试";
+
+    @Value("${GEMINI_API_KEY:}")
     private String apiKey;
 
     @Value("${gemini.model:gemini-2.0-flash-exp}")
     private String modelName;
 
+    @Value("${gemini.base-url:https://generativelanguage.googleapis.com/v1beta/models/}")
+    private String baseUrl;
+
+    /**
+     * 非流式生成（analyzeBaZi、generateContent）的截止时间
+     */
+    @Value("${gemini.http.generate-timeout-ms:180000}")
+    private long generateTimeoutMs;
+
+    /**
+     * 结构化 JSON 生成的截止时间
+     */
+    @Value("${gemini.http.json-timeout-ms:120000}")
+    private long jsonTimeoutMs;
+
+    /**
+     * 流式生成从发出请求到最后一个片段的总截止时间
+     */
+    @Value("${gemini.http.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    /**
+     * 是否合并进行中的相同请求
+     */
+    @Value("${gemini.single-flight.enabled:true}")
+    private boolean singleFlightEnabled = true;
+
+    /**
+     * 合并请求的 key：模型 + API 方法 + 完整请求体
+     */
+    private record FlightKey(String model, String method, String requestBody) {
+    }
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final PromptTemplateUtil promptTemplateUtil;
-
-    public GeminiService(PromptTemplateUtil promptTemplateUtil) {
+    private final HttpClient httpClient;
+    // 响应缓存（为 null 时不缓存），只对指定了调用类型的请求生效
+    private final LlmResponseCacheService responseCache;
+
+    private final SingleFlight<FlightKey, String> requestFlights = new SingleFlight<>();
+    private final Map<FlightKey, StreamFlight> streamFlights = new ConcurrentHashMap<>();
+    private final LongAdder streamExecuted = new LongAdder();
+    private final LongAdder streamShared = new LongAdder();
+    // 合并流式请求的片段分发线程（每个调用方按自己的进度投递，不占用 HttpClient 线程）
+    private final ThreadPoolExecutor fanoutExecutor;
+
+    @Autowired
+    public GeminiService(PromptTemplateUtil promptTemplateUtil,
+                         @Qualifier("geminiHttpClient") HttpClient httpClient,
+                         LlmResponseCacheService responseCache,
+                         @Value("${gemini.single-flight.fanout-threads:32}") int fanoutThreads) {
         this.promptTemplateUtil = promptTemplateUtil;
+        this.httpClient = httpClient;
+        this.responseCache = responseCache;
+        this.fanoutExecutor = newFanoutExecutor(fanoutThreads);
+    }
+
+    GeminiService(PromptTemplateUtil promptTemplateUtil, HttpClient httpClient, LlmResponseCacheService responseCache) {
+        this(promptTemplateUtil, httpClient, responseCache, 4);
+    }
+
+    GeminiService(PromptTemplateUtil promptTemplateUtil, HttpClient httpClient) {
+        this(promptTemplateUtil, httpClient, null);
+    }
+
+    /**
+     * 固定上限的分发线程池，空闲线程回收
+     * 每个调用方同一时刻最多一个待执行任务，队列长度不超过在途调用方数
+     */
+    private static ThreadPoolExecutor newFanoutExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gemini-stream-fanout-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        fanoutExecutor.shutdown();
     }
 
     /**
@@ -50,250 +168,470 @@ public class GeminiService {
      * @throws ServiceException 如果调用失败
      */
     public Object analyzeBaZi(BaZiResult baZiResult) {
+        return await(analyzeBaZiAsync(baZiResult), DEFAULT_ERROR_MESSAGE);
+    }
+
+    /**
+     * 异步分析八字结果
+     */
+    public CompletableFuture<Object> analyzeBaZiAsync(BaZiResult baZiResult) {
         logger.info("开始分析八字，模型: {}", modelName);
-        apiKey = System.getenv("GEMINI_API_KEY");
 
-        if (apiKey == null || apiKey.isEmpty()) {
-            logger.error("Gemini API key 未配置");
-            throw new ServiceException("系统配置异常，请联系管理员", 500);
+        String prompt;
+        try {
+            // 构建提示词（使用模板）
+            prompt = buildBaZiPromptFromTemplate(baZiResult);
+        } catch (Exception e) {
+            logError("八字分析失败", e, 0);
+            return CompletableFuture.failedFuture(new ServiceException(DEFAULT_ERROR_MESSAGE, 500, e));
         }
+        logger.debug("提示词长度: {} 字符", prompt.length());
 
-        HttpURLConnection conn = null;
-        long startTime = System.currentTimeMillis();
+        return postAsync("generateContent", buildRequestBody(prompt, false), generateTimeoutMs,
+                prompt.length(), DEFAULT_ERROR_MESSAGE)
+            .thenApply(responseBody -> {
+                String result = extractTextFromHttpResponse(responseBody);
+                logger.info("Gemini API 调用成功，返回文本长度: {}", result != null ? result.length() : 0);
+                return (Object) result;
+            });
+    }
 
-        try {
-            // 构建提示词（使用模板）
-            String prompt = buildBaZiPromptFromTemplate(baZiResult);
-            logger.debug("提示词长度: {} 字符", prompt.length());
+    /**
+     * 通用文本生成方法（用于六壬预测等场景）- 使用 HTTP 直接调用
+     *
+     * @param prompt 提示词
+     * @return Gemini AI 生成的文本
+     * @throws ServiceException 如果 API key 未配置或调用 Gemini API 失败
+     */
+    public String generateContent(String prompt) {
+        return await(generateContentAsync(prompt), DEFAULT_ERROR_MESSAGE);
+    }
 
-            // 构建请求 URL
-            String urlString = String.format(
-                "https://generativelanguage.googleapis.com/v1beta/models/%s:generateContent?key=%s",
-                modelName, apiKey
-            );
+    /**
+     * 异步通用文本生成
+     */
+    public CompletableFuture<String> generateContentAsync(String prompt) {
+        return generateContentAsync(prompt, null);
+    }
 
-            logger.debug("请求 URL: {}", urlString.replace(apiKey, "***"));
+    /**
+     * 通用文本生成，按调用类型缓存响应（相同模型、提示词和生成配置在有效期内直接返回缓存）
+     *
+     * @param prompt 提示词
+     * @param callType 调用类型，决定缓存有效期；为 null 时不缓存
+     */
+    public String generateContent(String prompt, LlmResponseCacheService.CallType callType) {
+        return await(generateContentAsync(prompt, callType), DEFAULT_ERROR_MESSAGE);
+    }
 
-            URL url = new URL(urlString);
-            conn = (HttpURLConnection) url.openConnection();
+    /**
+     * 异步通用文本生成，按调用类型缓存响应
+     */
+    public CompletableFuture<String> generateContentAsync(String prompt, LlmResponseCacheService.CallType callType) {
+        int promptLength = prompt != null ? prompt.length() : 0;
+        String requestBody = buildRequestBody(prompt, false);
+        String cacheKey = cacheKey(callType, "generateContent", requestBody);
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            logger.info("命中 Gemini 响应缓存，模型: {}, 提示词长度: {}", modelName, promptLength);
+            return CompletableFuture.completedFuture(cached);
+        }
+        logger.info("开始调用 Gemini API，模型: {}, 提示词长度: {}", modelName, promptLength);
 
-            // 设置请求方法和头部
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(9000000);
-            conn.setReadTimeout(9000000);
+        return postAsync("generateContent", requestBody, generateTimeoutMs,
+                promptLength, DEFAULT_ERROR_MESSAGE)
+            .thenApply(responseBody -> {
+                String result = extractTextFromHttpResponse(responseBody);
+                logger.info("Gemini API 调用成功，返回文本长度: {}", result != null ? result.length() : 0);
+                if (cacheKey != null) {
+                    responseCache.put(cacheKey, result, callType);
+                }
+                return result;
+            });
+    }
 
-            // 构建请求体
-            String jsonInputString = String.format(
-                "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}]}",
-                escapeJson(prompt)
-            );
+    /**
+     * 生成结构化 JSON 内容（用于前端语义理解和展示）
+     *
+     * @param prompt 提示词（需要在提示词中明确要求返回JSON格式）
+     * @return 结构化的 JSON 字符串
+     * @throws ServiceException 如果 API key 未配置或调用失败
+     */
+    public String generateStructuredJson(String prompt) {
+        return await(generateStructuredJsonAsync(prompt), JSON_ERROR_MESSAGE);
+    }
 
-            logger.debug("请求体长度: {} bytes", jsonInputString.getBytes(StandardCharsets.UTF_8).length);
+    /**
+     * 异步生成结构化 JSON 内容
+     */
+    public CompletableFuture<String> generateStructuredJsonAsync(String prompt) {
+        return generateStructuredJsonAsync(prompt, null);
+    }
 
-            // 发送请求
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+    /**
+     * 生成结构化 JSON 内容，按调用类型缓存响应（只缓存有效的 JSON）
+     *
+     * @param prompt 提示词
+     * @param callType 调用类型，决定缓存有效期；为 null 时不缓存
+     */
+    public String generateStructuredJson(String prompt, LlmResponseCacheService.CallType callType) {
+        return await(generateStructuredJsonAsync(prompt, callType), JSON_ERROR_MESSAGE);
+    }
 
-            // 获取响应
-            int responseCode = conn.getResponseCode();
-            long requestTime = System.currentTimeMillis() - startTime;
+    /**
+     * 异步生成结构化 JSON 内容，按调用类型缓存响应
+     */
+    public CompletableFuture<String> generateStructuredJsonAsync(String prompt, LlmResponseCacheService.CallType callType) {
+        int promptLength = prompt != null ? prompt.length() : 0;
+        String requestBody = buildRequestBody(prompt, true);
+        String cacheKey = cacheKey(callType, "generateContent", requestBody);
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            logger.info("命中 Gemini 响应缓存（结构化JSON），模型: {}, 提示词长度: {}", modelName, promptLength);
+            return CompletableFuture.completedFuture(cached);
+        }
+        logger.info("开始调用 Gemini API 生成结构化JSON，模型: {}, 提示词长度: {}", modelName, promptLength);
 
-            logger.info("Gemini API 响应码: {}, 耗时: {} ms", responseCode, requestTime);
+        return postAsync("generateContent", requestBody, jsonTimeoutMs,
+                promptLength, JSON_ERROR_MESSAGE)
+            .thenApply(responseBody -> {
+                String result = extractTextFromHttpResponse(responseBody);
+                logger.info("Gemini API 调用成功，返回JSON长度: {}", result != null ? result.length() : 0);
 
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                // 读取响应内容
-                StringBuilder response = new StringBuilder();
-                try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
+                // 验证返回内容是否为有效JSON
+                try {
+                    objectMapper.readTree(result);
+                    logger.debug("返回内容JSON格式验证通过");
+                    if (cacheKey != null) {
+                        responseCache.put(cacheKey, result, callType);
                     }
+                } catch (Exception e) {
+                    logger.warn("返回内容不是有效的JSON格式: {}", e.getMessage());
                 }
+                return result;
+            });
+    }
 
-                // 解析响应 JSON，提取文本内容
-                String responseBody = response.toString();
-                logger.debug("响应内容长度: {} bytes", responseBody.length());
+    /**
+     * 流式生成内容（使用 HTTP 直接调用流式 API）
+     *
+     * @param prompt 提示词
+     * @param chunkCallback 文本片段回调函数
+     * @throws ServiceException 如果 API key 未配置或调用 API 失败
+     */
+    public void generateContentStream(String prompt, Consumer<String> chunkCallback) {
+        await(generateContentStreamAsync(prompt, chunkCallback), DEFAULT_ERROR_MESSAGE);
+    }
 
-                String result = extractTextFromHttpResponse(responseBody);
-                logger.info("Gemini API 调用成功，返回文本长度: {}", result != null ? result.length() : 0);
+    /**
+     * 异步流式生成内容
+     * 片段回调按顺序执行（通常在 HttpClient 线程上；加入进行中的相同请求时，已收到的片段在调用线程上补发），
+     * 全部片段推送完成后 future 完成
+     */
+    public CompletableFuture<Void> generateContentStreamAsync(String prompt, Consumer<String> chunkCallback) {
+        return generateContentStreamAsync(prompt, null, chunkCallback);
+    }
 
-                return result;
+    /**
+     * 流式生成内容，按调用类型缓存完整响应；命中缓存时把完整文本作为一个片段回调
+     *
+     * @param prompt 提示词
+     * @param callType 调用类型，决定缓存有效期；为 null 时不缓存
+     * @param chunkCallback 文本片段回调函数
+     */
+    public void generateContentStream(String prompt, LlmResponseCacheService.CallType callType,
+                                      Consumer<String> chunkCallback) {
+        await(generateContentStreamAsync(prompt, callType, chunkCallback), DEFAULT_ERROR_MESSAGE);
+    }
 
-            } else {
-                // 读取错误信息（仅记录到日志，不暴露给用户）
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = errorReader.readLine()) != null) {
-                        errorResponse.append(inputLine);
+    /**
+     * 异步流式生成内容，按调用类型缓存完整响应（流正常结束后写入缓存）
+     */
+    public CompletableFuture<Void> generateContentStreamAsync(String prompt, LlmResponseCacheService.CallType callType,
+                                                              Consumer<String> chunkCallback) {
+        return streamCachedAsync(prompt, false, callType, chunkCallback);
+    }
+
+    /**
+     * 流式生成结构化 JSON 内容，片段是 JSON 文本的连续片段（拼接后为完整 JSON）
+     * 与 {@link #generateStructuredJson(String, LlmResponseCacheService.CallType)} 共用缓存，只缓存有效的 JSON
+     *
+     * @param prompt 提示词（需要在提示词中明确要求返回JSON格式）
+     * @param callType 调用类型，决定缓存有效期；为 null 时不缓存
+     * @param chunkCallback JSON 文本片段回调函数
+     */
+    public void generateStructuredJsonStream(String prompt, LlmResponseCacheService.CallType callType,
+                                             Consumer<String> chunkCallback) {
+        await(streamCachedAsync(prompt, true, callType, chunkCallback), JSON_ERROR_MESSAGE);
+    }
+
+    private CompletableFuture<Void> streamCachedAsync(String prompt, boolean json,
+                                                      LlmResponseCacheService.CallType callType,
+                                                      Consumer<String> chunkCallback) {
+        int promptLength = prompt != null ? prompt.length() : 0;
+        String requestBody = buildRequestBody(prompt, json);
+        String cacheKey = cacheKey(callType, "generateContent", requestBody);
+        if (cacheKey == null) {
+            return streamWithSingleFlight(requestBody, promptLength, chunkCallback);
+        }
+
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("命中 Gemini 响应缓存（流式），模型: {}, 提示词长度: {}", modelName, promptLength);
+            chunkCallback.accept(cached);
+            return CompletableFuture.completedFuture(null);
+        }
+        StringBuilder fullText = new StringBuilder();
+        return streamWithSingleFlight(requestBody, promptLength, chunk -> {
+                fullText.append(chunk);
+                chunkCallback.accept(chunk);
+            })
+            .thenRun(() -> {
+                String result = fullText.toString();
+                if (json) {
+                    try {
+                        objectMapper.readTree(result);
+                    } catch (Exception e) {
+                        logger.warn("流式返回内容不是有效的JSON格式: {}", e.getMessage());
+                        return;
                     }
                 }
+                responseCache.put(cacheKey, result, callType);
+            });
+    }
+
+    /**
+     * 缓存 key（未指定调用类型或缓存关闭时返回 null）
+     */
+    private String cacheKey(LlmResponseCacheService.CallType callType, String method, String requestBody) {
+        if (callType == null || responseCache == null || !responseCache.isEnabled()) {
+            return null;
+        }
+        return responseCache.key(modelName, method, requestBody);
+    }
 
-                String errorMsg = "Gemini API 返回错误码 " + responseCode + ": " + errorResponse.toString();
-                logger.error("Gemini API 调用失败: {}", errorMsg);
-                logger.error("请求详情 - 模型: {}, 提示词长度: {}, 耗时: {} ms",
-                    modelName, prompt.length(), requestTime);
+    private CompletableFuture<Void> streamWithSingleFlight(String requestBody, int promptLength,
+                                                          Consumer<String> chunkCallback) {
+        logger.info("开始流式调用 Gemini API，模型: {}, 提示词长度: {}", modelName, promptLength);
 
-                // 抛出用户友好的异常消息
-                throw new ServiceException("解读服务暂时不可用，请稍后重试", 500);
-            }
+        if (!singleFlightEnabled) {
+            return streamAsync(requestBody, chunkCallback);
+        }
 
-        } catch (ServiceException e) {
-            // 直接抛出ServiceException，不再包装
-            throw e;
-        } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
-
-            // 记录完整的异常堆栈信息到日志（仅供内部查看）
-            logger.error("八字分析失败，耗时: {} ms", totalTime);
-            logger.error("异常类型: {}", e.getClass().getName());
-            logger.error("异常信息: {}", e.getMessage());
-
-            // 记录完整堆栈
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            logger.error("完整堆栈信息:\n{}", sw.toString());
-
-            // 抛出用户友好的异常消息（不暴露技术细节）
-            throw new ServiceException("解读服务暂时不可用，请稍后重试", 500, e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
+        FlightKey key = new FlightKey(modelName, "streamGenerateContent", requestBody);
+        StreamFlight flight = new StreamFlight(fanoutExecutor);
+        StreamFlight existing = streamFlights.putIfAbsent(key, flight);
+        if (existing != null) {
+            streamShared.increment();
+            logger.info("合并进行中的相同流式请求，提示词长度: {}", promptLength);
+            return existing.join(chunkCallback);
         }
+
+        streamExecuted.increment();
+        CompletableFuture<Void> joined = flight.join(chunkCallback);
+        streamAsync(requestBody, flight::publish).whenComplete((result, error) -> {
+            streamFlights.remove(key, flight);
+            flight.finish(error);
+        });
+        return joined;
     }
 
     /**
-     * 通用文本生成方法（用于六壬预测等场景）- 使用 HTTP 直接调用
-     *
-     * @param prompt 提示词
-     * @return Gemini AI 生成的文本
-     * @throws IllegalStateException 如果 API key 未配置
-     * @throws RuntimeException      如果调用 Gemini API 失败
+     * 发起一次上游流式请求，片段依次交给 chunkCallback
      */
-    public String generateContent(String prompt) {
-        logger.info("开始调用 Gemini API，模型: {}, 提示词长度: {}", modelName, prompt != null ? prompt.length() : 0);
-        apiKey = System.getenv("GEMINI_API_KEY");
+    private CompletableFuture<Void> streamAsync(String requestBody, Consumer<String> chunkCallback) {
         if (apiKey == null || apiKey.isEmpty()) {
-            logger.error("key 未配置");
-            throw new ServiceException("系统配置异常，请联系管理员", 500);
+            logger.error("Gemini API key 未配置");
+            return CompletableFuture.failedFuture(new ServiceException("系统配置异常，请联系管理员", 500));
         }
 
-        HttpURLConnection conn = null;
         long startTime = System.currentTimeMillis();
-        
-        try {
-            // 构建请求 URL
-            String urlString = String.format(
-                "https://generativelanguage.googleapis.com/v1beta/models/%s:generateContent?key=%s",
-                modelName, apiKey
-            );
-            
-            logger.debug("请求 URL: {}", urlString.replace(apiKey, "***"));
-            
-            URL url = new URL(urlString);
-            conn = (HttpURLConnection) url.openConnection();
-            
-            // 设置请求方法和头部
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(9000000);
-            conn.setReadTimeout(9000000);
-
-            // 构建请求体
-            String jsonInputString = String.format(
-                "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}]}",
-                escapeJson(prompt)
-            );
-            
-            logger.debug("请求体长度: {} bytes", jsonInputString.getBytes(StandardCharsets.UTF_8).length);
-            
-            // 发送请求
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+        HttpRequest request = newRequest("streamGenerateContent", "&alt=sse", requestBody, streamTimeoutMs)
+            .header("Accept", "text/event-stream")
+            .build();
+
+        // 响应码为200时按字节解析SSE，否则读出完整错误信息
+        SseChunkSubscriber subscriber = new SseChunkSubscriber(chunkCallback);
+        HttpResponse.BodyHandler<String> handler = responseInfo -> {
+            logger.info("Gemini 流式 API 响应码: {}", responseInfo.statusCode());
+            if (responseInfo.statusCode() == 200) {
+                logger.info("开始接收流式数据...");
+                return BodySubscribers.fromSubscriber(subscriber, s -> null);
             }
+            return BodySubscribers.ofString(StandardCharsets.UTF_8);
+        };
+
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(request, handler);
+        return withDeadline(exchange, streamTimeoutMs, subscriber::cancel)
+            .handle((response, error) -> {
+                long totalTime = System.currentTimeMillis() - startTime;
+                if (error != null) {
+                    logError("流式调用 Gemini API 发生异常", error, totalTime);
+                    throw new ServiceException(DEFAULT_ERROR_MESSAGE, 500, unwrap(error));
+                }
+                if (response.statusCode() != 200) {
+                    // 读取错误信息（仅记录到日志，不暴露给用户）
+                    logger.error("流式调用失败: Gemini 流式 API 返回错误码 {}: {}", response.statusCode(), response.body());
+                    throw new ServiceException(DEFAULT_ERROR_MESSAGE, 500);
+                }
+                logger.info("流式生成完成，共接收 {} 个片段，总耗时: {} ms", subscriber.chunkCount, totalTime);
+                return null;
+            });
+    }
 
-            // 获取响应
-            int responseCode = conn.getResponseCode();
-            long requestTime = System.currentTimeMillis() - startTime;
-            
-            logger.info("Gemini API 响应码: {}, 耗时: {} ms", responseCode, requestTime);
-            
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                // 读取响应内容
-                StringBuilder response = new StringBuilder();
-                try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
-                    }
+    /**
+     * 发送非流式请求，返回成功响应的原始 JSON
+     *
+     * @param method API 方法名（generateContent）
+     * @param requestBody 请求体
+     * @param timeoutMs 截止时间
+     * @param promptLength 提示词长度（用于日志）
+     * @param userMessage 失败时返回给用户的消息
+     */
+    private CompletableFuture<String> postAsync(String method, String requestBody, long timeoutMs,
+                                                int promptLength, String userMessage) {
+        if (!singleFlightEnabled) {
+            return sendAsync(method, requestBody, timeoutMs, promptLength, userMessage);
+        }
+        return requestFlights.execute(new FlightKey(modelName, method, requestBody),
+                () -> sendAsync(method, requestBody, timeoutMs, promptLength, userMessage));
+    }
+
+    /**
+     * 相同请求合并统计（非流式、流式分别统计实际发起次数和合并次数）
+     */
+    public Map<String, Object> getSingleFlightStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", singleFlightEnabled);
+        stats.put("request", requestFlights.getStats());
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("executed", streamExecuted.sum());
+        stream.put("shared", streamShared.sum());
+        stream.put("inFlight", streamFlights.size());
+        stats.put("stream", stream);
+        return stats;
+    }
+
+    private CompletableFuture<String> sendAsync(String method, String requestBody, long timeoutMs,
+                                                int promptLength, String userMessage) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            logger.error("Gemini API key 未配置");
+            return CompletableFuture.failedFuture(new ServiceException("系统配置异常，请联系管理员", 500));
+        }
+
+        logger.debug("请求体长度: {} bytes", requestBody.getBytes(StandardCharsets.UTF_8).length);
+        long startTime = System.currentTimeMillis();
+        HttpRequest request = newRequest(method, "", requestBody, timeoutMs).build();
+
+        CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        return withDeadline(exchange, timeoutMs, null)
+            .handle((response, error) -> {
+                long requestTime = System.currentTimeMillis() - startTime;
+                if (error != null) {
+                    logError("调用 Gemini API 发生异常", error, requestTime);
+                    logger.error("请求参数 - 模型: {}, 提示词长度: {}", modelName, promptLength);
+                    throw new ServiceException(userMessage, 500, unwrap(error));
                 }
 
-                // 解析响应 JSON，提取文本内容
-                String responseBody = response.toString();
-                logger.debug("响应内容长度: {} bytes", responseBody.length());
-                
-                String result = extractTextFromHttpResponse(responseBody);
-                logger.info("Gemini API 调用成功，返回文本长度: {}", result != null ? result.length() : 0);
-                
-                return result;
+                logger.info("Gemini API 响应码: {}, 耗时: {} ms", response.statusCode(), requestTime);
+                if (response.statusCode() != 200) {
+                    // 读取错误信息（仅记录到日志，不暴露给用户）
+                    logger.error("Gemini API 调用失败: Gemini API 返回错误码 {}: {}", response.statusCode(), response.body());
+                    logger.error("请求详情 - 模型: {}, 提示词长度: {}, 耗时: {} ms", modelName, promptLength, requestTime);
+                    throw new ServiceException(userMessage, 500);
+                }
+
+                logger.debug("响应内容长度: {} bytes", response.body().length());
+                return response.body();
+            });
+    }
 
-            } else {
-                // 读取错误信息（仅记录到日志，不暴露给用户）
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = errorReader.readLine()) != null) {
-                        errorResponse.append(inputLine);
+    private HttpRequest.Builder newRequest(String method, String extraQuery, String requestBody, long timeoutMs) {
+        String url = baseUrl + modelName + ":" + method + "?key=" + apiKey + extraQuery;
+        logger.debug("请求 URL: {}", url.replace(apiKey, "***"));
+
+        // timeout 约束到收到响应头为止，整体截止时间由 withDeadline 保证
+        return HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMillis(timeoutMs))
+            .header("Content-Type", "application/json; charset=UTF-8")
+            .POST(HttpRequest.BodyPublishers.ofString(requestBody, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 为请求加上整体截止时间：超时后取消上游请求，释放连接上的流
+     */
+    private <T> CompletableFuture<T> withDeadline(CompletableFuture<T> exchange, long timeoutMs, Runnable onTimeout) {
+        return exchange.copy()
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((result, error) -> {
+                if (error instanceof TimeoutException) {
+                    logger.warn("Gemini 请求超过截止时间 {} ms，取消请求", timeoutMs);
+                    if (onTimeout != null) {
+                        onTimeout.run();
                     }
+                    exchange.cancel(true);
                 }
+            });
+    }
 
-                String errorMsg = "Gemini API 返回错误码 " + responseCode + ": " + errorResponse.toString();
-                logger.error("Gemini API 调用失败: {}", errorMsg);
-                logger.error("请求详情 - 模型: {}, 提示词长度: {}, 耗时: {} ms",
-                    modelName, prompt != null ? prompt.length() : 0, requestTime);
-
-                // 抛出用户友好的异常消息
-                throw new ServiceException("解读服务暂时不可用，请稍后重试", 500);
+    /**
+     * 等待异步结果，异常统一转为 ServiceException
+     */
+    private <T> T await(CompletableFuture<T> future, String userMessage) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof ServiceException serviceException) {
+                throw serviceException;
             }
+            throw new ServiceException(userMessage, 500, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ServiceException(userMessage, 500, e);
+        }
+    }
 
-        } catch (ServiceException e) {
-            // 直接抛出ServiceException，不再包装
-            throw e;
-        } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
-
-            // 记录完整的异常堆栈信息到日志（仅供内部查看）
-            logger.error("调用 Gemini API 发生异常，耗时: {} ms", totalTime);
-            logger.error("异常类型: {}", e.getClass().getName());
-            logger.error("异常信息: {}", e.getMessage());
-            logger.error("请求参数 - 模型: {}, 提示词长度: {}",
-                modelName, prompt != null ? prompt.length() : 0);
-
-            // 记录完整堆栈
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            logger.error("完整堆栈信息:\n{}", sw.toString());
-
-            // 抛出用户友好的异常消息（不暴露技术细节）
-            throw new ServiceException("解读服务暂时不可用，请稍后重试", 500, e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
+    private Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
         }
+        return error;
+    }
+
+    /**
+     * 记录完整的异常堆栈信息到日志（仅供内部查看）
+     */
+    private void logError(String message, Throwable error, long elapsedMs) {
+        Throwable cause = unwrap(error);
+        logger.error("{}，耗时: {} ms", message, elapsedMs);
+        logger.error("异常类型: {}", cause.getClass().getName());
+        logger.error("异常信息: {}", cause.getMessage());
+
+        StringWriter sw = new StringWriter();
+        cause.printStackTrace(new PrintWriter(sw));
+        logger.error("完整堆栈信息:\n{}", sw);
+    }
+
+    /**
+     * 构建请求体
+     *
+     * @param prompt 提示词
+     * @param json 是否要求返回 JSON 格式
+     */
+    private String buildRequestBody(String prompt, boolean json) {
+        if (json) {
+            return String.format(
+                "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}], \"generationConfig\": {\"response_mime_type\": \"application/json\"}}",
+                escapeJson(prompt)
+            );
+        }
+        return String.format(
+            "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}]}",
+            escapeJson(prompt)
+        );
     }
 
     /**
@@ -303,11 +641,11 @@ public class GeminiService {
         try {
             JsonNode root = objectMapper.readTree(jsonResponse);
             JsonNode candidates = root.path("candidates");
-            
+
             if (candidates.isArray() && candidates.size() > 0) {
                 JsonNode content = candidates.get(0).path("content");
                 JsonNode parts = content.path("parts");
-                
+
                 if (parts.isArray() && parts.size() > 0) {
                     String text = parts.get(0).path("text").asText();
                     if (text != null && !text.isEmpty()) {
@@ -316,7 +654,7 @@ public class GeminiService {
                     }
                 }
             }
-            
+
             // 如果无法解析，返回原始响应
             logger.warn("无法从标准结构中提取文本，返回原始响应");
             return jsonResponse;
@@ -367,286 +705,170 @@ public class GeminiService {
     }
 
     /**
-     * 生成结构化 JSON 内容（用于前端语义理解和展示）
-     *
-     * @param prompt 提示词（需要在提示词中明确要求返回JSON格式）
-     * @return 结构化的 JSON 字符串
-     * @throws ServiceException 如果 API key 未配置或调用失败
+     * 按字节解析 SSE 响应（data: {...}），提取文本片段并回调
+     * 不经过逐行字符串解码和 JSON 树，见 {@link GeminiStreamParser}；每处理完一批字节再请求下一批，回调较慢时上游自动背压
      */
-    public String generateStructuredJson(String prompt) {
-        logger.info("开始调用 Gemini API 生成结构化JSON，模型: {}, 提示词长度: {}", modelName, prompt != null ? prompt.length() : 0);
-        apiKey = System.getenv("GEMINI_API_KEY");
-        if (apiKey == null || apiKey.isEmpty()) {
-            logger.error("Gemini API key 未配置");
-            throw new ServiceException("系统配置异常，请联系管理员", 500);
-        }
+    private class SseChunkSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
 
-        HttpURLConnection conn = null;
-        long startTime = System.currentTimeMillis();
-
-        try {
-            // 构建请求 URL
-            String urlString = String.format(
-                "https://generativelanguage.googleapis.com/v1beta/models/%s:generateContent?key=%s",
-                modelName, apiKey
-            );
-
-            logger.debug("请求 URL: {}", urlString.replace(apiKey, "***"));
+        private final GeminiStreamParser parser;
+        private volatile Flow.Subscription subscription;
+        private volatile int chunkCount;
 
-            URL url = new URL(urlString);
-            conn = (HttpURLConnection) url.openConnection();
-
-            // 设置请求方法和头部
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(9000000);
-            conn.setReadTimeout(9000000);
-
-            // 构建请求体，指定返回 JSON 格式
-            String jsonInputString = String.format(
-                "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}], \"generationConfig\": {\"response_mime_type\": \"application/json\"}}",
-                escapeJson(prompt)
-            );
+        SseChunkSubscriber(Consumer<String> chunkCallback) {
+            this.parser = new GeminiStreamParser(objectMapper.getFactory(), chunk -> {
+                chunkCount++;
+                logger.debug("收到第 {} 个流式片段: {} 字符", chunkCount, chunk.length());
+                try {
+                    chunkCallback.accept(chunk);
+                } catch (Exception e) {
+                    logger.warn("处理流式数据片段失败: {}", e.getMessage());
+                }
+            });
+        }
 
-            logger.debug("请求体长度: {} bytes", jsonInputString.getBytes(StandardCharsets.UTF_8).length);
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
 
-            // 发送请求
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    parser.feed(buffer);
+                }
+            } finally {
+                subscription.request(1);
             }
+        }
 
-            // 获取响应
-            int responseCode = conn.getResponseCode();
-            long requestTime = System.currentTimeMillis() - startTime;
+        @Override
+        public void onError(Throwable throwable) {
+            // 错误由 sendAsync 返回的 future 统一处理
+        }
 
-            logger.info("Gemini API 响应码: {}, 耗时: {} ms", responseCode, requestTime);
+        @Override
+        public void onComplete() {
+            parser.finish();
+            if (parser.getMalformedCount() > 0) {
+                logger.warn("流式响应中有 {} 个数据片段解析失败", parser.getMalformedCount());
+            }
+        }
 
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                // 读取响应内容
-                StringBuilder response = new StringBuilder();
-                try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
-                    }
-                }
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
 
-                // 解析响应 JSON，提取文本内容（应该是JSON字符串）
-                String responseBody = response.toString();
-                logger.debug("响应内容长度: {} bytes", responseBody.length());
+    /**
+     * 一个进行中的上游流式请求，向所有加入的调用方分发片段
+     * 片段追加到只增不减的缓冲区（加锁写入，published 为已发布数量）；HttpClient 线程只追加片段并唤醒各调用方，
+     * 每个调用方在分发线程池中按自己的进度依次投递，后加入的调用方先补发已收到的片段，保证顺序且不重复
+     */
+    private static class StreamFlight {
 
-                String result = extractTextFromHttpResponse(responseBody);
-                logger.info("Gemini API 调用成功，返回JSON长度: {}", result != null ? result.length() : 0);
+        private final Executor executor;
+        private final List<Fanout> subscribers = new CopyOnWriteArrayList<>();
+        private String[] chunks = new String[16];
+        private volatile int published;
+        private volatile boolean finished;
+        private Throwable error;
 
-                // 验证返回内容是否为有效JSON
-                try {
-                    objectMapper.readTree(result);
-                    logger.debug("返回内容JSON格式验证通过");
-                } catch (Exception e) {
-                    logger.warn("返回内容不是有效的JSON格式: {}", e.getMessage());
-                }
+        StreamFlight(Executor executor) {
+            this.executor = executor;
+        }
 
-                return result;
+        CompletableFuture<Void> join(Consumer<String> chunkCallback) {
+            Fanout fanout = new Fanout(this, chunkCallback);
+            subscribers.add(fanout);
+            fanout.schedule();
+            return fanout.done;
+        }
 
-            } else {
-                // 读取错误信息（仅记录到日志，不暴露给用户）
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = errorReader.readLine()) != null) {
-                        errorResponse.append(inputLine);
-                    }
+        void publish(String chunk) {
+            synchronized (this) {
+                if (published == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, chunks.length * 2);
                 }
-
-                String errorMsg = "Gemini API 返回错误码 " + responseCode + ": " + errorResponse.toString();
-                logger.error("Gemini API 调用失败: {}", errorMsg);
-                logger.error("请求详情 - 模型: {}, 提示词长度: {}, 耗时: {} ms",
-                    modelName, prompt != null ? prompt.length() : 0, requestTime);
-
-                // 抛出用户友好的异常消息
-                throw new ServiceException("JSON生成服务暂时不可用，请稍后重试", 500);
+                chunks[published] = chunk;
+                published++;
             }
+            subscribers.forEach(Fanout::schedule);
+        }
 
-        } catch (ServiceException e) {
-            // 直接抛出ServiceException，不再包装
-            throw e;
-        } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
-
-            // 记录完整的异常堆栈信息到日志（仅供内部查看）
-            logger.error("调用 Gemini API 生成JSON发生异常，耗时: {} ms", totalTime);
-            logger.error("异常类型: {}", e.getClass().getName());
-            logger.error("异常信息: {}", e.getMessage());
-            logger.error("请求参数 - 模型: {}, 提示词长度: {}",
-                modelName, prompt != null ? prompt.length() : 0);
-
-            // 记录完整堆栈
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            logger.error("完整堆栈信息:\n{}", sw.toString());
-
-            // 抛出用户友好的异常消息（不暴露技术细节）
-            throw new ServiceException("JSON生成服务暂时不可用，请稍后重试", 500, e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+        void finish(Throwable error) {
+            synchronized (this) {
+                this.error = error;
             }
+            finished = true;
+            subscribers.forEach(Fanout::schedule);
+        }
+
+        synchronized String chunk(int index) {
+            return chunks[index];
+        }
+
+        synchronized Throwable error() {
+            return error;
         }
     }
 
     /**
-     * 流式生成内容（使用 HTTP 直接调用流式 API）
-     *
-     * @param prompt 提示词
-     * @param chunkCallback 文本片段回调函数
-     * @throws IllegalStateException 如果 API key 未配置
-     * @throws RuntimeException 如果调用 API 失败
+     * 一个调用方的投递进度：同一时刻最多一个线程投递，全部片段投递完且上游结束后完成 done
      */
-    public void generateContentStream(String prompt, java.util.function.Consumer<String> chunkCallback) {
-        logger.info("开始流式调用 Gemini API，模型: {}, 提示词长度: {}", modelName, prompt != null ? prompt.length() : 0);
-        apiKey = System.getenv("GEMINI_API_KEY");
-        if (apiKey == null || apiKey.isEmpty()) {
-            logger.error("Gemini API key 未配置");
-            throw new ServiceException("系统配置异常，请联系管理员", 500);
+    private static class Fanout implements Runnable {
+
+        private final StreamFlight flight;
+        private final Consumer<String> chunkCallback;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private int delivered;
+
+        Fanout(StreamFlight flight, Consumer<String> chunkCallback) {
+            this.flight = flight;
+            this.chunkCallback = chunkCallback;
         }
 
-        HttpURLConnection conn = null;
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            // 构建请求 URL（使用流式端点）
-            String urlString = String.format(
-                "https://generativelanguage.googleapis.com/v1beta/models/%s:streamGenerateContent?key=%s&alt=sse",
-                modelName, apiKey
-            );
-            
-            logger.debug("流式请求 URL: {}", urlString.replace(apiKey, "***"));
-            
-            URL url = new URL(urlString);
-            conn = (HttpURLConnection) url.openConnection();
-            
-            // 设置请求方法和头部
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setRequestProperty("Accept", "text/event-stream");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(30000);
-            conn.setReadTimeout(180000); // 3分钟读取超时
-
-            // 构建请求体
-            String jsonInputString = String.format(
-                "{\"contents\": [{\"parts\": [{\"text\": \"%s\"}]}]}",
-                escapeJson(prompt)
-            );
-            
-            logger.debug("请求体长度: {} bytes", jsonInputString.getBytes(StandardCharsets.UTF_8).length);
-            
-            // 发送请求
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    flight.executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    done.completeExceptionally(e);
+                }
             }
+        }
 
-            // 获取响应码
-            int responseCode = conn.getResponseCode();
-            logger.info("Gemini 流式 API 响应码: {}", responseCode);
-            
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                logger.info("开始接收流式数据...");
-                
-                // 读取流式响应（SSE 格式）
-                try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    
-                    String line;
-                    StringBuilder eventData = new StringBuilder();
-                    int chunkCount = 0;
-                    
-                    while ((line = reader.readLine()) != null) {
-                        // SSE 格式：data: {...}
-                        if (line.startsWith("data: ")) {
-                            String jsonData = line.substring(6).trim();
-                            
-                            // 跳过空数据
-                            if (jsonData.isEmpty() || jsonData.equals("[DONE]")) {
-                                continue;
-                            }
-                            
-                            try {
-                                // 解析 JSON 提取文本
-                                JsonNode root = objectMapper.readTree(jsonData);
-                                JsonNode candidates = root.path("candidates");
-                                
-                                if (candidates.isArray() && candidates.size() > 0) {
-                                    JsonNode content = candidates.get(0).path("content");
-                                    JsonNode parts = content.path("parts");
-                                    
-                                    if (parts.isArray() && parts.size() > 0) {
-                                        String chunk = parts.get(0).path("text").asText();
-                                        if (chunk != null && !chunk.isEmpty()) {
-                                            chunkCount++;
-                                            logger.debug("收到第 {} 个流式片段: {} 字符", chunkCount, chunk.length());
-                                            chunkCallback.accept(chunk);
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                logger.warn("解析流式数据片段失败: {}", e.getMessage());
-                            }
-                        }
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                // 先读结束标记再读发布数量：已结束时 published 不再变化
+                boolean finished = flight.finished;
+                int available = flight.published;
+                while (delivered < available) {
+                    String chunk = flight.chunk(delivered++);
+                    try {
+                        chunkCallback.accept(chunk);
+                    } catch (Exception e) {
+                        // 单个调用方回调失败（如客户端断开）不影响其他调用方
+                        logger.warn("流式片段回调失败: {}", e.getMessage());
                     }
-                    
-                    long totalTime = System.currentTimeMillis() - startTime;
-                    logger.info("流式生成完成，共接收 {} 个片段，总耗时: {} ms", chunkCount, totalTime);
                 }
-
-            } else {
-                // 读取错误信息（仅记录到日志，不暴露给用户）
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String inputLine;
-                    while ((inputLine = errorReader.readLine()) != null) {
-                        errorResponse.append(inputLine);
+                if (finished && !done.isDone()) {
+                    Throwable error = flight.error();
+                    if (error != null) {
+                        done.completeExceptionally(error);
+                    } else {
+                        done.complete(null);
                     }
                 }
-
-                String errorMsg = "Gemini 流式 API 返回错误码 " + responseCode + ": " + errorResponse.toString();
-                logger.error("流式调用失败: {}", errorMsg);
-
-                // 抛出用户友好的异常消息
-                throw new ServiceException("解读服务暂时不可用，请稍后重试", 500);
-            }
-
-        } catch (ServiceException e) {
-            // 直接抛出ServiceException，不再包装
-            throw e;
-        } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
-
-            // 记录完整的异常堆栈信息到日志（仅供内部查看）
-            logger.error("流式调用 Gemini API 发生异常，耗时: {} ms", totalTime);
-            logger.error("异常类型: {}", e.getClass().getName());
-            logger.error("异常信息: {}", e.getMessage());
-
-            // 记录完整堆栈
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            logger.error("完整堆栈信息:\n{}", sw.toString());
-
-            // 抛出用户友好的异常消息（不暴露技术细节）
-            throw new ServiceException("解读服务暂时不可用，请稍后重试", 500, e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
         }
     }
 }
-
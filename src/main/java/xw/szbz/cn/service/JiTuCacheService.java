@@ -0,0 +1,122 @@
+package xw.szbz.cn.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.entity.JiTu;
+import xw.szbz.cn.repository.JiTuRepository;
+import xw.szbz.cn.util.BoundedTtlCache;
+
+/**
+ * 吉途分析结果两级缓存
+ * - L1：进程内 LRU（{@link BoundedTtlCache}），按条目数和 TTL 限制，保存已解析的分析结果，命中时不查库也不解析 JSON
+ * - L2：ji_tu 表（按性别、出生年月日时查最新一条），L1 未命中时读取并回填
+ * 新生成的分析结果由 {@link #put} 直接写入 L1，不必等待异步写库完成
+ */
+@Service
+public class JiTuCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JiTuCacheService.class);
+
+    /**
+     * 缓存的分析结果
+     * @param analysis 已解析的分析结果（只读共享，调用方不得修改）
+     * @param json     原始 JSON（用于业务日志）
+     */
+    public record CachedAnalysis(Object analysis, String json) {
+    }
+
+    private final JiTuRepository jiTuRepository;
+    private final ObjectMapper objectMapper;
+    private final BoundedTtlCache<String, CachedAnalysis> l1;
+
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public JiTuCacheService(JiTuRepository jiTuRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${cache.jitu.max-size:10000}") int maxSize,
+                            @Value("${cache.jitu.ttl-minutes:360}") long ttlMinutes) {
+        this(jiTuRepository, objectMapper, maxSize, TimeUnit.MINUTES.toMillis(ttlMinutes), System::currentTimeMillis);
+    }
+
+    JiTuCacheService(JiTuRepository jiTuRepository, ObjectMapper objectMapper,
+                     int maxSize, long ttlMillis, LongSupplier clock) {
+        this.jiTuRepository = jiTuRepository;
+        this.objectMapper = objectMapper;
+        this.l1 = new BoundedTtlCache<>(maxSize, ttlMillis, clock);
+    }
+
+    /**
+     * 读取分析结果：先查 L1，未命中再查 ji_tu 表并回填 L1
+     */
+    public Optional<CachedAnalysis> get(String gender, int year, int month, int day, int hour)
+            throws JsonProcessingException {
+        String key = key(gender, year, month, day, hour);
+        CachedAnalysis cached = l1.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<JiTu> stored = jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                gender, year, month, day, hour);
+        if (stored.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        String json = stored.get().getDefaultResult();
+        CachedAnalysis value = new CachedAnalysis(objectMapper.readValue(json, Object.class), json);
+        l1.put(key, value);
+        l2Hits.increment();
+        return Optional.of(value);
+    }
+
+    /**
+     * 写入新生成的分析结果
+     */
+    public void put(String gender, int year, int month, int day, int hour, Object analysis, String json) {
+        l1.put(key(gender, year, month, day, hour), new CachedAnalysis(analysis, json));
+    }
+
+    /**
+     * 清空 L1
+     */
+    public void clear() {
+        l1.clear();
+        logger.info("吉途 L1 缓存已清空");
+    }
+
+    /**
+     * 缓存统计（命中、未命中、淘汰、过期，以及 L1 命中时条目的平均和最大存活时间）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = l1.getStats();
+        long l1Hits = (Long) stats.remove("hits");
+        long l2 = l2Hits.sum();
+        long miss = misses.sum();
+        long total = l1Hits + l2 + miss;
+        stats.put("l1Hits", l1Hits);
+        stats.put("l2Hits", l2);
+        stats.put("misses", miss);
+        stats.put("l1HitRate", total == 0 ? 0.0 : (double) l1Hits / total);
+        return stats;
+    }
+
+    private static String key(String gender, int year, int month, int day, int hour) {
+        return gender + '|' + year + '-' + month + '-' + day + '|' + hour;
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import xw.szbz.cn.enums.DiZhi;
+import xw.szbz.cn.enums.GanZhi;
 import xw.szbz.cn.enums.LiuQin;
 import xw.szbz.cn.enums.TianGan;
 import xw.szbz.cn.enums.WuXing;
@@ -22,6 +24,7 @@ import xw.szbz.cn.model.LiuRenResult.SanChuan;
 import xw.szbz.cn.model.LiuRenResult.SiKe;
 import xw.szbz.cn.model.LiuRenResult.TianDiPan;
 import xw.szbz.cn.model.Pillar;
+import xw.szbz.cn.util.JieQiCalculator;
 
 /**
  * 大六壬计算服务
@@ -53,73 +56,250 @@ public class LiuRenService {
      */
     public String generateCourseInfo(LocalDateTime dateTime) {
         try {
-            int year = dateTime.getYear();
-            int month = dateTime.getMonthValue();
-            int day = dateTime.getDayOfMonth();
-            int hour = dateTime.getHour();
-            int minute = dateTime.getMinute();
-
-            // 计算四柱
-            Pillar monthPillar = baZiService.calculateMonthPillar(year, month, day);
-            Pillar dayPillar = baZiService.calculateDayPillar(year, month, day);
-            Pillar hourPillar = baZiService.calculateHourPillar(dayPillar, hour);
-
-            // 判断是否过了立春，如果没过立春，年份应该使用上一年
-            int lunarYear = year;
-            if (!hasPassedLiChun(year, month, day)) {
-                lunarYear = year - 1;
-            }
+            return objectMapper.writeValueAsString(calculateCourse(dateTime));
+        } catch (Exception e) {
+            throw new RuntimeException("生成大六壬信息失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 使用农历年份计算年柱
-            Pillar yearPillar = baZiService.calculateYearPillar(lunarYear);
+    /**
+     * 根据指定时间起课
+     *
+     * @param dateTime 指定时间
+     * @return 大六壬结果（调用方可自由修改）
+     */
+    LiuRenResult calculateCourse(LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        int month = dateTime.getMonthValue();
+        int day = dateTime.getDayOfMonth();
+        int hour = dateTime.getHour();
+        int minute = dateTime.getMinute();
+
+        // 计算四柱
+        Pillar monthPillar = baZiService.calculateMonthPillar(year, month, day, hour, minute);
+        Pillar dayPillar = baZiService.calculateDayPillar(year, month, day);
+        Pillar hourPillar = baZiService.calculateHourPillar(dayPillar, hour);
+
+        // 年份以立春交节时刻为界，立春前使用上一年
+        int time = JieQiCalculator.toMinute(dateTime);
+        int lunarYear = JieQiCalculator.ganZhiYearAt(time);
+
+        // 使用农历年份计算年柱
+        Pillar yearPillar = baZiService.calculateYearPillar(lunarYear);
+
+        // 月将的确立基于中气，而不是月建
+        int yueJiangIndex = JieQiCalculator.yueJiangAt(time);
+
+        // 大六壬的占时：使用更精确的时刻判断（时辰中点前后）
+        // 如17点15分前算申时，17点15分后算酉时
+        int hourZhiIndex = getLiuRenHourZhi(hour, minute);
+
+        // 课体（天地盘、四课、三传）只取决于日干支、月将加临占时的相对位置和昼夜贵人，
+        // 直接从预先排好的课表中取出，只有神煞需要按年月日时叠加
+        boolean isDaytime = isDaytimeByShiChen(hourZhiIndex, hour);
+        CourseEntry course = lookupCourseEntry(dayPillar, yueJiangIndex, hourZhiIndex, isDaytime);
+
+        // 创建大六壬结果对象
+        LiuRenResult result = new LiuRenResult();
+
+        // 1. 基本信息
+        BasicInfo basicInfo = new BasicInfo(
+            lunarYear,
+            yearPillar.getFullName(),
+            monthPillar.getFullName(),
+            dayPillar.getFullName(),
+            hourPillar.getFullName(),
+            GanZhi.zhiName(yueJiangIndex)
+        );
+        basicInfo.setXunKong(course.xunKong);
+        basicInfo.setZuoKong(course.zuoKong);
+        result.setBasicInfo(basicInfo);
 
-            // 根据月柱的地支计算月将
-            // 月将的确立基于中气，而不是月建
-            String yueJiang = calculateYueJiangByZhongQi(year, month, day);
+        // 2. 天地盘、四课（课表中的对象被所有请求共享，返回副本）
+        result.setTianDiPan(course.tianDiPan.copy());
+        result.setSiKe(course.siKe.copy());
 
-            // 大六壬的占时：使用更精确的时刻判断（时辰中点前后）
-            // 如17点15分前算申时，17点15分后算酉时
-            String hourZhi = getLiuRenHourZhi(hour, minute);
+        // 3. 三传：课表中的六亲、干支、天将 + 本次的神煞
+        result.setSanChuan(overlayShenSha(course, yearPillar, monthPillar, dayPillar, hourPillar));
 
-            // 创建大六壬结果对象
-            LiuRenResult result = new LiuRenResult();
+        return result;
+    }
 
-            // 1. 基本信息
-            BasicInfo basicInfo = new BasicInfo(
-                lunarYear,
-                yearPillar.getFullName(),
-                monthPillar.getFullName(),
-                dayPillar.getFullName(),
-                hourPillar.getFullName(),
-                yueJiang
-            );
+    /**
+     * 课表中的一个课
+     * 天地盘、四课和不含神煞的三传，构建后不再修改，可被多个请求共享；
+     * 对外只返回副本（模型类是可变的），三传在叠加神煞时重新创建
+     */
+    static final class CourseEntry {
+        final TianDiPan tianDiPan;
+        final SiKe siKe;
+        final String xunKong;
+        final String zuoKong;
+        final int[] chuanZhi;      // 初传、中传、末传的地支索引（用于叠加神煞）
+        final Chuan[] chuan;       // 初传、中传、末传（神煞为空）
+
+        CourseEntry(TianDiPan tianDiPan, SiKe siKe, String xunKong, String zuoKong,
+                    int[] chuanZhi, Chuan[] chuan) {
+            this.tianDiPan = tianDiPan;
+            this.siKe = siKe;
+            this.xunKong = xunKong;
+            this.zuoKong = zuoKong;
+            this.chuanZhi = chuanZhi;
+            this.chuan = chuan;
+        }
+    }
 
-            // 2. 天地盘（需要传入日柱和小时来判断昼夜和贵人）
-            TianDiPan tianDiPan = calculateTianDiPan(yueJiang, hourZhi, dayPillar, hour);
-            result.setTianDiPan(tianDiPan);
+    /**
+     * 课表大小：60日干支 × 12月将占时偏移 × 昼夜贵人
+     */
+    private static final int COURSE_TABLE_SIZE = 60 * 12 * 2;
 
-            // 计算旬空和坐空（需要在天地盘计算之后）
-            String xunKong = calculateXunKong(dayPillar.getTianGan(), dayPillar.getDiZhi());
-            String zuoKong = calculateZuoKong(xunKong, tianDiPan);
-            basicInfo.setXunKong(xunKong);
-            basicInfo.setZuoKong(zuoKong);
+    private volatile CourseEntry[] courseTable;
 
-            result.setBasicInfo(basicInfo);
+    /**
+     * 干德、游都：按天干五合分组（甲己、乙庚、丙辛、丁壬、戊癸）
+     */
+    private static final int[] GAN_DE = {2, 8, 5, 11, 5};
+    private static final int[] YOU_DU = {1, 0, 2, 5, 8};
 
-            // 3. 四课
-            SiKe siKe = calculateSiKe(dayPillar, tianDiPan);
-            result.setSiKe(siKe);
+    /**
+     * 启动时预先排好全部课
+     */
+    @PostConstruct
+    public void initCourseTable() {
+        getCourseTable();
+    }
 
-            // 4. 三传（需要传入月将和占时来判断伏吟反吟）
-            SanChuan sanChuan = calculateSanChuan(yearPillar, monthPillar, dayPillar, hourPillar,
-                                                   siKe, tianDiPan, yueJiang, hourZhi);
-            result.setSanChuan(sanChuan);
+    /**
+     * 获取课表，未初始化时构建一次
+     */
+    private CourseEntry[] getCourseTable() {
+        CourseEntry[] table = courseTable;
+        if (table == null) {
+            synchronized (this) {
+                table = courseTable;
+                if (table == null) {
+                    table = buildCourseTable();
+                    courseTable = table;
+                }
+            }
+        }
+        return table;
+    }
 
-            // 转换为JSON字符串
-            return objectMapper.writeValueAsString(result);
-        } catch (Exception e) {
-            throw new RuntimeException("生成大六壬信息失败: " + e.getMessage(), e);
+    /**
+     * 课表下标
+     * 天盘 = 月将 + (地盘 - 占时)，所以天地盘、四课、三传只与 (月将 - 占时) 的偏移有关，
+     * 再加上日干支（四课、旬空、配干）和昼夜（贵人）即可唯一确定一课
+     *
+     * @param ganIndex 日干索引（0-9）
+     * @param zhiIndex 日支索引（0-11）
+     * @param offset 月将相对占时的偏移（0-11）
+     * @param isDaytime 是否用昼贵
+     * @return 课表下标
+     */
+    private static int getCourseKey(int ganIndex, int zhiIndex, int offset, boolean isDaytime) {
+        return (GanZhi.of(ganIndex, zhiIndex) * 12 + offset) * 2 + (isDaytime ? 1 : 0);
+    }
+
+    /**
+     * 构建全部 720 组（日干支 × 偏移）昼夜两套课
+     */
+    private CourseEntry[] buildCourseTable() {
+        CourseEntry[] table = new CourseEntry[COURSE_TABLE_SIZE];
+        for (int ganZhiIndex = 0; ganZhiIndex < 60; ganZhiIndex++) {
+            int ganIndex = GanZhi.gan(ganZhiIndex);
+            int zhiIndex = GanZhi.zhi(ganZhiIndex);
+            Pillar dayPillar = new Pillar(GanZhi.ganName(ganIndex), GanZhi.zhiName(zhiIndex));
+            for (int offset = 0; offset < 12; offset++) {
+                String yueJiang = GanZhi.zhiName(offset);
+                String hourZhi = DiZhi.ZI.getName();
+                table[getCourseKey(ganIndex, zhiIndex, offset, false)] =
+                    buildCourseEntry(dayPillar, yueJiang, hourZhi, false);
+                table[getCourseKey(ganIndex, zhiIndex, offset, true)] =
+                    buildCourseEntry(dayPillar, yueJiang, hourZhi, true);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 从课表中取出一课
+     *
+     * @param yueJiangIndex 月将地支索引
+     * @param hourZhiIndex 占时地支索引
+     */
+    CourseEntry lookupCourseEntry(Pillar dayPillar, int yueJiangIndex, int hourZhiIndex, boolean isDaytime) {
+        return getCourseTable()[getCourseKey(
+            TianGan.fromName(dayPillar.getTianGan()).getIndex(),
+            DiZhi.fromName(dayPillar.getDiZhi()).getIndex(),
+            (yueJiangIndex - hourZhiIndex + 12) % 12,
+            isDaytime)];
+    }
+
+    /**
+     * 不查课表，按实际月将和占时排出一课（与建表前每次请求的起课过程相同，用于核对课表）
+     *
+     * @param yueJiangIndex 月将地支索引
+     * @param hourZhiIndex 占时地支索引
+     */
+    CourseEntry calculateCourseEntry(Pillar dayPillar, int yueJiangIndex, int hourZhiIndex, boolean isDaytime) {
+        return buildCourseEntry(dayPillar, GanZhi.zhiName(yueJiangIndex), GanZhi.zhiName(hourZhiIndex), isDaytime);
+    }
+
+    /**
+     * 排出一课
+     * 建表时以子时为占时基准，月将取偏移对应的地支
+     */
+    private CourseEntry buildCourseEntry(Pillar dayPillar, String yueJiang, String hourZhi, boolean isDaytime) {
+        // 天地盘
+        TianDiPan tianDiPan = calculateTianDiPan(yueJiang, hourZhi, dayPillar, isDaytime);
+
+        // 旬空和坐空（需要在天地盘计算之后）
+        String xunKong = calculateXunKong(dayPillar.getTianGan(), dayPillar.getDiZhi());
+        String zuoKong = calculateZuoKong(xunKong, tianDiPan);
+
+        // 四课
+        SiKe siKe = calculateSiKe(dayPillar, tianDiPan);
+
+        // 三传（需要传入月将和占时来判断伏吟反吟）
+        String[] chuanZhiNames = calculateSanChuanZhi(dayPillar, siKe, yueJiang, hourZhi, tianDiPan);
+        int[] chuanZhi = new int[3];
+        Chuan[] chuan = new Chuan[3];
+        for (int i = 0; i < 3; i++) {
+            chuanZhi[i] = DiZhi.fromName(chuanZhiNames[i]).getIndex();
+            chuan[i] = buildChuan(chuanZhiNames[i], dayPillar, tianDiPan);
+        }
+
+        return new CourseEntry(tianDiPan, siKe, xunKong, zuoKong, chuanZhi, chuan);
+    }
+
+    /**
+     * 为课表中的三传叠加神煞
+     */
+    private SanChuan overlayShenSha(CourseEntry course, Pillar yearPillar, Pillar monthPillar,
+                                    Pillar dayPillar, Pillar hourPillar) {
+        int yearZhiIndex = DiZhi.fromName(yearPillar.getDiZhi()).getIndex();
+        int monthZhiIndex = DiZhi.fromName(monthPillar.getDiZhi()).getIndex();
+        int dayGanIndex = TianGan.fromName(dayPillar.getTianGan()).getIndex();
+        int dayZhiIndex = DiZhi.fromName(dayPillar.getDiZhi()).getIndex();
+
+        Chuan[] chuan = new Chuan[3];
+        for (int i = 0; i < 3; i++) {
+            Chuan base = course.chuan[i];
+            chuan[i] = new Chuan(
+                base.getLiuQin(),
+                base.getGanZhi(),
+                base.getTianJiang(),
+                getShenSha(course.chuanZhi[i], yearZhiIndex, monthZhiIndex, dayGanIndex, dayZhiIndex)
+            );
         }
+
+        SanChuan sanChuan = new SanChuan();
+        sanChuan.setChuChuan(chuan[0]);
+        sanChuan.setZhongChuan(chuan[1]);
+        sanChuan.setMoChuan(chuan[2]);
+        return sanChuan;
     }
 
     /**
@@ -137,24 +317,19 @@ public class LiuRenService {
      * @param yueJiang 月将
      * @param hourZhi 占时地支
      * @param dayPillar 日柱（需要日干判断贵人）
-     * @param hour 小时（判断昼夜）
+     * @param isDaytime 是否用昼贵
      * @return 天地盘
      */
-    private TianDiPan calculateTianDiPan(String yueJiang, String hourZhi, Pillar dayPillar, int hour) {
+    private TianDiPan calculateTianDiPan(String yueJiang, String hourZhi, Pillar dayPillar, boolean isDaytime) {
         TianDiPan tianDiPan = new TianDiPan();
 
-        // 地盘固定顺序
-        String[] diPanArray = {"子", "丑", "寅", "卯", "辰", "巳", "午", "未", "申", "酉", "戌", "亥"};
-
         // 1. 计算天盘：月将加临占时
         int yueJiangIndex = DiZhi.fromName(yueJiang).getIndex();
         int hourZhiIndex = DiZhi.fromName(hourZhi).getIndex();
 
         // 2. 根据日干和昼夜确定贵人地支
+        // 昼夜由占时决定（见 isDaytimeByShiChen）
         String dayGan = dayPillar.getTianGan();
-        // 昼夜判断基于占时地支：卯辰巳午未申用昼贵，酉戌亥子丑寅用夜贵
-        // 特殊：申时17点后用夜贵
-        boolean isDaytime = isDaytimeByShiChen(hourZhi, hour);
         String guiRenZhi = getGuiRenZhi(dayGan, isDaytime);
         int guiRenZhiIndex = DiZhi.fromName(guiRenZhi).getIndex();
 
@@ -193,12 +368,12 @@ public class LiuRenService {
 
         // 7. 生成12个盘位（地盘、天盘、天将）
         for (int i = 0; i < 12; i++) {
-            String diPan = diPanArray[i];
+            String diPan = GanZhi.zhiName(i);
 
             // 计算该地盘位置对应的天盘地支
             // 标准公式：天盘 = (月将 + (地盘 - 占时) + 12) % 12
             int tianPanIndex = (yueJiangIndex + (i - hourZhiIndex) + 12) % 12;
-            String tianPan = diPanArray[tianPanIndex];
+            String tianPan = GanZhi.zhiName(tianPanIndex);
 
             // 根据天盘地支获取对应的天将
             String tianJiang = zhiToTianJiang[tianPanIndex];
@@ -230,20 +405,18 @@ public class LiuRenService {
      *
      * @param hour 小时（0-23）
      * @param minute 分钟（0-59）
-     * @return 占时地支
+     * @return 占时地支索引
      */
-    private String getLiuRenHourZhi(int hour, int minute) {
+    private int getLiuRenHourZhi(int hour, int minute) {
         // 子时特殊处理：23:00-23:59算次日子时，0:00-0:59算当日子时
         if (hour == 23 || hour == 0) {
-            return "子";
+            return 0;
         }
 
         // 标准时辰划分：每2小时一个时辰
         // 1-2点丑，3-4点寅，5-6点卯，7-8点辰，9-10点巳，11-12点午
         // 13-14点未，15-16点申，17-18点酉，19-20点戌，21-22点亥
-        int index = (hour + 1) / 2;
-        String[] zhiArray = {"子", "丑", "寅", "卯", "辰", "巳", "午", "未", "申", "酉", "戌", "亥"};
-        return zhiArray[index % 12];
+        return ((hour + 1) / 2) % 12;
     }
 
     /**
@@ -251,13 +424,11 @@ public class LiuRenService {
      * 卯辰巳午未申用昼贵，酉戌亥子丑寅用夜贵
      * 特殊规则：申时如果是17点及以后（接近酉时），用夜贵
      *
-     * @param shiChen 占时地支
+     * @param index 占时地支索引
      * @param hour 小时数
      * @return 是否为白天
      */
-    private boolean isDaytimeByShiChen(String shiChen, int hour) {
-        int index = DiZhi.fromName(shiChen).getIndex();
-
+    private boolean isDaytimeByShiChen(int index, int hour) {
         // 申时(8)特殊处理：17点及以后用夜贵
         if (index == 8 && hour >= 17) {
             return false;
@@ -393,14 +564,13 @@ public class LiuRenService {
      *
      * @param dayPillar 日柱
      * @param siKe 四课
-     * @param tianDiPan 天地盘
      * @param yueJiang 月将
      * @param hourZhi 占时
-     * @return 三传
+     * @param tianDiPan 天地盘
+     * @return 初传、中传、末传的地支
      */
-    private SanChuan calculateSanChuan(Pillar yearPillar, Pillar monthPillar, Pillar dayPillar, Pillar hourPillar,
-                                       SiKe siKe, TianDiPan tianDiPan,
-                                       String yueJiang, String hourZhi) {
+    private String[] calculateSanChuanZhi(Pillar dayPillar, SiKe siKe, String yueJiang, String hourZhi,
+                                          TianDiPan tianDiPan) {
         String dayGan = dayPillar.getTianGan();
         String dayZhi = dayPillar.getDiZhi();
         boolean isYangDay = isYangGan(dayGan);
@@ -512,77 +682,40 @@ public class LiuRenService {
             moChuanZhi = chuan[2];
         }
 
-        // 构建三传结果
-        SanChuan sanChuan = new SanChuan();
-
-        // 为三传配上天干、六亲、天将、神煞
-        WuXing dayGanWuXing = WuXing.fromTianGan(dayGan);
+        return new String[]{chuChuanZhi, zhongChuanZhi, moChuanZhi};
+    }
 
-        // 初传
-        String chuChuanGan = getGanForZhi(chuChuanZhi, dayPillar);
-        String chuChuanGanZhi = chuChuanGan.isEmpty() ? chuChuanZhi : chuChuanGan + chuChuanZhi;
-        String chuChuanTianJiang = getTianJiangByTianPan(chuChuanZhi, tianDiPan);
-        WuXing chuChuanWuXing = WuXing.fromDiZhi(chuChuanZhi);
-        LiuQin chuChuanLiuQin = dayGanWuXing.getLiuQin(chuChuanWuXing);
-        String chuChuanShenSha = getShenSha(chuChuanZhi, yearPillar, monthPillar, dayPillar, hourPillar);
-
-        Chuan chuChuan = new Chuan(
-            chuChuanLiuQin.getName(),
-            chuChuanGanZhi,
-            chuChuanTianJiang,
-            chuChuanShenSha
-        );
-        sanChuan.setChuChuan(chuChuan);
-
-        // 中传
-        String zhongChuanGan = getGanForZhi(zhongChuanZhi, dayPillar);
-        String zhongChuanGanZhi = zhongChuanGan.isEmpty() ? zhongChuanZhi : zhongChuanGan + zhongChuanZhi;
-        String zhongChuanTianJiang = getTianJiangByTianPan(zhongChuanZhi, tianDiPan);
-        WuXing zhongChuanWuXing = WuXing.fromDiZhi(zhongChuanZhi);
-        LiuQin zhongChuanLiuQin = dayGanWuXing.getLiuQin(zhongChuanWuXing);
-        String zhongChuanShenSha = getShenSha(zhongChuanZhi, yearPillar, monthPillar, dayPillar, hourPillar);
-
-        Chuan zhongChuan = new Chuan(
-            zhongChuanLiuQin.getName(),
-            zhongChuanGanZhi,
-            zhongChuanTianJiang,
-            zhongChuanShenSha
-        );
-        sanChuan.setZhongChuan(zhongChuan);
-
-        // 末传
-        String moChuanGan = getGanForZhi(moChuanZhi, dayPillar);
-        String moChuanGanZhi = moChuanGan.isEmpty() ? moChuanZhi : moChuanGan + moChuanZhi;
-        String moChuanTianJiang = getTianJiangByTianPan(moChuanZhi, tianDiPan);
-        WuXing moChuanWuXing = WuXing.fromDiZhi(moChuanZhi);
-        LiuQin moChuanLiuQin = dayGanWuXing.getLiuQin(moChuanWuXing);
-        String moChuanShenSha = getShenSha(moChuanZhi, yearPillar, monthPillar, dayPillar, hourPillar);
-
-        Chuan moChuan = new Chuan(
-            moChuanLiuQin.getName(),
-            moChuanGanZhi,
-            moChuanTianJiang,
-            moChuanShenSha
+    /**
+     * 为传支配上天干、六亲、天将（神煞按年月日时另行叠加）
+     */
+    private Chuan buildChuan(String chuanZhi, Pillar dayPillar, TianDiPan tianDiPan) {
+        WuXing dayGanWuXing = WuXing.fromTianGan(dayPillar.getTianGan());
+
+        String chuanGan = getGanForZhi(chuanZhi, dayPillar);
+        String chuanGanZhi = chuanGan.isEmpty() ? chuanZhi : chuanGan + chuanZhi;
+        String chuanTianJiang = getTianJiangByTianPan(chuanZhi, tianDiPan);
+        LiuQin chuanLiuQin = dayGanWuXing.getLiuQin(WuXing.fromDiZhi(chuanZhi));
+
+        return new Chuan(
+            chuanLiuQin.getName(),
+            chuanGanZhi,
+            chuanTianJiang,
+            null
         );
-        sanChuan.setMoChuan(moChuan);
-
-        return sanChuan;
     }
 
     /**
      * 判断是否阳干
      */
     private boolean isYangGan(String gan) {
-        return "甲".equals(gan) || "丙".equals(gan) || "戊".equals(gan) ||
-               "庚".equals(gan) || "壬".equals(gan);
+        return GanZhi.isYang(TianGan.fromName(gan).getIndex());
     }
 
     /**
      * 判断是否阳支
      */
     private boolean isYangZhi(String zhi) {
-        return "子".equals(zhi) || "寅".equals(zhi) || "辰".equals(zhi) ||
-               "午".equals(zhi) || "申".equals(zhi) || "戌".equals(zhi);
+        return GanZhi.isYang(DiZhi.fromName(zhi).getIndex());
     }
 
     /**
@@ -723,11 +856,7 @@ public class LiuRenService {
      * 判断五行是否相克（source克target）
      */
     private boolean isKe(WuXing source, WuXing target) {
-        return (source == WuXing.MU && target == WuXing.TU) ||
-               (source == WuXing.TU && target == WuXing.SHUI) ||
-               (source == WuXing.SHUI && target == WuXing.HUO) ||
-               (source == WuXing.HUO && target == WuXing.JIN) ||
-               (source == WuXing.JIN && target == WuXing.MU);
+        return GanZhi.isKe(source.ordinal(), target.ordinal());
     }
 
     /**
@@ -1154,19 +1283,7 @@ public class LiuRenService {
      * 甲己合、乙庚合、丙辛合、丁壬合、戊癸合
      */
     private String getHeGan(String gan) {
-        switch (gan) {
-            case "甲": return "己";
-            case "乙": return "庚";
-            case "丙": return "辛";
-            case "丁": return "壬";
-            case "戊": return "癸";
-            case "己": return "甲";
-            case "庚": return "乙";
-            case "辛": return "丙";
-            case "壬": return "丁";
-            case "癸": return "戊";
-            default: return "甲";
-        }
+        return GanZhi.ganName(GanZhi.heGan(TianGan.fromName(gan).getIndex()));
     }
 
     /**
@@ -1177,22 +1294,7 @@ public class LiuRenService {
      * 辰午酉亥自刑
      */
     private String getXing(String zhi) {
-        switch (zhi) {
-            case "寅": return "巳";
-            case "巳": return "申";
-            case "申": return "寅";
-            case "丑": return "戌";
-            case "戌": return "未";
-            case "未": return "丑";
-            case "子": return "卯";
-            case "卯": return "子";
-            // 自刑
-            case "辰": return "辰";
-            case "午": return "午";
-            case "酉": return "酉";
-            case "亥": return "亥";
-            default: return zhi;
-        }
+        return GanZhi.zhiName(GanZhi.xing(DiZhi.fromName(zhi).getIndex()));
     }
 
     /**
@@ -1200,9 +1302,7 @@ public class LiuRenService {
      * 子午冲、丑未冲、寅申冲、卯酉冲、辰戌冲、巳亥冲
      */
     private String getChong(String zhi) {
-        int zhiIndex = DiZhi.fromName(zhi).getIndex();
-        int chongIndex = (zhiIndex + 6) % 12;
-        return DiZhi.fromIndex(chongIndex).getName();
+        return GanZhi.zhiName(GanZhi.chong(DiZhi.fromName(zhi).getIndex()));
     }
 
     /**
@@ -1240,8 +1340,7 @@ public class LiuRenService {
             return "";
         }
 
-        String[] ganArray = {"甲", "乙", "丙", "丁", "戊", "己", "庚", "辛", "壬", "癸"};
-        return ganArray[ganOffset];
+        return GanZhi.ganName(ganOffset);
     }
 
     /**
@@ -1250,19 +1349,7 @@ public class LiuRenService {
      * 阳干寄宫是本身的禄位，阴干所寄是自身禄地的前一位
      */
     private String getGanZhiMapping(String gan) {
-        switch (gan) {
-            case "甲": return "寅";
-            case "乙": return "辰";
-            case "丙": return "巳";
-            case "丁": return "未";
-            case "戊": return "巳";
-            case "己": return "未";
-            case "庚": return "申";
-            case "辛": return "戌";
-            case "壬": return "亥";
-            case "癸": return "丑";
-            default: throw new IllegalArgumentException("Invalid gan: " + gan);
-        }
+        return GanZhi.zhiName(GanZhi.jiGong(TianGan.fromName(gan).getIndex()));
     }
 
     /**
@@ -1291,27 +1378,16 @@ public class LiuRenService {
      * 获取神煞（完整版）
      * 根据传支、年月日时四柱信息，判断所有相关神煞
      *
-     * @param chuanZhi 传的地支
-     * @param yearPillar 年柱
-     * @param monthPillar 月柱
-     * @param dayPillar 日柱
-     * @param hourPillar 时柱
+     * @param chuanIndex 传的地支索引
+     * @param yearIndex 年支索引
+     * @param monthIndex 月支索引
+     * @param dayGanIndex 日干索引
+     * @param dayIndex 日支索引
      * @return 所有匹配的神煞，用斜杠分隔
      */
-    private String getShenSha(String chuanZhi, Pillar yearPillar, Pillar monthPillar,
-                             Pillar dayPillar, Pillar hourPillar) {
+    private String getShenSha(int chuanIndex, int yearIndex, int monthIndex, int dayGanIndex, int dayIndex) {
         List<String> shenShaList = new ArrayList<>();
 
-        int chuanIndex = DiZhi.fromName(chuanZhi).getIndex();
-        String yearZhi = yearPillar.getDiZhi();
-        String monthZhi = monthPillar.getDiZhi();
-        String dayGan = dayPillar.getTianGan();
-        String dayZhi = dayPillar.getDiZhi();
-
-        int yearIndex = DiZhi.fromName(yearZhi).getIndex();
-        int monthIndex = DiZhi.fromName(monthZhi).getIndex();
-        int dayIndex = DiZhi.fromName(dayZhi).getIndex();
-
         // ========== 1. 岁煞（基于年支）==========
 
         // 太岁：年支本身
@@ -1683,7 +1759,6 @@ public class LiuRenService {
         // ========== 4. 旬煞（基于日干支的旬）==========
 
         // 计算旬首（日干支所在的旬）
-        int dayGanIndex = TianGan.fromName(dayGan).getIndex();
         int xunShouIndex = getXunShou(dayGanIndex, dayIndex);
 
         // 旬空：旬中最后两个地支
@@ -1745,29 +1820,15 @@ public class LiuRenService {
 
         // ========== 5. 干煞（基于日干）==========
 
-        // 干德
-        int ganDeIndex = -1;
-        switch (dayGan) {
-            case "甲": case "己": ganDeIndex = 2; break;  // 寅
-            case "乙": case "庚": ganDeIndex = 8; break;  // 申
-            case "丙": case "辛": ganDeIndex = 5; break;  // 巳
-            case "丁": case "壬": ganDeIndex = 11; break; // 亥
-            case "戊": case "癸": ganDeIndex = 5; break;  // 巳
-        }
+        // 干德：甲己寅、乙庚申、丙辛巳、丁壬亥、戊癸巳
+        int ganDeIndex = GAN_DE[dayGanIndex % 5];
         if (chuanIndex == ganDeIndex) {
             shenShaList.add("干德");
             shenShaList.add("日德");
         }
 
-        // 游都
-        int youDuIndex = -1;
-        switch (dayGan) {
-            case "甲": case "己": youDuIndex = 1; break;  // 丑
-            case "乙": case "庚": youDuIndex = 0; break;  // 子
-            case "丙": case "辛": youDuIndex = 2; break;  // 寅
-            case "丁": case "壬": youDuIndex = 5; break;  // 巳
-            case "戊": case "癸": youDuIndex = 8; break;  // 申
-        }
+        // 游都：甲己丑、乙庚子、丙辛寅、丁壬巳、戊癸申
+        int youDuIndex = YOU_DU[dayGanIndex % 5];
         if (chuanIndex == youDuIndex) {
             shenShaList.add("游都");
         }
@@ -1837,112 +1898,6 @@ public class LiuRenService {
         return String.join("/", shenShaList);
     }
 
-    /**
-     * 判断指定日期是否已过立春
-     * 立春一般在公历2月3-5日之间
-     * 简化处理：2月4日之前视为未过立春，2月4日及之后视为已过立春
-     *
-     * @param year 年份
-     * @param month 月份
-     * @param day 日期
-     * @return 是否已过立春
-     */
-    private boolean hasPassedLiChun(int year, int month, int day) {
-        // 如果是3月及之后，肯定过了立春
-        if (month >= 3) {
-            return true;
-        }
-        // 如果是1月，肯定没过立春
-        if (month == 1) {
-            return false;
-        }
-        // 如果是2月，判断日期是否在4日及之后
-        // 简化处理：2月4日及之后视为已过立春
-        return day >= 4;
-    }
-
-    /**
-     * 根据月柱地支计算月将
-     * 月将是大六壬中的重要概念，按照月支确定
-     *
-     * 月将对应表（按节气月的月支）：
-     * 寅月 - 登明（亥将）
-     * 卯月 - 河魁（戌将）
-     * 辰月 - 从魁（酉将）
-     * 巳月 - 传送（申将）
-     * 午月 - 小吉（未将）
-     * 未月 - 胜光（午将）
-     * 申月 - 太乙（巳将）
-     * 酉月 - 天罡（辰将）
-     * 戌月 - 太冲（卯将）
-     * 亥月 - 功曹（寅将）
-     * 子月 - 大吉（丑将）
-     * 丑月 - 神后（子将）
-     *
-     * @param monthZhi 月柱地支
-     * @return 月将地支
-     */
-    /**
-     * 根据中气计算月将
-     * 月将的确立规则：
-     * - 正月交雨水后 → 亥宫(登明)
-     * - 二月交春分后 → 戌宫(河魁)
-     * - 三月交谷雨后 → 酉宫(从魁)
-     * - 四月交小满后 → 申宫(传送)
-     * - 五月交夏至后 → 未宫(小吉)
-     * - 六月交大暑后 → 午宫(圣光)
-     * - 七月交处暑后 → 巳宫(太乙)
-     * - 八月交秋分后 → 辰宫(天罡)
-     * - 九月交霜降后 → 卯宫(太冲)
-     * - 十月交小雪后 → 寅宫(功曹)
-     * - 冬月交冬至后 → 丑宫(大吉)
-     * - 腊月交大寒后 → 子宫(神后)
-     *
-     * 月将的交换更替都是根据中气的变化而开始的
-     *
-     * @param year 年份
-     * @param month 月份
-     * @param day 日期
-     * @return 月将地支
-     */
-    private String calculateYueJiangByZhongQi(int year, int month, int day) {
-        // 12个中气的近似日期（简化算法）
-        // 格式：[月份, 日期, 对应月将]
-        // 注：实际中气时刻会有几个小时的偏差，这里使用简化的日期
-        Object[][] zhongQiList = {
-            {1, 20, "子"},   // 大寒(1/20) - 腊月中气 → 子将(神后)
-            {2, 19, "亥"},   // 雨水(2/19) - 正月中气 → 亥将(登明)
-            {3, 21, "戌"},   // 春分(3/21) - 二月中气 → 戌将(河魁)
-            {4, 20, "酉"},   // 谷雨(4/20) - 三月中气 → 酉将(从魁)
-            {5, 21, "申"},   // 小满(5/21) - 四月中气 → 申将(传送)
-            {6, 21, "未"},   // 夏至(6/21) - 五月中气 → 未将(小吉)
-            {7, 23, "午"},   // 大暑(7/23) - 六月中气 → 午将(圣光)
-            {8, 23, "巳"},   // 处暑(8/23) - 七月中气 → 巳将(太乙)
-            {9, 23, "辰"},   // 秋分(9/23) - 八月中气 → 辰将(天罡)
-            {10, 23, "卯"},  // 霜降(10/23) - 九月中气 → 卯将(太冲)
-            {11, 22, "寅"},  // 小雪(11/22) - 十月中气 → 寅将(功曹)
-            {12, 22, "丑"}   // 冬至(12/22) - 冬月中气 → 丑将(大吉)
-        };
-
-        // 从后往前查找，找到当前日期之前最近的中气
-        String yueJiang = "丑"; // 默认丑将
-
-        // 先查找当前年份的中气
-        for (int i = zhongQiList.length - 1; i >= 0; i--) {
-            int zhongQiMonth = (int) zhongQiList[i][0];
-            int zhongQiDay = (int) zhongQiList[i][1];
-            String jiang = (String) zhongQiList[i][2];
-
-            // 如果当前日期在该中气之后（或当天）
-            if (month > zhongQiMonth || (month == zhongQiMonth && day >= zhongQiDay)) {
-                yueJiang = jiang;
-                break;
-            }
-        }
-
-        return yueJiang;
-    }
-
     /**
      * 将出生年份转换为干支年份信息
      * 格式：2025年乙巳年
@@ -0,0 +1,309 @@
+package xw.szbz.cn.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import xw.szbz.cn.exception.ServiceException;
+
+/**
+ * 大模型请求流水线执行器
+ * /wenji、/analyze、/lifeai 和 /wenji-stream 的整条处理链路在这里执行，释放 Tomcat 工作线程。
+ *
+ * 两种模式：
+ * - virtual：每个请求一个虚拟线程（需要 Java 21+），由信号量限制同时调用上游的数量
+ * - bounded：固定大小线程池 + 有界队列
+ * 两种模式下在途请求都不超过 maxConcurrent + queueCapacity，超出时拒绝（429），避免流量高峰耗尽线程或内存。
+ * {@link #submit} 的任务从提交起（含排队）有统一截止时间：超时返回 504，未开始的任务不再执行，执行中的任务被中断。
+ */
+@Component
+public class LlmPipelineExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmPipelineExecutor.class);
+
+    public static final String BUSY_MESSAGE = "服务繁忙，请稍后重试";
+
+    public static final String TIMEOUT_MESSAGE = "请求处理超时，请稍后重试";
+
+    private final String mode;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final long pipelineTimeoutMs;
+
+    private final ExecutorService executor;
+
+    /**
+     * 截止时间定时器（pipelineTimeoutMs <= 0 时为 null）
+     */
+    private final ScheduledThreadPoolExecutor deadlineTimer;
+
+    /**
+     * 虚拟线程模式：admission 控制在途总数，permits 控制同时执行数
+     */
+    private final Semaphore admission;
+    private final Semaphore permits;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @Autowired
+    public LlmPipelineExecutor(
+            @Value("${llm.executor.mode:bounded}") String mode,
+            @Value("${llm.executor.max-concurrent:32}") int maxConcurrent,
+            @Value("${llm.executor.queue-capacity:64}") int queueCapacity,
+            @Value("${llm.executor.pipeline-timeout-ms:330000}") long pipelineTimeoutMs) {
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.pipelineTimeoutMs = pipelineTimeoutMs;
+        if (pipelineTimeoutMs > 0) {
+            this.deadlineTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "llm-pipeline-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.deadlineTimer.setRemoveOnCancelPolicy(true);
+        } else {
+            this.deadlineTimer = null;
+        }
+
+        ExecutorService virtualExecutor = "virtual".equalsIgnoreCase(mode) ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.mode = "virtual";
+            this.executor = virtualExecutor;
+            this.admission = new Semaphore(maxConcurrent + queueCapacity);
+            this.permits = new Semaphore(maxConcurrent);
+        } else {
+            this.mode = "bounded";
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(
+                    maxConcurrent, maxConcurrent,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                    runnable -> new Thread(runnable, "llm-pipeline-" + counter.incrementAndGet()),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.admission = null;
+            this.permits = null;
+        }
+        logger.info("LLM 流水线执行器已启动，模式: {}, 最大并发: {}, 队列容量: {}, 截止时间: {} ms",
+                this.mode, maxConcurrent, queueCapacity, pipelineTimeoutMs);
+    }
+
+    LlmPipelineExecutor(String mode, int maxConcurrent, int queueCapacity) {
+        this(mode, maxConcurrent, queueCapacity, 0);
+    }
+
+    /**
+     * 提交有返回值的任务
+     * 执行器饱和时返回以 ServiceException(429) 失败的 Future，超过截止时间时以 ServiceException(504) 失败
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        PipelineRun run = new PipelineRun();
+        try {
+            execute(() -> {
+                if (!run.start()) {
+                    return;
+                }
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    run.finish();
+                }
+            });
+        } catch (ServiceException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (deadlineTimer != null) {
+            ScheduledFuture<?> deadline = deadlineTimer.schedule(() -> {
+                // 先取消再返回 504：调用方收到超时后，未开始的任务不会再开始
+                if (run.cancel(() -> future.completeExceptionally(new ServiceException(TIMEOUT_MESSAGE, 504)))) {
+                    timedOut.incrementAndGet();
+                    logger.warn("LLM 流水线超过截止时间 {} ms，取消任务", pipelineTimeoutMs);
+                }
+            }, pipelineTimeoutMs, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> deadline.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * 一次流水线执行：超时后未开始的任务不再执行，执行中的任务被中断
+     */
+    private static final class PipelineRun {
+
+        private Thread runner;
+        private boolean cancelled;
+
+        synchronized boolean start() {
+            if (cancelled) {
+                return false;
+            }
+            runner = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void finish() {
+            runner = null;
+            // 清除超时留下的中断标记，线程会被复用
+            Thread.interrupted();
+        }
+
+        /**
+         * 取消本次执行并在同一把锁内结束 Future
+         * @param timeout 结束 Future，返回是否由本次调用结束
+         * @return Future 是否以超时结束（任务已先完成时返回 false）
+         */
+        synchronized boolean cancel(BooleanSupplier timeout) {
+            cancelled = true;
+            if (!timeout.getAsBoolean()) {
+                return false;
+            }
+            if (runner != null) {
+                runner.interrupt();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 提交任务
+     * @throws ServiceException 执行器饱和时抛出，状态码 429
+     */
+    public void execute(Runnable task) {
+        if (admission != null) {
+            if (!admission.tryAcquire()) {
+                throw reject();
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        waiting.incrementAndGet();
+                        try {
+                            permits.acquire();
+                        } finally {
+                            waiting.decrementAndGet();
+                        }
+                        try {
+                            run(task);
+                        } finally {
+                            permits.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        admission.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                admission.release();
+                throw reject();
+            }
+            return;
+        }
+
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            throw reject();
+        }
+    }
+
+    private void run(Runnable task) {
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+        }
+    }
+
+    private ServiceException reject() {
+        long count = rejected.incrementAndGet();
+        logger.warn("LLM 流水线已饱和，拒绝请求，活跃: {}, 排队: {}, 累计拒绝: {}", active.get(), getQueued(), count);
+        return new ServiceException(BUSY_MESSAGE, 429);
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        if (executor instanceof ThreadPoolExecutor pool) {
+            return pool.getQueue().size();
+        }
+        return waiting.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * 获取执行器统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("active", getActive());
+        stats.put("queued", getQueued());
+        stats.put("rejected", getRejected());
+        stats.put("completed", completed.get());
+        stats.put("pipelineTimeoutMs", pipelineTimeoutMs);
+        stats.put("timedOut", timedOut.get());
+        return stats;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，运行在 Java 21 以下时返回 null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("当前 JVM ({}) 不支持虚拟线程，回退到有界线程池", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        if (deadlineTimer != null) {
+            deadlineTimer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package xw.szbz.cn.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * LLM 响应缓存（按内容寻址）
+ * - key 为 SHA-256(模型 + API 方法 + 完整请求体)，请求体包含渲染后的提示词和生成配置，输入有任何变化都不会命中
+ * - 按调用类型设置有效期：六壬解读的提示词含课传信息，有效期到当前时辰结束；
+ *   六壬结果 JSON 化只取决于输入，使用固定有效期
+ * - 按条目数和总字节数限制，超出时淘汰最久未访问的条目；llm.response-cache.enabled=false 时关闭
+ */
+@Service
+public class LlmResponseCacheService {
+
+    /**
+     * 调用类型（决定有效期）
+     */
+    public enum CallType {
+        /** 六壬解读（课传随时辰变化） */
+        LIUREN,
+        /** 六壬解读结果转结构化 JSON */
+        LIUREN_RESULT_JSON
+    }
+
+    private record Entry(String value, int bytes, long expireAt) {
+    }
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long resultJsonTtlMillis;
+    private final Clock clock;
+
+    private long totalBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // 访问顺序的 LinkedHashMap，淘汰在 put 中按条目数和总字节数进行
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
+
+    @Autowired
+    public LlmResponseCacheService(@Value("${llm.response-cache.enabled:true}") boolean enabled,
+                                   @Value("${llm.response-cache.max-entries:2000}") int maxEntries,
+                                   @Value("${llm.response-cache.max-bytes:33554432}") long maxBytes,
+                                   @Value("${llm.response-cache.result-json-ttl-minutes:1440}") long resultJsonTtlMinutes) {
+        this(enabled, maxEntries, maxBytes, Duration.ofMinutes(resultJsonTtlMinutes).toMillis(), Clock.systemDefaultZone());
+    }
+
+    LlmResponseCacheService(boolean enabled, int maxEntries, long maxBytes, long resultJsonTtlMillis, Clock clock) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.resultJsonTtlMillis = resultJsonTtlMillis;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算缓存 key
+     */
+    public String key(String model, String method, String requestBody) {
+        MessageDigest digest = SHA256.get();
+        digest.update(model.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(method.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(requestBody.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 读取缓存
+     * @return 未命中或已过期时返回 null
+     */
+    public String get(String key) {
+        long now = clock.millis();
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null) {
+                if (entry.expireAt() > now) {
+                    hits.increment();
+                    return entry.value();
+                }
+                removeEntry(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存（超过总字节数上限的单个响应不缓存）
+     */
+    public void put(String key, String value, CallType type) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        long now = clock.millis();
+        long expireAt = expireAt(type, now);
+        int bytes = value.length() * 2;
+        if (expireAt <= now || bytes > maxBytes) {
+            return;
+        }
+        synchronized (cache) {
+            removeEntry(key);
+            cache.put(key, new Entry(value, bytes, expireAt));
+            totalBytes += bytes;
+            stores.increment();
+            Iterator<Map.Entry<String, Entry>> iterator = cache.entrySet().iterator();
+            while ((cache.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+                totalBytes -= iterator.next().getValue().bytes();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            totalBytes = 0;
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("size", cache.size());
+            stats.put("bytes", totalBytes);
+        }
+        long hit = hits.sum();
+        long miss = misses.sum();
+        stats.put("enabled", enabled);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hitRate", hit + miss == 0 ? 0.0 : (double) hit / (hit + miss));
+        stats.put("stores", stores.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    /**
+     * 过期时间：六壬解读到当前时辰结束（时辰从奇数整点开始，子时为 23:00-00:59）
+     */
+    long expireAt(CallType type, long now) {
+        if (type == CallType.LIUREN) {
+            ZonedDateTime current = Instant.ofEpochMilli(now).atZone(clock.getZone());
+            LocalDateTime hourStart = current.toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime end = hourStart.plusHours(hourStart.getHour() % 2 == 1 ? 2 : 1);
+            return end.atZone(clock.getZone()).toInstant().toEpochMilli();
+        }
+        return now + resultJsonTtlMillis;
+    }
+
+    private void removeEntry(String key) {
+        Entry removed = cache.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.security.SecureRandom;
 
 import org.springframework.stereotype.Service;
 
+import xw.szbz.cn.util.AesGcmEngine;
+
 /**
  * 随机盐生成服务
  * 注意：随机盐的存储和验证已改为数据库方式，见 UserSaltInfo 表
@@ -14,7 +16,7 @@ public class RandomSaltService {
 
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     private static final int SALT_LENGTH = 32;
-    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final SecureRandom RANDOM = AesGcmEngine.secureRandom();
 
     /**
      * 生成32位随机盐
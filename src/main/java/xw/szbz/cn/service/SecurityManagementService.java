@@ -55,6 +55,7 @@ public class SecurityManagementService {
         stats.put("blockedIpCount", securityFilter.getBlockedIps().size());
         stats.put("blockedIps", securityFilter.getBlockedIps());
         stats.put("blockCounts", securityFilter.getBlockCounts());
+        stats.put("rateLimit", securityFilter.getRateLimitStats());
         return stats;
     }
 }
@@ -0,0 +1,555 @@
+package xw.szbz.cn.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 可续传的流式会话（问吉 SSE）
+ * - 每个流分配一个会话 ID，推送的事件依次编号，SSE 事件 ID 为 "会话ID:序号"
+ * - 事件写入会话的重放缓冲区：内存中最多 memory-bytes 字节，超出部分追加到磁盘文件
+ * - 客户端断线后带 Last-Event-ID 重连，从下一个事件开始重放；上游仍在生成时继续接收后续事件
+ * - 每个连接有自己的待发送队列，由推送线程池在会话锁外发送；积压超过 memory-bytes 的连接被断开，客户端可续传
+ * - 会话结束后保留 ttl-seconds，超时、超出会话数上限时清理（优先清理已结束的会话）
+ */
+@Service
+public class StreamSessionService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamSessionService.class);
+
+    /**
+     * 事件接收方（一个 SSE 连接）
+     */
+    public interface EventSink {
+        /**
+         * 推送一个事件
+         * @return 连接已断开时返回 false，会话随即移除该接收方
+         */
+        boolean send(String id, String name, String data);
+
+        /**
+         * 流已结束
+         */
+        void complete();
+    }
+
+    private record Event(long seq, String name, String data) {
+    }
+
+    private final int maxSessions;
+    private final long ttlMillis;
+    private final int memoryBytes;
+    private final Path spillDir;
+    private final LongSupplier clock;
+    private final Executor deliveryExecutor;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder resumeMisses = new LongAdder();
+    private final LongAdder replayedEvents = new LongAdder();
+    private final LongAdder spilledEvents = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder laggingDisconnects = new LongAdder();
+
+    @Autowired
+    public StreamSessionService(@Value("${sse.session.max-sessions:1000}") int maxSessions,
+                                @Value("${sse.session.ttl-seconds:600}") long ttlSeconds,
+                                @Value("${sse.session.memory-bytes:65536}") int memoryBytes,
+                                @Value("${sse.session.spill-dir:data/stream-sessions}") String spillDir,
+                                @Value("${sse.session.delivery-threads:32}") int deliveryThreads) {
+        this(maxSessions, TimeUnit.SECONDS.toMillis(ttlSeconds), memoryBytes,
+                spillDir.isBlank() ? null : Paths.get(spillDir), System::currentTimeMillis,
+                newDeliveryExecutor(deliveryThreads));
+    }
+
+    StreamSessionService(int maxSessions, long ttlMillis, int memoryBytes, Path spillDir, LongSupplier clock,
+                         Executor deliveryExecutor) {
+        this.maxSessions = maxSessions;
+        this.ttlMillis = ttlMillis;
+        this.memoryBytes = memoryBytes;
+        this.spillDir = spillDir;
+        this.clock = clock;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * 固定上限的推送线程池，空闲线程回收：线程只在连接有待发送事件时占用，慢连接不阻塞上游
+     * 每个连接同一时刻最多一个待执行任务，队列长度不超过连接数
+     */
+    private static ThreadPoolExecutor newDeliveryExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sse-delivery-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 创建会话
+     * @param ownerId 会话所属用户，重连时校验
+     */
+    public Session create(String ownerId) {
+        while (sessions.size() >= maxSessions) {
+            Optional<Session> victim = sessions.values().stream()
+                    .min(Comparator.comparing((Session s) -> !s.isCompleted()).thenComparingLong(s -> s.lastActivity));
+            if (victim.isEmpty()) {
+                break;
+            }
+            logger.warn("流式会话数已达上限（{}），提前清理会话: {}", maxSessions, victim.get().id);
+            remove(victim.get());
+        }
+        Session session = new Session(UUID.randomUUID().toString().replace("-", ""), ownerId);
+        sessions.put(session.id, session);
+        created.increment();
+        return session;
+    }
+
+    /**
+     * 按 Last-Event-ID 续传：重放该事件之后的事件，未结束时继续接收后续事件
+     * @return 会话不存在、已过期或不属于该用户时返回 false
+     */
+    public boolean resume(String lastEventId, String ownerId, EventSink sink) {
+        int separator = lastEventId != null ? lastEventId.lastIndexOf(':') : -1;
+        Session session = separator > 0 ? sessions.get(lastEventId.substring(0, separator)) : null;
+        long lastSeq;
+        try {
+            lastSeq = separator > 0 ? Long.parseLong(lastEventId.substring(separator + 1)) : -1;
+        } catch (NumberFormatException e) {
+            session = null;
+            lastSeq = -1;
+        }
+        if (session == null || !session.ownerId.equals(ownerId)) {
+            resumeMisses.increment();
+            return false;
+        }
+        resumed.increment();
+        session.attach(lastSeq, sink);
+        return true;
+    }
+
+    /**
+     * 定时清理：已结束或长时间无新事件的会话超过 TTL 后移除
+     */
+    @Scheduled(fixedDelayString = "${sse.session.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        long now = clock.getAsLong();
+        for (Session session : sessions.values()) {
+            if (now - session.lastActivity > ttlMillis) {
+                remove(session);
+            }
+        }
+    }
+
+    /**
+     * 会话统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int running = 0;
+        int spilled = 0;
+        for (Session session : sessions.values()) {
+            if (!session.isCompleted()) {
+                running++;
+            }
+            if (session.spillFile != null) {
+                spilled++;
+            }
+        }
+        stats.put("sessions", sessions.size());
+        stats.put("running", running);
+        stats.put("spilledSessions", spilled);
+        stats.put("maxSessions", maxSessions);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("memoryBytes", memoryBytes);
+        stats.put("created", created.sum());
+        stats.put("resumed", resumed.sum());
+        stats.put("resumeMisses", resumeMisses.sum());
+        stats.put("replayedEvents", replayedEvents.sum());
+        stats.put("spilledEvents", spilledEvents.sum());
+        stats.put("removed", removed.sum());
+        stats.put("laggingDisconnects", laggingDisconnects.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        sessions.values().forEach(this::remove);
+        if (deliveryExecutor instanceof ExecutorService executor) {
+            executor.shutdown();
+        }
+    }
+
+    private void remove(Session session) {
+        if (sessions.remove(session.id, session)) {
+            session.close();
+            removed.increment();
+        }
+    }
+
+    /**
+     * 一个流式会话：按序号追加事件并分发给当前连接的接收方
+     * 追加、结束、接入都在会话锁内记录事件并放入各连接的队列，发送在锁外进行；
+     * 重连的接收方在同一次加锁中放入重放事件并登记，先收完重放事件再收新事件，不丢不重
+     */
+    public final class Session {
+
+        private final String id;
+        private final String ownerId;
+        private final List<Event> memoryEvents = new ArrayList<>();
+        private final List<Subscriber> sinks = new ArrayList<>();
+        private int bufferedBytes;
+        private long nextSeq;
+        private boolean completed;
+        private volatile long lastActivity;
+        // 超出内存上限后，之后的事件依次追加到磁盘文件
+        private Path spillFile;
+        private DataOutputStream spillOut;
+        private long spillStartSeq = Long.MAX_VALUE;
+
+        private Session(String id, String ownerId) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.lastActivity = clock.getAsLong();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public synchronized boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * 接入一个新连接（从头开始接收）
+         */
+        public void attach(EventSink sink) {
+            attach(-1, sink);
+        }
+
+        /**
+         * 追加事件并推送给所有连接
+         */
+        public void append(String name, String data) {
+            List<Subscriber> targets;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                Event event = new Event(nextSeq++, name, data);
+                lastActivity = clock.getAsLong();
+                store(event);
+                sinks.removeIf(Subscriber::isClosed);
+                sinks.forEach(subscriber -> subscriber.offer(event));
+                targets = List.copyOf(sinks);
+            }
+            targets.forEach(Subscriber::schedule);
+        }
+
+        /**
+         * 流结束：通知所有连接，之后的重连只重放已有事件
+         */
+        public void complete() {
+            List<Subscriber> targets;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                lastActivity = clock.getAsLong();
+                closeSpill();
+                targets = detachAll();
+            }
+            targets.forEach(Subscriber::schedule);
+        }
+
+        private void attach(long lastSeq, EventSink sink) {
+            Subscriber subscriber = new Subscriber(sink);
+            synchronized (this) {
+                // 重放顺序：溢出前的内存事件、磁盘事件、写盘失败后退回内存的事件
+                List<Event> replay = new ArrayList<>();
+                for (Event event : memoryEvents) {
+                    if (event.seq() > lastSeq && event.seq() < spillStartSeq) {
+                        replay.add(event);
+                    }
+                }
+                if (spillFile != null && Files.exists(spillFile)) {
+                    readSpill(lastSeq, replay);
+                }
+                for (Event event : memoryEvents) {
+                    if (event.seq() > lastSeq && event.seq() >= spillStartSeq) {
+                        replay.add(event);
+                    }
+                }
+
+                replayedEvents.add(replay.size());
+                replay.forEach(subscriber::replay);
+                if (completed) {
+                    subscriber.finish();
+                } else {
+                    sinks.add(subscriber);
+                }
+            }
+            subscriber.schedule();
+        }
+
+        private void readSpill(long lastSeq, List<Event> replay) {
+            try {
+                if (spillOut != null) {
+                    spillOut.flush();
+                }
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile)))) {
+                    while (true) {
+                        Event event = readEvent(in);
+                        if (event.seq() > lastSeq) {
+                            replay.add(event);
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                // 读到文件末尾
+            } catch (IOException e) {
+                logger.error("读取流式会话溢出文件失败: {}", spillFile.toAbsolutePath(), e);
+            }
+        }
+
+        private void store(Event event) {
+            int size = eventSize(event);
+            // 只溢出一次：写盘失败或已结束后 spillFile 保留但不再写入
+            boolean spill = spillOut != null
+                    || (bufferedBytes + size > memoryBytes && spillDir != null && spillFile == null);
+            if (!spill) {
+                memoryEvents.add(event);
+                bufferedBytes += size;
+                return;
+            }
+            try {
+                if (spillOut == null) {
+                    Files.createDirectories(spillDir);
+                    spillFile = spillDir.resolve(id + ".events");
+                    spillStartSeq = event.seq();
+                    spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+                }
+                spillOut.writeLong(event.seq());
+                writeString(spillOut, event.name());
+                writeString(spillOut, event.data());
+                spilledEvents.increment();
+            } catch (IOException e) {
+                // 写盘失败时退回内存，保证事件不丢（文件中最后一条可能不完整，重放时截止到完整记录）
+                logger.error("写入流式会话溢出文件失败，改为保留在内存: {}", id, e);
+                closeSpill();
+                if (spillFile == null) {
+                    spillFile = spillDir.resolve(id + ".events");
+                    spillStartSeq = event.seq();
+                }
+                memoryEvents.add(event);
+                bufferedBytes += size;
+            }
+        }
+
+        private void close() {
+            List<Subscriber> targets;
+            synchronized (this) {
+                completed = true;
+                targets = detachAll();
+                memoryEvents.clear();
+                closeSpill();
+                if (spillFile != null) {
+                    try {
+                        Files.deleteIfExists(spillFile);
+                    } catch (IOException e) {
+                        logger.warn("删除流式会话溢出文件失败: {}", spillFile.toAbsolutePath());
+                    }
+                }
+            }
+            targets.forEach(Subscriber::schedule);
+        }
+
+        /**
+         * 通知所有连接在发完队列后结束，并从会话中移除（调用方持有锁）
+         */
+        private List<Subscriber> detachAll() {
+            sinks.forEach(Subscriber::finish);
+            List<Subscriber> detached = List.copyOf(sinks);
+            sinks.clear();
+            return detached;
+        }
+
+        private void closeSpill() {
+            if (spillOut == null) {
+                return;
+            }
+            try {
+                spillOut.close();
+            } catch (IOException e) {
+                logger.warn("关闭流式会话溢出文件失败: {}", id);
+            }
+            spillOut = null;
+        }
+
+        private String eventId(long seq) {
+            return id + ":" + seq;
+        }
+
+        /**
+         * 一个连接的待发送队列
+         * 入队在会话锁内，发送由推送线程池执行；同一时刻最多一个线程发送，保证顺序
+         */
+        private final class Subscriber implements Runnable {
+
+            private final EventSink sink;
+            private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+            private final AtomicInteger wip = new AtomicInteger();
+            private final AtomicLong queuedBytes = new AtomicLong();
+            // 队首尚未发送的重放事件数（重放事件在登记前入队，排在新事件之前）
+            private int replayRemaining;
+            private volatile boolean finishRequested;
+            private volatile boolean lagging;
+            private volatile boolean closed;
+
+            private Subscriber(EventSink sink) {
+                this.sink = sink;
+            }
+
+            boolean isClosed() {
+                return closed;
+            }
+
+            /**
+             * 放入重放事件（不计积压，重放量由内存上限和溢出文件决定）
+             */
+            void replay(Event event) {
+                queue.add(event);
+                replayRemaining++;
+            }
+
+            /**
+             * 放入新事件；积压超过 memory-bytes 时断开该连接，客户端可带 Last-Event-ID 续传
+             */
+            void offer(Event event) {
+                if (closed || lagging) {
+                    return;
+                }
+                if (queuedBytes.addAndGet(eventSize(event)) > memoryBytes) {
+                    lagging = true;
+                    laggingDisconnects.increment();
+                    logger.warn("流式会话连接积压超过 {} 字节，断开等待续传: {}", memoryBytes, id);
+                    return;
+                }
+                queue.add(event);
+            }
+
+            /**
+             * 队列发完后结束连接
+             */
+            void finish() {
+                finishRequested = true;
+            }
+
+            void schedule() {
+                if (wip.getAndIncrement() == 0) {
+                    try {
+                        deliveryExecutor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        closed = true;
+                        queue.clear();
+                    }
+                }
+            }
+
+            @Override
+            public void run() {
+                int missed = 1;
+                do {
+                    Event event;
+                    while (!closed && !lagging && (event = queue.poll()) != null) {
+                        if (replayRemaining > 0) {
+                            replayRemaining--;
+                        } else {
+                            queuedBytes.addAndGet(-eventSize(event));
+                        }
+                        if (!sink.send(eventId(event.seq()), event.name(), event.data())) {
+                            closed = true;
+                        }
+                    }
+                    if (!closed && (lagging || (finishRequested && queue.isEmpty()))) {
+                        closed = true;
+                        sink.complete();
+                    }
+                    if (closed) {
+                        queue.clear();
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            }
+        }
+    }
+
+    /**
+     * 事件占用的字节数（估算，按 UTF-8 最多 3 字节计）
+     */
+    private static int eventSize(Event event) {
+        return event.name().length() + (event.data() != null ? event.data().length() * 3 : 0);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Event readEvent(DataInputStream in) throws IOException {
+        long seq = in.readLong();
+        String name = readString(in);
+        String data = readString(in);
+        return new Event(seq, name, data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,276 @@
+package xw.szbz.cn.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import xw.szbz.cn.util.BloomFilter;
+
+/**
+ * Token 吊销表（登出、刷新后作废的 jti）
+ * - 布隆过滤器在前：绝大多数请求的 Token 未被吊销，只计算几次哈希就返回，不查表
+ * - 按过期时间排序的小顶堆清理过期条目，每次只弹出堆顶，不扫描全表
+ * - 条目数有上限，超出时淘汰最早过期的条目；过期条目累计到一定数量后重建布隆过滤器
+ * - 定时把快照写入磁盘（先写临时文件再原子替换），启动时加载，重启后吊销仍然有效
+ */
+@Service
+public class TokenRevocationService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x54524B31; // "TRK1"
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private record Revocation(String jti, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final Path snapshotFile;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    // 只在持有 this 锁时访问；同一 jti 重复吊销时堆里会留下旧条目，弹出时与表中的过期时间比对后跳过
+    private final PriorityQueue<Revocation> expiryQueue =
+            new PriorityQueue<>(Comparator.comparingLong(Revocation::expiresAt));
+    private volatile BloomFilter bloomFilter;
+    private int removedSinceRebuild;
+    private volatile boolean dirty;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @Autowired
+    public TokenRevocationService(@Value("${cache.token-blacklist.max-size:10000}") int maxSize,
+                                  @Value("${cache.token-blacklist.snapshot-file:data/token-blacklist.bin}") String snapshotFile) {
+        this(maxSize, snapshotFile.isBlank() ? null : Paths.get(snapshotFile), Clock.systemDefaultZone());
+    }
+
+    TokenRevocationService(int maxSize, Path snapshotFile, Clock clock) {
+        this.maxSize = maxSize;
+        this.snapshotFile = snapshotFile;
+        this.clock = clock;
+        this.bloomFilter = new BloomFilter(maxSize, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * 启动时加载快照（跳过已过期的条目）
+     */
+    @PostConstruct
+    public void loadSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        long now = clock.millis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                logger.warn("Token 吊销快照格式不正确，忽略: {}", snapshotFile.toAbsolutePath());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String jti = in.readUTF();
+                long expiresAt = in.readLong();
+                if (expiresAt > now) {
+                    revoke(jti, expiresAt);
+                    loaded++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("加载 Token 吊销快照失败: {}", snapshotFile.toAbsolutePath(), e);
+        }
+        dirty = false;
+        logger.info("已加载 Token 吊销快照，有效条目: {}", loaded);
+    }
+
+    /**
+     * 吊销 Token
+     * @param jti       Token 唯一ID
+     * @param expiresAt Token 过期时间（毫秒），过期后条目自动清理
+     */
+    public synchronized void revoke(String jti, long expiresAt) {
+        long now = clock.millis();
+        purgeExpired(now);
+        if (jti == null || expiresAt <= now) {
+            return;
+        }
+
+        Long previous = revoked.get(jti);
+        if (previous != null && previous >= expiresAt) {
+            return;
+        }
+        // 先写布隆过滤器再写表：读线程看到表中条目时，布隆过滤器一定已包含它
+        bloomFilter.put(jti);
+        revoked.put(jti, expiresAt);
+        expiryQueue.add(new Revocation(jti, expiresAt));
+        revocations.increment();
+        dirty = true;
+
+        while (revoked.size() > maxSize) {
+            Revocation oldest = expiryQueue.poll();
+            if (oldest != null && revoked.remove(oldest.jti(), oldest.expiresAt())) {
+                evicted.increment();
+                removedSinceRebuild++;
+                logger.warn("Token 吊销表已满（上限 {}），提前移除最早过期的条目: {}", maxSize, oldest.jti());
+            }
+        }
+        rebuildBloomFilterIfStale();
+    }
+
+    /**
+     * 检查 Token 是否已吊销
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        lookups.increment();
+        if (!bloomFilter.mightContain(jti)) {
+            bloomNegatives.increment();
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        if (expiresAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return expiresAt > clock.millis();
+    }
+
+    /**
+     * 定时清理过期条目并写快照（有变化时才写）
+     */
+    @Scheduled(fixedDelayString = "${cache.token-blacklist.snapshot-interval-ms:10000}")
+    public void flush() {
+        List<Revocation> entries;
+        synchronized (this) {
+            purgeExpired(clock.millis());
+            if (!dirty || snapshotFile == null) {
+                return;
+            }
+            entries = new ArrayList<>(revoked.size());
+            revoked.forEach((jti, expiresAt) -> entries.add(new Revocation(jti, expiresAt)));
+            dirty = false;
+        }
+        try {
+            writeSnapshot(entries);
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("写入 Token 吊销快照失败: {}", snapshotFile.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 获取所有未过期条目（用于缓存管理）
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new HashMap<>();
+        long now = clock.millis();
+        revoked.forEach((jti, expiresAt) -> {
+            Map<String, Object> tokenData = new HashMap<>();
+            tokenData.put("expiryTime", expiresAt);
+            tokenData.put("remainingTime", Math.max(0, expiresAt - now) + "ms");
+            tokenData.put("isExpired", expiresAt <= now);
+            entries.put(jti, tokenData);
+        });
+        return entries;
+    }
+
+    /**
+     * 获取吊销表统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", revoked.size());
+        stats.put("maxSize", maxSize);
+        stats.put("bloomBits", bloomFilter.bitCount());
+        stats.put("bloomHashes", bloomFilter.hashCount());
+        stats.put("lookups", lookups.sum());
+        stats.put("bloomNegatives", bloomNegatives.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("revoked", revocations.sum());
+        stats.put("expired", expired.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("snapshotFile", snapshotFile != null ? snapshotFile.toAbsolutePath().toString() : null);
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 弹出堆顶所有已过期的条目（调用方持有 this 锁）
+     */
+    private void purgeExpired(long now) {
+        while (!expiryQueue.isEmpty() && expiryQueue.peek().expiresAt() <= now) {
+            Revocation revocation = expiryQueue.poll();
+            if (revoked.remove(revocation.jti(), revocation.expiresAt())) {
+                expired.increment();
+                removedSinceRebuild++;
+                dirty = true;
+            }
+        }
+        rebuildBloomFilterIfStale();
+    }
+
+    /**
+     * 布隆过滤器不能删除元素：移除的条目超过上限的一半时，用表中现有条目重建（调用方持有 this 锁）
+     */
+    private void rebuildBloomFilterIfStale() {
+        if (removedSinceRebuild <= maxSize / 2) {
+            return;
+        }
+        BloomFilter rebuilt = new BloomFilter(maxSize, FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+        removedSinceRebuild = 0;
+    }
+
+    private void writeSnapshot(List<Revocation> entries) throws IOException {
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(entries.size());
+            for (Revocation entry : entries) {
+                out.writeUTF(entry.jti());
+                out.writeLong(entry.expiresAt());
+            }
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,154 @@
+package xw.szbz.cn.service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import xw.szbz.cn.entity.WebUser;
+import xw.szbz.cn.repository.WebUserRepository;
+import xw.szbz.cn.util.BoundedTtlCache;
+
+/**
+ * Web 用户读穿缓存（按 bizId）
+ * - 进程内 LRU（{@link BoundedTtlCache}），按条目数和 TTL 限制；缓存的是与持久化上下文脱离的快照，读取时返回副本，调用方修改不影响缓存
+ * - 用户信息变更后调用 {@link #invalidate}（事务提交后再失效一次）；免费次数扣减直接更新快照
+ * - 免费次数扣减由异步写库落库，查库时减去尚未落库的扣减数，此时不回填（落库后再查即为准确值）
+ * - 失效计数（generation）在查库前后比对，查库期间有失效或更新时不回填，避免把旧数据写回缓存
+ */
+@Service
+public class WebUserCacheService {
+
+    private final WebUserRepository webUserRepository;
+    private final WriteBehindService writeBehindService;
+    private final BoundedTtlCache<String, WebUser> cache;
+
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder pendingOverlays = new LongAdder();
+
+    @Autowired
+    public WebUserCacheService(WebUserRepository webUserRepository,
+                               WriteBehindService writeBehindService,
+                               @Value("${cache.web-user.max-size:5000}") int maxSize,
+                               @Value("${cache.web-user.ttl-seconds:300}") long ttlSeconds) {
+        this(webUserRepository, writeBehindService, maxSize, TimeUnit.SECONDS.toMillis(ttlSeconds),
+                System::currentTimeMillis);
+    }
+
+    WebUserCacheService(WebUserRepository webUserRepository, WriteBehindService writeBehindService,
+                        int maxSize, long ttlMillis, LongSupplier clock) {
+        this.webUserRepository = webUserRepository;
+        this.writeBehindService = writeBehindService;
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMillis, clock);
+    }
+
+    /**
+     * 按 bizId 读取用户：命中时返回快照副本，未命中时查库并回填
+     * @return 用户不存在时返回 null
+     */
+    public WebUser get(String bizId) {
+        if (bizId == null) {
+            return null;
+        }
+        WebUser cached = cache.get(bizId);
+        if (cached != null) {
+            return copy(cached);
+        }
+
+        misses.increment();
+        long loadGeneration = cache.generation();
+        // 先取未落库的扣减数再查库：扣减在两者之间落库时宁可少算一次，不会多给次数
+        int pendingDecrements = writeBehindService.countPendingFreeCountDecrements(bizId);
+        WebUser user = webUserRepository.findByBizId(bizId);
+        if (user == null) {
+            return null;
+        }
+        WebUser snapshot = copy(user);
+        if (pendingDecrements > 0) {
+            Integer freeCount = snapshot.getFreeCount();
+            if (freeCount != null) {
+                snapshot.setFreeCount(Math.max(0, freeCount - pendingDecrements));
+            }
+            pendingOverlays.increment();
+            return snapshot;
+        }
+        cache.putIfGeneration(bizId, snapshot, loadGeneration);
+        return copy(snapshot);
+    }
+
+    /**
+     * 用户信息已变更：立即失效；在事务中调用时，提交后再失效一次（提交前其他线程可能读到旧数据并回填）
+     */
+    public void invalidate(String bizId) {
+        if (bizId == null) {
+            return;
+        }
+        remove(bizId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(bizId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 就地更新缓存中的快照（未缓存时不做处理），用于免费次数扣减等由异步写库落库的变更
+     */
+    public void update(String bizId, Consumer<WebUser> change) {
+        boolean updated = cache.update(bizId, cached -> {
+            WebUser snapshot = copy(cached);
+            change.accept(snapshot);
+            return snapshot;
+        });
+        if (updated) {
+            updates.increment();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 缓存统计（命中率、淘汰、过期、失效，以及命中时快照的平均和最大存活时间）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.getStats();
+        long hit = (Long) stats.get("hits");
+        long miss = misses.sum();
+        stats.put("misses", miss);
+        stats.put("hitRate", hit + miss == 0 ? 0.0 : (double) hit / (hit + miss));
+        stats.put("invalidations", invalidations.sum());
+        stats.put("updates", updates.sum());
+        stats.put("pendingOverlays", pendingOverlays.sum());
+        return stats;
+    }
+
+    private void remove(String bizId) {
+        if (cache.remove(bizId)) {
+            invalidations.increment();
+        }
+    }
+
+    private static WebUser copy(WebUser user) {
+        WebUser copy = new WebUser();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+}
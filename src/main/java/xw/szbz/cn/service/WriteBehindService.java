@@ -0,0 +1,453 @@
+package xw.szbz.cn.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import xw.szbz.cn.entity.JiTu;
+import xw.szbz.cn.entity.LifeAIResult;
+import xw.szbz.cn.entity.WenJi;
+import xw.szbz.cn.repository.JiTuRepository;
+import xw.szbz.cn.repository.LifeAIResultRepository;
+import xw.szbz.cn.repository.WebUserRepository;
+import xw.szbz.cn.repository.WenJiRepository;
+
+/**
+ * 异步写库服务（write-behind）
+ * 问吉、吉途、LifeAI 结果和免费次数扣减先进入有界内存队列，由单个写线程批量在一个事务中提交：
+ * - 接口响应不再包含 SQLite 的 fsync 耗时
+ * - 只有一个写连接，避免并发写入触发 SQLITE_BUSY
+ * - 队列满时追加到磁盘溢出文件，空闲时回放；关闭时先写完队列
+ * - 尚未落库的问吉、吉途记录和免费次数扣减按用户计数，读取方把它们叠加到查库结果上
+ * - 单条写入失败的记录转存到 .failed 文件，不自动重试
+ */
+@Service
+public class WriteBehindService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindService.class);
+
+    private static final String TYPE_WEN_JI = "WenJi";
+    private static final String TYPE_JI_TU = "JiTu";
+    private static final String TYPE_LIFE_AI_RESULT = "LifeAIResult";
+    private static final String TYPE_FREE_COUNT = "FreeCountDecrement";
+
+    private final WenJiRepository wenJiRepository;
+    private final JiTuRepository jiTuRepository;
+    private final LifeAIResultRepository lifeAIResultRepository;
+    private final WebUserRepository webUserRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long idleMs;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path failedFile;
+    private final BlockingQueue<Object> queue;
+
+    private final Object spillLock = new Object();
+    private volatile boolean running;
+    private volatile boolean closed;
+    private Thread writerThread;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // 已提交（在队列或溢出文件中）、尚未写入数据库的问吉、吉途记录数和免费次数扣减数
+    // （key 为 类型:openId 或 类型:bizId），供每日配额预热和用户缓存查库时补上
+    private final ConcurrentHashMap<String, AtomicInteger> pendingCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 免费次数扣减操作（bizId 用于未落库时的计数，旧的溢出记录中可能为 null）
+     */
+    private record FreeCountDecrement(Long userId, String bizId) {
+    }
+
+    public WriteBehindService(
+            WenJiRepository wenJiRepository,
+            JiTuRepository jiTuRepository,
+            LifeAIResultRepository lifeAIResultRepository,
+            WebUserRepository webUserRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${persistence.write-behind.enabled:true}") boolean enabled,
+            @Value("${persistence.write-behind.queue-capacity:1000}") int queueCapacity,
+            @Value("${persistence.write-behind.batch-size:50}") int batchSize,
+            @Value("${persistence.write-behind.idle-ms:1000}") long idleMs,
+            @Value("${persistence.write-behind.spill-file:data/pending-writes.jsonl}") String spillFile) {
+        this.wenJiRepository = wenJiRepository;
+        this.jiTuRepository = jiTuRepository;
+        this.lifeAIResultRepository = lifeAIResultRepository;
+        this.webUserRepository = webUserRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.idleMs = idleMs;
+        this.spillFile = Paths.get(spillFile);
+        this.replayFile = Paths.get(spillFile + ".replay");
+        this.failedFile = Paths.get(spillFile + ".failed");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 启动写线程（启动后会先回放上次遗留的溢出文件）
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("异步写库未启用，写入将同步执行");
+            return;
+        }
+        markSpilledPending();
+        running = true;
+        writerThread = new Thread(this::runWriter, "db-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("异步写库已启动，队列容量: {}, 批大小: {}, 溢出文件: {}",
+                queue.remainingCapacity(), batchSize, spillFile.toAbsolutePath());
+    }
+
+    public void saveWenJi(WenJi wenJi) {
+        submit(wenJi);
+    }
+
+    public void saveJiTu(JiTu jiTu) {
+        submit(jiTu);
+    }
+
+    public void saveLifeAIResult(LifeAIResult lifeAIResult) {
+        submit(lifeAIResult);
+    }
+
+    /**
+     * 已入队、尚未写入数据库的问吉记录数
+     */
+    public int countPendingWenJi(String openId) {
+        return pendingCount(TYPE_WEN_JI + ':' + openId);
+    }
+
+    /**
+     * 已入队、尚未写入数据库的吉途记录数
+     */
+    public int countPendingJiTu(String openId) {
+        return pendingCount(TYPE_JI_TU + ':' + openId);
+    }
+
+    /**
+     * 已提交、尚未写入数据库的免费次数扣减数
+     */
+    public int countPendingFreeCountDecrements(String bizId) {
+        return pendingCount(TYPE_FREE_COUNT + ':' + bizId);
+    }
+
+    /**
+     * 扣减一次免费次数（数据库中原子执行 free_count - 1，不会扣成负数）
+     */
+    public void decrementFreeCount(Long userId, String bizId) {
+        submit(new FreeCountDecrement(userId, bizId));
+    }
+
+    private void submit(Object item) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> apply(item));
+            written.incrementAndGet();
+            return;
+        }
+        // 先计入再入队，写线程写完后才减去（溢出到磁盘的记录回放写入后才减去），预热和查库时不会漏算
+        markPending(item);
+        if (closed || !queue.offer(item)) {
+            spill(item);
+        }
+    }
+
+    private int pendingCount(String key) {
+        AtomicInteger count = pendingCounts.get(key);
+        return count != null ? count.get() : 0;
+    }
+
+    private void markPending(Object item) {
+        String key = pendingKey(item);
+        if (key != null) {
+            pendingCounts.compute(key, (k, count) -> {
+                AtomicInteger result = count != null ? count : new AtomicInteger();
+                result.incrementAndGet();
+                return result;
+            });
+        }
+    }
+
+    private void unmarkPending(Object item) {
+        String key = pendingKey(item);
+        if (key != null) {
+            pendingCounts.computeIfPresent(key, (k, count) -> count.decrementAndGet() > 0 ? count : null);
+        }
+    }
+
+    private static String pendingKey(Object item) {
+        if (item instanceof WenJi wenJi) {
+            return TYPE_WEN_JI + ':' + wenJi.getOpenId();
+        }
+        if (item instanceof JiTu jiTu) {
+            return TYPE_JI_TU + ':' + jiTu.getOpenId();
+        }
+        if (item instanceof FreeCountDecrement decrement && decrement.bizId() != null) {
+            return TYPE_FREE_COUNT + ':' + decrement.bizId();
+        }
+        return null;
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Object first = queue.poll(idleMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                try {
+                    writeBatch(batch);
+                } finally {
+                    batch.forEach(this::unmarkPending);
+                }
+            } catch (InterruptedException e) {
+                // 关闭时被中断：继续写完队列
+                running = false;
+            } catch (Exception e) {
+                logger.error("异步写库线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 一个事务写入整批；整批失败时逐条重试，仍失败的记录转存到 .failed 文件
+     */
+    private void writeBatch(List<Object> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+            written.addAndGet(batch.size());
+            return;
+        } catch (Exception e) {
+            logger.warn("批量写库失败，改为逐条写入，批大小: {}", batch.size(), e);
+        }
+        for (Object item : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(item));
+                written.incrementAndGet();
+            } catch (Exception e) {
+                logger.error("写库失败，记录转存到 {}: {}", failedFile, item.getClass().getSimpleName(), e);
+                failed.incrementAndGet();
+                appendLine(failedFile, item);
+            }
+        }
+    }
+
+    private void apply(Object item) {
+        if (item instanceof WenJi wenJi) {
+            wenJiRepository.save(wenJi);
+        } else if (item instanceof JiTu jiTu) {
+            jiTuRepository.save(jiTu);
+        } else if (item instanceof LifeAIResult lifeAIResult) {
+            lifeAIResultRepository.save(lifeAIResult);
+        } else if (item instanceof FreeCountDecrement decrement) {
+            webUserRepository.decrementFreeCount(decrement.userId());
+        } else {
+            throw new IllegalArgumentException("不支持的写入类型: " + item.getClass().getName());
+        }
+    }
+
+    /**
+     * 队列已满或已关闭时写入溢出文件
+     */
+    private void spill(Object item) {
+        spilled.incrementAndGet();
+        logger.warn("写库队列已满或已关闭，记录溢出到磁盘: {}", item.getClass().getSimpleName());
+        appendLine(spillFile, item);
+    }
+
+    private void appendLine(Path file, Object item) {
+        synchronized (spillLock) {
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    writer.write(objectMapper.writeValueAsString(toJson(item)));
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                logger.error("写入溢出文件失败，记录丢失: {}", item, e);
+            }
+        }
+    }
+
+    /**
+     * 回放溢出文件（仅在写线程空闲时执行）
+     */
+    private void replaySpill() {
+        try {
+            synchronized (spillLock) {
+                if (!Files.exists(replayFile)) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            List<String> lines = Files.readAllLines(replayFile, StandardCharsets.UTF_8);
+            List<Object> batch = new ArrayList<>(batchSize);
+            for (String line : lines) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(fromJson(objectMapper.readTree(line)));
+                } catch (Exception e) {
+                    logger.error("溢出记录解析失败，已跳过: {}", line, e);
+                    failed.incrementAndGet();
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    writeReplayed(batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeReplayed(batch);
+            }
+            Files.delete(replayFile);
+            logger.info("溢出文件回放完成，记录数: {}", lines.size());
+        } catch (IOException e) {
+            logger.error("回放溢出文件失败: {}", replayFile, e);
+        }
+    }
+
+    private void writeReplayed(List<Object> batch) {
+        try {
+            writeBatch(batch);
+        } finally {
+            batch.forEach(this::unmarkPending);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 启动时计入上次遗留在溢出文件中的记录（回放写入后减去）
+     */
+    private void markSpilledPending() {
+        for (Path file : List.of(replayFile, spillFile)) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        markPending(fromJson(objectMapper.readTree(line)));
+                    } catch (Exception e) {
+                        // 回放时再记录
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("读取溢出文件失败: {}", file, e);
+            }
+        }
+    }
+
+    private ObjectNode toJson(Object item) {
+        ObjectNode node = objectMapper.createObjectNode();
+        if (item instanceof FreeCountDecrement decrement) {
+            node.put("type", TYPE_FREE_COUNT);
+            ObjectNode payload = node.putObject("payload");
+            payload.put("userId", decrement.userId());
+            if (decrement.bizId() != null) {
+                payload.put("bizId", decrement.bizId());
+            }
+        } else {
+            node.put("type", item.getClass().getSimpleName());
+            node.set("payload", objectMapper.valueToTree(item));
+        }
+        return node;
+    }
+
+    private Object fromJson(JsonNode node) throws IOException {
+        JsonNode payload = node.get("payload");
+        return switch (node.get("type").asText()) {
+            case TYPE_WEN_JI -> objectMapper.treeToValue(payload, WenJi.class);
+            case TYPE_JI_TU -> objectMapper.treeToValue(payload, JiTu.class);
+            case TYPE_LIFE_AI_RESULT -> objectMapper.treeToValue(payload, LifeAIResult.class);
+            case TYPE_FREE_COUNT -> new FreeCountDecrement(payload.get("userId").asLong(),
+                    payload.hasNonNull("bizId") ? payload.get("bizId").asText() : null);
+            default -> throw new IOException("未知的溢出记录类型: " + node.get("type"));
+        };
+    }
+
+    /**
+     * 获取写库统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("written", written.get());
+        stats.put("spilled", spilled.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    /**
+     * 关闭时停止接收并写完队列中的记录；超时未写完的记录转存到溢出文件，下次启动回放
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        if (running) {
+            running = false;
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+            if (writerThread.isAlive()) {
+                writerThread.interrupt();
+            }
+        }
+        List<Object> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::spill);
+        logger.info("异步写库已关闭，累计写入: {}, 溢出: {}", written.get(), spilled.get());
+    }
+}
@@ -0,0 +1,128 @@
+package xw.szbz.cn.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-256-GCM 加解密引擎
+ * 密文格式：12 字节 IV + 密文 + 16 字节认证标签
+ * - 密钥只准备一次（UTF-8 字节截断或补零到 32 字节）
+ * - 每个线程复用自己的 Cipher 和 SHA-256 MessageDigest 实例，不在每次调用时 getInstance
+ * - 随机 IV 取自全进程共享的 DRBG
+ */
+public class AesGcmEngine {
+
+    public static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final int KEY_LENGTH = 32;
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+
+    private static final SecureRandom RANDOM = createRandom();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
+
+    private final SecretKeySpec keySpec;
+    private final ThreadLocal<CipherHolder> ciphers = ThreadLocal.withInitial(CipherHolder::new);
+
+    /**
+     * 线程内复用的 Cipher
+     * GCM 不允许同一个 Cipher 用相同的密钥和 IV 连续两次加密（确定性加密会遇到），
+     * 因此记录上次加密的 IV，相同时先用随机 IV 初始化一次
+     */
+    private static final class CipherHolder {
+        private final Cipher cipher;
+        private byte[] lastEncryptIv;
+
+        private CipherHolder() {
+            try {
+                this.cipher = Cipher.getInstance(ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " not available", e);
+            }
+        }
+    }
+
+    public AesGcmEngine(String key) {
+        this.keySpec = new SecretKeySpec(Arrays.copyOf(key.getBytes(StandardCharsets.UTF_8), KEY_LENGTH), "AES");
+    }
+
+    /**
+     * 全进程共享的安全随机数生成器（优先使用 DRBG）
+     */
+    public static SecureRandom secureRandom() {
+        return RANDOM;
+    }
+
+    /**
+     * 使用随机 IV 加密
+     */
+    public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        return encrypt(iv, plaintext);
+    }
+
+    /**
+     * 使用指定 IV 加密（确定性加密时 IV 由明文派生）
+     */
+    public byte[] encrypt(byte[] iv, byte[] plaintext) throws GeneralSecurityException {
+        CipherHolder holder = ciphers.get();
+        Cipher cipher = holder.cipher;
+        if (Arrays.equals(iv, holder.lastEncryptIv)) {
+            byte[] resetIv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(resetIv);
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, resetIv));
+        }
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, iv));
+        holder.lastEncryptIv = iv.clone();
+
+        byte[] result = new byte[IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, result, IV_LENGTH);
+        return result;
+    }
+
+    /**
+     * 解密 IV + 密文
+     */
+    public byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        if (data.length < IV_LENGTH) {
+            throw new IllegalArgumentException("Encrypted data too short");
+        }
+        Cipher cipher = ciphers.get().cipher;
+        cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+        return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+    }
+
+    /**
+     * 由明文和盐派生确定性 IV：SHA-256(明文 + 盐) 的前 12 字节
+     */
+    public static byte[] deterministicIv(byte[] plaintext, byte[] salt) {
+        MessageDigest digest = SHA256.get();
+        digest.update(plaintext);
+        digest.update(salt);
+        return Arrays.copyOf(digest.digest(), IV_LENGTH);
+    }
+
+    private static SecureRandom createRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package xw.szbz.cn.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * 多模式串匹配器（Aho-Corasick 自动机，忽略大小写）
+ *
+ * 构造时把全部模式串编译成确定性自动机（转移表），匹配时对输入逐字符单遍扫描，
+ * 与模式串数量无关，且不分配内存。
+ * 大小写按 Character.toLowerCase 逐字符折叠；模式串中未出现的字符统一归为一个"其他"符号。
+ */
+public class AhoCorasickMatcher {
+
+    private static final int ASCII_SIZE = 128;
+
+    /** ASCII 字符 -> 符号编号（0 表示不在字母表中），大写字母与小写字母编号相同 */
+    private final int[] asciiSymbols = new int[ASCII_SIZE];
+    /** 非 ASCII 字符按升序排列，符号编号为 asciiCount + 下标 + 1 */
+    private final char[] otherChars;
+    private final int asciiCount;
+    private final int alphabetSize;
+
+    /** transitions[offset + symbol] -> 下一个状态的 offset（offset = 状态编号 × alphabetSize） */
+    private final int[] transitions;
+    /** accepting[offset]：到达该状态时是否已匹配某个模式串（包含经失败链接可达的输出） */
+    private final boolean[] accepting;
+    private final int stateCount;
+    private final int patternCount;
+
+    public AhoCorasickMatcher(Collection<String> patterns) {
+        List<String> folded = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern != null && !pattern.isEmpty()) {
+                folded.add(fold(pattern));
+            }
+        }
+        this.patternCount = folded.size();
+
+        // 字母表：模式串中出现过的字符
+        TreeSet<Character> alphabet = new TreeSet<>();
+        for (String pattern : folded) {
+            for (int i = 0; i < pattern.length(); i++) {
+                alphabet.add(pattern.charAt(i));
+            }
+        }
+        int ascii = 0;
+        List<Character> others = new ArrayList<>();
+        for (char c : alphabet) {
+            if (c < ASCII_SIZE) {
+                asciiSymbols[c] = ++ascii;
+                // 模式串已折叠为小写，对应的大写字母共用编号
+                char upper = Character.toUpperCase(c);
+                if (upper != c && upper < ASCII_SIZE) {
+                    asciiSymbols[upper] = ascii;
+                }
+            } else {
+                others.add(c);
+            }
+        }
+        this.asciiCount = ascii;
+        this.otherChars = new char[others.size()];
+        for (int i = 0; i < others.size(); i++) {
+            otherChars[i] = others.get(i);
+        }
+        this.alphabetSize = ascii + otherChars.length + 1;
+
+        // 构建字典树
+        int maxStates = 1;
+        for (String pattern : folded) {
+            maxStates += pattern.length();
+        }
+        int[] trie = new int[maxStates * alphabetSize];
+        Arrays.fill(trie, -1);
+        boolean[] output = new boolean[maxStates];
+        int states = 1;
+        for (String pattern : folded) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int index = state * alphabetSize + symbolOf(pattern.charAt(i));
+                if (trie[index] < 0) {
+                    trie[index] = states++;
+                }
+                state = trie[index];
+            }
+            output[state] = true;
+        }
+
+        // 按层次补全失败转移，得到确定性自动机
+        int[] fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int next = trie[symbol];
+            if (next < 0) {
+                trie[symbol] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[fail[state]];
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int index = state * alphabetSize + symbol;
+                int next = trie[index];
+                if (next < 0) {
+                    trie[index] = trie[fail[state] * alphabetSize + symbol];
+                } else {
+                    fail[next] = trie[fail[state] * alphabetSize + symbol];
+                    queue.add(next);
+                }
+            }
+        }
+
+        // 转移目标预乘 alphabetSize，匹配时省去乘法
+        this.stateCount = states;
+        this.transitions = new int[states * alphabetSize];
+        this.accepting = new boolean[states * alphabetSize];
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = trie[i] * alphabetSize;
+        }
+        for (int state = 0; state < states; state++) {
+            accepting[state * alphabetSize] = output[state];
+        }
+    }
+
+    /**
+     * 输入是否包含任一模式串（忽略大小写）
+     */
+    public boolean containsAny(CharSequence text) {
+        if (text == null || patternCount == 0) {
+            return false;
+        }
+        int offset = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int symbol = c < ASCII_SIZE ? asciiSymbols[c] : otherSymbolOf(Character.toLowerCase(c));
+            offset = transitions[offset + symbol];
+            if (accepting[offset]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    private int symbolOf(char c) {
+        return c < ASCII_SIZE ? asciiSymbols[c] : otherSymbolOf(c);
+    }
+
+    private int otherSymbolOf(char c) {
+        if (c < ASCII_SIZE) {
+            return asciiSymbols[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : asciiCount + index + 1;
+    }
+
+    private static String fold(String pattern) {
+        char[] chars = pattern.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
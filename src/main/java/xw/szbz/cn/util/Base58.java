@@ -0,0 +1,124 @@
+package xw.szbz.cn.util;
+
+import java.util.Arrays;
+
+/**
+ * Base58 编解码（比特币字母表，去除易混淆字符 0OIl）
+ *
+ * 进制转换按 32 位字逐段做长除法：编码每轮除以 58^5、一次得到 5 位，解码每轮乘 58^5 累加 5 位，
+ * 比逐字节除以 58 的循环少约 20 倍运算；字符到数值用查表，不再 indexOf。
+ */
+public final class Base58 {
+
+    public static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private static final char[] DIGITS = ALPHABET.toCharArray();
+    private static final int[] INDEXES = new int[128];
+    private static final long BASE_POW5 = 58L * 58 * 58 * 58 * 58;
+    // log(256) / log(58)，估算输出长度
+    private static final double BYTES_TO_DIGITS = 1.3658;
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            INDEXES[DIGITS[i]] = i;
+        }
+    }
+
+    private Base58() {
+    }
+
+    /**
+     * 字符对应的数值
+     * @return 不是 Base58 字符时返回 -1
+     */
+    public static int indexOf(char c) {
+        return c < 128 ? INDEXES[c] : -1;
+    }
+
+    public static String encode(byte[] input) {
+        int zeroCount = 0;
+        while (zeroCount < input.length && input[zeroCount] == 0) {
+            zeroCount++;
+        }
+
+        // 大端字节转为大端 32 位字（首个字补齐高位零）
+        int byteCount = input.length - zeroCount;
+        int[] words = new int[(byteCount + 3) / 4];
+        for (int i = zeroCount; i < input.length; i++) {
+            int fromEnd = input.length - 1 - i;
+            words[words.length - 1 - fromEnd / 4] |= (input[i] & 0xFF) << ((fromEnd % 4) * 8);
+        }
+
+        char[] encoded = new char[zeroCount + (int) (byteCount * BYTES_TO_DIGITS) + 6];
+        int outputStart = encoded.length;
+        int wordStart = 0;
+        while (wordStart < words.length) {
+            long remainder = 0;
+            for (int i = wordStart; i < words.length; i++) {
+                long value = (remainder << 32) | (words[i] & 0xFFFFFFFFL);
+                words[i] = (int) (value / BASE_POW5);
+                remainder = value % BASE_POW5;
+            }
+            while (wordStart < words.length && words[wordStart] == 0) {
+                wordStart++;
+            }
+            for (int i = 0; i < 5; i++) {
+                encoded[--outputStart] = DIGITS[(int) (remainder % 58)];
+                remainder /= 58;
+            }
+        }
+
+        // 去掉最后一轮补出的前导零位，再为每个前导零字节补一个 '1'
+        while (outputStart < encoded.length && encoded[outputStart] == DIGITS[0]) {
+            outputStart++;
+        }
+        for (int i = 0; i < zeroCount; i++) {
+            encoded[--outputStart] = DIGITS[0];
+        }
+        return new String(encoded, outputStart, encoded.length - outputStart);
+    }
+
+    public static byte[] decode(String input) {
+        int zeroCount = 0;
+        while (zeroCount < input.length() && input.charAt(zeroCount) == DIGITS[0]) {
+            zeroCount++;
+        }
+
+        // 小端 32 位字，每次乘 58^k 再加上 k 位的值（k 最多 5）
+        int[] words = new int[(input.length() - zeroCount) * 3 / 16 + 1];
+        int wordCount = 0;
+        for (int i = zeroCount; i < input.length(); ) {
+            int chunk = Math.min(5, input.length() - i);
+            long multiplier = 1;
+            long carry = 0;
+            for (int j = 0; j < chunk; j++, i++) {
+                int digit = indexOf(input.charAt(i));
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Invalid Base58 character: " + input.charAt(i));
+                }
+                carry = carry * 58 + digit;
+                multiplier *= 58;
+            }
+            for (int w = 0; w < wordCount; w++) {
+                long value = (words[w] & 0xFFFFFFFFL) * multiplier + carry;
+                words[w] = (int) value;
+                carry = value >>> 32;
+            }
+            if (carry != 0) {
+                words[wordCount++] = (int) carry;
+            }
+        }
+
+        int byteCount = wordCount * 4;
+        if (wordCount > 0) {
+            int top = words[wordCount - 1];
+            byteCount -= Integer.numberOfLeadingZeros(top) / 8;
+        }
+        byte[] decoded = new byte[zeroCount + byteCount];
+        for (int b = 0; b < byteCount; b++) {
+            decoded[decoded.length - 1 - b] = (byte) (words[b / 4] >>> ((b % 4) * 8));
+        }
+        return decoded;
+    }
+}
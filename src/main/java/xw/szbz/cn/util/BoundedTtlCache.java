@@ -0,0 +1,171 @@
+package xw.szbz.cn.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 进程内 LRU 缓存，按条目数和 TTL 限制
+ * - 超出容量时淘汰最久未访问的条目，过期条目在读取时移除
+ * - 失效计数（generation）：每次删除、更新、清空时递增，读穿加载前取一次，
+ *   回填时用 {@link #putIfGeneration} 比对，加载期间有变更时不回填旧数据
+ * - 命中时记录条目的存活时间（从写入算起），用于评估数据新鲜度
+ */
+public class BoundedTtlCache<K, V> {
+
+    private record Entry<V>(V value, long loadedAt, long expireAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder hitAgeMillis = new LongAdder();
+    private final AtomicLong maxHitAgeMillis = new AtomicLong();
+
+    // 访问顺序的 LinkedHashMap，超出容量时淘汰最久未访问的条目
+    private final Map<K, Entry<V>> entries;
+
+    public BoundedTtlCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 读取未过期的条目（过期条目顺带移除）
+     * @return 未缓存或已过期时返回 null
+     */
+    public V get(K key) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt() <= now) {
+                entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            hits.increment();
+            long age = now - entry.loadedAt();
+            hitAgeMillis.add(age);
+            maxHitAgeMillis.accumulateAndGet(age, Math::max);
+            return entry.value();
+        }
+    }
+
+    /**
+     * 当前失效计数，读穿加载前获取，回填时传给 {@link #putIfGeneration}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 写入条目（不比对失效计数）
+     */
+    public void put(K key, V value) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, now, now + ttlMillis));
+        }
+    }
+
+    /**
+     * 失效计数未变化时写入条目
+     * @return 加载期间有删除、更新或清空时不写入，返回 false
+     */
+    public boolean putIfGeneration(K key, V value, long expectedGeneration) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            if (generation.get() != expectedGeneration) {
+                return false;
+            }
+            entries.put(key, new Entry<>(value, now, now + ttlMillis));
+            return true;
+        }
+    }
+
+    /**
+     * 就地替换已缓存的值，保留原写入和过期时间（未缓存时不做处理）
+     * @return 是否替换
+     */
+    public boolean update(K key, UnaryOperator<V> change) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return false;
+            }
+            entries.put(key, new Entry<>(change.apply(entry.value()), entry.loadedAt(), entry.expireAt()));
+            return true;
+        }
+    }
+
+    /**
+     * 删除条目
+     * @return 是否存在
+     */
+    public boolean remove(K key) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            return entries.remove(key) != null;
+        }
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    /**
+     * 当前条目数（已过期但尚未读取的条目也计入）
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 统计信息（容量、命中、淘汰、过期，以及命中时条目的平均和最大存活时间）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hit = hits.sum();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hit);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("avgHitAgeMillis", hit == 0 ? 0 : hitAgeMillis.sum() / hit);
+        stats.put("maxHitAgeMillis", maxHitAgeMillis.get());
+        return stats;
+    }
+}
@@ -0,0 +1,185 @@
+package xw.szbz.cn.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 流式文本片段合并发送
+ * - 第一个片段立即发送，不增加首字节延迟
+ * - 之后的片段先缓冲，累计达到 maxBytes（UTF-8 字节）时由收到片段的线程合并发送一次
+ * - 缓冲第一个片段时安排一次延迟发送，上游停顿时最多等待 maxDelayMs；按字节数发送后取消
+ * - 发送在缓冲锁外进行，按顺序串行；由同一个生产者顺序调用，{@link #close()} 发送剩余内容
+ */
+public class ChunkCoalescer implements Consumer<String>, AutoCloseable {
+
+    /**
+     * 所有合并器共用的延迟发送定时器（守护线程，首次使用时创建）
+     */
+    private static final class SharedTimer {
+        static final ScheduledThreadPoolExecutor INSTANCE = createTimer();
+
+        private static ScheduledThreadPoolExecutor createTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "sse-coalesce-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+
+    private final Consumer<String> sink;
+    private final int maxBytes;
+    private final long maxDelayMs;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService timer;
+
+    // 取出缓冲并发送的整个过程持有，保证生产者和定时器发送的顺序；先于缓冲锁获取
+    private final Object sendLock = new Object();
+
+    private final StringBuilder buffer = new StringBuilder();
+    private int bufferedBytes;
+    private long firstBufferedAt;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean firstSent;
+    private boolean closed;
+    private int chunkCount;
+    private int flushCount;
+
+    public ChunkCoalescer(Consumer<String> sink, int maxBytes, long maxDelayMs) {
+        this(sink, maxBytes, maxDelayMs, System::currentTimeMillis, SharedTimer.INSTANCE);
+    }
+
+    ChunkCoalescer(Consumer<String> sink, int maxBytes, long maxDelayMs, LongSupplier clock,
+                   ScheduledExecutorService timer) {
+        this.sink = sink;
+        this.maxBytes = maxBytes;
+        this.maxDelayMs = maxDelayMs;
+        this.clock = clock;
+        this.timer = timer;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        boolean flushNow;
+        synchronized (this) {
+            if (closed || chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            chunkCount++;
+            if (!firstSent) {
+                firstSent = true;
+                buffer.append(chunk);
+                flushNow = true;
+            } else {
+                long now = clock.getAsLong();
+                if (buffer.length() == 0) {
+                    firstBufferedAt = now;
+                    if (maxDelayMs > 0) {
+                        scheduledFlush = timer.schedule(this::flush, maxDelayMs, TimeUnit.MILLISECONDS);
+                    }
+                }
+                buffer.append(chunk);
+                bufferedBytes += utf8Length(chunk);
+                flushNow = bufferedBytes >= maxBytes || now - firstBufferedAt >= maxDelayMs;
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * 立即发送缓冲的内容
+     */
+    public void flush() {
+        synchronized (sendLock) {
+            String ready;
+            synchronized (this) {
+                ready = drain();
+            }
+            if (ready != null) {
+                sink.accept(ready);
+            }
+        }
+    }
+
+    /**
+     * 发送剩余内容，之后收到的片段忽略
+     */
+    @Override
+    public void close() {
+        synchronized (sendLock) {
+            String ready;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                ready = drain();
+            }
+            if (ready != null) {
+                sink.accept(ready);
+            }
+        }
+    }
+
+    /**
+     * 收到的片段数
+     */
+    public synchronized int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * 实际发送次数
+     */
+    public synchronized int getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * 取出缓冲的内容并取消未执行的延迟发送（调用方持有锁）
+     * @return 缓冲为空时返回 null
+     */
+    private String drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (buffer.length() == 0) {
+            return null;
+        }
+        String merged = buffer.toString();
+        buffer.setLength(0);
+        bufferedBytes = 0;
+        flushCount++;
+        return merged;
+    }
+
+    /**
+     * UTF-8 编码后的字节数（不实际编码）
+     */
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isSurrogate(c)) {
+                // 代理对共 4 字节，每个代理字符各计 2
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,23 +1,32 @@
 package xw.szbz.cn.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import xw.szbz.cn.model.JwtPrincipal;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 增强型JWT工具类
  * 支持Access Token和Refresh Token
  * 包含丰富的安全特性：会话管理、设备绑定、IP验证等
+ *
+ * Token 只解析、验签一次，结果为 {@link JwtPrincipal}；
+ * 最近验证通过的 Token 按 SHA-256 摘要缓存（LRU，有界），在过期前再次出现时直接返回，不再验签。
  */
 @Component
 public class EnhancedJwtUtil {
@@ -30,18 +39,40 @@ public class EnhancedJwtUtil {
     
     @Value("${jwt.refresh-token.expiration:604800000}")
     private Long refreshTokenExpiration; // 默认7天
+
+    @Value("${cache.jwt.max-size:10000}")
+    private int verifiedCacheMaxSize = 10000; // 已验证 Token 缓存条目上限
     
     private static final String ISSUER = "szbz-web-app";
     private static final String AUDIENCE = "szbz-web-client";
-    private static final String TOKEN_TYPE_ACCESS = "access";
-    private static final String TOKEN_TYPE_REFRESH = "refresh";
+    private static final String TOKEN_TYPE_ACCESS = JwtPrincipal.TOKEN_TYPE_ACCESS;
+    private static final String TOKEN_TYPE_REFRESH = JwtPrincipal.TOKEN_TYPE_REFRESH;
+
+    // 密钥和解析器在首次使用时创建（secret 由 @Value 字段注入）
+    private volatile SecretKey signingKey;
+    private volatile JwtParser parser;
+
+    // Token 摘要 -> 已验证的主体，访问顺序淘汰
+    private final Map<String, JwtPrincipal> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JwtPrincipal> eldest) {
+            return size() > verifiedCacheMaxSize;
+        }
+    };
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
     
     /**
      * 生成密钥
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signingKey = key;
+        }
+        return key;
     }
     
     /**
@@ -110,60 +141,109 @@ public class EnhancedJwtUtil {
                 .compact();
     }
     
+    /**
+     * 验证 Token 并返回主体（签名无效、格式错误或已过期时抛出 JwtException）
+     * 验证通过的 Token 在过期前命中缓存，不再解析和验签
+     */
+    public JwtPrincipal verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Token 不能为空");
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (verifiedTokens) {
+            JwtPrincipal cached = verifiedTokens.get(digest);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    cacheHits.increment();
+                    return cached;
+                }
+                verifiedTokens.remove(digest);
+            }
+        }
+
+        cacheMisses.increment();
+        JwtPrincipal principal = toPrincipal(parseToken(token));
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(digest, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * 从缓存中移除 Token（登出时调用）
+     */
+    public void evict(String token) {
+        if (token == null) {
+            return;
+        }
+        String digest = digest(token);
+        synchronized (verifiedTokens) {
+            verifiedTokens.remove(digest);
+        }
+    }
+
+    /**
+     * 已验证 Token 缓存统计
+     */
+    public Map<String, Object> getVerifiedCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (verifiedTokens) {
+            stats.put("size", verifiedTokens.size());
+        }
+        stats.put("maxSize", verifiedCacheMaxSize);
+        stats.put("hits", cacheHits.sum());
+        stats.put("misses", cacheMisses.sum());
+        return stats;
+    }
+
     /**
      * 从Token中获取加密用户ID
      */
     public String getEncryptedUserIdFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.getSubject();
+        return verify(token).encryptedUserId();
     }
     
     /**
      * 从Token中获取用户名
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("username", String.class);
+        return verify(token).username();
     }
     
     /**
      * 从Token中获取会话ID
      */
     public String getSessionIdFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("session_id", String.class);
+        return verify(token).sessionId();
     }
     
     /**
      * 从Token中获取设备ID
      */
     public String getDeviceIdFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("device_id", String.class);
+        return verify(token).deviceId();
     }
     
     /**
      * 从Token中获取IP哈希
      */
     public String getIpHashFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("ip_hash", String.class);
+        return verify(token).ipHash();
     }
     
     /**
      * 从Token中获取Token类型
      */
     public String getTokenTypeFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("token_type", String.class);
+        return verify(token).tokenType();
     }
     
     /**
      * 从Token中获取JTI（Token唯一ID）
      */
     public String getJtiFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("jti", String.class);
+        return verify(token).jti();
     }
     
     /**
@@ -171,7 +251,7 @@ public class EnhancedJwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            parseToken(token);
+            verify(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -207,8 +287,7 @@ public class EnhancedJwtUtil {
      */
     public boolean isTokenExpired(String token) {
         try {
-            Claims claims = parseToken(token);
-            return claims.getExpiration().before(new Date());
+            return verify(token).isExpired(System.currentTimeMillis());
         } catch (Exception e) {
             return true;
         }
@@ -244,9 +323,7 @@ public class EnhancedJwtUtil {
      */
     public long getTokenRemainingTime(String token) {
         try {
-            Claims claims = parseToken(token);
-            Date expiration = claims.getExpiration();
-            long remaining = (expiration.getTime() - System.currentTimeMillis()) / 1000;
+            long remaining = (verify(token).expiration() - System.currentTimeMillis()) / 1000;
             return Math.max(0, remaining);
         } catch (Exception e) {
             return 0;
@@ -257,11 +334,38 @@ public class EnhancedJwtUtil {
      * 解析Token获取Claims
      */
     private Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        JwtParser jwtParser = parser;
+        if (jwtParser == null) {
+            jwtParser = Jwts.parser().verifyWith(getSigningKey()).build();
+            parser = jwtParser;
+        }
+        return jwtParser.parseSignedClaims(token).getPayload();
+    }
+
+    private static JwtPrincipal toPrincipal(Claims claims) {
+        return new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("username", String.class),
+                claims.get("email_verified", Boolean.class),
+                claims.get("token_type", String.class),
+                claims.get("session_id", String.class),
+                claims.get("device_id", String.class),
+                claims.get("ip_hash", String.class),
+                claims.get("jti", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+    }
+
+    /**
+     * Token 的 SHA-256 摘要（缓存键，不在内存中保留 Token 原文）
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
     }
     
     /**
@@ -1,14 +1,8 @@
 package xw.szbz.cn.util;
 
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Arrays;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -24,10 +18,9 @@ public class EnhancedUserIdEncryption {
     
     @Value("${user.id.encryption.key:your-encryption-key-32-chars-256bits}")
     private String encryptionKey;
-    
-    // Base58字符集（去除易混淆字符0OIl）
-    private static final String BASE58_ALPHABET = 
-        "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    // 首次使用时按注入的密钥创建
+    private volatile AesGcmEngine engine;
     
     /**
      * 加密用户ID生成13位标识符
@@ -44,7 +37,7 @@ public class EnhancedUserIdEncryption {
             byte[] encrypted = aes256GcmEncrypt(plainText.getBytes(StandardCharsets.UTF_8));
             
             // 3. Base58编码
-            String encoded = base58Encode(encrypted);
+            String encoded = Base58.encode(encrypted);
             
             // 4. 截取11位（如果不足11位则补充）
             String data;
@@ -52,7 +45,7 @@ public class EnhancedUserIdEncryption {
                 data = encoded.substring(0, 11);
             } else {
                 // 补充到11位
-                data = String.format("%-11s", encoded).replace(' ', BASE58_ALPHABET.charAt(0));
+                data = String.format("%-11s", encoded).replace(' ', Base58.ALPHABET.charAt(0));
             }
             
             // 5. 计算Luhn校验位
@@ -90,7 +83,7 @@ public class EnhancedUserIdEncryption {
             // 由于截断了编码结果，我们需要反向处理
             // 实际上，为了可逆性，我们需要调整策略
             // 这里使用完整的Base58字符串来解码
-            byte[] decoded = base58Decode(data);
+            byte[] decoded = Base58.decode(data);
             
             // 5. AES-256-GCM解密
             String decrypted = new String(aes256GcmDecrypt(decoded), StandardCharsets.UTF_8);
@@ -111,7 +104,7 @@ public class EnhancedUserIdEncryption {
         boolean alternate = false;
         
         for (int i = data.length() - 1; i >= 0; i--) {
-            int n = BASE58_ALPHABET.indexOf(data.charAt(i));
+            int n = Base58.indexOf(data.charAt(i));
             if (n == -1) {
                 throw new IllegalArgumentException("Invalid character in encrypted ID");
             }
@@ -125,42 +118,15 @@ public class EnhancedUserIdEncryption {
         }
         
         int checksum = (10 - (sum % 10)) % 10;
-        return BASE58_ALPHABET.charAt(checksum);
+        return Base58.ALPHABET.charAt(checksum);
     }
     
     /**
-     * AES-256-GCM加密
+     * AES-256-GCM加密（随机IV，结果为 IV + 密文）
      */
     private byte[] aes256GcmEncrypt(byte[] plaintext) {
         try {
-            // 生成随机IV（12字节）
-            byte[] iv = new byte[12];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
-            
-            // 初始化密钥（确保32字节）
-            byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
-            if (keyBytes.length < 32) {
-                keyBytes = Arrays.copyOf(keyBytes, 32);
-            } else if (keyBytes.length > 32) {
-                keyBytes = Arrays.copyOf(keyBytes, 32);
-            }
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, gcmSpec);
-            
-            // 加密
-            byte[] ciphertext = cipher.doFinal(plaintext);
-            
-            // 将IV和密文拼接（IV + 密文）
-            byte[] result = new byte[iv.length + ciphertext.length];
-            System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
-            
-            return result;
+            return engine().encrypt(plaintext);
         } catch (Exception e) {
             throw new RuntimeException("Encryption failed", e);
         }
@@ -171,136 +137,18 @@ public class EnhancedUserIdEncryption {
      */
     private byte[] aes256GcmDecrypt(byte[] encryptedData) {
         try {
-            // 提取IV和密文
-            if (encryptedData.length < 12) {
-                throw new IllegalArgumentException("Encrypted data too short");
-            }
-            
-            byte[] iv = new byte[12];
-            byte[] ciphertext = new byte[encryptedData.length - 12];
-            System.arraycopy(encryptedData, 0, iv, 0, 12);
-            System.arraycopy(encryptedData, 12, ciphertext, 0, ciphertext.length);
-            
-            // 初始化密钥（确保32字节）
-            byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
-            if (keyBytes.length < 32) {
-                keyBytes = Arrays.copyOf(keyBytes, 32);
-            } else if (keyBytes.length > 32) {
-                keyBytes = Arrays.copyOf(keyBytes, 32);
-            }
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmSpec);
-            
-            // 解密
-            return cipher.doFinal(ciphertext);
+            return engine().decrypt(encryptedData);
         } catch (Exception e) {
             throw new RuntimeException("Decryption failed", e);
         }
     }
-    
-    /**
-     * Base58编码
-     */
-    private String base58Encode(byte[] input) {
-        if (input.length == 0) {
-            return "";
-        }
-        
-        // 计算前导零字节数
-        int zeroCount = 0;
-        while (zeroCount < input.length && input[zeroCount] == 0) {
-            zeroCount++;
-        }
-        
-        // 转换为Base58
-        byte[] temp = Arrays.copyOf(input, input.length);
-        char[] encoded = new char[temp.length * 2];
-        int outputStart = encoded.length;
-        
-        for (int inputStart = zeroCount; inputStart < temp.length; ) {
-            int remainder = divmod58(temp, inputStart);
-            if (temp[inputStart] == 0) {
-                inputStart++;
-            }
-            encoded[--outputStart] = BASE58_ALPHABET.charAt(remainder);
-        }
-        
-        // 保留前导'1'
-        while (outputStart < encoded.length && encoded[outputStart] == BASE58_ALPHABET.charAt(0)) {
-            outputStart++;
-        }
-        while (--zeroCount >= 0) {
-            encoded[--outputStart] = BASE58_ALPHABET.charAt(0);
-        }
-        
-        return new String(encoded, outputStart, encoded.length - outputStart);
-    }
-    
-    /**
-     * Base58解码
-     */
-    private byte[] base58Decode(String input) {
-        if (input.length() == 0) {
-            return new byte[0];
-        }
-        
-        byte[] input58 = new byte[input.length()];
-        for (int i = 0; i < input.length(); i++) {
-            int digit = BASE58_ALPHABET.indexOf(input.charAt(i));
-            if (digit < 0) {
-                throw new IllegalArgumentException("Invalid Base58 character: " + input.charAt(i));
-            }
-            input58[i] = (byte) digit;
-        }
-        
-        // 计算前导零
-        int zeroCount = 0;
-        while (zeroCount < input58.length && input58[zeroCount] == 0) {
-            zeroCount++;
-        }
-        
-        // 解码
-        byte[] decoded = new byte[input.length()];
-        int outputStart = decoded.length;
-        
-        for (int inputStart = zeroCount; inputStart < input58.length; ) {
-            int remainder = divmod256(input58, inputStart);
-            if (input58[inputStart] == 0) {
-                inputStart++;
-            }
-            decoded[--outputStart] = (byte) remainder;
-        }
-        
-        while (outputStart < decoded.length && decoded[outputStart] == 0) {
-            outputStart++;
-        }
-        
-        return Arrays.copyOfRange(decoded, outputStart - zeroCount, decoded.length);
-    }
-    
-    private int divmod58(byte[] number, int startAt) {
-        int remainder = 0;
-        for (int i = startAt; i < number.length; i++) {
-            int digit = (int) number[i] & 0xFF;
-            int temp = remainder * 256 + digit;
-            number[i] = (byte) (temp / 58);
-            remainder = temp % 58;
-        }
-        return remainder;
-    }
-    
-    private int divmod256(byte[] number, int startAt) {
-        int remainder = 0;
-        for (int i = startAt; i < number.length; i++) {
-            int digit = (int) number[i] & 0xFF;
-            int temp = remainder * 58 + digit;
-            number[i] = (byte) (temp / 256);
-            remainder = temp % 256;
+
+    private AesGcmEngine engine() {
+        AesGcmEngine current = engine;
+        if (current == null) {
+            current = new AesGcmEngine(encryptionKey);
+            engine = current;
         }
-        return remainder;
+        return current;
     }
 }
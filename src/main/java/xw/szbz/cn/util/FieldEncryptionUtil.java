@@ -1,14 +1,10 @@
 package xw.szbz.cn.util;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Base64;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Collection;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -16,7 +12,7 @@ import org.springframework.stereotype.Component;
 /**
  * 字段加密工具类
  * 用于加密敏感字段（如邮箱、手机号等）
- * 算法：AES-256-GCM
+ * 算法：AES-256-GCM（{@link AesGcmEngine}，密钥只准备一次，Cipher 按线程复用）
  * 特点：
  * - 对于需要查询的字段（如邮箱），使用确定性加密（固定IV）
  * - 相同明文总是得到相同密文，可用于数据库查询
@@ -31,10 +27,10 @@ public class FieldEncryptionUtil {
     @Value("${field.encryption.iv.salt:your-iv-salt-for-deterministic-encryption}")
     private String ivSalt;
 
-    private static final String ALGORITHM = "AES/GCM/NoPadding";
-    private static final int GCM_IV_LENGTH = 12;
-    private static final int GCM_TAG_LENGTH = 128;
-    
+    // 首次使用时按注入的密钥和盐创建
+    private volatile AesGcmEngine engine;
+    private volatile byte[] ivSaltBytes;
+
     /**
      * 确定性加密（用于需要查询的字段，如邮箱）
      * 相同明文总是得到相同密文
@@ -47,49 +43,15 @@ public class FieldEncryptionUtil {
         }
 
         try {
-            // 基于明文和盐生成固定的 IV（使用 SHA-256）
-            byte[] iv = generateDeterministicIV(plainText);
-
-            // 初始化密钥（确保32字节）
-            byte[] keyBytes = prepareKey(encryptionKey);
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, gcmSpec);
-
-            // 加密
-            byte[] ciphertext = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            // 将IV和密文拼接（IV + 密文）
-            byte[] result = new byte[iv.length + ciphertext.length];
-            System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
-
-            // Base64编码
-            return Base64.getEncoder().encodeToString(result);
+            byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+            // 基于明文和盐生成固定的 IV（SHA-256 前 12 字节），结果为 IV + 密文
+            byte[] iv = AesGcmEngine.deterministicIv(plainBytes, ivSaltBytes());
+            return Base64.getEncoder().encodeToString(engine().encrypt(iv, plainBytes));
         } catch (Exception e) {
             throw new RuntimeException("Failed to encrypt field deterministically", e);
         }
     }
 
-    /**
-     * 生成确定性 IV
-     * 使用 SHA-256 从明文和盐生成固定的 12 字节 IV
-     */
-    private byte[] generateDeterministicIV(String plainText) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            String input = plainText + ivSalt;
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            // 取 SHA-256 结果的前 12 字节作为 IV
-            return Arrays.copyOf(hash, GCM_IV_LENGTH);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate deterministic IV", e);
-        }
-    }
-
     /**
      * 随机加密（用于不需要查询的字段）
      * 每次加密都会生成不同的密文，更安全
@@ -102,35 +64,35 @@ public class FieldEncryptionUtil {
         }
 
         try {
-            // 生成随机IV
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
-
-            // 初始化密钥（确保32字节）
-            byte[] keyBytes = prepareKey(encryptionKey);
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, gcmSpec);
-
-            // 加密
-            byte[] ciphertext = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            // 将IV和密文拼接（IV + 密文）
-            byte[] result = new byte[iv.length + ciphertext.length];
-            System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
-
-            // Base64编码
-            return Base64.getEncoder().encodeToString(result);
+            byte[] encrypted = engine().encrypt(plainText.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(encrypted);
         } catch (Exception e) {
             throw new RuntimeException("Failed to encrypt field randomly", e);
         }
     }
 
+    /**
+     * 批量确定性加密（按输入顺序返回）
+     */
+    public List<String> encryptDeterministicAll(Collection<String> plainTexts) {
+        List<String> result = new ArrayList<>(plainTexts.size());
+        for (String plainText : plainTexts) {
+            result.add(encryptDeterministic(plainText));
+        }
+        return result;
+    }
+
+    /**
+     * 批量解密（按输入顺序返回）
+     */
+    public List<String> decryptAll(Collection<String> encryptedTexts) {
+        List<String> result = new ArrayList<>(encryptedTexts.size());
+        for (String encryptedText : encryptedTexts) {
+            result.add(decrypt(encryptedText));
+        }
+        return result;
+    }
+
     /**
      * 通用加密方法（默认使用确定性加密）
      * @deprecated 建议明确使用 encryptDeterministic 或 encryptRandom
@@ -151,49 +113,29 @@ public class FieldEncryptionUtil {
         }
         
         try {
-            // Base64解码
-            byte[] encryptedData = Base64.getDecoder().decode(encryptedText);
-            
-            if (encryptedData.length < GCM_IV_LENGTH) {
-                throw new IllegalArgumentException("Encrypted data too short");
-            }
-            
-            // 提取IV和密文
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byte[] ciphertext = new byte[encryptedData.length - GCM_IV_LENGTH];
-            System.arraycopy(encryptedData, 0, iv, 0, GCM_IV_LENGTH);
-            System.arraycopy(encryptedData, GCM_IV_LENGTH, ciphertext, 0, ciphertext.length);
-            
-            // 初始化密钥（确保32字节）
-            byte[] keyBytes = prepareKey(encryptionKey);
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmSpec);
-            
-            // 解密
-            byte[] plaintext = cipher.doFinal(ciphertext);
+            byte[] plaintext = engine().decrypt(Base64.getDecoder().decode(encryptedText));
             return new String(plaintext, StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new RuntimeException("Failed to decrypt field", e);
         }
     }
-    
-    /**
-     * 准备密钥：确保32字节（256位）
-     */
-    private byte[] prepareKey(String key) {
-        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
-        if (keyBytes.length < 32) {
-            // 不足32字节，补零
-            keyBytes = Arrays.copyOf(keyBytes, 32);
-        } else if (keyBytes.length > 32) {
-            // 超过32字节，截断
-            keyBytes = Arrays.copyOf(keyBytes, 32);
+
+    private AesGcmEngine engine() {
+        AesGcmEngine current = engine;
+        if (current == null) {
+            current = new AesGcmEngine(encryptionKey);
+            engine = current;
+        }
+        return current;
+    }
+
+    private byte[] ivSaltBytes() {
+        byte[] current = ivSaltBytes;
+        if (current == null) {
+            current = String.valueOf(ivSalt).getBytes(StandardCharsets.UTF_8);
+            ivSaltBytes = current;
         }
-        return keyBytes;
+        return current;
     }
     
     /**
@@ -0,0 +1,150 @@
+package xw.szbz.cn.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Gemini 流式响应（SSE，alt=sse）字节级解析器
+ *
+ * 按字节切分行，不把整行解码成字符串；data: 行用流式 JsonParser 直接定位
+ * candidates[0].content.parts[0].text，不构建 JSON 树，其余字段跳过。
+ * 一行可能跨越多个 ByteBuffer，未结束的行保留到下次 {@link #feed}。非线程安全，由同一个订阅者顺序调用。
+ */
+public class GeminiStreamParser {
+
+    private static final byte[] DATA_PREFIX = {'d', 'a', 't', 'a', ':'};
+    private static final byte[] DONE = {'[', 'D', 'O', 'N', 'E', ']'};
+
+    private final JsonFactory jsonFactory;
+    private final Consumer<String> textCallback;
+    private byte[] line = new byte[4096];
+    private int lineLength;
+    private int textCount;
+    private int malformedCount;
+
+    public GeminiStreamParser(JsonFactory jsonFactory, Consumer<String> textCallback) {
+        this.jsonFactory = jsonFactory;
+        this.textCallback = textCallback;
+    }
+
+    /**
+     * 输入一段响应字节
+     */
+    public void feed(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                handleLine();
+                lineLength = 0;
+            } else {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * 响应结束：处理最后一行（没有换行结尾时）
+     */
+    public void finish() {
+        if (lineLength > 0) {
+            handleLine();
+            lineLength = 0;
+        }
+    }
+
+    /**
+     * 已回调的文本片段数
+     */
+    public int getTextCount() {
+        return textCount;
+    }
+
+    /**
+     * 无法解析的 data 行数
+     */
+    public int getMalformedCount() {
+        return malformedCount;
+    }
+
+    private void handleLine() {
+        int end = lineLength;
+        if (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        // SSE 格式：data: {...}
+        if (end < DATA_PREFIX.length || !Arrays.equals(line, 0, DATA_PREFIX.length, DATA_PREFIX, 0, DATA_PREFIX.length)) {
+            return;
+        }
+        int start = DATA_PREFIX.length;
+        while (start < end && (line[start] == ' ' || line[start] == '\t')) {
+            start++;
+        }
+        while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t')) {
+            end--;
+        }
+        // 跳过空数据
+        if (start == end || Arrays.equals(line, start, end, DONE, 0, DONE.length)) {
+            return;
+        }
+
+        try {
+            String text = extractText(line, start, end - start);
+            if (text != null && !text.isEmpty()) {
+                textCount++;
+                textCallback.accept(text);
+            }
+        } catch (IOException e) {
+            malformedCount++;
+        }
+    }
+
+    /**
+     * 流式定位 candidates[0].content.parts[0].text
+     * @return 不存在时返回 null
+     */
+    String extractText(byte[] data, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !seekField(parser, "candidates") || !enterFirstElement(parser)
+                    || !seekField(parser, "content") || parser.currentToken() != JsonToken.START_OBJECT
+                    || !seekField(parser, "parts") || !enterFirstElement(parser)
+                    || !seekField(parser, "text") || parser.currentToken() != JsonToken.VALUE_STRING) {
+                return null;
+            }
+            return parser.getText();
+        }
+    }
+
+    /**
+     * 在当前对象内查找字段，找到时停在字段值上
+     */
+    private static boolean seekField(JsonParser parser, String name) throws IOException {
+        JsonToken token = parser.nextToken();
+        while (token == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                return true;
+            }
+            parser.skipChildren();
+            token = parser.nextToken();
+        }
+        return false;
+    }
+
+    /**
+     * 当前是数组时进入第一个元素，要求第一个元素是对象
+     */
+    private static boolean enterFirstElement(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.START_ARRAY && parser.nextToken() == JsonToken.START_OBJECT;
+    }
+}
@@ -0,0 +1,342 @@
+package xw.szbz.cn.util;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * 二十四节气计算器
+ *
+ * 按太阳视黄经（VSOP87 截断级数 + FK5 修正 + 章动 + 光行差）求每个节气的交节时刻，
+ * 再经 ΔT 换算为北京时间（UTC+8），精确到分钟。
+ *
+ * 类加载时一次性算出 1899-2101 年全部节气，存为按时间升序的 int[]（自 1970-01-01 00:00 北京时间起的分钟数），
+ * 之后所有查询都是对该数组的二分查找，不产生任何对象分配。
+ * 覆盖范围比排盘接受的 1900-2100 年前后各多一年，用于查找上一个/下一个节。
+ *
+ * 节气序号约定：每年 24 个，0=小寒、1=大寒、2=立春 ... 23=冬至，偶数为节、奇数为中气；
+ * 全表序号 = (年份 - START_YEAR) * 24 + 年内序号
+ */
+public final class JieQiCalculator {
+
+    public static final int START_YEAR = 1899;
+    public static final int END_YEAR = 2101;
+
+    public static final String[] NAMES = {
+        "小寒", "大寒", "立春", "雨水", "惊蛰", "春分", "清明", "谷雨", "立夏", "小满", "芒种", "夏至",
+        "小暑", "大暑", "立秋", "处暑", "白露", "秋分", "寒露", "霜降", "立冬", "小雪", "大雪", "冬至"
+    };
+
+    private static final double TROPICAL_YEAR = 365.24219;
+    private static final double J2000 = 2451545.0;
+    private static final double UNIX_EPOCH_JD = 2440587.5;
+    private static final int BEIJING_OFFSET_MINUTES = 8 * 60;
+
+    /**
+     * VSOP87D 地球日心黄经级数（Meeus《天文算法》附录截断版），每项 {A, B, C}，值 = A·cos(B + C·τ)
+     */
+    private static final double[][] L0 = {
+        {175347046, 0, 0}, {3341656, 4.6692568, 6283.07585}, {34894, 4.6261, 12566.1517},
+        {3497, 2.7441, 5753.3849}, {3418, 2.8289, 3.5231}, {3136, 3.6277, 77713.7715},
+        {2676, 4.4181, 7860.4194}, {2343, 6.1352, 3930.2097}, {1324, 0.7425, 11506.7698},
+        {1273, 2.0371, 529.691}, {1199, 1.1096, 1577.3435}, {990, 5.233, 5884.927},
+        {902, 2.045, 26.298}, {857, 3.508, 398.149}, {780, 1.179, 5223.694},
+        {753, 2.533, 5507.553}, {505, 4.583, 18849.228}, {492, 4.205, 775.523},
+        {357, 2.92, 0.067}, {317, 5.849, 11790.629}, {284, 1.899, 796.298},
+        {271, 0.315, 10977.079}, {243, 0.345, 5486.778}, {206, 4.806, 2544.314},
+        {205, 1.869, 5573.143}, {202, 2.458, 6069.777}, {156, 0.833, 213.299},
+        {132, 3.411, 2942.463}, {126, 1.083, 20.775}, {115, 0.645, 0.98},
+        {103, 0.636, 4694.003}, {102, 0.976, 15720.839}, {102, 4.267, 7.114},
+        {99, 6.21, 2146.17}, {98, 0.68, 155.42}, {86, 5.98, 161000.69},
+        {85, 1.3, 6275.96}, {85, 3.67, 71430.7}, {80, 1.81, 17260.15},
+        {79, 3.04, 12036.46}, {75, 1.76, 5088.63}, {74, 3.5, 3154.69},
+        {74, 4.68, 801.82}, {70, 0.83, 9437.76}, {62, 3.98, 8827.39},
+        {61, 1.82, 7084.9}, {57, 2.78, 6286.6}, {56, 4.39, 14143.5},
+        {56, 3.47, 6279.55}, {52, 0.19, 12139.55}, {52, 1.33, 1748.02},
+        {51, 0.28, 5856.48}, {49, 0.49, 1194.45}, {41, 5.37, 8429.24},
+        {41, 2.4, 19651.05}, {39, 6.17, 10447.39}, {37, 6.04, 10213.29},
+        {37, 2.57, 1059.38}, {36, 1.71, 2352.87}, {36, 1.78, 6812.77},
+        {33, 0.59, 17789.85}, {30, 0.44, 83996.85}, {30, 2.74, 1349.87},
+        {25, 3.16, 4690.48}
+    };
+
+    private static final double[][] L1 = {
+        {628331966747.0, 0, 0}, {206059, 2.678235, 6283.07585}, {4303, 2.6351, 12566.1517},
+        {425, 1.59, 3.523}, {119, 5.796, 26.298}, {109, 2.966, 1577.344},
+        {93, 2.59, 18849.23}, {72, 1.14, 529.69}, {68, 1.87, 398.15},
+        {67, 4.41, 5507.55}, {59, 2.89, 5223.69}, {56, 2.17, 155.42},
+        {45, 0.4, 796.3}, {36, 0.47, 775.52}, {29, 2.65, 7.11},
+        {21, 5.34, 0.98}, {19, 1.85, 5486.78}, {19, 4.97, 213.3},
+        {17, 2.99, 6275.96}, {16, 0.03, 2544.31}, {16, 1.43, 2146.17},
+        {15, 1.21, 10977.08}, {12, 2.83, 1748.02}, {12, 3.26, 5088.63},
+        {12, 5.27, 1194.45}, {12, 2.08, 4694.0}, {11, 0.77, 553.57},
+        {10, 1.3, 6286.6}, {10, 4.24, 1349.87}, {9, 2.7, 242.73},
+        {9, 5.64, 951.72}, {8, 5.3, 2352.87}, {6, 2.65, 9437.76},
+        {6, 4.67, 4690.48}
+    };
+
+    private static final double[][] L2 = {
+        {52919, 0, 0}, {8720, 1.0721, 6283.0758}, {309, 0.867, 12566.152},
+        {27, 0.05, 3.52}, {16, 5.19, 26.3}, {16, 3.68, 155.42},
+        {10, 0.76, 18849.23}, {9, 2.06, 77713.77}, {7, 0.83, 775.52},
+        {5, 4.66, 1577.34}, {4, 1.03, 7.11}, {4, 3.44, 5573.14},
+        {3, 5.14, 796.3}, {3, 6.05, 5507.55}, {3, 1.19, 242.73},
+        {3, 6.12, 529.69}, {3, 0.31, 398.15}, {3, 2.28, 553.57},
+        {2, 4.38, 5223.69}, {2, 3.75, 0.98}
+    };
+
+    private static final double[][] L3 = {
+        {289, 5.844, 6283.076}, {35, 0, 0}, {17, 5.49, 12566.15},
+        {3, 5.2, 155.42}, {1, 4.72, 3.52}, {1, 5.3, 18849.23},
+        {1, 5.97, 242.73}
+    };
+
+    private static final double[][] L4 = {
+        {114, 3.142, 0}, {8, 4.13, 6283.08}, {1, 3.84, 12566.15}
+    };
+
+    private static final double[][] L5 = {
+        {1, 3.14, 0}
+    };
+
+    /**
+     * 日地距离级数（只取主要项，仅用于光行差）
+     */
+    private static final double[][] R0 = {
+        {100013989, 0, 0}, {1670700, 3.0984635, 6283.07585}, {13956, 3.05525, 12566.1517},
+        {3084, 5.1985, 77713.7715}, {1628, 1.1739, 5753.3849}, {1576, 2.8469, 7860.4194}
+    };
+
+    private static final double[][] R1 = {
+        {103019, 1.10749, 6283.07585}, {1721, 1.0644, 12566.1517}
+    };
+
+    /**
+     * 全部节气交节时刻（北京时间分钟数），按时间升序
+     */
+    private static final int[] TERM_MINUTES = buildTable();
+
+    private JieQiCalculator() {
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 北京时间转为表内使用的分钟数
+     */
+    public static int toMinute(int year, int month, int day, int hour, int minute) {
+        return (int) (epochDay(year, month, day) * 1440 + hour * 60 + minute);
+    }
+
+    public static int toMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toLocalDate().toEpochDay() * 1440
+                + dateTime.getHour() * 60 + dateTime.getMinute());
+    }
+
+    /**
+     * 指定时刻所在的节气（最后一个交节时刻不晚于该时刻的节气），返回全表序号
+     *
+     * @throws IllegalArgumentException 超出节气表范围
+     */
+    public static int termIndexAt(int minute) {
+        if (minute < TERM_MINUTES[0] || minute >= TERM_MINUTES[TERM_MINUTES.length - 1]) {
+            throw new IllegalArgumentException("超出节气表范围（" + START_YEAR + "-" + END_YEAR + "）");
+        }
+        int pos = Arrays.binarySearch(TERM_MINUTES, minute);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    /**
+     * 指定时刻所在的节（立春、惊蛰...），即节气月的起点
+     */
+    public static int jieIndexAt(int minute) {
+        int index = termIndexAt(minute);
+        return index - (index & 1);
+    }
+
+    /**
+     * 指定时刻所在的中气（雨水、春分...），即月将的起点
+     */
+    public static int zhongQiIndexAt(int minute) {
+        int index = termIndexAt(minute);
+        return (index & 1) == 1 ? index : index - 1;
+    }
+
+    /**
+     * 节气交节时刻（分钟数）
+     */
+    public static int termMinute(int termIndex) {
+        return TERM_MINUTES[termIndex];
+    }
+
+    /**
+     * 节气在年内的序号（0=小寒 ... 23=冬至）
+     */
+    public static int termOrder(int termIndex) {
+        return termIndex % 24;
+    }
+
+    /**
+     * 节气所在公历年份
+     */
+    public static int termYear(int termIndex) {
+        return START_YEAR + termIndex / 24;
+    }
+
+    public static String termName(int termIndex) {
+        return NAMES[termIndex % 24];
+    }
+
+    /**
+     * 节气交节时刻（北京时间）
+     */
+    public static LocalDateTime termTime(int termIndex) {
+        return LocalDateTime.of(1970, 1, 1, 0, 0).plusMinutes(TERM_MINUTES[termIndex]);
+    }
+
+    /**
+     * 指定时刻的干支纪年年份（以立春为界）
+     */
+    public static int ganZhiYearAt(int minute) {
+        int index = termIndexAt(minute);
+        return termOrder(index) >= 2 ? termYear(index) : termYear(index) - 1;
+    }
+
+    /**
+     * 指定时刻的节气月地支索引：立春起寅月、惊蛰起卯月 ... 大雪起子月、小寒起丑月
+     */
+    public static int monthZhiAt(int minute) {
+        return (termOrder(jieIndexAt(minute)) / 2 + 1) % 12;
+    }
+
+    /**
+     * 指定时刻的月将地支索引，月将随中气更替：
+     * 雨水后亥将、春分后戌将、谷雨后酉将、小满后申将、夏至后未将、大暑后午将，
+     * 处暑后巳将、秋分后辰将、霜降后卯将、小雪后寅将、冬至后丑将、大寒后子将
+     */
+    public static int yueJiangAt(int minute) {
+        return (12 - termOrder(zhongQiIndexAt(minute)) / 2) % 12;
+    }
+
+    // ========== 天文计算 ==========
+
+    /**
+     * 计算某年某个节气的交节时刻（儒略日，力学时 TT）
+     *
+     * @param year 公历年份
+     * @param order 年内序号（0=小寒 ... 23=冬至）
+     */
+    static double termJde(int year, int order) {
+        double target = (285 + 15 * order) % 360;
+        // 初值：以 2000 年春分为基准按回归年均分
+        double jde = 2451623.816 + (year - 2000) * TROPICAL_YEAR + (order - 5) * TROPICAL_YEAR / 24;
+        for (int i = 0; i < 20; i++) {
+            double diff = target - apparentSolarLongitude(jde);
+            diff -= 360 * Math.floor(diff / 360 + 0.5);
+            jde += diff * TROPICAL_YEAR / 360;
+            if (Math.abs(diff) < 1e-7) {
+                break;
+            }
+        }
+        return jde;
+    }
+
+    /**
+     * 太阳视黄经（度），jde 为力学时儒略日
+     */
+    static double apparentSolarLongitude(double jde) {
+        double tau = (jde - J2000) / 365250;
+        double t = tau * 10;
+
+        double l = (series(L0, tau)
+                + series(L1, tau) * tau
+                + series(L2, tau) * tau * tau
+                + series(L3, tau) * tau * tau * tau
+                + series(L4, tau) * tau * tau * tau * tau
+                + series(L5, tau) * tau * tau * tau * tau * tau) / 1e8;
+        double r = (series(R0, tau) + series(R1, tau) * tau) / 1e8;
+
+        // 地心黄经 = 日心黄经 + 180°，再转换到 FK5 系统
+        double theta = Math.toDegrees(l) + 180;
+        theta -= 0.09033 / 3600;
+
+        // 章动（主要项）
+        double omega = Math.toRadians(125.04452 - 1934.136261 * t);
+        double sunMean = Math.toRadians(280.4665 + 36000.7698 * t);
+        double moonMean = Math.toRadians(218.3165 + 481267.8813 * t);
+        double deltaPsi = -17.20 * Math.sin(omega) - 1.32 * Math.sin(2 * sunMean)
+                - 0.23 * Math.sin(2 * moonMean) + 0.21 * Math.sin(2 * omega);
+
+        // 光行差
+        double aberration = -20.4898 / r;
+
+        double lambda = theta + (deltaPsi + aberration) / 3600;
+        return lambda - 360 * Math.floor(lambda / 360);
+    }
+
+    private static double series(double[][] terms, double tau) {
+        double sum = 0;
+        for (double[] term : terms) {
+            sum += term[0] * Math.cos(term[1] + term[2] * tau);
+        }
+        return sum;
+    }
+
+    /**
+     * ΔT = TT - UT（秒），Espenak & Meeus 多项式，适用于 1900-2150 年
+     */
+    static double deltaT(double year) {
+        double t;
+        if (year < 1920) {
+            t = year - 1900;
+            return -2.79 + 1.494119 * t - 0.0598939 * t * t + 0.0061966 * t * t * t - 0.000197 * t * t * t * t;
+        }
+        if (year < 1941) {
+            t = year - 1920;
+            return 21.20 + 0.84493 * t - 0.076100 * t * t + 0.0020936 * t * t * t;
+        }
+        if (year < 1961) {
+            t = year - 1950;
+            return 29.07 + 0.407 * t - t * t / 233 + t * t * t / 2547;
+        }
+        if (year < 1986) {
+            t = year - 1975;
+            return 45.45 + 1.067 * t - t * t / 260 - t * t * t / 718;
+        }
+        if (year < 2005) {
+            t = year - 2000;
+            return 63.86 + 0.3345 * t - 0.060374 * t * t + 0.0017275 * t * t * t
+                    + 0.000651814 * t * t * t * t + 0.00002373599 * t * t * t * t * t;
+        }
+        if (year < 2050) {
+            t = year - 2000;
+            return 62.92 + 0.32217 * t + 0.005589 * t * t;
+        }
+        double u = (year - 1820) / 100;
+        return -20 + 32 * u * u - 0.5628 * (2150 - year);
+    }
+
+    private static int[] buildTable() {
+        int[] table = new int[(END_YEAR - START_YEAR + 1) * 24];
+        for (int year = START_YEAR; year <= END_YEAR; year++) {
+            for (int order = 0; order < 24; order++) {
+                double jde = termJde(year, order);
+                double jdUt = jde - deltaT(year + (order + 0.5) / 24) / 86400;
+                table[(year - START_YEAR) * 24 + order] =
+                        (int) Math.round((jdUt - UNIX_EPOCH_JD) * 1440) + BEIJING_OFFSET_MINUTES;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 公历日期距 1970-01-01 的天数
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,155 @@
+package xw.szbz.cn.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * 增量解析流式返回的 JSON 对象，顶层字段的值一解析完整就回调
+ *
+ * 使用 Jackson 非阻塞解析器，文本片段到达后立即喂入，不等待完整响应；
+ * 顶层字段的值先复制到 TokenBuffer，值结束时转为 JsonNode。
+ * 根节点不是对象、JSON 不合法或不完整时停止增量解析（{@link #isFailed()}），由调用方处理完整文本。非线程安全。
+ */
+public class JsonFieldStreamParser {
+
+    private final ObjectMapper objectMapper;
+    private final BiConsumer<String, JsonNode> fieldCallback;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    // 嵌套深度：根对象内为 1
+    private int depth;
+    private String fieldName;
+    private TokenBuffer value;
+    private boolean completed;
+    private boolean failed;
+    private int fieldCount;
+
+    public JsonFieldStreamParser(ObjectMapper objectMapper, BiConsumer<String, JsonNode> fieldCallback) {
+        this.objectMapper = objectMapper;
+        this.fieldCallback = fieldCallback;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("创建非阻塞 JSON 解析器失败", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 输入一段 JSON 文本
+     */
+    public void feed(String chunk) {
+        if (failed || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    /**
+     * 输入结束
+     */
+    public void finish() {
+        if (failed) {
+            return;
+        }
+        feeder.endOfInput();
+        try {
+            drain();
+        } catch (IOException e) {
+            failed = true;
+        }
+        // 输入在根对象结束前截断
+        if (!completed) {
+            failed = true;
+        }
+    }
+
+    /**
+     * 是否已停止增量解析（根节点不是对象、JSON 不合法或不完整）
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * 已回调的字段数
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!failed && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        if (depth == 0) {
+            if (token == JsonToken.START_OBJECT && !completed) {
+                depth = 1;
+            } else {
+                failed = true;
+            }
+            return;
+        }
+
+        if (depth == 1) {
+            if (token == JsonToken.FIELD_NAME) {
+                fieldName = parser.currentName();
+            } else if (token == JsonToken.END_OBJECT) {
+                // 非阻塞解析器对 {"b": } 不报错，字段名后直接结束视为不合法
+                if (fieldName != null) {
+                    failed = true;
+                    return;
+                }
+                depth = 0;
+                completed = true;
+            } else {
+                value = new TokenBuffer(objectMapper, false);
+                value.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth = 2;
+                } else {
+                    emit();
+                }
+            }
+            return;
+        }
+
+        value.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd() && --depth == 1) {
+            emit();
+        }
+    }
+
+    private void emit() throws IOException {
+        JsonNode node;
+        try (JsonParser buffered = value.asParser(objectMapper)) {
+            node = objectMapper.readTree(buffered);
+        }
+        String name = fieldName;
+        value = null;
+        fieldName = null;
+        fieldCount++;
+        fieldCallback.accept(name, node);
+    }
+}
@@ -0,0 +1,91 @@
+package xw.szbz.cn.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ *
+ * 每个槽位带一个序号：序号等于写位置时槽位空闲，等于写位置 + 1 时已写入。
+ * 生产者 CAS 抢占写位置后写入元素并发布序号；消费者只有一个线程，读位置不需要 CAS。
+ * 容量向上取整为 2 的幂。
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity 必须在 2 到 2^30 之间");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 放入元素（任意线程）
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出元素（只能由消费者线程调用）
+     * @return 队列为空时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, position + slots.length);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * 当前元素数（近似值）
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
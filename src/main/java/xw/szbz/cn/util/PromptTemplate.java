@@ -0,0 +1,96 @@
+package xw.szbz.cn.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板
+ * 解析一次，把模板拆成"文本片段 / 占位符"交替的序列，渲染时单遍拼接到预估好容量的 StringBuilder。
+ *
+ * 占位符格式为 ${name}；变量表中没有的占位符原样保留，变量值为 null 时替换为空字符串。
+ * 变量值只插入一次，值里即使包含 ${...} 也不会被再次替换。
+ */
+public final class PromptTemplate {
+
+    /** literals[i] 在 names[i] 之前，literals 比 names 多一个（末尾文本） */
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 解析模板文本
+     */
+    public static PromptTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (true) {
+            int start = text.indexOf("${", position);
+            int end = start < 0 ? -1 : text.indexOf('}', start + 2);
+            if (end < 0) {
+                literal.append(text, position, text.length());
+                break;
+            }
+            literal.append(text, position, start);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            names.add(text.substring(start + 2, end));
+            position = end + 1;
+        }
+        literals.add(literal.toString());
+        return new PromptTemplate(literals.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    /**
+     * 渲染模板
+     */
+    public String render(Map<String, String> variables) {
+        int capacity = literalLength;
+        for (String name : names) {
+            capacity += valueLength(variables, name);
+        }
+
+        StringBuilder builder = new StringBuilder(capacity);
+        for (int i = 0; i < names.length; i++) {
+            builder.append(literals[i]);
+            String name = names[i];
+            if (variables.containsKey(name)) {
+                String value = variables.get(name);
+                if (value != null) {
+                    builder.append(value);
+                }
+            } else {
+                builder.append("${").append(name).append('}');
+            }
+        }
+        builder.append(literals[names.length]);
+        return builder.toString();
+    }
+
+    /**
+     * 占位符数量
+     */
+    public int getPlaceholderCount() {
+        return names.length;
+    }
+
+    private static int valueLength(Map<String, String> variables, String name) {
+        if (!variables.containsKey(name)) {
+            return name.length() + 3;
+        }
+        String value = variables.get(name);
+        return value != null ? value.length() : 0;
+    }
+}
@@ -1,28 +1,54 @@
 package xw.szbz.cn.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
 /**
  * 提示词模板工具类
  * 用于加载和渲染提示词模板
+ *
+ * 模板读取后编译为 {@link PromptTemplate} 并缓存，请求路径上不再读盘；
+ * 挂载目录（prompt.base.path）中的模板被修改、新增或删除时，由目录监听线程使对应缓存失效
  */
 @Component
 public class PromptTemplateUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(PromptTemplateUtil.class);
+
     @Value("${prompt.base.path:/app/templates}")
     private String promptBasePath;
 
+    @Value("${prompt.watch.enabled:true}")
+    private boolean watchEnabled = true;
+
+    private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, PromptTemplate> jarTemplates = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+
     /**
      * 加载六壬预测提示词模板并替换变量
      *
@@ -92,38 +118,14 @@ public class PromptTemplateUtil {
 
     /**
      * 通用模板渲染方法
+     * 模板首次使用时读取并编译，之后直接使用缓存；挂载目录中的文件变化由目录监听失效对应缓存
      * 
      * @param templatePath 模板文件路径（相对于resources目录）
      * @param variables 变量映射表
      * @return 渲染后的文本
      */
     public String renderTemplate(String templatePath, Map<String, String> variables) {
-        try {
-            // 1. 优先从文件系统（挂载目录）读取
-            String fullPath = Paths.get(promptBasePath, templatePath).toString();
-            Resource fileResource = new FileSystemResource(fullPath);
-
-            String template;
-            if (fileResource.exists()) {
-                // 从挂载目录读取
-                template = Files.readString(fileResource.getFile().toPath(), StandardCharsets.UTF_8);
-            } else {
-                // 回退到类路径（兼容旧逻辑）
-                ClassPathResource classPathResource = new ClassPathResource(templatePath);
-                template = new String(classPathResource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            }
-            // 替换所有变量
-            String result = template;
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                String placeholder = "${" + entry.getKey() + "}";
-                String value = entry.getValue() != null ? entry.getValue() : "";
-                result = result.replace(placeholder, value);
-            }
-
-            return result;
-        } catch (IOException e) {
-            throw new RuntimeException("无法加载模板文件: " + templatePath, e);
-        }
+        return templates.computeIfAbsent(templatePath, this::loadTemplate).render(variables);
     }
 
     /**
@@ -134,22 +136,119 @@ public class PromptTemplateUtil {
      * @return 渲染后的文本
      */
     public String renderTemplateFromJar(String templatePath, Map<String, String> variables) {
+        return jarTemplates.computeIfAbsent(templatePath, path -> PromptTemplate.compile(readClassPath(path)))
+                .render(variables);
+    }
+
+    /**
+     * 使某个模板的缓存失效，下次使用时重新读取
+     */
+    public void invalidate(String templatePath) {
+        if (templates.remove(templatePath) != null) {
+            logger.info("提示词模板已变更，下次使用时重新加载: {}", templatePath);
+        }
+    }
+
+    /**
+     * 启动挂载目录监听（目录不存在时只使用类路径模板，不监听）
+     */
+    @PostConstruct
+    public void startWatcher() {
+        Path basePath = Paths.get(promptBasePath);
+        if (!watchEnabled || !Files.isDirectory(basePath)) {
+            return;
+        }
         try {
-            // 从类路径读取资源（支持jar包）
-            ClassPathResource resource = new ClassPathResource(templatePath);
-            String template = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            
-            // 替换所有变量
-            String result = template;
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                String placeholder = "${" + entry.getKey() + "}";
-                String value = entry.getValue() != null ? entry.getValue() : "";
-                result = result.replace(placeholder, value);
+            watchService = basePath.getFileSystem().newWatchService();
+            registerTree(basePath);
+        } catch (IOException e) {
+            logger.warn("无法监听提示词模板目录 {}，模板变更需重启生效: {}", promptBasePath, e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(() -> watchLoop(basePath), "prompt-template-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("已开始监听提示词模板目录: {}", promptBasePath);
+    }
+
+    @PreDestroy
+    public void stopWatcher() {
+        WatchService current = watchService;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.debug("关闭模板目录监听失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void watchLoop(Path basePath) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchKeys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // 事件丢失时全部重新加载
+                    templates.clear();
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerTree(changed);
+                    } catch (IOException e) {
+                        logger.warn("无法监听新增的模板目录 {}: {}", changed, e.getMessage());
+                    }
+                    templates.clear();
+                    continue;
+                }
+                invalidate(basePath.relativize(changed).toString().replace('\\', '/'));
+            }
+            if (!key.reset()) {
+                watchKeys.remove(key);
+            }
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchKeys.put(key, dir);
             }
-            
-            return result;
+        }
+    }
+
+    /**
+     * 读取并编译模板：优先从文件系统（挂载目录）读取，不存在时回退到类路径
+     */
+    private PromptTemplate loadTemplate(String templatePath) {
+        Path file = Paths.get(promptBasePath, templatePath);
+        try {
+            String template = Files.isRegularFile(file)
+                    ? Files.readString(file, StandardCharsets.UTF_8)
+                    : readClassPath(templatePath);
+            PromptTemplate compiled = PromptTemplate.compile(template);
+            logger.info("已加载提示词模板: {}（{} 个占位符）", templatePath, compiled.getPlaceholderCount());
+            return compiled;
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法加载模板文件: " + templatePath, e);
+        }
+    }
+
+    private static String readClassPath(String templatePath) {
+        try (InputStream in = new ClassPathResource(templatePath).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
         } catch (IOException e) {
-            throw new RuntimeException("无法加载模板文件: " + templatePath, e);
+            throw new UncheckedIOException("无法加载模板文件: " + templatePath, e);
         }
     }
 }
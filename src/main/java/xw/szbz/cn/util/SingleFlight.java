@@ -0,0 +1,64 @@
+package xw.szbz.cn.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并（single-flight）
+ * 同一个 key 的调用在进行中时，后到的调用直接挂到进行中的 future 上，不再发起新的调用；
+ * 调用完成后立即移除，之后的请求重新发起（不缓存结果）。
+ *
+ * 每个调用方拿到的是共享 future 的副本，取消自己的副本不影响其他调用方。
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 执行或加入进行中的调用
+     * @param call 真正发起调用，仅在没有进行中的相同调用时执行
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return existing.copy();
+        }
+
+        executed.increment();
+        CompletableFuture<V> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((value, error) -> {
+            // 先移除再完成，完成回调中再次发起的相同调用会开始新的一次
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * 统计信息（实际发起次数、合并次数、进行中数量）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("executed", executed.sum());
+        stats.put("shared", shared.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,207 @@
+package xw.szbz.cn.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 有界滑动窗口限流器
+ *
+ * 每个 key（IP、路由 + IP）只占一个 AtomicLong，打包保存 [窗口序号 32 位 | 上一窗口计数 16 位 | 当前窗口计数 16 位]，
+ * 按"上一窗口计数 × 剩余比例 + 当前窗口计数"估算最近一个窗口内的请求数，CAS 更新，无锁。
+ *
+ * 容量有界：条目分新、旧两代存放，每代最多 maxEntries / 2 个。
+ * 新一代写满或跨过一个窗口时整体轮换（旧一代直接丢弃，新一代变为旧一代），
+ * 旧一代中再次被访问的条目提升到新一代。效果上近似 LRU + TTL：
+ * 两个窗口内无请求的条目必然被淘汰（此时其计数已无意义），淘汰开销与条目数无关。
+ */
+public class SlidingWindowRateLimiter {
+
+    private static final int MAX_COUNT = 0xFFFF;
+
+    /**
+     * 一次轮换产生的两代条目
+     */
+    private static final class Generations {
+        private final Map<String, AtomicLong> current;
+        private final Map<String, AtomicLong> previous;
+        private final int createdWindow;
+
+        private Generations(Map<String, AtomicLong> previous, int capacity, int createdWindow) {
+            // 按一代的容量预分配，轮换后写满的过程中不再扩容
+            this.current = new ConcurrentHashMap<>(capacity);
+            this.previous = previous;
+            this.createdWindow = createdWindow;
+        }
+    }
+
+    private final AtomicReference<Generations> generations;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private final int maxEntries;
+    private final int generationSize;
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    public SlidingWindowRateLimiter(int maxEntries, long windowMillis) {
+        this(maxEntries, windowMillis, System::currentTimeMillis);
+    }
+
+    public SlidingWindowRateLimiter(int maxEntries, long windowMillis, LongSupplier clock) {
+        if (maxEntries < 2 || windowMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries 必须不小于 2，windowMillis 必须大于 0");
+        }
+        this.maxEntries = maxEntries;
+        this.generationSize = maxEntries / 2;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.generations = new AtomicReference<>(
+                new Generations(new ConcurrentHashMap<>(), generationSize, (int) (clock.getAsLong() / windowMillis)));
+    }
+
+    /**
+     * 记录一次请求
+     * @param limit 每个窗口允许的请求数
+     * @return 未超限返回 true；超限返回 false（超限的请求不计数）
+     */
+    public boolean tryAcquire(String key, int limit) {
+        long now = clock.getAsLong();
+        int index = (int) (now / windowMillis);
+        long elapsed = now % windowMillis;
+        AtomicLong state = lookup(key, index);
+
+        while (true) {
+            long current = state.get();
+            int previous = previousCount(current, index);
+            int count = currentCount(current, index);
+            // previous × (window - elapsed) / window + count + 1 > limit
+            if (previous * (windowMillis - elapsed) + (count + 1L) * windowMillis > (long) limit * windowMillis) {
+                rejected.increment();
+                return false;
+            }
+            if (state.compareAndSet(current, pack(index, previous, Math.min(count + 1, MAX_COUNT)))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 清除某个 key 的计数
+     */
+    public void reset(String key) {
+        Generations g = generations.get();
+        g.current.remove(key);
+        g.previous.remove(key);
+    }
+
+    /**
+     * 条目数（提升中的条目可能在两代中各计一次）
+     */
+    public int size() {
+        Generations g = generations.get();
+        return g.current.size() + g.previous.size();
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("windowMillis", windowMillis);
+        stats.put("evictions", evictions.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    /**
+     * 当前各 key 的计数快照（用于管理接口）
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        long now = clock.getAsLong();
+        int index = (int) (now / windowMillis);
+        long resetTime = (now / windowMillis + 1) * windowMillis;
+        Generations g = generations.get();
+
+        Map<String, Map<String, Object>> entries = new HashMap<>();
+        for (Map<String, AtomicLong> generation : List.of(g.previous, g.current)) {
+            generation.forEach((key, state) -> {
+                long value = state.get();
+                if (index - windowIndex(value) > 1) {
+                    return;
+                }
+                Map<String, Object> data = new HashMap<>();
+                data.put("requestCount", currentCount(value, index));
+                data.put("previousCount", previousCount(value, index));
+                data.put("resetTime", resetTime);
+                data.put("remainingTime", (resetTime - now) + "ms");
+                entries.put(key, data);
+            });
+        }
+        return entries;
+    }
+
+    /**
+     * 查找或创建 key 的计数，必要时轮换
+     */
+    private AtomicLong lookup(String key, int index) {
+        Generations g = generations.get();
+        if (index != g.createdWindow) {
+            g = rotate(g, index);
+        }
+        AtomicLong state = g.current.get(key);
+        if (state != null) {
+            return state;
+        }
+        if (g.current.size() >= generationSize) {
+            g = rotate(g, index);
+        }
+        // 旧一代中的条目提升到新一代，沿用同一个计数对象
+        AtomicLong candidate = g.previous.get(key);
+        if (candidate == null) {
+            candidate = new AtomicLong(pack(index, 0, 0));
+        }
+        AtomicLong existing = g.current.putIfAbsent(key, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    /**
+     * 新一代变为旧一代，丢弃原旧一代；并发轮换时只有一个线程成功，其余线程使用其结果
+     */
+    private Generations rotate(Generations expected, int index) {
+        Generations next = new Generations(expected.current, generationSize, index);
+        if (generations.compareAndSet(expected, next)) {
+            evictions.add(expected.previous.size());
+            return next;
+        }
+        return generations.get();
+    }
+
+    private static long pack(int index, int previous, int count) {
+        return ((long) index << 32) | ((long) previous << 16) | count;
+    }
+
+    private static int windowIndex(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int previousCount(long value, int index) {
+        int diff = index - windowIndex(value);
+        if (diff == 0) {
+            return (int) (value >>> 16) & MAX_COUNT;
+        }
+        // 进入下一窗口时，原当前窗口计数变为上一窗口计数
+        return diff == 1 ? (int) value & MAX_COUNT : 0;
+    }
+
+    private static int currentCount(long value, int index) {
+        return windowIndex(value) == index ? (int) value & MAX_COUNT : 0;
+    }
+}
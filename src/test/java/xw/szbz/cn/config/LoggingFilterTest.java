@@ -0,0 +1,164 @@
+package xw.szbz.cn.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import xw.szbz.cn.service.AccessLogService;
+import xw.szbz.cn.service.AccessLogService.AccessLogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 访问日志过滤器测试
+ */
+class LoggingFilterTest {
+
+    @Mock
+    private AccessLogService accessLogService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("测试 JSON 响应透传给客户端并记录内容")
+    void testJsonResponse() throws Exception {
+        LoggingFilter filter = new LoggingFilter(accessLogService, "body", "", 1.0, 4096, 3000);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/bazi/analyze");
+        request.setContentType("application/json");
+        request.setContent("{\"year\":1990}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chainWriting("application/json", "{\"code\":200}"));
+
+        assertEquals("{\"code\":200}", response.getContentAsString());
+        AccessLogRecord record = captureRecord();
+        assertEquals("/api/bazi/analyze", record.uri());
+        assertEquals(200, record.status());
+        assertEquals("{\"year\":1990}", new String(record.requestBody(), StandardCharsets.UTF_8));
+        assertEquals("{\"code\":200}", new String(record.responseBody(), StandardCharsets.UTF_8));
+        assertFalse(record.truncated());
+        assertFalse(record.streaming());
+    }
+
+    @Test
+    @DisplayName("测试超长响应只记录前缀，客户端收到完整内容")
+    void testTruncated() throws Exception {
+        LoggingFilter filter = new LoggingFilter(accessLogService, "body", "", 1.0, 16, 3000);
+        String body = "x".repeat(1000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/bazi/history"), response,
+                chainWriting("text/plain", body));
+
+        assertEquals(body, response.getContentAsString());
+        AccessLogRecord record = captureRecord();
+        assertEquals(16, record.responseBody().length);
+        assertEquals(1000, record.bodySize());
+        assertTrue(record.truncated());
+    }
+
+    @Test
+    @DisplayName("测试 SSE 响应逐块透传且不复制内容")
+    void testEventStreamNotBuffered() throws Exception {
+        LoggingFilter filter = new LoggingFilter(accessLogService, "body", "", 1.0, 4096, 3000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws java.io.IOException {
+                resp.setContentType("text/event-stream");
+                ServletOutputStream out = resp.getOutputStream();
+                out.write("data: a\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                // 第一块在请求结束前已到达客户端
+                assertEquals("data: a\n\n", response.getContentAsString());
+                out.write("data: b\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/bazi/wenji-stream"), response, chain);
+
+        assertEquals("data: a\n\ndata: b\n\n", response.getContentAsString());
+        AccessLogRecord record = captureRecord();
+        assertTrue(record.streaming());
+        assertNull(record.responseBody());
+        assertEquals(18, record.bodySize());
+    }
+
+    @Test
+    @DisplayName("测试路由详细程度：none 不记录，basic 不包装响应")
+    void testRouteVerbosity() throws Exception {
+        LoggingFilter filter = new LoggingFilter(accessLogService, "body",
+                "/api/security=basic,/api/security/stats=none", 1.0, 4096, 3000);
+        assertEquals(LoggingFilter.Verbosity.NONE, filter.verbosityFor("/api/security/stats"));
+        assertEquals(LoggingFilter.Verbosity.BASIC, filter.verbosityFor("/api/security/blacklist"));
+        assertEquals(LoggingFilter.Verbosity.BODY, filter.verbosityFor("/api/bazi/analyze"));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/security/stats"), response,
+                chainWriting("application/json", "{}"));
+        verifyNoInteractions(accessLogService);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/security/blacklist"), new MockHttpServletResponse(),
+                chainWriting("application/json", "{}"));
+        AccessLogRecord record = captureRecord();
+        assertNull(record.responseBody());
+        assertNull(record.parameters());
+        assertEquals(-1, record.bodySize());
+    }
+
+    @Test
+    @DisplayName("测试采样：未采样的成功请求跳过，错误请求仍记录")
+    void testSampling() throws Exception {
+        LoggingFilter filter = new LoggingFilter(accessLogService, "body", "", 0.0, 4096, 3000);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/bazi/history"), new MockHttpServletResponse(),
+                chainWriting("application/json", "{}"));
+        verify(accessLogService).recordSampledOut();
+        verify(accessLogService, never()).submit(any());
+
+        MockFilterChain failing = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                resp.setStatus(500);
+            }
+        });
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/bazi/history"), new MockHttpServletResponse(), failing);
+        assertEquals(500, captureRecord().status());
+    }
+
+    private AccessLogRecord captureRecord() {
+        ArgumentCaptor<AccessLogRecord> captor = ArgumentCaptor.forClass(AccessLogRecord.class);
+        verify(accessLogService, atLeastOnce()).submit(captor.capture());
+        List<AccessLogRecord> records = captor.getAllValues();
+        return records.get(records.size() - 1);
+    }
+
+    private static MockFilterChain chainWriting(String contentType, String body) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws java.io.IOException {
+                // 与控制器一样读取请求体，请求包装对象才会缓存内容
+                req.getInputStream().readAllBytes();
+                resp.setContentType(contentType);
+                resp.getWriter().write(body);
+            }
+        });
+    }
+}
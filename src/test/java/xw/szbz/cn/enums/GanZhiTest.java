@@ -0,0 +1,127 @@
+package xw.szbz.cn.enums;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GanZhi 编码表单元测试
+ */
+class GanZhiTest {
+
+    @Test
+    @DisplayName("测试六十甲子编码往返")
+    void testGanZhiIndexRoundTrip() {
+        for (int i = 0; i < 60; i++) {
+            int gan = GanZhi.gan(i);
+            int zhi = GanZhi.zhi(i);
+            assertEquals(i, GanZhi.of(gan, zhi));
+            assertEquals(TianGan.fromIndex(gan).getName() + DiZhi.fromIndex(zhi).getName(), GanZhi.ganZhiName(i));
+        }
+        assertEquals("甲子", GanZhi.ganZhiName(0));
+        assertEquals("癸亥", GanZhi.ganZhiName(59));
+        assertEquals(10, GanZhi.of(0, 10)); // 甲戌
+    }
+
+    @Test
+    @DisplayName("测试五行编码与WuXing一致")
+    void testWuXing() {
+        for (TianGan gan : TianGan.values()) {
+            assertEquals(WuXing.fromTianGan(gan.getName()).ordinal(), GanZhi.ganWuXing(gan.getIndex()));
+        }
+        for (DiZhi zhi : DiZhi.values()) {
+            assertEquals(WuXing.fromDiZhi(zhi.getName()).ordinal(), GanZhi.zhiWuXing(zhi.getIndex()));
+        }
+        assertTrue(GanZhi.isKe(WuXing.MU.ordinal(), WuXing.TU.ordinal()));
+        assertTrue(GanZhi.isKe(WuXing.JIN.ordinal(), WuXing.MU.ordinal()));
+        assertFalse(GanZhi.isKe(WuXing.TU.ordinal(), WuXing.MU.ordinal()));
+        assertTrue(GanZhi.isSheng(WuXing.SHUI.ordinal(), WuXing.MU.ordinal()));
+    }
+
+    @ParameterizedTest
+    @DisplayName("测试地支冲刑合害")
+    @CsvSource({
+            "子, 午, 卯, 丑, 未",
+            "丑, 未, 戌, 子, 午",
+            "寅, 申, 巳, 亥, 巳",
+            "卯, 酉, 子, 戌, 辰",
+            "辰, 戌, 辰, 酉, 卯",
+            "巳, 亥, 申, 申, 寅",
+            "午, 子, 午, 未, 丑",
+            "未, 丑, 丑, 午, 子",
+            "申, 寅, 寅, 巳, 亥",
+            "酉, 卯, 酉, 辰, 戌",
+            "戌, 辰, 未, 卯, 酉",
+            "亥, 巳, 亥, 寅, 申"
+    })
+    void testZhiRelations(String zhi, String chong, String xing, String he, String hai) {
+        int index = DiZhi.fromName(zhi).getIndex();
+        assertEquals(chong, GanZhi.zhiName(GanZhi.chong(index)));
+        assertEquals(xing, GanZhi.zhiName(GanZhi.xing(index)));
+        assertEquals(he, GanZhi.zhiName(GanZhi.liuHe(index)));
+        assertEquals(hai, GanZhi.zhiName(GanZhi.hai(index)));
+    }
+
+    @ParameterizedTest
+    @DisplayName("测试天干五合与寄宫")
+    @CsvSource({
+            "甲, 己, 寅",
+            "乙, 庚, 辰",
+            "丙, 辛, 巳",
+            "丁, 壬, 未",
+            "戊, 癸, 巳",
+            "己, 甲, 未",
+            "庚, 乙, 申",
+            "辛, 丙, 戌",
+            "壬, 丁, 亥",
+            "癸, 戊, 丑"
+    })
+    void testGanRelations(String gan, String he, String jiGong) {
+        int index = TianGan.fromName(gan).getIndex();
+        assertEquals(he, GanZhi.ganName(GanZhi.heGan(index)));
+        assertEquals(jiGong, GanZhi.zhiName(GanZhi.jiGong(index)));
+    }
+
+    @ParameterizedTest
+    @DisplayName("测试五虎遁月与五鼠遁时")
+    @CsvSource({
+            "甲, 丙, 甲",
+            "乙, 戊, 丙",
+            "丙, 庚, 戊",
+            "丁, 壬, 庚",
+            "戊, 甲, 壬",
+            "己, 丙, 甲",
+            "庚, 戊, 丙",
+            "辛, 庚, 戊",
+            "壬, 壬, 庚",
+            "癸, 甲, 壬"
+    })
+    void testDunGan(String gan, String yinMonthGan, String ziHourGan) {
+        int index = TianGan.fromName(gan).getIndex();
+        assertEquals(yinMonthGan, GanZhi.ganName(GanZhi.monthGan(index, DiZhi.YIN.getIndex())));
+        assertEquals(ziHourGan, GanZhi.ganName(GanZhi.hourGan(index, DiZhi.ZI.getIndex())));
+        // 丑月接在子月之后，亥时接在戌时之后
+        assertEquals((GanZhi.monthGan(index, DiZhi.ZI.getIndex()) + 1) % 10, GanZhi.monthGan(index, DiZhi.CHOU.getIndex()));
+        assertEquals((GanZhi.hourGan(index, DiZhi.XU.getIndex()) + 1) % 10, GanZhi.hourGan(index, DiZhi.HAI.getIndex()));
+    }
+
+    @Test
+    @DisplayName("测试年干支序号")
+    void testOfYear() {
+        assertEquals("甲子", GanZhi.ganZhiName(GanZhi.ofYear(1984)));
+        assertEquals("乙巳", GanZhi.ganZhiName(GanZhi.ofYear(2025)));
+        assertEquals("癸亥", GanZhi.ganZhiName(GanZhi.ofYear(1983)));
+    }
+
+    @Test
+    @DisplayName("测试旬首")
+    void testXunShou() {
+        // 辛卯日在甲申旬
+        assertEquals(DiZhi.SHEN.getIndex(), GanZhi.xunShouZhi(TianGan.XIN.getIndex(), DiZhi.MAO.getIndex()));
+        // 甲子日在甲子旬
+        assertEquals(DiZhi.ZI.getIndex(), GanZhi.xunShouZhi(TianGan.JIA.getIndex(), DiZhi.ZI.getIndex()));
+    }
+}
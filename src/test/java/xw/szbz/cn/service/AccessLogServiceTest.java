@@ -0,0 +1,71 @@
+package xw.szbz.cn.service;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.service.AccessLogService.AccessLogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 访问日志异步写出服务测试
+ */
+class AccessLogServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试完整 JSON 响应原样嵌入，截断的响应按字符串记录")
+    void testSerialization() throws Exception {
+        AccessLogService service = new AccessLogService(10, line -> { });
+
+        JsonNode full = serialize(service, record("{\"code\":200,\"data\":[1,2]}", false, 25));
+        assertEquals(200, full.at("/response/body/code").asInt());
+        assertEquals("1990", full.at("/request/parameters/year/0").asText());
+        assertTrue(full.at("/response/bodySize").isMissingNode());
+
+        JsonNode truncated = serialize(service, record("{\"code\":2", true, 5000));
+        assertEquals("{\"code\":2", truncated.at("/response/body").asText());
+        assertEquals("5000 bytes", truncated.at("/response/bodySize").asText());
+    }
+
+    @Test
+    @DisplayName("测试队列满时丢弃，写线程启动后写完队列")
+    void testQueue() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        AccessLogService service = new AccessLogService(2, lines::add);
+
+        assertTrue(service.submit(record("{}", false, 2)));
+        assertTrue(service.submit(record("{}", false, 2)));
+        assertFalse(service.submit(record("{}", false, 2)));
+        assertEquals(1L, service.getStats().get("dropped"));
+
+        service.start();
+        service.destroy();
+        assertEquals(2, lines.size());
+        assertEquals(2L, service.getStats().get("written"));
+        assertEquals("/api/bazi/analyze", objectMapper.readTree(lines.get(0)).get("uri").asText());
+    }
+
+    private JsonNode serialize(AccessLogService service, AccessLogRecord record) throws Exception {
+        StringWriter out = new StringWriter();
+        service.write(record, out);
+        return objectMapper.readTree(out.toString());
+    }
+
+    private static AccessLogRecord record(String responseBody, boolean truncated, long bodySize) {
+        return new AccessLogRecord(System.currentTimeMillis(), "POST", "/api/bazi/analyze", null,
+                null, false, Map.of("year", new String[]{"1990"}),
+                200, 12, "application/json", bodySize,
+                responseBody.getBytes(StandardCharsets.UTF_8), truncated, false);
+    }
+}
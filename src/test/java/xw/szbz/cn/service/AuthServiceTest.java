@@ -42,6 +42,12 @@ class AuthServiceTest {
     
     @Mock
     private DataMaskingService maskingService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private WebUserCacheService webUserCacheService;
     
     @InjectMocks
     private AuthService authService;
@@ -258,6 +264,8 @@ class AuthServiceTest {
         // Then
         verify(enhancedJwtUtil, times(2)).validateToken(anyString());
         verify(enhancedJwtUtil, times(2)).getJtiFromToken(anyString());
+        verify(tokenRevocationService).revoke(eq("jti_access"), anyLong());
+        verify(tokenRevocationService).revoke(eq("jti_refresh"), anyLong());
     }
     
     @Test
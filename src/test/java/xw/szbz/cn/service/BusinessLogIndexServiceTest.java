@@ -0,0 +1,129 @@
+package xw.szbz.cn.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xw.szbz.cn.service.BusinessLogIndexService.SearchResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 业务日志索引查询测试
+ */
+class BusinessLogIndexServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    @DisplayName("测试按 openId + 时间范围、按响应码 + 时间范围查询")
+    void testSearch() throws Exception {
+        Path file = logDir.resolve("business_20250301.log");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            content.append(line("user" + (i % 3), BASE.plusMinutes(i), i % 10 == 0 ? 500 : 200));
+        }
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        BusinessLogIndexService service = new BusinessLogIndexService(logDir, ZONE, 7);
+
+        SearchResult byUser = service.search("user1", BASE.plusMinutes(30), BASE.plusMinutes(59), null, null, 100);
+        assertEquals(10, byUser.matched());
+        assertEquals(10, byUser.lines().size());
+        assertTrue(byUser.lines().get(0).contains("\"openId\":\"user1\""));
+        assertTrue(byUser.lines().get(0).contains(BASE.plusMinutes(31).format(TIME_FORMAT)));
+
+        SearchResult errors = service.search(null, BASE.plusMinutes(60), BASE.plusMinutes(119), 500, 599, 3);
+        assertEquals(6, errors.matched());
+        assertEquals(3, errors.lines().size());
+        assertTrue(errors.lines().stream().allMatch(l -> l.contains("\"responseCode\":500")));
+        assertEquals(java.util.List.of("business_20250301.log"), errors.files());
+    }
+
+    @Test
+    @DisplayName("测试增量索引：只扫描新增的完整行，未写完的半行下次补齐")
+    void testIncremental() throws Exception {
+        Path file = logDir.resolve("business_20250301.log");
+        Files.writeString(file, line("a", BASE, 200) + line("b", BASE.plusMinutes(1), 200), StandardCharsets.UTF_8);
+        BusinessLogIndexService service = new BusinessLogIndexService(logDir, ZONE, 7);
+        assertEquals(2, service.search(null, BASE, BASE.plusHours(1), null, null, 100).matched());
+        long scanned = scannedBytes(service);
+
+        String partial = line("c", BASE.plusMinutes(2), 500);
+        Files.writeString(file, partial.substring(0, 20), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(2, service.search(null, BASE, BASE.plusHours(1), null, null, 100).matched());
+        assertEquals(scanned, scannedBytes(service));
+
+        Files.writeString(file, partial.substring(20), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        SearchResult result = service.search("c", BASE, BASE.plusHours(1), null, null, 100);
+        assertEquals(1, result.matched());
+        assertEquals(Files.size(file), scannedBytes(service));
+    }
+
+    @Test
+    @DisplayName("测试重启后从索引文件加载，不重新扫描日志")
+    void testReloadSidecar() throws Exception {
+        Path file = logDir.resolve("business_20250301.log");
+        Files.writeString(file, line("a", BASE, 200) + line("b", BASE.plusMinutes(1), 503), StandardCharsets.UTF_8);
+        new BusinessLogIndexService(logDir, ZONE, 7).search(null, BASE, BASE.plusHours(1), null, null, 100);
+        assertTrue(Files.exists(logDir.resolve("business_20250301.log.idx")));
+
+        BusinessLogIndexService reloaded = new BusinessLogIndexService(logDir, ZONE, 7);
+        SearchResult result = reloaded.search(null, BASE, BASE.plusHours(1), 500, 599, 100);
+        assertEquals(1, result.matched());
+        assertTrue(result.lines().get(0).contains("\"openId\":\"b\""));
+        assertEquals(0L, scannedBytes(reloaded));
+
+        // 索引文件末尾写坏的条目被截掉，日志变短时重建
+        Files.write(logDir.resolve("business_20250301.log.idx"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        Files.writeString(file, line("z", BASE, 200), StandardCharsets.UTF_8);
+        BusinessLogIndexService rebuilt = new BusinessLogIndexService(logDir, ZONE, 7);
+        SearchResult all = rebuilt.search(null, BASE, BASE.plusHours(1), null, null, 100);
+        assertEquals(1, all.matched());
+        assertTrue(all.lines().get(0).contains("\"openId\":\"z\""));
+    }
+
+    @Test
+    @DisplayName("测试已压缩的日志跳过、参数校验")
+    void testSkippedAndValidation() throws Exception {
+        Files.write(logDir.resolve("business_20250228.log.gz"), new byte[0]);
+        Files.writeString(logDir.resolve("business_20250301.log"), line("a", BASE, 200), StandardCharsets.UTF_8);
+        BusinessLogIndexService service = new BusinessLogIndexService(logDir, ZONE, 7);
+
+        SearchResult result = service.search("a", BASE.minusDays(1), BASE, null, null, 100);
+        assertEquals(1, result.matched());
+        assertEquals(java.util.List.of("business_20250228.log.gz"), result.skippedFiles());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.search(null, BASE, BASE.minusMinutes(1), null, null, 100));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.search(null, BASE, BASE.plusDays(40), null, null, 100));
+    }
+
+    private static String line(String openId, LocalDateTime time, int code) {
+        return "{\"id\":1,\"openId\":\"" + openId + "\",\"requestTime\":\"" + time.format(TIME_FORMAT)
+                + "\",\"aiAnalysis\":\"{\\\"summary\\\":\\\"" + "分析".repeat(10) + "\\\"}\",\"responseCode\":" + code
+                + ",\"responseMessage\":\"ok\"}\n";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long scannedBytes(BusinessLogIndexService service) {
+        Map<String, Object> files = (Map<String, Object>) service.getStats().get("files");
+        Map<String, Object> file = (Map<String, Object>) files.get("business_20250301.log");
+        return (long) file.get("scannedBytes");
+    }
+}
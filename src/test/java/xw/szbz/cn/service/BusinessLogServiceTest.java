@@ -0,0 +1,149 @@
+package xw.szbz.cn.service;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.model.BusinessLog;
+import xw.szbz.cn.service.BusinessLogService.OverflowPolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 业务日志异步写出测试
+ */
+class BusinessLogServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @TempDir
+    Path logDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试日志按提交顺序写入当天文件，关闭时写完队列")
+    void testWriteInOrder() throws Exception {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2025, 3, 1, 10, 0).atZone(ZONE).toInstant(), ZONE);
+        BusinessLogService service = new BusinessLogService(logDir, true, 64, OverflowPolicy.BLOCK,
+                1000, 256, 50, 0, clock);
+        service.start();
+        for (int i = 0; i < 50; i++) {
+            service.log(businessLog("user" + i));
+        }
+        service.destroy();
+
+        List<String> lines = Files.readAllLines(logDir.resolve("business_20250301.log"), StandardCharsets.UTF_8);
+        assertEquals(50, lines.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("user" + i, objectMapper.readTree(lines.get(i)).get("openId").asText());
+        }
+        assertEquals(50L, service.getStats().get("written"));
+        assertEquals(0L, service.getStats().get("dropped"));
+    }
+
+    @Test
+    @DisplayName("测试跨天换文件，旧文件压缩为 gz")
+    void testRollAndCompress() throws Exception {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2025, 3, 1, 23, 59).atZone(ZONE).toInstant(), ZONE);
+        BusinessLogService service = new BusinessLogService(logDir, true, 64, OverflowPolicy.BLOCK,
+                1000, 4096, 10, 1, clock);
+        service.start();
+        service.log(businessLog("before"));
+        waitFor(() -> Files.exists(logDir.resolve("business_20250301.log")));
+
+        clock.set(LocalDateTime.of(2025, 3, 2, 0, 1).atZone(ZONE).toInstant());
+        service.log(businessLog("after"));
+        waitFor(() -> Files.exists(logDir.resolve("business_20250301.log.gz"))
+                && !Files.exists(logDir.resolve("business_20250301.log")));
+        service.destroy();
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(logDir.resolve("business_20250301.log.gz")))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("before", objectMapper.readTree(content.trim()).get("openId").asText());
+        }
+        List<String> today = Files.readAllLines(logDir.resolve("business_20250302.log"), StandardCharsets.UTF_8);
+        assertEquals(1, today.size());
+        assertEquals(1L, service.getStats().get("compressedFiles"));
+    }
+
+    @Test
+    @DisplayName("测试队列满时 drop 策略丢弃并计数")
+    void testDropWhenFull() {
+        BusinessLogService service = new BusinessLogService(logDir, true, 2, OverflowPolicy.DROP,
+                0, 4096, 10, 0, Clock.system(ZONE));
+        // 不启动写线程，队列只进不出
+        for (int i = 0; i < 5; i++) {
+            service.log(businessLog("user" + i));
+        }
+        assertEquals(2, service.getStats().get("queueDepth"));
+        assertEquals(3L, service.getStats().get("dropped"));
+        assertEquals(5L, service.getStats().get("submitted"));
+    }
+
+    @Test
+    @DisplayName("测试 block 策略下并发写入不丢失")
+    void testConcurrentBlock() throws Exception {
+        BusinessLogService service = new BusinessLogService(logDir, true, 4, OverflowPolicy.BLOCK,
+                5000, 1024, 10, 0, Clock.system(ZONE));
+        service.start();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    service.log(businessLog(thread + "-" + i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        service.destroy();
+
+        Path file = logDir.resolve(BusinessLogService.getLogFileName(LocalDate.now(ZONE)));
+        assertEquals(800, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+        assertEquals(0L, service.getStats().get("dropped"));
+    }
+
+    private static BusinessLog businessLog(String openId) {
+        BusinessLog log = new BusinessLog();
+        log.setOpenId(openId);
+        log.setResponseCode(200);
+        log.setAiAnalysis("{\"summary\":\"" + "分析".repeat(20) + "\"}");
+        return log;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(20);
+        }
+    }
+}
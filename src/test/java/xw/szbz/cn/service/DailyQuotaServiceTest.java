@@ -0,0 +1,149 @@
+package xw.szbz.cn.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import xw.szbz.cn.repository.JiTuRepository;
+import xw.szbz.cn.repository.WenJiRepository;
+import xw.szbz.cn.service.DailyQuotaService.Endpoint;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 每日配额服务测试
+ */
+class DailyQuotaServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Mock
+    private WenJiRepository wenJiRepository;
+
+    @Mock
+    private JiTuRepository jiTuRepository;
+
+    @Mock
+    private WriteBehindService writeBehindService;
+
+    private MutableClock clock;
+    private DailyQuotaService quotaService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        clock = new MutableClock(LocalDateTime.of(2025, 3, 1, 10, 0).atZone(ZONE).toInstant(), ZONE);
+        quotaService = new DailyQuotaService(wenJiRepository, jiTuRepository, writeBehindService, clock);
+    }
+
+    @Test
+    @DisplayName("测试首次访问从数据库加载，之后不再查询")
+    void testWarmOnce() {
+        when(wenJiRepository.countByOpenIdAndCreateTimeBetween(eq("u1"), anyLong(), anyLong())).thenReturn(3L);
+
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 5));
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 5));
+        assertFalse(quotaService.tryReserve(Endpoint.WENJI, "u1", 5));
+        assertEquals(5, quotaService.getUsed(Endpoint.WENJI, "u1"));
+
+        verify(wenJiRepository, times(1)).countByOpenIdAndCreateTimeBetween(eq("u1"), anyLong(), anyLong());
+        verifyNoInteractions(jiTuRepository);
+    }
+
+    @Test
+    @DisplayName("测试预热时计入异步写库队列中尚未写入的记录")
+    void testWarmIncludesPendingWrites() {
+        when(wenJiRepository.countByOpenIdAndCreateTimeBetween(eq("u1"), anyLong(), anyLong())).thenReturn(2L);
+        when(writeBehindService.countPendingWenJi("u1")).thenReturn(2);
+
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 5));
+        assertFalse(quotaService.tryReserve(Endpoint.WENJI, "u1", 5));
+        assertEquals(5, quotaService.getUsed(Endpoint.WENJI, "u1"));
+    }
+
+    @Test
+    @DisplayName("测试加载当日范围为本地时区零点到次日零点")
+    void testDayRange() {
+        quotaService.getUsed(Endpoint.JITU, "u1");
+
+        long start = LocalDateTime.of(2025, 3, 1, 0, 0).atZone(ZONE).toInstant().toEpochMilli();
+        long end = LocalDateTime.of(2025, 3, 2, 0, 0).atZone(ZONE).toInstant().toEpochMilli() - 1;
+        verify(jiTuRepository).countByOpenIdAndCreateTimeBetween("u1", start, end);
+    }
+
+    @Test
+    @DisplayName("测试归还配额")
+    void testRelease() {
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+        assertFalse(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+
+        quotaService.release(Endpoint.WENJI, "u1");
+        assertEquals(0, quotaService.getUsed(Endpoint.WENJI, "u1"));
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+
+        // 不同接口、不同用户互不影响
+        assertTrue(quotaService.tryReserve(Endpoint.JITU, "u1", 1));
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u2", 1));
+    }
+
+    @Test
+    @DisplayName("测试零点后换新计数，跨天归还被忽略")
+    void testRollover() {
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+        assertFalse(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+
+        clock.set(LocalDateTime.of(2025, 3, 2, 0, 0, 1).atZone(ZONE).toInstant());
+        quotaService.release(Endpoint.WENJI, "u1");
+        assertEquals(0, quotaService.getUsed(Endpoint.WENJI, "u1"));
+        assertTrue(quotaService.tryReserve(Endpoint.WENJI, "u1", 1));
+        verify(wenJiRepository, times(2)).countByOpenIdAndCreateTimeBetween(eq("u1"), anyLong(), anyLong());
+
+        quotaService.getUsed(Endpoint.JITU, "u2");
+        clock.set(LocalDateTime.of(2025, 3, 3, 0, 0).atZone(ZONE).toInstant());
+        quotaService.getUsed(Endpoint.JITU, "u3");
+        quotaService.evictExpired();
+        // 前一天的计数被清理，再次访问重新加载
+        quotaService.getUsed(Endpoint.JITU, "u2");
+        verify(jiTuRepository, times(2)).countByOpenIdAndCreateTimeBetween(eq("u2"), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("测试并发预占不会超过上限")
+    void testConcurrentReserve() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return quotaService.tryReserve(Endpoint.WENJI, "u1", 5);
+            }));
+        }
+        start.countDown();
+
+        int granted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(5, TimeUnit.SECONDS)) {
+                granted++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(5, granted);
+        verify(wenJiRepository, times(1)).countByOpenIdAndCreateTimeBetween(eq("u1"), anyLong(), anyLong());
+    }
+}
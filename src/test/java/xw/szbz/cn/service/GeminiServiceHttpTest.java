@@ -0,0 +1,306 @@
+package xw.szbz.cn.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import xw.szbz.cn.exception.ServiceException;
+
+/**
+ * GeminiService HTTP 调用测试
+ * 使用本地 HttpServer 模拟 Gemini API，验证共享客户端、流式解析和截止时间
+ */
+class GeminiServiceHttpTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private GeminiService geminiService;
+    private final AtomicReference<String> lastRequestUri = new AtomicReference<>();
+    private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+    private final AtomicInteger sharedHits = new AtomicInteger();
+    // 受控上游：收到请求后等待测试放行
+    private final AtomicInteger gatedHits = new AtomicInteger();
+    private final CountDownLatch gatedArrived = new CountDownLatch(1);
+    private final CountDownLatch gatedRelease = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/models/ok-model:generateContent", exchange -> {
+            lastRequestUri.set(exchange.getRequestURI().toString());
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"课传分析\"}]}}]}");
+        });
+        server.createContext("/models/ok-model:streamGenerateContent", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200,
+                "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"第一段\"}]}}]}\n\n"
+                + "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"第二段\"}]}}]}\n\n");
+        });
+        server.createContext("/models/bad-model:generateContent", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 429, "{\"error\":\"quota\"}");
+        });
+        server.createContext("/models/slow-model:generateContent", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/models/shared-model:generateContent", exchange -> {
+            sharedHits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            sleep(200);
+            respond(exchange, 200, "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"合并结果\"}]}}]}");
+        });
+        server.createContext("/models/gated-model:generateContent", exchange -> {
+            gatedHits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            gatedArrived.countDown();
+            try {
+                gatedRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"合并结果\"}]}}]}");
+        });
+        server.createContext("/models/shared-model:streamGenerateContent", exchange -> {
+            sharedHits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (String text : List.of("一", "二", "三")) {
+                    os.write(("data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                    sleep(80);
+                }
+            }
+        });
+        server.createContext("/models/json-model:streamGenerateContent", exchange -> {
+            sharedHits.incrementAndGet();
+            lastRequestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (String text : List.of("{\\\"score\\\": ", "86, \\\"summary\\\": \\\"宜守\\\"}")) {
+                    os.write(("data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                }
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        geminiService = new GeminiService(null, httpClient);
+        ReflectionTestUtils.setField(geminiService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(geminiService, "modelName", "ok-model");
+        ReflectionTestUtils.setField(geminiService, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/models/");
+        ReflectionTestUtils.setField(geminiService, "generateTimeoutMs", 500L);
+        ReflectionTestUtils.setField(geminiService, "jsonTimeoutMs", 500L);
+        ReflectionTestUtils.setField(geminiService, "streamTimeoutMs", 500L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatedRelease.countDown();
+        geminiService.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("测试同步与异步文本生成")
+    void testGenerateContent() throws Exception {
+        assertEquals("课传分析", geminiService.generateContent("问事业"));
+        assertEquals("课传分析", geminiService.generateContentAsync("问事业").get());
+        assertTrue(lastRequestUri.get().endsWith("?key=test-key"));
+    }
+
+    @Test
+    @DisplayName("测试流式片段按顺序回调")
+    void testGenerateContentStream() {
+        List<String> chunks = new ArrayList<>();
+        geminiService.generateContentStream("问事业", chunks::add);
+        assertEquals(List.of("第一段", "第二段"), chunks);
+    }
+
+    @Test
+    @DisplayName("测试上游错误码转换为用户友好异常")
+    void testErrorStatus() {
+        ReflectionTestUtils.setField(geminiService, "modelName", "bad-model");
+        ServiceException e = assertThrows(ServiceException.class, () -> geminiService.generateStructuredJson("{}"));
+        assertEquals("JSON生成服务暂时不可用，请稍后重试", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("测试超过截止时间后立即失败")
+    void testDeadline() {
+        ReflectionTestUtils.setField(geminiService, "modelName", "slow-model");
+        long start = System.currentTimeMillis();
+        assertThrows(ServiceException.class, () -> geminiService.generateContent("问事业"));
+        assertTrue(System.currentTimeMillis() - start < 2500, "应在截止时间附近返回，而不是等待上游");
+    }
+
+    @Test
+    @DisplayName("测试未配置 API key")
+    void testMissingApiKey() {
+        ReflectionTestUtils.setField(geminiService, "apiKey", "");
+        ServiceException e = assertThrows(ServiceException.class, () -> geminiService.generateContent("问事业"));
+        assertEquals("系统配置异常，请联系管理员", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("测试进行中的相同请求只调用一次上游")
+    void testSingleFlight() throws Exception {
+        // 独立的客户端和服务实例，截止时间足够长，不受其他测试和机器负载影响
+        GeminiService service = new GeminiService(null, HttpClient.newHttpClient());
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+        ReflectionTestUtils.setField(service, "modelName", "gated-model");
+        ReflectionTestUtils.setField(service, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/models/");
+        ReflectionTestUtils.setField(service, "generateTimeoutMs", 10_000L);
+        try {
+            CompletableFuture<String> first = service.generateContentAsync("问事业");
+            // 第一个请求已到达上游且尚未返回，之后的相同请求一定加入它
+            assertTrue(gatedArrived.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> second = service.generateContentAsync("问事业");
+            second.cancel(true);
+            CompletableFuture<String> other = service.generateContentAsync("问财运");
+            gatedRelease.countDown();
+
+            assertEquals("合并结果", first.get(5, TimeUnit.SECONDS));
+            assertEquals("合并结果", other.get(5, TimeUnit.SECONDS));
+            assertEquals(2, gatedHits.get(), "相同提示词合并，不同提示词各自调用");
+
+            // 完成后不缓存结果，再次请求重新调用上游
+            assertEquals("合并结果", service.generateContent("问事业"));
+            assertEquals(3, gatedHits.get());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("测试相同流式请求从同一个上游流分发片段")
+    void testStreamSingleFlight() throws Exception {
+        ReflectionTestUtils.setField(geminiService, "modelName", "shared-model");
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> firstDone = geminiService.generateContentStreamAsync("问事业", chunk -> {
+            threads.add(Thread.currentThread().getName());
+            first.add(chunk);
+        });
+
+        // 等第一个片段到达后再加入，验证补发
+        long deadline = System.currentTimeMillis() + 2000;
+        while (first.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        CompletableFuture<Void> secondDone = geminiService.generateContentStreamAsync("问事业", second::add);
+        CompletableFuture.allOf(firstDone, secondDone).get();
+
+        assertEquals(List.of("一", "二", "三"), first);
+        assertEquals(List.of("一", "二", "三"), second);
+        assertEquals(1, sharedHits.get());
+        // 片段在分发线程投递，不占用 HttpClient 线程
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("gemini-stream-fanout-")));
+    }
+
+    @Test
+    @DisplayName("测试指定调用类型时缓存响应，流式与非流式共用缓存")
+    void testResponseCache() {
+        LlmResponseCacheService cache = new LlmResponseCacheService(true, 100, 1 << 20, 60_000, Clock.systemDefaultZone());
+        GeminiService cachedService = new GeminiService(null, HttpClient.newHttpClient(), cache);
+        ReflectionTestUtils.setField(cachedService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(cachedService, "modelName", "shared-model");
+        ReflectionTestUtils.setField(cachedService, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/models/");
+        ReflectionTestUtils.setField(cachedService, "generateTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(cachedService, "streamTimeoutMs", 2000L);
+
+        assertEquals("合并结果", cachedService.generateContent("问事业", LlmResponseCacheService.CallType.LIUREN));
+        assertEquals("合并结果", cachedService.generateContent("问事业", LlmResponseCacheService.CallType.LIUREN));
+        List<String> chunks = new ArrayList<>();
+        cachedService.generateContentStream("问事业", LlmResponseCacheService.CallType.LIUREN, chunks::add);
+        assertEquals(List.of("合并结果"), chunks);
+        assertEquals(1, sharedHits.get());
+
+        // 提示词不同或未指定调用类型时请求上游
+        cachedService.generateContent("问财运", LlmResponseCacheService.CallType.LIUREN);
+        cachedService.generateContent("问事业");
+        assertEquals(3, sharedHits.get());
+        assertEquals(2L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    @DisplayName("测试结构化 JSON 流式生成：请求带 JSON 输出配置，有效 JSON 写入缓存")
+    void testStructuredJsonStream() {
+        LlmResponseCacheService cache = new LlmResponseCacheService(true, 100, 1 << 20, 60_000, Clock.systemDefaultZone());
+        GeminiService cachedService = new GeminiService(null, HttpClient.newHttpClient(), cache);
+        ReflectionTestUtils.setField(cachedService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(cachedService, "modelName", "json-model");
+        ReflectionTestUtils.setField(cachedService, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/models/");
+        ReflectionTestUtils.setField(cachedService, "streamTimeoutMs", 2000L);
+
+        List<String> chunks = new ArrayList<>();
+        cachedService.generateStructuredJsonStream("量化", LlmResponseCacheService.CallType.LIUREN_RESULT_JSON, chunks::add);
+        assertEquals(List.of("{\"score\": ", "86, \"summary\": \"宜守\"}"), chunks);
+        assertTrue(lastRequestBody.get().contains("response_mime_type"));
+
+        List<String> cached = new ArrayList<>();
+        cachedService.generateStructuredJsonStream("量化", LlmResponseCacheService.CallType.LIUREN_RESULT_JSON, cached::add);
+        assertEquals(List.of("{\"score\": 86, \"summary\": \"宜守\"}"), cached);
+        assertEquals(1, sharedHits.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package xw.szbz.cn.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.entity.JiTu;
+import xw.szbz.cn.repository.JiTuRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 吉途两级缓存测试
+ */
+class JiTuCacheServiceTest {
+
+    @Mock
+    private JiTuRepository jiTuRepository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private JiTuCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheService = new JiTuCacheService(jiTuRepository, new ObjectMapper(), 2, 60_000L, now::get);
+    }
+
+    @Test
+    @DisplayName("测试 L2 命中后回填 L1，再次读取不查库")
+    void testReadThrough() throws Exception {
+        when(jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc("male", 1990, 5, 15, 10))
+                .thenReturn(Optional.of(jiTu("{\"summary\":\"吉\"}")));
+
+        Optional<JiTuCacheService.CachedAnalysis> first = cacheService.get("male", 1990, 5, 15, 10);
+        Optional<JiTuCacheService.CachedAnalysis> second = cacheService.get("male", 1990, 5, 15, 10);
+
+        assertTrue(first.isPresent());
+        assertEquals("吉", ((Map<?, ?>) first.get().analysis()).get("summary"));
+        assertSame(first.get(), second.get(), "L1 命中返回同一个已解析对象");
+        verify(jiTuRepository, times(1))
+                .findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc("male", 1990, 5, 15, 10);
+
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(1L, stats.get("l1Hits"));
+        assertEquals(1L, stats.get("l2Hits"));
+    }
+
+    @Test
+    @DisplayName("测试未命中不缓存，写入后直接从 L1 读取")
+    void testMissThenPut() throws Exception {
+        when(jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(Optional.empty());
+
+        assertTrue(cacheService.get("female", 2000, 1, 1, 0).isEmpty());
+        assertTrue(cacheService.get("female", 2000, 1, 1, 0).isEmpty());
+        assertEquals(2L, cacheService.getStats().get("misses"));
+
+        Object analysis = Map.of("summary", "平");
+        cacheService.put("female", 2000, 1, 1, 0, analysis, "{\"summary\":\"平\"}");
+        assertSame(analysis, cacheService.get("female", 2000, 1, 1, 0).get().analysis());
+        verify(jiTuRepository, times(2)).findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("测试过期后重新从 L2 加载")
+    void testTtl() throws Exception {
+        when(jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(Optional.of(jiTu("{}")));
+
+        cacheService.get("male", 1990, 5, 15, 10);
+        now.addAndGet(59_999L);
+        cacheService.get("male", 1990, 5, 15, 10);
+        now.addAndGet(1L);
+        cacheService.get("male", 1990, 5, 15, 10);
+
+        verify(jiTuRepository, times(2)).findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt());
+        assertEquals(1L, cacheService.getStats().get("expirations"));
+    }
+
+    @Test
+    @DisplayName("测试超出容量淘汰最久未访问的条目")
+    void testLruEviction() throws Exception {
+        when(jiTuRepository.findFirstByGenderAndYearAndMonthAndDayAndHourOrderByCreateTimeDesc(
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(Optional.empty());
+
+        cacheService.put("male", 1990, 1, 1, 0, "a", "\"a\"");
+        cacheService.put("male", 1990, 1, 1, 1, "b", "\"b\"");
+        cacheService.get("male", 1990, 1, 1, 0);
+        cacheService.put("male", 1990, 1, 1, 2, "c", "\"c\"");
+
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(2, stats.get("size"));
+        assertEquals(1L, stats.get("evictions"));
+        assertTrue(cacheService.get("male", 1990, 1, 1, 0).isPresent());
+        assertTrue(cacheService.get("male", 1990, 1, 1, 1).isEmpty(), "最久未访问的条目被淘汰");
+    }
+
+    private static JiTu jiTu(String json) {
+        return new JiTu("openid", "male", 1990, 5, 15, 10, json, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,133 @@
+package xw.szbz.cn.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xw.szbz.cn.enums.GanZhi;
+import xw.szbz.cn.model.LiuRenResult;
+import xw.szbz.cn.model.Pillar;
+
+/**
+ * 大六壬课表测试 - 课体查表、神煞按时间叠加
+ */
+class LiuRenCourseTableTest {
+
+    private LiuRenService liuRenService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        liuRenService = new LiuRenService();
+        ReflectionTestUtils.setField(liuRenService, "baZiService", new BaZiService());
+    }
+
+    /**
+     * 同一日、同一时辰内多次起课，课体应完全一致
+     */
+    @Test
+    @DisplayName("测试同一时辰课体一致")
+    void testSameShiChenSameCourse() throws Exception {
+        JsonNode first = objectMapper.readTree(liuRenService.generateCourseInfo(LocalDateTime.of(2025, 9, 17, 17, 9)));
+        JsonNode second = objectMapper.readTree(liuRenService.generateCourseInfo(LocalDateTime.of(2025, 9, 17, 18, 50)));
+
+        assertEquals(first.get("tianDiPan"), second.get("tianDiPan"), "天地盘应一致");
+        assertEquals(first.get("siKe"), second.get("siKe"), "四课应一致");
+        assertEquals(first.get("sanChuan"), second.get("sanChuan"), "三传应一致");
+        assertEquals(first.get("basicInfo"), second.get("basicInfo"), "基本信息应一致");
+    }
+
+    /**
+     * 六十甲子日的十二个时辰都能从课表中取出完整的课，且神煞已叠加
+     */
+    @Test
+    @DisplayName("测试六十甲子日十二时辰全部查表")
+    void testFullCycleFromTable() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 0, 30);
+        for (int d = 0; d < 60; d++) {
+            for (int h = 1; h < 24; h += 2) {
+                LocalDateTime time = start.plusDays(d).withHour(h);
+                JsonNode sanChuan = objectMapper.readTree(liuRenService.generateCourseInfo(time)).get("sanChuan");
+
+                for (String name : new String[]{"chuChuan", "zhongChuan", "moChuan"}) {
+                    JsonNode chuan = sanChuan.get(name);
+                    assertNotNull(chuan, time + " 应包含" + name);
+                    assertFalse(chuan.get("ganZhi").asText().isEmpty(), time + " 传干支不应为空");
+                    assertFalse(chuan.get("shenSha").isNull(), time + " 神煞应已叠加");
+                }
+            }
+        }
+    }
+
+    /**
+     * 课表中的天地盘、四课只返回副本，调用方修改结果不影响之后的请求
+     */
+    @Test
+    @DisplayName("测试课表对象不被调用方修改")
+    void testCourseTableNotShared() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2025, 9, 17, 17, 9);
+        String expected = liuRenService.generateCourseInfo(time);
+
+        LiuRenResult first = liuRenService.calculateCourse(time);
+        LiuRenResult second = liuRenService.calculateCourse(time);
+        assertNotSame(first.getTianDiPan(), second.getTianDiPan());
+        assertNotSame(first.getTianDiPan().getPositions()[0], second.getTianDiPan().getPositions()[0]);
+        assertNotSame(first.getSiKe().getDiYiKe(), second.getSiKe().getDiYiKe());
+
+        first.getTianDiPan().getPositions()[0].setTianPan("X");
+        first.getTianDiPan().setPosition(1, null);
+        first.getSiKe().getDiYiKe().setGanZhi("X");
+        first.getSiKe().setDiErKe(null);
+
+        assertEquals(expected, liuRenService.generateCourseInfo(time), "修改返回结果不应影响课表");
+    }
+
+    /**
+     * 课表只按 (月将 - 占时) 的偏移建表：逐一核对六十甲子日 × 十二月将 × 十二占时 × 昼夜，
+     * 查表结果应与按实际月将和占时直接排课的结果完全一致
+     */
+    @Test
+    @DisplayName("测试课表与逐次排课结果一致")
+    void testTableMatchesDirectCalculation() {
+        for (int ganZhiIndex = 0; ganZhiIndex < 60; ganZhiIndex++) {
+            Pillar dayPillar = new Pillar(GanZhi.ganName(GanZhi.gan(ganZhiIndex)),
+                    GanZhi.zhiName(GanZhi.zhi(ganZhiIndex)));
+            for (int yueJiang = 0; yueJiang < 12; yueJiang++) {
+                for (int hourZhi = 0; hourZhi < 12; hourZhi++) {
+                    for (boolean isDaytime : new boolean[]{false, true}) {
+                        String label = dayPillar.getFullName() + "日 月将" + GanZhi.zhiName(yueJiang)
+                                + " 占时" + GanZhi.zhiName(hourZhi) + (isDaytime ? " 昼" : " 夜");
+                        LiuRenService.CourseEntry expected =
+                                liuRenService.calculateCourseEntry(dayPillar, yueJiang, hourZhi, isDaytime);
+                        LiuRenService.CourseEntry actual =
+                                liuRenService.lookupCourseEntry(dayPillar, yueJiang, hourZhi, isDaytime);
+
+                        assertEquals(tree(expected.tianDiPan), tree(actual.tianDiPan), label + " 天地盘");
+                        assertEquals(tree(expected.siKe), tree(actual.siKe), label + " 四课");
+                        assertEquals(expected.xunKong, actual.xunKong, label + " 旬空");
+                        assertEquals(expected.zuoKong, actual.zuoKong, label + " 坐空");
+                        assertArrayEquals(expected.chuanZhi, actual.chuanZhi, label + " 三传地支");
+                        assertEquals(tree(expected.chuan), tree(actual.chuan), label + " 三传");
+                    }
+                }
+            }
+        }
+    }
+
+    private JsonNode tree(Object value) {
+        return objectMapper.valueToTree(value);
+    }
+}
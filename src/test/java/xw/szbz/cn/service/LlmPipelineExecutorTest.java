@@ -0,0 +1,144 @@
+package xw.szbz.cn.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import xw.szbz.cn.exception.ServiceException;
+
+/**
+ * LlmPipelineExecutor 单元测试
+ * 验证有界执行、饱和拒绝（429）和统计数据
+ */
+class LlmPipelineExecutorTest {
+
+    private LlmPipelineExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    @DisplayName("测试提交任务返回结果")
+    void testSubmit() throws Exception {
+        executor = new LlmPipelineExecutor("bounded", 2, 2);
+        assertEquals("课传", executor.submit(() -> "课传").get(1, TimeUnit.SECONDS));
+        assertEquals("bounded", executor.getMode());
+    }
+
+    @Test
+    @DisplayName("测试任务异常透传到 Future")
+    void testSubmitFailure() {
+        executor = new LlmPipelineExecutor("bounded", 1, 1);
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw new ServiceException("解读服务暂时不可用，请稍后重试");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ServiceException);
+    }
+
+    @Test
+    @DisplayName("测试有界模式饱和后拒绝并返回429")
+    void testBoundedSaturation() throws Exception {
+        executor = new LlmPipelineExecutor("bounded", 1, 1);
+        assertSaturation();
+    }
+
+    @Test
+    @DisplayName("测试虚拟线程模式（不支持时回退有界线程池）同样限制在途请求")
+    void testVirtualSaturation() throws Exception {
+        executor = new LlmPipelineExecutor("virtual", 1, 1);
+        assertSaturation();
+    }
+
+    @Test
+    @DisplayName("测试超过截止时间返回504，执行中的任务被中断，排队的任务不再执行")
+    void testPipelineDeadline() throws Exception {
+        executor = new LlmPipelineExecutor("bounded", 1, 1, 200);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        CompletableFuture<String> running = executor.submit(() -> {
+            // 收到中断后仍占用线程，直到测试释放，让排队任务在队列中超时
+            while (true) {
+                try {
+                    release.await();
+                    return "不会返回";
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        CompletableFuture<String> queued = executor.submit(() -> {
+            queuedRan.set(true);
+            return "不会执行";
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> running.get(2, TimeUnit.SECONDS));
+        assertEquals(504, ((ServiceException) e.getCause()).getStatusCode());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((executor.getActive() > 0 || executor.getQueued() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // 线程复用后不残留中断标记，排队期间超时的任务没有执行
+        assertEquals(false, executor.submit(() -> Thread.currentThread().isInterrupted()).get(1, TimeUnit.SECONDS));
+        assertTrue(!queuedRan.get());
+        assertEquals(2L, executor.getStats().get("timedOut"));
+    }
+
+    private void assertSaturation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            awaitRelease();
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        // 第二个任务排队
+        executor.execute(this::awaitRelease);
+
+        ServiceException e = assertThrows(ServiceException.class, () -> executor.execute(() -> { }));
+        assertEquals(429, e.getStatusCode());
+        assertEquals(LlmPipelineExecutor.BUSY_MESSAGE, e.getUserMessage());
+
+        CompletableFuture<String> rejected = executor.submit(() -> "不会执行");
+        assertTrue(rejected.isCompletedExceptionally());
+
+        Map<String, Object> stats = executor.getStats();
+        assertEquals(1, stats.get("active"));
+        assertEquals(1, stats.get("queued"));
+        assertEquals(2L, stats.get("rejected"));
+
+        // 释放后排队任务执行完毕，重新接受请求
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((executor.getActive() > 0 || executor.getQueued() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("完成", executor.submit(() -> "完成").get(1, TimeUnit.SECONDS));
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
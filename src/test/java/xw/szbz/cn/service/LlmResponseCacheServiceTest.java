@@ -0,0 +1,104 @@
+package xw.szbz.cn.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM 响应缓存测试
+ */
+class LlmResponseCacheServiceTest {
+
+    private static final ZoneId ZONE = ZoneOffset.ofHours(8);
+
+    private static long at(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static LlmResponseCacheService cache(int maxEntries, long maxBytes, String now) {
+        return new LlmResponseCacheService(true, maxEntries, maxBytes, 3600_000L,
+                Clock.fixed(Instant.ofEpochMilli(at(now)), ZONE));
+    }
+
+    @Test
+    @DisplayName("测试六壬解读有效期到当前时辰结束")
+    void testLiuRenExpiresAtShiChenEnd() {
+        LlmResponseCacheService cache = cache(10, 1 << 20, "2025-03-01T10:00:00");
+        LlmResponseCacheService.CallType liuRen = LlmResponseCacheService.CallType.LIUREN;
+
+        // 巳时 09:00-10:59，午时 11:00-12:59，子时 23:00-00:59
+        assertEquals(at("2025-03-01T11:00:00"), cache.expireAt(liuRen, at("2025-03-01T09:00:00")));
+        assertEquals(at("2025-03-01T11:00:00"), cache.expireAt(liuRen, at("2025-03-01T10:59:59")));
+        assertEquals(at("2025-03-01T13:00:00"), cache.expireAt(liuRen, at("2025-03-01T11:00:00")));
+        assertEquals(at("2025-03-02T01:00:00"), cache.expireAt(liuRen, at("2025-03-01T23:30:00")));
+        assertEquals(at("2025-03-02T01:00:00"), cache.expireAt(liuRen, at("2025-03-02T00:10:00")));
+
+        // 结果 JSON 化使用固定有效期
+        assertEquals(at("2025-03-01T11:00:00"),
+                cache.expireAt(LlmResponseCacheService.CallType.LIUREN_RESULT_JSON, at("2025-03-01T10:00:00")));
+    }
+
+    @Test
+    @DisplayName("测试 key 区分模型、方法和请求体，命中后返回缓存内容")
+    void testKeyAndLookup() {
+        LlmResponseCacheService cache = cache(10, 1 << 20, "2025-03-01T10:00:00");
+        String key = cache.key("model-a", "generateContent", "{\"prompt\":\"问事业\"}");
+        assertEquals(key, cache.key("model-a", "generateContent", "{\"prompt\":\"问事业\"}"));
+        assertNotEquals(key, cache.key("model-b", "generateContent", "{\"prompt\":\"问事业\"}"));
+        assertNotEquals(key, cache.key("model-a", "generateContent", "{\"prompt\":\"问财运\"}"));
+
+        assertNull(cache.get(key));
+        cache.put(key, "课传分析", LlmResponseCacheService.CallType.LIUREN);
+        assertEquals("课传分析", cache.get(key));
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+
+        cache.clear();
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    @DisplayName("测试进入下一个时辰后六壬解读不再命中，结果 JSON 仍然有效")
+    void testExpiry() {
+        MutableClock clock = new MutableClock(Instant.ofEpochMilli(at("2025-03-01T10:59:00")), ZONE);
+        LlmResponseCacheService cache = new LlmResponseCacheService(true, 10, 1 << 20, 3600_000L, clock);
+        cache.put("liuren", "解读", LlmResponseCacheService.CallType.LIUREN);
+        cache.put("json", "{}", LlmResponseCacheService.CallType.LIUREN_RESULT_JSON);
+        assertEquals("解读", cache.get("liuren"));
+
+        clock.set(Instant.ofEpochMilli(at("2025-03-01T11:00:00")));
+        assertNull(cache.get("liuren"));
+        assertEquals("{}", cache.get("json"));
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    @DisplayName("测试按条目数和总字节数淘汰最久未访问的条目")
+    void testBounded() {
+        LlmResponseCacheService cache = cache(3, 40, "2025-03-01T10:00:00");
+        LlmResponseCacheService.CallType type = LlmResponseCacheService.CallType.LIUREN_RESULT_JSON;
+        cache.put("a", "aaaa", type);
+        cache.put("b", "bbbb", type);
+        cache.put("c", "cccc", type);
+        cache.get("a");
+        cache.put("d", "dddd", type);
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+
+        // 总字节数超出上限（每个字符按 2 字节计）
+        cache.put("e", "e".repeat(18), type);
+        assertEquals("e".repeat(18), cache.get("e"));
+        assertEquals(1, cache.getStats().get("size"));
+
+        // 单个响应超过上限时不缓存
+        cache.put("f", "f".repeat(21), type);
+        assertNull(cache.get("f"));
+    }
+}
@@ -0,0 +1,47 @@
+package xw.szbz.cn.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 测试用可调整时间的时钟，withZone 得到的时钟与原时钟共享当前时间
+ */
+final class MutableClock extends Clock {
+
+    private final AtomicReference<Instant> instant;
+    private final ZoneId zone;
+
+    MutableClock(Instant instant, ZoneId zone) {
+        this(new AtomicReference<>(instant), zone);
+    }
+
+    private MutableClock(AtomicReference<Instant> instant, ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    void set(Instant instant) {
+        this.instant.set(instant);
+    }
+
+    void advance(long millis) {
+        instant.updateAndGet(current -> current.plusMillis(millis));
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new MutableClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant.get();
+    }
+}
@@ -0,0 +1,173 @@
+package xw.szbz.cn.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可续传流式会话测试
+ */
+class StreamSessionServiceTest {
+
+    @TempDir
+    Path spillDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    /**
+     * 记录收到的事件，可模拟连接断开
+     */
+    private static class RecordingSink implements StreamSessionService.EventSink {
+        final List<String> ids = new ArrayList<>();
+        final List<String> data = new ArrayList<>();
+        boolean connected = true;
+        boolean completed;
+        StreamSessionService.Session session;
+        boolean sentUnderLock;
+
+        @Override
+        public boolean send(String id, String name, String value) {
+            if (!connected) {
+                return false;
+            }
+            sentUnderLock |= session != null && Thread.holdsLock(session);
+            ids.add(id);
+            data.add(value);
+            return true;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    @DisplayName("测试断线后按 Last-Event-ID 续传并继续接收后续事件")
+    void testResumeRunningSession() {
+        StreamSessionService service = new StreamSessionService(10, 60_000, 1024, spillDir, now::get, Runnable::run);
+        StreamSessionService.Session session = service.create("user-1");
+        RecordingSink first = new RecordingSink();
+        first.session = session;
+        session.attach(first);
+
+        session.append("chunk", "a");
+        session.append("chunk", "b");
+        first.connected = false;
+        session.append("chunk", "c");
+        assertEquals(List.of("a", "b"), first.data);
+
+        // 其他用户不能接入
+        assertFalse(service.resume(first.ids.get(1), "user-2", new RecordingSink()));
+        assertFalse(service.resume("unknown:0", "user-1", new RecordingSink()));
+        assertFalse(service.resume("bad-id", "user-1", new RecordingSink()));
+
+        RecordingSink second = new RecordingSink();
+        assertTrue(service.resume(first.ids.get(1), "user-1", second));
+        assertEquals(List.of("c"), second.data);
+        assertFalse(second.completed);
+
+        session.append("done", "完成");
+        session.complete();
+        assertEquals(List.of("c", "完成"), second.data);
+        assertFalse(first.sentUnderLock);
+        assertEquals(List.of(session.getId() + ":2", session.getId() + ":3"), second.ids);
+        assertTrue(second.completed);
+
+        // 结束后重连只重放剩余事件并立即结束
+        RecordingSink third = new RecordingSink();
+        assertTrue(service.resume(session.getId() + ":0", "user-1", third));
+        assertEquals(List.of("b", "c", "完成"), third.data);
+        assertTrue(third.completed);
+
+        assertEquals(2L, service.getStats().get("resumed"));
+        assertEquals(3L, service.getStats().get("resumeMisses"));
+    }
+
+    @Test
+    @DisplayName("测试超出内存上限的事件溢出到磁盘，重放顺序不变，清理后删除文件")
+    void testSpillToDisk() throws Exception {
+        StreamSessionService service = new StreamSessionService(10, 60_000, 64, spillDir, now::get, Runnable::run);
+        StreamSessionService.Session session = service.create("user-1");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String value = "片段-" + i;
+            expected.add(value);
+            session.append("chunk", value);
+        }
+        assertTrue((Long) service.getStats().get("spilledEvents") > 0);
+        Path spillFile = spillDir.resolve(session.getId() + ".events");
+        assertTrue(Files.exists(spillFile));
+
+        // 未结束时重放（溢出文件仍在写入）
+        RecordingSink running = new RecordingSink();
+        assertTrue(service.resume(session.getId() + ":-1", "user-1", running));
+        assertEquals(expected, running.data);
+
+        session.complete();
+        RecordingSink sink = new RecordingSink();
+        assertTrue(service.resume(session.getId() + ":9", "user-1", sink));
+        assertEquals(expected.subList(10, 50), sink.data);
+
+        now.addAndGet(60_001);
+        service.cleanup();
+        assertFalse(Files.exists(spillFile));
+        assertFalse(service.resume(session.getId() + ":9", "user-1", new RecordingSink()));
+    }
+
+    @Test
+    @DisplayName("测试会话数达到上限时优先清理已结束的会话")
+    void testEvictsCompletedFirst() {
+        StreamSessionService service = new StreamSessionService(2, 60_000, 1024, null, now::get, Runnable::run);
+        StreamSessionService.Session running = service.create("user-1");
+        running.append("chunk", "a");
+        now.addAndGet(10);
+        StreamSessionService.Session done = service.create("user-1");
+        done.append("chunk", "b");
+        done.complete();
+
+        service.create("user-1");
+        assertTrue(service.resume(running.getId() + ":-1", "user-1", new RecordingSink()));
+        assertFalse(service.resume(done.getId() + ":-1", "user-1", new RecordingSink()));
+        assertEquals(2, service.getStats().get("sessions"));
+    }
+
+    @Test
+    @DisplayName("测试积压过多的连接被断开，续传后不丢事件")
+    void testDisconnectsLaggingSink() {
+        List<Runnable> pending = new ArrayList<>();
+        StreamSessionService service = new StreamSessionService(10, 60_000, 64, spillDir, now::get, pending::add);
+        StreamSessionService.Session session = service.create("user-1");
+        RecordingSink slow = new RecordingSink();
+        session.attach(slow);
+        // 推送线程尚未执行，事件只入队，append 不阻塞
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("片段-" + i);
+            session.append("chunk", "片段-" + i);
+        }
+        assertTrue(slow.data.isEmpty());
+
+        pending.forEach(Runnable::run);
+        pending.clear();
+        assertTrue(slow.completed);
+        assertTrue(slow.data.size() < expected.size());
+        assertEquals(1L, service.getStats().get("laggingDisconnects"));
+
+        RecordingSink resumed = new RecordingSink();
+        String lastId = slow.ids.isEmpty() ? session.getId() + ":-1" : slow.ids.get(slow.ids.size() - 1);
+        assertTrue(service.resume(lastId, "user-1", resumed));
+        pending.forEach(Runnable::run);
+        List<String> all = new ArrayList<>(slow.data);
+        all.addAll(resumed.data);
+        assertEquals(expected, all);
+    }
+}
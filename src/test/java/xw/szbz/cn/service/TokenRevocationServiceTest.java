@@ -0,0 +1,126 @@
+package xw.szbz.cn.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Token 吊销表测试
+ */
+class TokenRevocationServiceTest {
+
+    private static final long HOUR = 3600_000L;
+
+    @TempDir
+    Path dataDir;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-03-01T02:00:00Z"),
+            ZoneId.of("Asia/Shanghai"));
+
+    @Test
+    @DisplayName("测试吊销后命中，未吊销的 Token 由布隆过滤器直接放行")
+    void testRevokeAndLookup() {
+        TokenRevocationService service = new TokenRevocationService(100, null, clock);
+        service.revoke("jti-1", clock.millis() + HOUR);
+
+        assertTrue(service.isRevoked("jti-1"));
+        assertFalse(service.isRevoked("jti-2"));
+        assertFalse(service.isRevoked(null));
+
+        Map<String, Object> stats = service.getStats();
+        assertEquals(1, stats.get("size"));
+        assertEquals(2L, stats.get("lookups"));
+        assertEquals(1L, (Long) stats.get("bloomNegatives") + (Long) stats.get("falsePositives"));
+    }
+
+    @Test
+    @DisplayName("测试条目过期后失效并按过期顺序清理")
+    void testExpiry() {
+        TokenRevocationService service = new TokenRevocationService(100, null, clock);
+        service.revoke("short", clock.millis() + 1000);
+        service.revoke("long", clock.millis() + HOUR);
+        // 已过期的 Token 不需要吊销
+        service.revoke("stale", clock.millis() - 1);
+
+        clock.advance(2000);
+        assertFalse(service.isRevoked("short"));
+        assertTrue(service.isRevoked("long"));
+
+        service.flush();
+        Map<String, Object> stats = service.getStats();
+        assertEquals(1, stats.get("size"));
+        assertEquals(1L, stats.get("expired"));
+        assertEquals(2L, stats.get("revoked"));
+    }
+
+    @Test
+    @DisplayName("测试超出上限时淘汰最早过期的条目，重复吊销保留较晚的过期时间")
+    void testCapacity() {
+        TokenRevocationService service = new TokenRevocationService(3, null, clock);
+        long now = clock.millis();
+        service.revoke("a", now + 4 * HOUR);
+        service.revoke("b", now + HOUR);
+        service.revoke("c", now + 3 * HOUR);
+        // 重复吊销：b 的过期时间延后，堆中旧条目被跳过
+        service.revoke("b", now + 5 * HOUR);
+        service.revoke("d", now + 2 * HOUR);
+
+        assertEquals(3, service.getStats().get("size"));
+        assertEquals(1L, service.getStats().get("evicted"));
+        assertTrue(service.isRevoked("a"));
+        assertTrue(service.isRevoked("b"));
+        assertTrue(service.isRevoked("c"));
+        assertFalse(service.isRevoked("d"));
+    }
+
+    @Test
+    @DisplayName("测试大量条目过期后重建布隆过滤器，仍能命中未过期的条目")
+    void testBloomFilterRebuild() {
+        TokenRevocationService service = new TokenRevocationService(10, null, clock);
+        for (int i = 0; i < 10; i++) {
+            service.revoke("old-" + i, clock.millis() + 1000);
+        }
+        service.revoke("keep", clock.millis() + HOUR);
+        clock.advance(2000);
+        service.revoke("new", clock.millis() + HOUR);
+
+        assertTrue(service.isRevoked("keep"));
+        assertTrue(service.isRevoked("new"));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(service.isRevoked("old-" + i));
+        }
+        assertEquals(2, service.getStats().get("size"));
+    }
+
+    @Test
+    @DisplayName("测试快照写入磁盘，重启后加载未过期的条目")
+    void testSnapshot() throws Exception {
+        Path snapshot = dataDir.resolve("token-blacklist.bin");
+        TokenRevocationService service = new TokenRevocationService(100, snapshot, clock);
+        service.revoke("short", clock.millis() + 1000);
+        service.revoke("long", clock.millis() + HOUR);
+        service.destroy();
+        assertTrue(Files.exists(snapshot));
+
+        clock.advance(2000);
+        TokenRevocationService restarted = new TokenRevocationService(100, snapshot, clock);
+        restarted.loadSnapshot();
+        assertTrue(restarted.isRevoked("long"));
+        assertFalse(restarted.isRevoked("short"));
+        assertEquals(1, restarted.getStats().get("size"));
+
+        // 损坏的快照被忽略
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        TokenRevocationService corrupted = new TokenRevocationService(100, snapshot, clock);
+        corrupted.loadSnapshot();
+        assertEquals(0, corrupted.getStats().get("size"));
+    }
+}
@@ -0,0 +1,152 @@
+package xw.szbz.cn.service;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import xw.szbz.cn.entity.WebUser;
+import xw.szbz.cn.repository.WebUserRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Web 用户读穿缓存测试
+ */
+class WebUserCacheServiceTest {
+
+    @Mock
+    private WebUserRepository webUserRepository;
+
+    @Mock
+    private WriteBehindService writeBehindService;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private WebUserCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheService = new WebUserCacheService(webUserRepository, writeBehindService, 2, 60_000L, now::get);
+    }
+
+    @Test
+    @DisplayName("测试首次查库回填，再次读取不查库，返回的副本修改不影响缓存")
+    void testReadThroughReturnsCopies() {
+        when(webUserRepository.findByBizId("biz-1")).thenReturn(user("biz-1", 5));
+
+        WebUser first = cacheService.get("biz-1");
+        first.setFreeCount(0);
+        first.setActive(false);
+        now.addAndGet(1_000);
+        WebUser second = cacheService.get("biz-1");
+
+        assertNotSame(first, second);
+        assertEquals(5, second.getFreeCount());
+        assertTrue(second.getActive());
+        assertEquals("user-biz-1", second.getUsername());
+        verify(webUserRepository, times(1)).findByBizId("biz-1");
+
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(0.5, stats.get("hitRate"));
+        assertEquals(1_000L, stats.get("maxHitAgeMillis"));
+    }
+
+    @Test
+    @DisplayName("测试失效后重新查库，用户不存在时不缓存")
+    void testInvalidate() {
+        when(webUserRepository.findByBizId("biz-1")).thenReturn(user("biz-1", 5), user("biz-1", 9));
+
+        cacheService.get("biz-1");
+        cacheService.invalidate("biz-1");
+
+        assertEquals(9, cacheService.get("biz-1").getFreeCount());
+        assertNull(cacheService.get("missing"));
+        assertNull(cacheService.get("missing"));
+        verify(webUserRepository, times(2)).findByBizId("missing");
+        assertEquals(1L, cacheService.getStats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("测试扣减免费次数直接更新快照，不查库")
+    void testUpdate() {
+        when(webUserRepository.findByBizId("biz-1")).thenReturn(user("biz-1", 5));
+
+        cacheService.get("biz-1");
+        cacheService.update("biz-1", user -> user.setFreeCount(user.getFreeCount() - 1));
+        // 未缓存的用户不处理
+        cacheService.update("biz-2", user -> fail("未缓存的用户不应更新"));
+
+        assertEquals(4, cacheService.get("biz-1").getFreeCount());
+        verify(webUserRepository, times(1)).findByBizId("biz-1");
+        assertEquals(1L, cacheService.getStats().get("updates"));
+    }
+
+    @Test
+    @DisplayName("测试查库时减去尚未落库的免费次数扣减，且不回填")
+    void testPendingDecrementOverlay() {
+        when(webUserRepository.findByBizId("biz-1")).thenReturn(user("biz-1", 5), user("biz-1", 3), user("biz-1", 3));
+        when(writeBehindService.countPendingFreeCountDecrements("biz-1")).thenReturn(2, 2, 0);
+
+        // 快照未缓存时扣减了两次，数据库尚未落库
+        assertEquals(3, cacheService.get("biz-1").getFreeCount());
+        assertEquals(0, cacheService.getStats().get("size"));
+        // 落库前的重复查库：数据库已落库但计数尚未清零时宁可少算
+        assertEquals(1, cacheService.get("biz-1").getFreeCount());
+        // 全部落库后回填
+        assertEquals(3, cacheService.get("biz-1").getFreeCount());
+        assertEquals(3, cacheService.get("biz-1").getFreeCount());
+        verify(webUserRepository, times(3)).findByBizId("biz-1");
+        assertEquals(2L, cacheService.getStats().get("pendingOverlays"));
+    }
+
+    @Test
+    @DisplayName("测试查库期间发生失效时不回填旧数据")
+    void testInvalidateDuringLoad() {
+        when(webUserRepository.findByBizId("biz-1")).thenAnswer(invocation -> {
+            // 模拟查询返回后、回填前其他线程更新了用户
+            cacheService.invalidate("biz-1");
+            return user("biz-1", 5);
+        });
+
+        assertEquals(5, cacheService.get("biz-1").getFreeCount());
+        assertEquals(0, cacheService.getStats().get("size"));
+    }
+
+    @Test
+    @DisplayName("测试 TTL 过期和容量淘汰")
+    void testExpiryAndEviction() {
+        when(webUserRepository.findByBizId(anyString()))
+                .thenAnswer(invocation -> user(invocation.getArgument(0), 5));
+
+        cacheService.get("biz-1");
+        now.addAndGet(60_001);
+        cacheService.get("biz-1");
+        assertEquals(1L, cacheService.getStats().get("expirations"));
+
+        cacheService.get("biz-2");
+        cacheService.get("biz-3");
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(2, stats.get("size"));
+        assertEquals(1L, stats.get("evictions"));
+        verify(webUserRepository, times(2)).findByBizId("biz-1");
+    }
+
+    private static WebUser user(String bizId, int freeCount) {
+        WebUser user = new WebUser();
+        user.setId(1L);
+        user.setBizId(bizId);
+        user.setUsername("user-" + bizId);
+        user.setActive(true);
+        user.setFreeCount(freeCount);
+        user.setCreateTime(1_700_000_000_000L);
+        return user;
+    }
+}
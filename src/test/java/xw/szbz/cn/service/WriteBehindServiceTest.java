@@ -0,0 +1,206 @@
+package xw.szbz.cn.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import xw.szbz.cn.entity.JiTu;
+import xw.szbz.cn.entity.LifeAIResult;
+import xw.szbz.cn.entity.WenJi;
+import xw.szbz.cn.repository.JiTuRepository;
+import xw.szbz.cn.repository.LifeAIResultRepository;
+import xw.szbz.cn.repository.WebUserRepository;
+import xw.szbz.cn.repository.WenJiRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 异步写库服务测试
+ */
+class WriteBehindServiceTest {
+
+    @Mock
+    private WenJiRepository wenJiRepository;
+
+    @Mock
+    private JiTuRepository jiTuRepository;
+
+    @Mock
+    private LifeAIResultRepository lifeAIResultRepository;
+
+    @Mock
+    private WebUserRepository webUserRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private Path spillFile;
+    private WriteBehindService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        spillFile = tempDir.resolve("pending-writes.jsonl");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (service != null) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("测试记录由写线程批量写入，每批一个事务")
+    void testBatchWrite() {
+        service = newService(true, 100, 10);
+        service.start();
+
+        for (int i = 0; i < 5; i++) {
+            service.saveWenJi(newWenJi("openid-" + i));
+        }
+        service.saveJiTu(new JiTu("openid", "male", 1990, 5, 15, 10, "{}", 1L));
+        service.saveLifeAIResult(new LifeAIResult());
+        service.decrementFreeCount(7L, "biz-7");
+
+        verify(wenJiRepository, timeout(2000).times(5)).save(any(WenJi.class));
+        verify(jiTuRepository, timeout(2000)).save(any(JiTu.class));
+        verify(lifeAIResultRepository, timeout(2000)).save(any(LifeAIResult.class));
+        verify(webUserRepository, timeout(2000)).decrementFreeCount(7L);
+        // 8 条记录，批大小 10，事务数少于记录数
+        verify(transactionManager, atMost(7)).commit(any());
+    }
+
+    @Test
+    @DisplayName("测试尚未写入的问吉、吉途记录按 openId 计数，写入后清零")
+    void testPendingCounts() throws Exception {
+        service = newService(true, 100, 10);
+        service.saveWenJi(newWenJi("u1"));
+        service.saveWenJi(newWenJi("u1"));
+        service.saveWenJi(newWenJi("u2"));
+        service.saveJiTu(new JiTu("u1", "male", 1990, 5, 15, 10, "{}", 1L));
+        assertEquals(2, service.countPendingWenJi("u1"));
+        assertEquals(1, service.countPendingWenJi("u2"));
+        assertEquals(1, service.countPendingJiTu("u1"));
+        assertEquals(0, service.countPendingJiTu("u2"));
+
+        WriteBehindService started = service;
+        service = null;
+        started.start();
+        started.destroy();
+        verify(wenJiRepository, times(3)).save(any(WenJi.class));
+        assertEquals(0, started.countPendingWenJi("u1"));
+        assertEquals(0, started.countPendingJiTu("u1"));
+    }
+
+    @Test
+    @DisplayName("测试关闭时写完队列中的记录")
+    void testFlushOnShutdown() throws Exception {
+        service = newService(true, 100, 10);
+        for (int i = 0; i < 20; i++) {
+            service.saveWenJi(newWenJi("openid-" + i));
+        }
+        // 队列已有记录后再启动写线程，随即关闭
+        service.start();
+        service.destroy();
+        service = null;
+
+        verify(wenJiRepository, times(20)).save(any(WenJi.class));
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    @DisplayName("测试队列溢出写入磁盘，并在空闲时回放")
+    void testSpillAndReplay() throws Exception {
+        WriteBehindService stopped = newService(true, 2, 10);
+        // 未启动写线程：超出队列容量的记录溢出到文件
+        for (int i = 0; i < 5; i++) {
+            stopped.saveWenJi(newWenJi("openid-" + i));
+        }
+        stopped.decrementFreeCount(9L, "biz-9");
+
+        List<String> lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals(4L, stopped.getStats().get("spilled"));
+        verifyNoInteractions(wenJiRepository);
+        // 溢出到磁盘的记录同样计入未落库数
+        assertEquals(1, stopped.countPendingFreeCountDecrements("biz-9"));
+        assertEquals(1, stopped.countPendingWenJi("openid-4"));
+
+        // 新实例启动时计入遗留的溢出记录，回放写入后减去
+        AtomicInteger pendingWhileWriting = new AtomicInteger(-1);
+        when(webUserRepository.decrementFreeCount(9L)).thenAnswer(invocation -> {
+            pendingWhileWriting.set(service.countPendingFreeCountDecrements("biz-9"));
+            return 1;
+        });
+        service = newService(true, 100, 10);
+        service.start();
+
+        ArgumentCaptor<WenJi> captor = ArgumentCaptor.forClass(WenJi.class);
+        verify(wenJiRepository, timeout(3000).times(3)).save(captor.capture());
+        verify(webUserRepository, timeout(3000)).decrementFreeCount(9L);
+        long deadline = System.currentTimeMillis() + 3000;
+        while (service.countPendingFreeCountDecrements("biz-9") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pendingWhileWriting.get());
+        assertEquals(0, service.countPendingFreeCountDecrements("biz-9"));
+        assertEquals(0, service.countPendingWenJi("openid-4"));
+        assertEquals("openid-2", captor.getAllValues().get(0).getOpenId());
+        assertEquals("问事业", captor.getAllValues().get(0).getQuestion());
+    }
+
+    @Test
+    @DisplayName("测试整批失败后逐条重试，失败记录转存")
+    void testFailedRecord() throws Exception {
+        WenJi bad = newWenJi("bad");
+        when(wenJiRepository.save(bad)).thenThrow(new RuntimeException("SQLITE_BUSY"));
+
+        service = newService(true, 100, 10);
+        service.saveWenJi(newWenJi("good"));
+        service.saveWenJi(bad);
+        service.start();
+        service.destroy();
+        service = null;
+
+        Path failedFile = Path.of(spillFile + ".failed");
+        assertTrue(Files.exists(failedFile));
+        assertEquals(1, Files.readAllLines(failedFile, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    @DisplayName("测试未启用时同步写入")
+    void testDisabled() {
+        WriteBehindService sync = newService(false, 10, 10);
+        sync.start();
+        sync.saveWenJi(newWenJi("openid"));
+        verify(wenJiRepository).save(any(WenJi.class));
+    }
+
+    private WriteBehindService newService(boolean enabled, int capacity, int batchSize) {
+        return new WriteBehindService(wenJiRepository, jiTuRepository, lifeAIResultRepository, webUserRepository,
+                transactionManager, enabled, capacity, batchSize, 50L, spillFile.toString());
+    }
+
+    private WenJi newWenJi(String openId) {
+        return new WenJi(openId, "问事业", null, 1990, "male", "吉", System.currentTimeMillis());
+    }
+}
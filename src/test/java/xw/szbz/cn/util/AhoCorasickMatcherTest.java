@@ -0,0 +1,85 @@
+package xw.szbz.cn.util;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import xw.szbz.cn.config.SecurityFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多模式串匹配器测试
+ */
+class AhoCorasickMatcherTest {
+
+    @Test
+    @DisplayName("测试忽略大小写匹配")
+    void testCaseInsensitive() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("wp-admin", "eval(", "<Script"));
+
+        assertTrue(matcher.containsAny("/WP-Admin/index"));
+        assertTrue(matcher.containsAny("x=EVAL(1)"));
+        assertTrue(matcher.containsAny("<script>alert(1)</script>"));
+        assertFalse(matcher.containsAny("/api/bazi/wenji"));
+        assertFalse(matcher.containsAny("wp-admi"));
+        assertFalse(matcher.containsAny(null));
+        assertFalse(matcher.containsAny(""));
+    }
+
+    @Test
+    @DisplayName("测试失败链接：模式串互为前后缀")
+    void testOverlappingPatterns() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("he", "she", "his", "hers", "..\\"));
+
+        assertTrue(matcher.containsAny("ushers"));
+        assertTrue(matcher.containsAny("xxhis"));
+        assertTrue(matcher.containsAny("a.\\..\\b"));
+        assertFalse(matcher.containsAny("hxsxixr"));
+    }
+
+    @Test
+    @DisplayName("测试非 ASCII 模式串和输入")
+    void testNonAscii() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("攻击", ".php"));
+
+        assertTrue(matcher.containsAny("这是攻击请求"));
+        assertTrue(matcher.containsAny("/中文/index.PHP"));
+        assertFalse(matcher.containsAny("攻 击"));
+        assertFalse(new AhoCorasickMatcher(List.of()).containsAny("anything"));
+    }
+
+    @Test
+    @DisplayName("测试与逐个 contains 的结果一致")
+    void testMatchesNaiveLoop() {
+        List<String> patterns = SecurityFilter.MALICIOUS_PARAM_PATTERNS;
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(patterns);
+        String alphabet = "abcdehilmnoprstuvwxyzABCEHS;|()<>?_.:=/-";
+        Random random = new Random(1);
+
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            if (random.nextInt(5) == 0) {
+                text.insert(random.nextInt(text.length() + 1), patterns.get(random.nextInt(patterns.size())));
+            }
+            String input = text.toString();
+            assertEquals(naiveContains(input, patterns), matcher.containsAny(input), input);
+        }
+    }
+
+    private static boolean naiveContains(String text, List<String> patterns) {
+        String lowerText = text.toLowerCase();
+        for (String pattern : patterns) {
+            if (lowerText.contains(pattern.toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
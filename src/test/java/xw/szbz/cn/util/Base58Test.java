@@ -0,0 +1,63 @@
+package xw.szbz.cn.util;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Base58 编解码测试
+ */
+class Base58Test {
+
+    @Test
+    @DisplayName("测试已知向量和前导零字节")
+    void testKnownVectors() {
+        assertEquals("", Base58.encode(new byte[0]));
+        assertEquals("1", Base58.encode(new byte[]{0}));
+        assertEquals("11", Base58.encode(new byte[]{0, 0}));
+        assertEquals("2g", Base58.encode("a".getBytes()));
+        assertEquals("StV1DL6CwTryKyV", Base58.encode("hello world".getBytes()));
+        assertEquals("1112", Base58.encode(new byte[]{0, 0, 0, 1}));
+
+        assertArrayEquals("hello world".getBytes(), Base58.decode("StV1DL6CwTryKyV"));
+        assertArrayEquals(new byte[]{0, 0, 0, 1}, Base58.decode("1112"));
+        assertArrayEquals(new byte[0], Base58.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> Base58.decode("0OIl"));
+    }
+
+    @Test
+    @DisplayName("测试随机数据与 BigInteger 逐位转换结果一致且可逆")
+    void testMatchesReference() {
+        Random random = new Random(58);
+        for (int i = 0; i < 2000; i++) {
+            byte[] input = new byte[random.nextInt(64)];
+            random.nextBytes(input);
+            if (input.length > 2 && random.nextBoolean()) {
+                input[0] = 0;
+                input[1] = 0;
+            }
+            String encoded = Base58.encode(input);
+            assertEquals(reference(input), encoded);
+            assertArrayEquals(input, Base58.decode(encoded));
+        }
+    }
+
+    private static String reference(byte[] input) {
+        StringBuilder sb = new StringBuilder();
+        BigInteger value = new BigInteger(1, input);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] divmod = value.divideAndRemainder(base);
+            sb.append(Base58.ALPHABET.charAt(divmod[1].intValue()));
+            value = divmod[0];
+        }
+        for (int i = 0; i < input.length && input[i] == 0; i++) {
+            sb.append('1');
+        }
+        return sb.reverse().toString();
+    }
+}
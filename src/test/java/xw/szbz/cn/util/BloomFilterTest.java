@@ -0,0 +1,45 @@
+package xw.szbz.cn.util;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 布隆过滤器测试
+ */
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("测试已加入的元素一定命中，误判率接近设定值")
+    void testMightContain() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("jti-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("jti-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "误判数: " + falsePositives);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    @DisplayName("测试空过滤器不命中，参数校验")
+    void testEmptyAndInvalidArguments() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("jti"));
+        assertFalse(filter.mightContain(""));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
@@ -0,0 +1,82 @@
+package xw.szbz.cn.util;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界 TTL 缓存测试
+ */
+class BoundedTtlCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 60_000L, now::get);
+
+    @Test
+    @DisplayName("测试超出容量时淘汰最久未访问的条目")
+    void testLruEviction() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"), "最久未访问的条目被淘汰");
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("测试过期条目读取时移除，命中记录存活时间")
+    void testExpiryAndHitAge() {
+        cache.put("a", "1");
+        now.addAndGet(1_000);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(3_000);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(56_000);
+        assertNull(cache.get("a"));
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(0, stats.get("size"));
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("expirations"));
+        assertEquals(2_500L, stats.get("avgHitAgeMillis"));
+        assertEquals(4_000L, stats.get("maxHitAgeMillis"));
+    }
+
+    @Test
+    @DisplayName("测试加载期间有删除、更新或清空时不回填")
+    void testPutIfGeneration() {
+        long generation = cache.generation();
+        cache.remove("a");
+        assertFalse(cache.putIfGeneration("a", "stale", generation));
+        assertNull(cache.get("a"));
+
+        generation = cache.generation();
+        cache.update("b", value -> value + "!");
+        assertFalse(cache.putIfGeneration("a", "stale", generation));
+
+        generation = cache.generation();
+        assertTrue(cache.putIfGeneration("a", "fresh", generation));
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    @DisplayName("测试就地更新保留过期时间，未缓存时不处理")
+    void testUpdateKeepsExpiry() {
+        cache.put("a", "1");
+        now.addAndGet(50_000);
+        assertTrue(cache.update("a", value -> value + "!"));
+        assertFalse(cache.update("b", value -> fail("未缓存的条目不应更新")));
+
+        assertEquals("1!", cache.get("a"));
+        now.addAndGet(10_000);
+        assertNull(cache.get("a"), "更新不延长过期时间");
+    }
+}
@@ -0,0 +1,140 @@
+package xw.szbz.cn.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流式片段合并测试
+ */
+class ChunkCoalescerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final List<String> sent = new ArrayList<>();
+    // 安排的延迟发送，由测试手动触发
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    @Mock
+    private ScheduledExecutorService timer;
+
+    @Mock
+    private ScheduledFuture<Object> scheduledFuture;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(timer.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return scheduledFuture;
+        });
+    }
+
+    @Test
+    @DisplayName("测试第一个片段立即发送，之后按字节数合并")
+    void testFirstChunkImmediateThenBySize() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(sent::add, 6, 60_000, now::get, timer);
+
+        coalescer.accept("起");
+        assertEquals(List.of("起"), sent);
+
+        coalescer.accept("ab");
+        coalescer.accept("c");
+        assertEquals(1, sent.size());
+
+        // 中文字符 UTF-8 为 3 字节，累计达到 6 字节时发送
+        coalescer.accept("甲");
+        assertEquals(List.of("起", "abc甲"), sent);
+
+        coalescer.accept("尾");
+        coalescer.close();
+        coalescer.accept("关闭后忽略");
+        assertEquals(List.of("起", "abc甲", "尾"), sent);
+        assertEquals(5, coalescer.getChunkCount());
+        assertEquals(3, coalescer.getFlushCount());
+    }
+
+    @Test
+    @DisplayName("测试缓冲超过最大等待时间后，延迟发送到期前由下一个片段触发发送")
+    void testFlushAfterDelay() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(sent::add, 1024, 50, now::get, timer);
+        coalescer.accept("first");
+        coalescer.accept("a");
+        now.addAndGet(30);
+        coalescer.accept("b");
+        assertEquals(List.of("first"), sent);
+
+        // 距第一个缓冲片段已超过 50ms
+        now.addAndGet(30);
+        coalescer.accept("c");
+        assertEquals(List.of("first", "abc"), sent);
+
+        coalescer.accept("d");
+        coalescer.close();
+        assertEquals(List.of("first", "abc", "d"), sent);
+    }
+
+    @Test
+    @DisplayName("测试上游停顿时由延迟发送推送缓冲内容，按字节数发送后取消延迟发送")
+    void testScheduledFlushWhenUpstreamSilent() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(sent::add, 4, 200, now::get, timer);
+        coalescer.accept("first");
+        assertTrue(scheduled.isEmpty());
+
+        // 缓冲第一个片段时安排延迟发送，之后的片段不重复安排
+        coalescer.accept("a");
+        coalescer.accept("b");
+        assertEquals(1, scheduled.size());
+        verify(timer).schedule(any(Runnable.class), eq(200L), eq(TimeUnit.MILLISECONDS));
+
+        // 上游没有新片段，到期后发送
+        scheduled.get(0).run();
+        assertEquals(List.of("first", "ab"), sent);
+
+        // 按字节数发送时取消未执行的延迟发送（到期发送和按字节数发送各取消一次），之后到期也不会重复发送
+        coalescer.accept("cdef");
+        assertEquals(List.of("first", "ab", "cdef"), sent);
+        verify(scheduledFuture, times(2)).cancel(false);
+        scheduled.get(1).run();
+        assertEquals(List.of("first", "ab", "cdef"), sent);
+        coalescer.close();
+        assertEquals(3, coalescer.getFlushCount());
+    }
+
+    @Test
+    @DisplayName("测试发送时不持有合并器的锁")
+    void testSendOutsideLock() {
+        List<Boolean> holdsLock = new ArrayList<>();
+        ChunkCoalescer[] ref = new ChunkCoalescer[1];
+        ref[0] = new ChunkCoalescer(data -> holdsLock.add(Thread.holdsLock(ref[0])), 1, 0, now::get, timer);
+        ref[0].accept("a");
+        ref[0].accept("b");
+        ref[0].close();
+        assertEquals(List.of(false, false), holdsLock);
+    }
+
+    @Test
+    @DisplayName("测试 UTF-8 字节数估算")
+    void testUtf8Length() {
+        for (String text : List.of("", "abc", "é", "甲子", "😀", "a甲😀é")) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, ChunkCoalescer.utf8Length(text));
+        }
+    }
+}
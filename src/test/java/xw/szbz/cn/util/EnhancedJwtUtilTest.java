@@ -4,6 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import io.jsonwebtoken.JwtException;
+import xw.szbz.cn.model.JwtPrincipal;
+
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -174,4 +179,47 @@ class EnhancedJwtUtilTest {
         assertNotNull(jti);
         System.out.println("\nJWT Token ID (JTI): " + jti);
     }
+
+    @Test
+    void testVerifiedTokenCache() {
+        String token = jwtUtil.generateAccessToken(
+            "u1a2b3c4d5e6f", "testuser", true, "session_123", "device_456", "192.168.1.1"
+        );
+
+        JwtPrincipal first = jwtUtil.verify(token);
+        JwtPrincipal second = jwtUtil.verify(token);
+
+        // 第二次命中缓存，返回同一个主体
+        assertSame(first, second);
+        assertEquals("u1a2b3c4d5e6f", second.encryptedUserId());
+        assertTrue(second.isAccessToken());
+        Map<String, Object> stats = jwtUtil.getVerifiedCacheStats();
+        assertEquals(1, stats.get("size"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+
+        // 移出后重新验签
+        jwtUtil.evict(token);
+        assertNotSame(first, jwtUtil.verify(token));
+        assertEquals(2L, jwtUtil.getVerifiedCacheStats().get("misses"));
+    }
+
+    @Test
+    void testVerifiedTokenCacheRejectsExpiredAndTamperedTokens() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpiration", 1000L);
+        String token = jwtUtil.generateAccessToken(
+            "u1a2b3c4d5e6f", "testuser", true, "session_123", "device_456", "192.168.1.1"
+        );
+        assertTrue(jwtUtil.validateToken(token));
+
+        // 篡改签名的 Token 不会因为缓存而通过
+        String tampered = token.substring(0, token.length() - 2)
+            + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+
+        // 已缓存的 Token 过期后不再返回
+        Thread.sleep(1100);
+        assertFalse(jwtUtil.validateToken(token));
+        assertThrows(JwtException.class, () -> jwtUtil.verify(token));
+    }
 }
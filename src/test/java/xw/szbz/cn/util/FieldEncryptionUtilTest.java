@@ -4,6 +4,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -142,4 +152,43 @@ class FieldEncryptionUtilTest {
         System.out.println("Special characters: " + specialChars);
         System.out.println("Encrypted: " + encrypted);
     }
+
+    @Test
+    void testDeterministicCiphertextUnchanged() throws Exception {
+        // 已入库的邮箱密文必须仍能按明文查询：与逐次 Cipher.getInstance 的原实现结果一致
+        ReflectionTestUtils.setField(encryptionUtil, "ivSalt", "test-iv-salt");
+        String email = "user@example.com";
+
+        byte[] hash = MessageDigest.getInstance("SHA-256")
+            .digest((email + "test-iv-salt").getBytes(StandardCharsets.UTF_8));
+        byte[] iv = Arrays.copyOf(hash, 12);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE,
+            new SecretKeySpec(Arrays.copyOf("field-encryption-key-32-bytes!!".getBytes(StandardCharsets.UTF_8), 32), "AES"),
+            new GCMParameterSpec(128, iv));
+        byte[] ciphertext = cipher.doFinal(email.getBytes(StandardCharsets.UTF_8));
+        byte[] expected = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, expected, 0, iv.length);
+        System.arraycopy(ciphertext, 0, expected, iv.length, ciphertext.length);
+
+        // 同一线程连续两次相同 IV 的加密也要成功
+        assertEquals(Base64.getEncoder().encodeToString(expected), encryptionUtil.encryptEmail(email));
+        assertEquals(Base64.getEncoder().encodeToString(expected), encryptionUtil.encryptEmail(email));
+    }
+
+    @Test
+    void testBatchEncryptAndDecrypt() {
+        List<String> emails = List.of("a@example.com", "b@example.com", "", "a@example.com");
+
+        List<String> encrypted = encryptionUtil.encryptDeterministicAll(emails);
+
+        assertEquals(4, encrypted.size());
+        assertEquals(encrypted.get(0), encrypted.get(3));
+        assertEquals("", encrypted.get(2));
+        assertEquals(emails, encryptionUtil.decryptAll(encrypted));
+
+        String random = encryptionUtil.encryptRandom("a@example.com");
+        assertNotEquals(random, encryptionUtil.encryptRandom("a@example.com"));
+        assertEquals("a@example.com", encryptionUtil.decrypt(random));
+    }
 }
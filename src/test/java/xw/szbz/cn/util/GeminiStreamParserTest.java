@@ -0,0 +1,85 @@
+package xw.szbz.cn.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gemini 流式响应字节级解析测试
+ */
+class GeminiStreamParserTest {
+
+    private static final String STREAM =
+            "data: {\"candidates\": [{\"content\": {\"role\": \"model\", \"parts\": [{\"text\": \"甲子\"}]}, \"index\": 0}]}\r\n\r\n"
+            + "data: {\"usageMetadata\": {\"promptTokenCount\": 12}, \"candidates\": [{\"safetyRatings\": [{\"a\": [1, {\"b\": 2}]}],"
+            + " \"content\": {\"parts\": [{\"text\": \"乙丑\\n\\\"引号\\\" 😀\"}]}}]}\n\n"
+            + ": keep-alive comment\n"
+            + "data: {\"candidates\": [{\"finishReason\": \"STOP\"}]}\n"
+            + "data: [DONE]\n"
+            + "data:{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"丙寅\"}]}}]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试提取文本片段，跳过无文本、注释和 [DONE] 行")
+    void testExtractsText() {
+        List<String> chunks = new ArrayList<>();
+        GeminiStreamParser parser = new GeminiStreamParser(objectMapper.getFactory(), chunks::add);
+        parser.feed(ByteBuffer.wrap(STREAM.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of("甲子", "乙丑\n\"引号\" 😀"), chunks);
+
+        // 最后一行没有换行结尾，结束时处理
+        parser.finish();
+        assertEquals(List.of("甲子", "乙丑\n\"引号\" 😀", "丙寅"), chunks);
+        assertEquals(3, parser.getTextCount());
+        assertEquals(0, parser.getMalformedCount());
+    }
+
+    @Test
+    @DisplayName("测试任意切分位置（包括多字节字符中间）结果一致")
+    void testArbitrarySplits() {
+        byte[] bytes = STREAM.getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= bytes.length; split++) {
+            List<String> chunks = new ArrayList<>();
+            GeminiStreamParser parser = new GeminiStreamParser(objectMapper.getFactory(), chunks::add);
+            parser.feed(ByteBuffer.wrap(bytes, 0, split));
+            parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            parser.finish();
+            assertEquals(List.of("甲子", "乙丑\n\"引号\" 😀", "丙寅"), chunks, "split at " + split);
+        }
+
+        // 逐字节输入
+        List<String> chunks = new ArrayList<>();
+        GeminiStreamParser parser = new GeminiStreamParser(objectMapper.getFactory(), chunks::add);
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        parser.finish();
+        assertEquals(3, chunks.size());
+    }
+
+    @Test
+    @DisplayName("测试长行和格式错误的数据行")
+    void testLongAndMalformedLines() {
+        String longText = "命".repeat(5000);
+        String stream = "data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"" + longText + "\"}]}}]}\n"
+                + "data: {\"candidates\": [\n"
+                + "data: {\"candidates\": {\"content\": {}}}\n"
+                + "data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": 42}]}}]}\n";
+        List<String> chunks = new ArrayList<>();
+        GeminiStreamParser parser = new GeminiStreamParser(objectMapper.getFactory(), chunks::add);
+        parser.feed(ByteBuffer.wrap(stream.getBytes(StandardCharsets.UTF_8)));
+        parser.finish();
+
+        assertEquals(List.of(longText), chunks);
+        assertEquals(1, parser.getMalformedCount());
+    }
+}
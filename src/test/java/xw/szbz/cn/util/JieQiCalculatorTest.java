@@ -0,0 +1,101 @@
+package xw.szbz.cn.util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JieQiCalculator 节气表单元测试
+ */
+class JieQiCalculatorTest {
+
+    @ParameterizedTest
+    @DisplayName("测试交节时刻与天文台公布时刻相差不超过1分钟（北京时间）")
+    @CsvSource({
+        "2000, 5, 2000-03-20T15:35",   // 春分
+        "2021, 2, 2021-02-03T22:59",   // 立春
+        "2023, 2, 2023-02-04T10:42",   // 立春
+        "2023, 23, 2023-12-22T11:27",  // 冬至
+        "2024, 2, 2024-02-04T16:27",   // 立春
+        "2024, 11, 2024-06-21T04:51",  // 夏至
+        "2025, 2, 2025-02-03T22:10"    // 立春
+    })
+    void testTermTime(int year, int order, String expected) {
+        int index = (year - JieQiCalculator.START_YEAR) * 24 + order;
+        LocalDateTime actual = JieQiCalculator.termTime(index);
+        long diff = Math.abs(Duration.between(LocalDateTime.parse(expected), actual).toMinutes());
+        assertTrue(diff <= 1, JieQiCalculator.termName(index) + " " + actual + " 与 " + expected + " 相差过大");
+    }
+
+    @Test
+    @DisplayName("测试节气表按时间升序且每年24个节气都落在当年")
+    void testTableOrder() {
+        int count = (JieQiCalculator.END_YEAR - JieQiCalculator.START_YEAR + 1) * 24;
+        for (int i = 1; i < count; i++) {
+            int gap = JieQiCalculator.termMinute(i) - JieQiCalculator.termMinute(i - 1);
+            // 相邻节气间隔约 14.7-15.7 天
+            assertTrue(gap > 14 * 1440 && gap < 16 * 1440, "节气间隔异常: " + JieQiCalculator.termTime(i));
+            assertEquals(JieQiCalculator.termYear(i), JieQiCalculator.termTime(i).getYear());
+        }
+    }
+
+    @Test
+    @DisplayName("测试交节前后一分钟的节气月、干支年和月将")
+    void testBoundary() {
+        // 2024年立春 16:27
+        int liChun = (2024 - JieQiCalculator.START_YEAR) * 24 + 2;
+        int at = JieQiCalculator.termMinute(liChun);
+
+        assertEquals(1, JieQiCalculator.monthZhiAt(at - 1));  // 丑月
+        assertEquals(2023, JieQiCalculator.ganZhiYearAt(at - 1));
+        assertEquals(2, JieQiCalculator.monthZhiAt(at));      // 寅月
+        assertEquals(2024, JieQiCalculator.ganZhiYearAt(at));
+        // 立春是节，不换月将：大寒后子将
+        assertEquals(0, JieQiCalculator.yueJiangAt(at));
+
+        // 雨水后换亥将
+        int yuShui = JieQiCalculator.termMinute(liChun + 1);
+        assertEquals(0, JieQiCalculator.yueJiangAt(yuShui - 1));
+        assertEquals(11, JieQiCalculator.yueJiangAt(yuShui));
+    }
+
+    @ParameterizedTest
+    @DisplayName("测试每个节气对应的节气月与月将")
+    @CsvSource({
+        "0, 1, 1",    // 小寒：丑月，冬至后丑将
+        "1, 1, 0",    // 大寒：丑月，子将
+        "5, 3, 10",   // 春分：卯月，戌将
+        "11, 6, 7",   // 夏至：午月，未将
+        "22, 0, 2",   // 大雪：子月，小雪后寅将
+        "23, 0, 1"    // 冬至：子月，丑将
+    })
+    void testMonthZhiAndYueJiang(int order, int monthZhi, int yueJiang) {
+        int minute = JieQiCalculator.termMinute((2010 - JieQiCalculator.START_YEAR) * 24 + order) + 60;
+        assertEquals(monthZhi, JieQiCalculator.monthZhiAt(minute));
+        assertEquals(yueJiang, JieQiCalculator.yueJiangAt(minute));
+    }
+
+    @Test
+    @DisplayName("测试分钟换算与LocalDateTime一致")
+    void testToMinute() {
+        LocalDateTime time = LocalDateTime.of(1900, 1, 1, 0, 0);
+        while (time.getYear() <= 2100) {
+            assertEquals(JieQiCalculator.toMinute(time), JieQiCalculator.toMinute(
+                    time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute()));
+            time = time.plusHours(97).plusMinutes(13);
+        }
+    }
+
+    @Test
+    @DisplayName("测试超出节气表范围抛出异常")
+    void testOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> JieQiCalculator.termIndexAt(JieQiCalculator.toMinute(1800, 1, 1, 0, 0)));
+    }
+}
@@ -0,0 +1,86 @@
+package xw.szbz.cn.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式 JSON 顶层字段增量解析测试
+ */
+class JsonFieldStreamParserTest {
+
+    private static final String JSON = "{\"score\": 86, \"summary\": \"宜守不宜攻，\\\"静待\\\"时机\","
+            + " \"aspects\": [{\"name\": \"事业\", \"score\": 80}, {\"name\": \"财运\", \"score\": 72.5}],"
+            + " \"advice\": {\"do\": [\"稳\"], \"avoid\": null}, \"lucky\": true}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试字段的值解析完整后立即回调，不等待整个对象结束")
+    void testEmitsFieldsAsTheyComplete() {
+        Map<String, JsonNode> fields = new LinkedHashMap<>();
+        JsonFieldStreamParser parser = new JsonFieldStreamParser(objectMapper, fields::put);
+
+        int aspectsEnd = JSON.indexOf("],") + 1;
+        parser.feed(JSON.substring(0, aspectsEnd));
+        // score、summary 已完整；aspects 的数组已结束，但要看到下一个字符才能确认数字等标量的结尾
+        assertEquals(List.of("score", "summary", "aspects"), new ArrayList<>(fields.keySet()));
+        assertEquals("宜守不宜攻，\"静待\"时机", fields.get("summary").asText());
+        assertEquals(72.5, fields.get("aspects").get(1).get("score").asDouble());
+
+        parser.feed(JSON.substring(aspectsEnd));
+        parser.finish();
+        assertEquals(List.of("score", "summary", "aspects", "advice", "lucky"), new ArrayList<>(fields.keySet()));
+        assertTrue(fields.get("advice").get("avoid").isNull());
+        assertTrue(fields.get("lucky").asBoolean());
+        assertFalse(parser.isFailed());
+        assertEquals(5, parser.getFieldCount());
+    }
+
+    @Test
+    @DisplayName("测试任意切分位置与一次性解析结果一致")
+    void testArbitrarySplits() throws Exception {
+        JsonNode expected = objectMapper.readTree(JSON);
+        for (int split = 0; split <= JSON.length(); split++) {
+            Map<String, JsonNode> fields = new LinkedHashMap<>();
+            JsonFieldStreamParser parser = new JsonFieldStreamParser(objectMapper, fields::put);
+            parser.feed(JSON.substring(0, split));
+            parser.feed(JSON.substring(split));
+            parser.finish();
+            // 小数经 TokenBuffer 后可能是 DecimalNode，按序列化结果比较
+            assertEquals(expected.toString(), objectMapper.valueToTree(fields).toString(), "split at " + split);
+        }
+    }
+
+    @Test
+    @DisplayName("测试根节点不是对象或 JSON 不合法时停止增量解析")
+    void testUnsupportedInput() {
+        List<String> names = new ArrayList<>();
+        JsonFieldStreamParser array = new JsonFieldStreamParser(objectMapper, (name, value) -> names.add(name));
+        array.feed("[1, 2]");
+        array.finish();
+        assertTrue(array.isFailed());
+
+        JsonFieldStreamParser broken = new JsonFieldStreamParser(objectMapper, (name, value) -> names.add(name));
+        broken.feed("{\"a\": 1, \"b\": ");
+        broken.feed("}");
+        broken.finish();
+        assertTrue(broken.isFailed());
+        assertEquals(List.of("a"), names);
+
+        JsonFieldStreamParser truncated = new JsonFieldStreamParser(objectMapper, (name, value) -> names.add(name));
+        truncated.feed("{\"c\": \"未完");
+        truncated.finish();
+        assertTrue(truncated.isFailed());
+        assertEquals(List.of("a"), names);
+    }
+}
@@ -0,0 +1,84 @@
+package xw.szbz.cn.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无锁环形队列测试
+ */
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("测试先进先出、容量取整和满时拒绝")
+    void testOfferPoll() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        assertNull(ring.poll());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试多生产者并发写入，每个生产者的元素保持顺序且不丢失")
+    void testConcurrentProducers() throws Exception {
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (long i = 0; i < perProducer; i++) {
+                    while (!ring.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        long[] next = new long[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            long[] element = ring.poll();
+            if (element == null) {
+                assertTrue(System.nanoTime() < deadline, "等待超时");
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[(int) element[0]]++, element[1]);
+            received++;
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertNull(ring.poll());
+    }
+}
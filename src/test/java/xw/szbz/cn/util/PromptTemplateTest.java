@@ -0,0 +1,95 @@
+package xw.szbz.cn.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预编译模板与模板热加载测试
+ */
+class PromptTemplateTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("测试单遍渲染与逐个 replace 结果一致")
+    void testRender() {
+        PromptTemplate template = PromptTemplate.compile("问：${question}\n背景：${background}\n再问：${question}${missing}末尾");
+        Map<String, String> variables = new HashMap<>();
+        variables.put("question", "问事业");
+        variables.put("background", null);
+
+        assertEquals("问：问事业\n背景：\n再问：问事业${missing}末尾", template.render(variables));
+        assertEquals(4, template.getPlaceholderCount());
+    }
+
+    @Test
+    @DisplayName("测试变量值中的占位符不会被再次替换")
+    void testValueNotReSubstituted() {
+        PromptTemplate template = PromptTemplate.compile("${a}|${b}");
+        Map<String, String> variables = Map.of("a", "${b}", "b", "B");
+
+        assertEquals("${b}|B", template.render(variables));
+    }
+
+    @Test
+    @DisplayName("测试没有占位符、未闭合占位符")
+    void testEdgeCases() {
+        assertEquals("纯文本", PromptTemplate.compile("纯文本").render(Map.of()));
+        assertEquals("", PromptTemplate.compile("").render(Map.of()));
+        assertEquals("x${open", PromptTemplate.compile("${v}${open").render(Map.of("v", "x")));
+    }
+
+    @Test
+    @DisplayName("测试挂载目录中的模板修改后重新加载")
+    void testHotReload() throws Exception {
+        Path file = tempDir.resolve("prompts/test_template.txt");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "版本一：${name}", StandardCharsets.UTF_8);
+
+        PromptTemplateUtil util = new PromptTemplateUtil();
+        ReflectionTestUtils.setField(util, "promptBasePath", tempDir.toString());
+        util.startWatcher();
+        try {
+            Map<String, String> variables = Map.of("name", "张三");
+            assertEquals("版本一：张三", util.renderTemplate("prompts/test_template.txt", variables));
+
+            Files.writeString(file, "版本二：${name}", StandardCharsets.UTF_8);
+            String rendered = null;
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline) {
+                rendered = util.renderTemplate("prompts/test_template.txt", variables);
+                if (rendered.startsWith("版本二")) {
+                    break;
+                }
+                Thread.sleep(50);
+            }
+            assertEquals("版本二：张三", rendered);
+        } finally {
+            util.stopWatcher();
+        }
+    }
+
+    @Test
+    @DisplayName("测试挂载目录中没有的模板回退到类路径，且只读取一次")
+    void testClassPathFallback() {
+        PromptTemplateUtil util = new PromptTemplateUtil();
+        ReflectionTestUtils.setField(util, "promptBasePath", tempDir.toString());
+
+        String first = util.renderBaZiTemplate("庚午年", "壬午", null, "壬午 癸未");
+        String second = util.renderBaZiTemplate("庚午年", "壬午", null, "壬午 癸未");
+        assertEquals(first, second);
+        assertTrue(first.contains("庚午年"));
+        assertTrue(first.contains("无特殊背景"));
+    }
+}
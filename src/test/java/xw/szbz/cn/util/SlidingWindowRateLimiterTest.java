@@ -0,0 +1,124 @@
+package xw.szbz.cn.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滑动窗口限流器测试
+ */
+class SlidingWindowRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(60_000L * 1000);
+
+    @Test
+    @DisplayName("测试窗口内超过限制后拒绝，超限请求不计数")
+    void testLimitWithinWindow() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(100, 60_000L, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("1.1.1.1", 5));
+        }
+        assertFalse(limiter.tryAcquire("1.1.1.1", 5));
+        assertFalse(limiter.tryAcquire("1.1.1.1", 5));
+        assertTrue(limiter.tryAcquire("2.2.2.2", 5), "不同 key 独立计数");
+        assertEquals(5, limiter.snapshot().get("1.1.1.1").get("requestCount"));
+        assertEquals(2L, limiter.getStats().get("rejected"));
+    }
+
+    @Test
+    @DisplayName("测试上一窗口计数按剩余比例计入")
+    void testSlidingWindow() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(100, 60_000L, now::get);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("ip", 10));
+        }
+
+        // 进入下一窗口 15 秒：上一窗口计 10 × 0.75 = 7.5，还能再通过 2 次
+        now.addAndGet(75_000L);
+        assertTrue(limiter.tryAcquire("ip", 10));
+        assertTrue(limiter.tryAcquire("ip", 10));
+        assertFalse(limiter.tryAcquire("ip", 10));
+
+        // 窗口结束时上一窗口计数完全衰减
+        now.addAndGet(45_000L);
+        assertEquals(2, limiter.snapshot().get("ip").get("previousCount"));
+
+        // 两个窗口无请求后计数清零
+        now.addAndGet(120_000L);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("ip", 10));
+        }
+    }
+
+    @Test
+    @DisplayName("测试条目数不超过容量，持续活跃的条目不被淘汰")
+    void testBoundedCapacity() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(100, 60_000L, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("scan-" + i, 10);
+            if (i % 10 == 0) {
+                limiter.tryAcquire("active", 100_000);
+            }
+            assertTrue(limiter.size() <= 100);
+        }
+        assertTrue((Long) limiter.getStats().get("evictions") > 9_000);
+        assertEquals(1_000, limiter.snapshot().get("active").get("requestCount"));
+        assertNull(limiter.snapshot().get("scan-0"));
+    }
+
+    @Test
+    @DisplayName("测试两个窗口无请求的条目被淘汰")
+    void testExpiredEntriesEvicted() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(100, 60_000L, now::get);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("idle-" + i, 10);
+        }
+        now.addAndGet(60_000L);
+        limiter.tryAcquire("idle-0", 10);
+        limiter.tryAcquire("other", 10);
+        now.addAndGet(60_000L);
+        limiter.tryAcquire("other", 10);
+        limiter.tryAcquire("new", 10);
+
+        // idle-0 在上一窗口被访问过，其余 idle 条目已随轮换丢弃（other 提升后在两代中各计一次）
+        assertEquals(Set.of("idle-0", "other", "new"), limiter.snapshot().keySet());
+        assertEquals(4, limiter.size());
+    }
+
+    @Test
+    @DisplayName("测试并发请求不会超过限制")
+    void testConcurrentAcquire() throws Exception {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(100, 60_000L, now::get);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return limiter.tryAcquire("ip", 60);
+            }));
+        }
+        start.countDown();
+
+        int granted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(5, TimeUnit.SECONDS)) {
+                granted++;
+            }
+        }
+        pool.shutdown();
+        assertEquals(60, granted);
+    }
+}